@@ -0,0 +1,180 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Migrates databases created from the exported schemas (android/schemas) to the current version
+ * and validates the result against the current schema.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationDatabaseMigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final String PARTITION = "notifications_w2800";
+    private static final String BIG_TEXT = "A long body stored as TEXT before CompressedText";
+    private static final String MESSAGES_JSON = "[{\"text\":\"Hi\",\"timestamp\":1700000000000,\"sender\":\"Ann\"}]";
+
+    private static final Migration[] ALL_MIGRATIONS = {
+        NotificationDatabase.MIGRATION_4_5,
+        NotificationDatabase.MIGRATION_5_6,
+        NotificationDatabase.MIGRATION_6_7,
+        NotificationDatabase.MIGRATION_7_8,
+        NotificationDatabase.MIGRATION_8_9,
+        NotificationDatabase.MIGRATION_9_10,
+        NotificationDatabase.MIGRATION_10_11,
+        NotificationDatabase.MIGRATION_11_12
+    };
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(), NotificationDatabase.class);
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().getTargetContext().deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migratesVersion4ToCurrent() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 4)) {
+            insertRow(db, "notifications", "first", 1_700_000_000_000L);
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 12, true, ALL_MIGRATIONS)) {
+            try (
+                Cursor cursor = db.query(
+                    "SELECT typeof(bigText), typeof(messagesJson), notificationKey, messageCount FROM notifications WHERE id = 'first'"
+                )
+            ) {
+                assertTrue(cursor.moveToFirst());
+                // Kept as written; CompressedText reads TEXT values as uncompressed UTF-8
+                assertEquals("text", cursor.getString(0));
+                assertEquals("text", cursor.getString(1));
+                assertTrue(cursor.isNull(2));
+                assertEquals(0, cursor.getInt(3));
+            }
+        }
+
+        // The migrated rows read back through Room and the CompressedText converter
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        NotificationDatabase db = Room.databaseBuilder(context, NotificationDatabase.class, TEST_DB)
+            .addMigrations(ALL_MIGRATIONS)
+            .allowMainThreadQueries()
+            .build();
+        try {
+            List<NotificationEntity> rows = db.notificationDao().getNotifications(10);
+            assertEquals(1, rows.size());
+            assertEquals(BIG_TEXT, CompressedText.decode(rows.get(0).bigText));
+            assertEquals(MESSAGES_JSON, CompressedText.decode(rows.get(0).messagesJson));
+            assertNull(rows.get(0).inboxLinesJson);
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void migration6To7KeepsTheTableAsIs() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 6)) {
+            insertRow(db, "notifications", "first", 1_700_000_000_000L);
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 7, true, NotificationDatabase.MIGRATION_6_7)) {
+            assertEquals("TEXT", columnType(db, "notifications", "bigText"));
+            assertEquals("TEXT", columnType(db, "notifications", "messagesJson"));
+            try (Cursor cursor = db.query("SELECT typeof(bigText), bigText FROM notifications WHERE id = 'first'")) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals("text", cursor.getString(0));
+                assertEquals(BIG_TEXT, CompressedText.decodeStored(cursor.getBlob(1)));
+            }
+        }
+    }
+
+    @Test
+    public void partitionTablesMigrateWithTheNotificationsTable() throws IOException {
+        // Partitions exist since version 7
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 7)) {
+            insertRow(db, "notifications", "base", 1_700_000_000_000L);
+            // Created the way NotificationPartitions creates partitions, from the notifications schema
+            String schema;
+            try (Cursor cursor = db.query("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'notifications'")) {
+                assertTrue(cursor.moveToFirst());
+                schema = cursor.getString(0);
+            }
+            db.execSQL(schema.replaceFirst("`?notifications`?", "`" + PARTITION + "`"));
+            db.execSQL("CREATE INDEX `index_" + PARTITION + "_postTime` ON `" + PARTITION + "` (`postTime`)");
+            db.execSQL(
+                "CREATE INDEX `index_" + PARTITION + "_notificationKey_postTime` ON `" + PARTITION + "` (`notificationKey`, `postTime`)"
+            );
+            insertRow(db, PARTITION, "partitioned", 1_690_000_000_000L);
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 12, true, ALL_MIGRATIONS)) {
+            assertEquals("TEXT", columnType(db, PARTITION, "conversationKey"));
+            try (Cursor cursor = db.query("SELECT id, messageCount FROM `" + PARTITION + "`")) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals("partitioned", cursor.getString(0));
+                assertEquals(0, cursor.getInt(1));
+                assertEquals(1, cursor.getCount());
+            }
+            Set<String> indexes = indexes(db, PARTITION);
+            assertTrue(indexes.contains("index_" + PARTITION + "_style_postTime"));
+            assertTrue(indexes.contains("index_" + PARTITION + "_conversationKey_firstMessageTime"));
+        }
+    }
+
+    /**
+     * Inserts a notification with the columns every version since 4 has.
+     */
+    private static void insertRow(SupportSQLiteDatabase db, String table, String id, long postTime) {
+        db.execSQL(
+            "INSERT INTO `" +
+            table +
+            "` (id, packageName, appName, title, text, postTime, style, isGroupSummary, actionsJson, isOngoing, " +
+            "autoCancel, isLocalOnly, priority, number, bigText, isGroupConversation, messagesJson, progress, " +
+            "progressMax, progressIndeterminate) VALUES (?, 'com.example.app', 'Example', 'Title', 'Text', ?, " +
+            "'BigTextStyle', 0, '[]', 0, 1, 0, 0, 0, ?, 0, ?, 0, 0, 0)",
+            new Object[] { id, postTime, BIG_TEXT, MESSAGES_JSON }
+        );
+    }
+
+    private static String columnType(SupportSQLiteDatabase db, String table, String column) {
+        try (Cursor cursor = db.query("PRAGMA table_info(`" + table + "`)")) {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            int typeIndex = cursor.getColumnIndexOrThrow("type");
+            while (cursor.moveToNext()) {
+                if (cursor.getString(nameIndex).equals(column)) {
+                    return cursor.getString(typeIndex);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> indexes(SupportSQLiteDatabase db, String table) {
+        Set<String> names = new HashSet<>();
+        try (Cursor cursor = db.query("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?", new Object[] { table })) {
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,250 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.service.notification.StatusBarNotification;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory mirror of the notifications currently shown in the notification drawer.
+ * Kept up to date by NotificationListenerService from its posted/removed callbacks so that
+ * getActiveNotifications does not need a binder round-trip or to rebuild every entity per call.
+ * <p>
+ * Every change is stamped with a monotonically increasing version, which lets callers ask
+ * for only the changes since a version they have already seen. Versions start at a random
+ * per-process epoch, so a version kept from an earlier process is answered with a reset.
+ */
+public class ActiveNotificationCache {
+
+    // Removed keys are remembered so deltas can report them; beyond this the oldest are dropped
+    private static final int MAX_REMOVED_KEYS = 512;
+    // The epoch occupies the bits above the change counter; 20 of them keep versions below 2^53,
+    // the largest integer JavaScript represents exactly
+    private static final int EPOCH_SHIFT = 32;
+    private static final int EPOCH_COUNT = 1 << 20;
+
+    private final Map<String, Entry> active = new ConcurrentHashMap<>();
+    private final Map<String, Long> removed = new ConcurrentHashMap<>();
+
+    private long version;
+    // Deltas requested from before this version can no longer be answered exactly
+    private long oldestDeltaVersion;
+    private volatile boolean seeded;
+
+    public ActiveNotificationCache() {
+        this((long) (new SecureRandom().nextInt(EPOCH_COUNT - 1) + 1) << EPOCH_SHIFT);
+    }
+
+    ActiveNotificationCache(long epoch) {
+        version = epoch;
+        oldestDeltaVersion = epoch;
+    }
+
+    /**
+     * Replaces the mirror with the given set of active notifications.
+     * Called when the listener (re)connects; callers holding an older version receive a full reset.
+     *
+     * @param notifications Notifications currently active in the drawer
+     */
+    public synchronized void reset(StatusBarNotification[] notifications) {
+        active.clear();
+        removed.clear();
+        version++;
+        if (notifications != null) {
+            for (StatusBarNotification sbn : notifications) {
+                active.put(sbn.getKey(), new Entry(sbn, null, version));
+            }
+        }
+        oldestDeltaVersion = version;
+        seeded = true;
+    }
+
+    /**
+     * Records a posted or updated notification.
+     *
+     * @param sbn The posted notification
+     * @param entity Entity already built for this notification, or null to build it lazily on first read
+     */
+    public synchronized void put(StatusBarNotification sbn, NotificationEntity entity) {
+        version++;
+        removed.remove(sbn.getKey());
+        active.put(sbn.getKey(), new Entry(sbn, entity, version));
+    }
+
+    /**
+     * Records the removal of a notification from the drawer.
+     *
+     * @param key Notification key as returned by StatusBarNotification#getKey()
+     * @return The entity of the removed notification if it had been built, otherwise null
+     */
+    public synchronized NotificationEntity remove(String key) {
+        Entry entry = active.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        version++;
+        removed.put(key, version);
+        if (removed.size() > MAX_REMOVED_KEYS) {
+            pruneRemovedKeys();
+        }
+        return entry.entity;
+    }
+
+    /**
+     * @return true once the mirror has been populated from the listener service
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * @return The version of the most recent change
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The raw StatusBarNotifications currently mirrored
+     */
+    public synchronized List<StatusBarNotification> getStatusBarNotifications() {
+        List<StatusBarNotification> notifications = new ArrayList<>(active.size());
+        for (Entry entry : active.values()) {
+            notifications.add(entry.sbn);
+        }
+        return notifications;
+    }
+
+    /**
+     * Returns a snapshot of all active notifications.
+     *
+     * @param context Context used to build entities that have not been materialized yet
+     * @return Snapshot of the mirror
+     */
+    public Snapshot snapshot(Context context) {
+        List<Entry> entries;
+        long snapshotVersion;
+        synchronized (this) {
+            entries = new ArrayList<>(active.values());
+            snapshotVersion = version;
+        }
+        return new Snapshot(materialize(context, entries), new ArrayList<>(), snapshotVersion, false);
+    }
+
+    /**
+     * Returns the notifications posted or updated, and the keys removed, after the given version.
+     * Falls back to a full snapshot (with {@link Snapshot#reset} set) if the version is unknown
+     * or older than the retained removal history.
+     *
+     * @param context Context used to build entities that have not been materialized yet
+     * @param sinceVersion Version previously returned to the caller
+     * @return Changes since the version, or a full snapshot
+     */
+    public Snapshot changesSince(Context context, long sinceVersion) {
+        List<Entry> changed = new ArrayList<>();
+        List<String> removedKeys = new ArrayList<>();
+        long snapshotVersion;
+        boolean reset;
+        synchronized (this) {
+            reset = sinceVersion < oldestDeltaVersion || sinceVersion > version;
+            for (Entry entry : active.values()) {
+                if (reset || entry.version > sinceVersion) {
+                    changed.add(entry);
+                }
+            }
+            if (!reset) {
+                for (Map.Entry<String, Long> entry : removed.entrySet()) {
+                    if (entry.getValue() > sinceVersion) {
+                        removedKeys.add(entry.getKey());
+                    }
+                }
+            }
+            snapshotVersion = version;
+        }
+        return new Snapshot(materialize(context, changed), removedKeys, snapshotVersion, reset);
+    }
+
+    private List<ActiveNotification> materialize(Context context, List<Entry> entries) {
+        List<ActiveNotification> notifications = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            notifications.add(new ActiveNotification(entry.key, entry.getEntity(context)));
+        }
+        return notifications;
+    }
+
+    private void pruneRemovedKeys() {
+        // Drop the older half of the removal history
+        List<Long> versions = new ArrayList<>(removed.values());
+        versions.sort(null);
+        long cutoff = versions.get(versions.size() / 2);
+        Iterator<Map.Entry<String, Long>> iterator = removed.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() <= cutoff) {
+                iterator.remove();
+            }
+        }
+        oldestDeltaVersion = Math.max(oldestDeltaVersion, cutoff);
+    }
+
+    private static final class Entry {
+
+        final String key;
+        final StatusBarNotification sbn;
+        final long version;
+        private volatile NotificationEntity entity;
+
+        Entry(StatusBarNotification sbn, NotificationEntity entity, long version) {
+            this.key = sbn.getKey();
+            this.sbn = sbn;
+            this.entity = entity;
+            this.version = version;
+        }
+
+        NotificationEntity getEntity(Context context) {
+            NotificationEntity result = entity;
+            if (result == null) {
+                // Racing readers may both build the entity; either result is equivalent
+                result = new NotificationEntity(context, sbn);
+                entity = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An active notification together with its system notification key.
+     */
+    public static final class ActiveNotification {
+
+        public final String key;
+        public final NotificationEntity entity;
+
+        ActiveNotification(String key, NotificationEntity entity) {
+            this.key = key;
+            this.entity = entity;
+        }
+    }
+
+    /**
+     * Result of a snapshot or delta read.
+     */
+    public static final class Snapshot {
+
+        public final List<ActiveNotification> notifications;
+        public final List<String> removedKeys;
+        public final long version;
+        public final boolean reset;
+
+        Snapshot(List<ActiveNotification> notifications, List<String> removedKeys, long version, boolean reset) {
+            this.notifications = notifications;
+            this.removedKeys = removedKeys;
+            this.version = version;
+            this.reset = reset;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.Base64;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes drawables and bitmaps as base64 PNG strings.
+ * Shared by notification entity construction and the installed apps listing.
+ */
+public final class ImageEncoder {
+
+    // Size used for drawables without an intrinsic size (e.g. adaptive icons)
+    private static final int DEFAULT_SIZE = 96;
+
+    private ImageEncoder() {}
+
+    /**
+     * Rasterises a drawable and encodes it as a base64 PNG.
+     * @param drawable Drawable to encode
+     * @return Base64-encoded PNG, or null if drawable is null
+     */
+    public static String drawableToBase64(Drawable drawable) {
+        if (drawable == null) return null;
+        long start = NotificationReaderMetrics.start();
+        Bitmap bitmap;
+        if (drawable instanceof BitmapDrawable) {
+            bitmap = ((BitmapDrawable) drawable).getBitmap();
+        } else {
+            int width = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : DEFAULT_SIZE;
+            int height = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : DEFAULT_SIZE;
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+            drawable.draw(canvas);
+        }
+        String encoded = encode(bitmap);
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.IMAGE_ENCODING, start);
+        return encoded;
+    }
+
+    /**
+     * Rasterises a drawable at the given square size and encodes it as a base64 PNG.
+     * @param drawable Drawable to encode
+     * @param size Width and height in pixels
+     * @return Base64-encoded PNG, or null if drawable is null
+     */
+    public static String drawableToBase64(Drawable drawable, int size) {
+        if (drawable == null) return null;
+        long start = NotificationReaderMetrics.start();
+        Bitmap bitmap;
+        if (drawable instanceof BitmapDrawable) {
+            bitmap = Bitmap.createScaledBitmap(((BitmapDrawable) drawable).getBitmap(), size, size, true);
+        } else {
+            bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, size, size);
+            drawable.draw(canvas);
+        }
+        String encoded = encode(bitmap);
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.IMAGE_ENCODING, start);
+        return encoded;
+    }
+
+    /**
+     * Encodes a bitmap as a base64 PNG.
+     * @param bitmap Bitmap to encode
+     * @return Base64-encoded PNG, or null if bitmap is null
+     */
+    public static String bitmapToBase64(Bitmap bitmap) {
+        if (bitmap == null) return null;
+        long start = NotificationReaderMetrics.start();
+        String encoded = encode(bitmap);
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.IMAGE_ENCODING, start);
+        return encoded;
+    }
+
+    private static String encode(Bitmap bitmap) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
+        byte[] byteArray = outputStream.toByteArray();
+        return Base64.encodeToString(byteArray, Base64.NO_WRAP);
+    }
+}
@@ -0,0 +1,113 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.service.notification.StatusBarNotification;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores the notifications that were already active when the listener first connected.
+ * <p>
+ * Work is done in small batches, each inserted in a single transaction. Postings that are
+ * already stored (same key and post time) are skipped before their entity is built, so a
+ * backfill interrupted by process death resumes where it stopped on the next connect.
+ * Between batches the job waits for pending live ingestion to drain.
+ */
+class InitialBackfill {
+
+    private static final String TAG = "NotificationReader";
+    private static final int BATCH_SIZE = 20;
+    // Upper bound on how long a batch waits for live ingestion before going ahead anyway
+    private static final long MAX_YIELD_MS = 2_000;
+
+    private static volatile JSObject lastStatus;
+
+    private final NotificationListenerService service;
+    private final Context context;
+
+    InitialBackfill(NotificationListenerService service, Context context) {
+        this.service = service;
+        this.context = context;
+    }
+
+    /**
+     * @return Progress of the current or last backfill, or null if none ran in this process
+     */
+    static JSObject getLastStatus() {
+        return lastStatus;
+    }
+
+    /**
+     * Runs the backfill to completion.
+     * @return true if every active notification was processed
+     */
+    boolean run() {
+        List<StatusBarNotification> pending = new ArrayList<>();
+        for (StatusBarNotification sbn : NotificationListenerService.getActiveNotificationCache().getStatusBarNotifications()) {
+            if (service.shouldLogNotification(sbn)) {
+                pending.add(sbn);
+            }
+        }
+
+        NotificationStore store = NotificationStores.get(context);
+        int total = pending.size();
+        int inserted = 0;
+        int skipped = 0;
+        report(total, 0, inserted, skipped, false);
+
+        try {
+            for (int start = 0; start < total; start += BATCH_SIZE) {
+                PluginExecutors.awaitDrained(PluginExecutors.Lane.INGESTION, MAX_YIELD_MS);
+
+                List<StatusBarNotification> batch = pending.subList(start, Math.min(start + BATCH_SIZE, total));
+                List<String> keys = new ArrayList<>(batch.size());
+                for (StatusBarNotification sbn : batch) {
+                    keys.add(sbn.getKey());
+                }
+                Set<String> stored = new HashSet<>(store.getStoredPostings(keys));
+
+                List<NotificationEntity> entities = new ArrayList<>(batch.size());
+                for (StatusBarNotification sbn : batch) {
+                    if (stored.contains(sbn.getKey() + ":" + sbn.getPostTime())) {
+                        skipped++;
+                    } else {
+                        entities.add(new NotificationEntity(context, sbn));
+                    }
+                }
+
+                if (!entities.isEmpty()) {
+                    store.insertAll(entities);
+                    service.enforceStorageLimit(store);
+                    NotificationQueryCache.invalidate();
+                    inserted += entities.size();
+                }
+                report(total, start + batch.size(), inserted, skipped, false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Initial backfill failed, it will resume on the next connect", e);
+            return false;
+        }
+
+        report(total, total, inserted, skipped, true);
+        return true;
+    }
+
+    private void report(int total, int processed, int inserted, int skipped, boolean done) {
+        JSObject status = new JSObject();
+        status.put("total", total);
+        status.put("processed", processed);
+        status.put("inserted", inserted);
+        status.put("skipped", skipped);
+        status.put("done", done);
+        lastStatus = status;
+        NotificationReaderPlugin.onBackfillProgress(status);
+    }
+}
@@ -0,0 +1,186 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.LruCache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the installed application list and rendered app icons between getInstalledApps calls.
+ * <p>
+ * The application list is reloaded only when PackageManager reports changed packages
+ * (Android 8+) or after a short TTL on older versions. Icons are rendered on a small bounded
+ * pool and kept in an LRU cache keyed by package and size.
+ */
+class InstalledAppsCache {
+
+    private static final long LIST_TTL_MS = 60_000; // Used where getChangedPackages is unavailable
+    private static final int ICON_CACHE_CHARS = 4 * 1024 * 1024; // ~8 MB of base64 strings
+    private static final int ICON_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static final ThreadPoolExecutor iconExecutor = new ThreadPoolExecutor(
+        ICON_THREADS,
+        ICON_THREADS,
+        30,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        r -> {
+            Thread thread = new Thread(r, "NotificationReader-icons");
+            thread.setDaemon(true);
+            return thread;
+        }
+    );
+
+    static {
+        iconExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final InstalledAppsCache instance = new InstalledAppsCache();
+
+    private final LruCache<String, String> icons = new LruCache<>(ICON_CACHE_CHARS) {
+        @Override
+        protected int sizeOf(String key, String value) {
+            return value.length();
+        }
+    };
+
+    private List<AppInfo> apps;
+    private long loadedAtElapsed;
+    private int packageSequence;
+
+    static InstalledAppsCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Scales the icon cache to a fraction of its normal size, evicting as needed.
+     *
+     * @param fraction 1 for the normal size, 0 to drop all icons
+     */
+    void resizeIcons(double fraction) {
+        icons.resize(Math.max(1, (int) (ICON_CACHE_CHARS * fraction)));
+    }
+
+    /**
+     * Application metadata without icon.
+     */
+    static final class AppInfo {
+
+        final String packageName;
+        final String appName;
+        final boolean isSystemApp;
+
+        AppInfo(String packageName, String appName, boolean isSystemApp) {
+            this.packageName = packageName;
+            this.appName = appName;
+            this.isSystemApp = isSystemApp;
+        }
+    }
+
+    /**
+     * Returns all installed applications sorted by name, reloading them only if packages changed.
+     */
+    synchronized List<AppInfo> getApps(Context context) {
+        PackageManager pm = context.getPackageManager();
+        // Always consult the change sequence so it advances even on the first load
+        boolean changed = hasPackagesChanged(pm);
+        if (apps == null || changed) {
+            List<ApplicationInfo> infos = pm.getInstalledApplications(0);
+            List<AppInfo> loaded = new ArrayList<>(infos.size());
+            for (ApplicationInfo info : infos) {
+                boolean isSystemApp = (info.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
+                loaded.add(new AppInfo(info.packageName, pm.getApplicationLabel(info).toString(), isSystemApp));
+            }
+            loaded.sort((a, b) -> a.appName.compareToIgnoreCase(b.appName));
+            apps = Collections.unmodifiableList(loaded);
+            loadedAtElapsed = SystemClock.elapsedRealtime();
+        }
+        return apps;
+    }
+
+    /**
+     * Renders the icons of the given packages in parallel.
+     *
+     * @param size Icon size in pixels, or 0 for the drawable's intrinsic size
+     * @return Base64 PNG icons in the same order as packageNames (null entries where unavailable)
+     */
+    List<String> getIcons(Context context, List<String> packageNames, int size) throws InterruptedException {
+        PackageManager pm = context.getPackageManager();
+        List<String> result = new ArrayList<>(packageNames.size());
+        List<Future<String>> pending = new ArrayList<>(packageNames.size());
+        for (String packageName : packageNames) {
+            String cached = icons.get(iconKey(packageName, size));
+            result.add(cached);
+            pending.add(cached != null ? null : iconExecutor.submit((Callable<String>) () -> renderIcon(pm, packageName, size)));
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            Future<String> future = pending.get(i);
+            if (future != null) {
+                try {
+                    result.set(i, future.get());
+                } catch (ExecutionException e) {
+                    // Leave the icon unset
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Renders a single app icon, served from the cache when possible.
+     */
+    String getIcon(Context context, String packageName, int size) {
+        String cached = icons.get(iconKey(packageName, size));
+        return cached != null ? cached : renderIcon(context.getPackageManager(), packageName, size);
+    }
+
+    private String renderIcon(PackageManager pm, String packageName, int size) {
+        try {
+            Drawable drawable = pm.getApplicationIcon(packageName);
+            String icon = size > 0 ? ImageEncoder.drawableToBase64(drawable, size) : ImageEncoder.drawableToBase64(drawable);
+            if (icon != null) {
+                icons.put(iconKey(packageName, size), icon);
+            }
+            return icon;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private boolean hasPackagesChanged(PackageManager pm) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            ChangedPackages changed = pm.getChangedPackages(packageSequence);
+            if (changed == null) {
+                return false;
+            }
+            packageSequence = changed.getSequenceNumber();
+            for (String packageName : changed.getPackageNames()) {
+                for (String key : icons.snapshot().keySet()) {
+                    if (key.startsWith(packageName + "@")) {
+                        icons.remove(key);
+                    }
+                }
+            }
+            return true;
+        }
+        return SystemClock.elapsedRealtime() - loadedAtElapsed > LIST_TTL_MS;
+    }
+
+    private static String iconKey(String packageName, int size) {
+        return packageName + "@" + size;
+    }
+}
@@ -0,0 +1,91 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.getcapacitor.JSObject;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed power-of-two microsecond buckets.
+ * Bucket i counts samples below 2^i microseconds (bucket 0 is sub-microsecond), so
+ * recording is a couple of atomic increments and percentiles are reported as bucket upper bounds.
+ */
+public class LatencyHistogram {
+
+    // 2^27 us is a little over two minutes; anything slower lands in the last bucket
+    private static final int BUCKET_COUNT = 28;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single sample.
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        long micros = nanos / 1000;
+        int bucket = micros == 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket containing it.
+     * @param percentile Percentile between 0 and 1
+     * @return Upper bound in microseconds, or 0 if nothing was recorded
+     */
+    public long percentileMicros(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKET_COUNT - 1);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return Count, mean, max and p50/p90/p99 in microseconds
+     */
+    public JSObject toJSObject() {
+        long total = count.get();
+        JSObject obj = new JSObject();
+        obj.put("count", total);
+        obj.put("meanUs", total > 0 ? totalNanos.get() / total / 1000 : 0);
+        obj.put("p50Us", percentileMicros(0.5));
+        obj.put("p90Us", percentileMicros(0.9));
+        obj.put("p99Us", percentileMicros(0.99));
+        obj.put("maxUs", maxNanos.get() / 1000);
+        return obj;
+    }
+}
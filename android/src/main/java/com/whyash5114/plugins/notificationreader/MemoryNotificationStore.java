@@ -0,0 +1,228 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the most recent notifications in a fixed-size ring buffer, for ephemeral or live-only
+ * use where nothing should be written to disk. When full, storing a notification drops the
+ * one stored longest ago; eviction removes in the same order.
+ * <p>
+ * Queries scan the buffer and evaluate filters with
+ * {@link NotificationFilterQuery#matches(NotificationEntity)}, which is cheap at the sizes a
+ * memory store is meant for. Sizes are estimated like ROW_SIZE, from the length of each field.
+ */
+public final class MemoryNotificationStore implements NotificationStore {
+
+    private final NotificationEntity[] ring;
+    private final long[] sizes;
+    // Index of the notification stored longest ago
+    private int head;
+    private int size;
+    private long totalBytes;
+    private final Set<String> ids = new HashSet<>();
+
+    /**
+     * @param capacity Maximum number of notifications kept
+     */
+    public MemoryNotificationStore(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        ring = new NotificationEntity[capacity];
+        sizes = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    @Override
+    public synchronized void insert(NotificationEntity entity) {
+        if (ids.contains(entity.id)) {
+            removeWhere(stored -> stored.id.equals(entity.id), 1);
+        }
+        if (size == ring.length) {
+            removeOldest(1);
+        }
+        int slot = (head + size) % ring.length;
+        ring[slot] = entity;
+        sizes[slot] = estimateSize(entity);
+        totalBytes += sizes[slot];
+        ids.add(entity.id);
+        size++;
+    }
+
+    @Override
+    public synchronized void insertAll(List<NotificationEntity> entities) {
+        for (NotificationEntity entity : entities) {
+            insert(entity);
+        }
+    }
+
+    @Override
+    public synchronized List<NotificationEntity> query(NotificationFilterQuery filter, Long cursor, int limit) {
+        List<NotificationEntity> matches = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            NotificationEntity entity = ring[(head + i) % ring.length];
+            if ((cursor == null || cursor <= 0 || entity.postTime < cursor) && filter.matches(entity)) {
+                matches.add(entity);
+            }
+        }
+        matches.sort((a, b) -> Long.compare(b.postTime, a.postTime));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    @Override
+    public synchronized int count() {
+        return size;
+    }
+
+    @Override
+    public synchronized Long sizeBytes() {
+        return size > 0 ? totalBytes : null;
+    }
+
+    @Override
+    public synchronized long evictOldest(int batchSize) {
+        return removeOldest(batchSize);
+    }
+
+    @Override
+    public synchronized int deleteByIds(List<String> deleted) {
+        Set<String> wanted = new HashSet<>(deleted);
+        return (int) removeWhere(entity -> wanted.contains(entity.id), Integer.MAX_VALUE)[0];
+    }
+
+    @Override
+    public synchronized long[] deleteMatching(NotificationFilterQuery filter, int chunkSize) {
+        return removeWhere(filter::matches, chunkSize);
+    }
+
+    @Override
+    public synchronized void deleteAll() {
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = null;
+        }
+        head = 0;
+        size = 0;
+        totalBytes = 0;
+        ids.clear();
+    }
+
+    @Override
+    public synchronized List<String> getStoredPackageNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            names.add(ring[(head + i) % ring.length].packageName);
+        }
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public synchronized List<String> getStoredPostings(List<String> keys) {
+        Set<String> wanted = new HashSet<>(keys);
+        List<String> postings = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            NotificationEntity entity = ring[(head + i) % ring.length];
+            if (entity.notificationKey != null && wanted.contains(entity.notificationKey)) {
+                postings.add(entity.notificationKey + ":" + entity.postTime);
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * @return The stored notifications, oldest first
+     */
+    synchronized List<NotificationEntity> snapshot() {
+        List<NotificationEntity> all = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            all.add(ring[(head + i) % ring.length]);
+        }
+        return all;
+    }
+
+    private long removeOldest(int count) {
+        int removed = Math.min(count, size);
+        for (int i = 0; i < removed; i++) {
+            totalBytes -= sizes[head];
+            ids.remove(ring[head].id);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+        }
+        size -= removed;
+        return removed;
+    }
+
+    /**
+     * Removes up to max matching notifications and closes the gaps, keeping the order.
+     *
+     * @return Number of notifications removed and their estimated size
+     */
+    private long[] removeWhere(Predicate<NotificationEntity> predicate, int max) {
+        int kept = 0;
+        long removed = 0;
+        long bytes = 0;
+        for (int i = 0; i < size; i++) {
+            int from = (head + i) % ring.length;
+            NotificationEntity entity = ring[from];
+            if (removed < max && predicate.test(entity)) {
+                removed++;
+                bytes += sizes[from];
+                ids.remove(entity.id);
+                continue;
+            }
+            int to = (head + kept) % ring.length;
+            ring[to] = entity;
+            sizes[to] = sizes[from];
+            kept++;
+        }
+        for (int i = kept; i < size; i++) {
+            ring[(head + i) % ring.length] = null;
+        }
+        size = kept;
+        totalBytes -= bytes;
+        return new long[] { removed, bytes };
+    }
+
+    static long estimateSize(NotificationEntity entity) {
+        return (
+            length(entity.id) +
+            length(entity.packageName) +
+            length(entity.appName) +
+            length(entity.title) +
+            length(entity.text) +
+            length(entity.smallIcon) +
+            length(entity.largeIcon) +
+            length(entity.appIcon) +
+            length(entity.category) +
+            length(entity.style) +
+            length(entity.subText) +
+            length(entity.infoText) +
+            length(entity.summaryText) +
+            length(entity.groupKey) +
+            length(entity.channelId) +
+            length(entity.actionsJson) +
+            length(CompressedText.decode(entity.bigText)) +
+            length(entity.bigPicture) +
+            length(entity.pictureContentDescription) +
+            length(CompressedText.decode(entity.inboxLinesJson)) +
+            length(entity.conversationTitle) +
+            length(CompressedText.decode(entity.messagesJson)) +
+            length(entity.callerName) +
+            length(entity.notificationKey) +
+            length(entity.conversationKey)
+        );
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -0,0 +1,659 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Archive tier for notifications older than the configured archiveAfterDays.
+ * <p>
+ * Old rows are moved out of the notifications table into immutable segment files under
+ * {@code files/notification_archive}. A segment holds up to SEGMENT_ROWS notifications, newest
+ * first, in Deflate-compressed blocks of BLOCK_ROWS rows. Each block is framed by its length and
+ * row count, and a sidecar index records per block the offset, time range, packages and app names,
+ * so queries only inflate blocks that can match.
+ * <p>
+ * A segment becomes visible once its index is written, which happens after its rows were deleted
+ * from the table. A data file without an index is left over from an interrupted run; the next run
+ * finishes deleting its rows and writes the index.
+ */
+public final class NotificationArchive {
+
+    private static final String TAG = "NotificationReader";
+    private static final String DIR_NAME = "notification_archive";
+    private static final String DATA_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    static final int SEGMENT_ROWS = 5_000;
+    static final int BLOCK_ROWS = 256;
+    // Rows deleted from the table per statement, below SQLite's bound variable limit
+    private static final int DELETE_BATCH = 500;
+    private static final long RUN_INTERVAL_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final long MAX_YIELD_MS = 2_000;
+
+    // Held for reading while segment files are read, and for writing while they are replaced or deleted
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Committed segments, newest first; replaced as a whole on every change
+    private static volatile List<Segment> segments;
+    private static volatile long lastRunElapsed;
+
+    private NotificationArchive() {}
+
+    /**
+     * Schedules an archive run on the bulk lane if archiving is enabled and the last run was
+     * more than an hour ago. Cheap enough to call after every insert.
+     */
+    public static void maybeSchedule(Context context, NotificationReaderConfig config) {
+        if (config.getArchiveAfterDays() <= 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (lastRunElapsed != 0 && now - lastRunElapsed < RUN_INTERVAL_MS) {
+            return;
+        }
+        lastRunElapsed = now;
+        try {
+            PluginExecutors.execute(PluginExecutors.Lane.BULK, () -> run(context, config.getArchiveAfterDays()));
+        } catch (RejectedExecutionException e) {
+            // Bulk lane is busy; try again after the next insert
+            lastRunElapsed = 0;
+        }
+    }
+
+    /**
+     * Forgets the last run time so the next {@link #maybeSchedule} call runs immediately.
+     */
+    public static void requestRun() {
+        lastRunElapsed = 0;
+    }
+
+    /**
+     * Moves notifications posted more than archiveAfterDays ago into new segments.
+     * Must run on the bulk lane.
+     */
+    static void run(Context context, int archiveAfterDays) {
+        NotificationDatabase db = NotificationDatabase.getDatabase(context);
+        File dir = getDirectory(context);
+        long cutoff = System.currentTimeMillis() - archiveAfterDays * DAY_MS;
+        int archived = 0;
+
+        try {
+            loadSegments(context);
+            recoverUncommitted(dir, db);
+
+            while (true) {
+                PluginExecutors.awaitDrained(PluginExecutors.Lane.INGESTION, MAX_YIELD_MS);
+                List<NotificationEntity> rows = NotificationPartitions.getNotificationsBefore(db, cutoff, SEGMENT_ROWS);
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                List<JSObject> objects = new ArrayList<>(rows.size());
+                List<String> ids = new ArrayList<>(rows.size());
+                for (NotificationEntity entity : rows) {
+                    objects.add(NotificationReaderPlugin.notificationEntityToJSObject(entity));
+                    ids.add(entity.id);
+                }
+
+                File dataFile = new File(dir, "segment-" + System.currentTimeMillis() + "-" + archived + DATA_SUFFIX);
+                Segment segment = writeSegment(dataFile, objects);
+                deleteFromTable(db, ids);
+                commit(segment);
+                archived += rows.size();
+
+                if (rows.size() < SEGMENT_ROWS) {
+                    break;
+                }
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Archiving failed, it will be retried later", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (archived > 0) {
+            NotificationPartitions.dropEmptyPartitions(db);
+            Log.i(TAG, "Archived " + archived + " notifications older than " + archiveAfterDays + " days");
+        }
+    }
+
+    /**
+     * Returns archived notifications matching a filter, newest first.
+     *
+     * @param filter Filter to apply
+     * @param cursor Only notifications posted strictly before this time, or null
+     * @param limit Maximum number of notifications to return
+     * @return Notifications in the shape returned by getNotifications
+     */
+    public static List<JSObject> query(Context context, NotificationFilterQuery filter, Long cursor, int limit) {
+        List<Segment> current = loadSegments(context);
+        List<JSObject> results = new ArrayList<>();
+        if (current.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        long upper = Long.MAX_VALUE;
+        if (cursor != null && cursor > 0) {
+            upper = cursor;
+        }
+        if (filter.beforeTimestamp != null) {
+            upper = Math.min(upper, filter.beforeTimestamp);
+        }
+        long lower = filter.afterTimestamp != null ? filter.afterTimestamp : Long.MIN_VALUE;
+
+        lock.readLock().lock();
+        try {
+            for (Segment segment : current) {
+                if (isFull(results, limit) && segment.maxPostTime < oldestTimestamp(results)) {
+                    // Segments are ordered by their newest row; none of the rest can rank higher
+                    break;
+                }
+                if (segment.minPostTime >= upper || segment.maxPostTime <= lower) {
+                    continue;
+                }
+                for (Block block : segment.blocks) {
+                    if (block.minPostTime >= upper || block.maxPostTime <= lower || !block.mayMatch(filter)) {
+                        continue;
+                    }
+                    if (isFull(results, limit) && block.maxPostTime < oldestTimestamp(results)) {
+                        break;
+                    }
+                    for (JSObject row : readBlock(segment.dataFile, block)) {
+                        long postTime = row.optLong("timestamp", 0L);
+                        if (postTime < upper && filter.matches(NotificationReaderPlugin.jsObjectToNotificationEntity(row))) {
+                            results.add(row);
+                        }
+                    }
+                    sortAndTrim(results, limit);
+                }
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Failed to read archived notifications", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Deletes archived notifications matching a filter by rewriting the segments that hold them.
+     * Must run on the bulk lane.
+     *
+     * @return Number of deleted notifications and the number of bytes freed on disk
+     */
+    public static long[] delete(Context context, NotificationFilterQuery filter) {
+        long deleted = 0;
+        long bytesReclaimed = 0;
+        File dir = getDirectory(context);
+
+        try {
+            for (Segment segment : loadSegments(context)) {
+                if (!segment.mayMatch(filter)) {
+                    continue;
+                }
+
+                List<JSObject> kept = new ArrayList<>();
+                int removed = 0;
+                for (Block block : segment.blocks) {
+                    for (JSObject row : readBlock(segment.dataFile, block)) {
+                        if (block.mayMatch(filter) && filter.matches(NotificationReaderPlugin.jsObjectToNotificationEntity(row))) {
+                            removed++;
+                        } else {
+                            kept.add(row);
+                        }
+                    }
+                }
+                if (removed == 0) {
+                    continue;
+                }
+
+                long oldSize = segment.dataFile.length();
+                Segment replacement = null;
+                if (!kept.isEmpty()) {
+                    File dataFile = new File(dir, segment.dataFile.getName().replace(DATA_SUFFIX, "") + "-r" + System.currentTimeMillis() + DATA_SUFFIX);
+                    replacement = writeSegment(dataFile, kept);
+                    writeIndex(replacement);
+                }
+                replace(segment, replacement);
+                deleted += removed;
+                bytesReclaimed += oldSize - (replacement != null ? replacement.dataFile.length() : 0);
+            }
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Failed to delete archived notifications", e);
+        }
+
+        if (deleted > 0) {
+            NotificationQueryCache.invalidate();
+        }
+        return new long[] { deleted, bytesReclaimed };
+    }
+
+    /**
+     * Deletes every archived notification.
+     */
+    public static void clear(Context context) {
+        lock.writeLock().lock();
+        try {
+            File[] files = getDirectory(context).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.delete()) {
+                        Log.w(TAG, "Failed to delete archive file " + file);
+                    }
+                }
+            }
+            segments = Collections.emptyList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        NotificationQueryCache.invalidate();
+    }
+
+    /**
+     * @return Number of segments, archived rows and bytes on disk
+     */
+    public static JSObject metrics(Context context) {
+        long rows = 0;
+        long bytes = 0;
+        List<Segment> current = loadSegments(context);
+        for (Segment segment : current) {
+            rows += segment.rows;
+            bytes += segment.dataFile.length();
+        }
+        JSObject obj = new JSObject();
+        obj.put("segments", current.size());
+        obj.put("rows", rows);
+        obj.put("bytes", bytes);
+        return obj;
+    }
+
+    private static File getDirectory(Context context) {
+        File dir = new File(context.getFilesDir(), DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Failed to create " + dir);
+        }
+        return dir;
+    }
+
+    private static List<Segment> loadSegments(Context context) {
+        List<Segment> current = segments;
+        if (current != null) {
+            return current;
+        }
+        synchronized (NotificationArchive.class) {
+            if (segments == null) {
+                List<Segment> loaded = new ArrayList<>();
+                File[] files = getDirectory(context).listFiles((d, name) -> name.endsWith(INDEX_SUFFIX));
+                if (files != null) {
+                    for (File indexFile : files) {
+                        try {
+                            loaded.add(readIndex(indexFile));
+                        } catch (IOException | JSONException e) {
+                            Log.w(TAG, "Skipping unreadable archive index " + indexFile, e);
+                        }
+                    }
+                }
+                loaded.sort((a, b) -> Long.compare(b.maxPostTime, a.maxPostTime));
+                segments = Collections.unmodifiableList(loaded);
+            }
+            return segments;
+        }
+    }
+
+    private static void recoverUncommitted(File dir, NotificationDatabase db) throws IOException, JSONException {
+        File[] dataFiles = dir.listFiles((d, name) -> name.endsWith(DATA_SUFFIX));
+        if (dataFiles == null) {
+            return;
+        }
+        for (File dataFile : dataFiles) {
+            if (indexFileFor(dataFile).exists()) {
+                continue;
+            }
+            // Written but not committed: finish moving its rows out of the table
+            Segment segment;
+            List<String> ids = new ArrayList<>();
+            try {
+                segment = scanDataFile(dataFile, ids);
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Discarding incomplete archive segment " + dataFile, e);
+                if (!dataFile.delete()) {
+                    Log.w(TAG, "Failed to delete " + dataFile);
+                }
+                continue;
+            }
+            deleteFromTable(db, ids);
+            commit(segment);
+        }
+    }
+
+    private static void deleteFromTable(NotificationDatabase db, List<String> ids) {
+        for (int start = 0; start < ids.size(); start += DELETE_BATCH) {
+            NotificationPartitions.deleteByIds(db, ids.subList(start, Math.min(start + DELETE_BATCH, ids.size())));
+        }
+        NotificationQueryCache.invalidate();
+    }
+
+    private static void commit(Segment segment) throws IOException {
+        writeIndex(segment);
+        replace(null, segment);
+    }
+
+    private static void replace(Segment old, Segment replacement) {
+        lock.writeLock().lock();
+        try {
+            List<Segment> updated = new ArrayList<>(segments != null ? segments : Collections.emptyList());
+            if (old != null) {
+                updated.remove(old);
+                deleteQuietly(indexFileFor(old.dataFile));
+                deleteQuietly(old.dataFile);
+            }
+            if (replacement != null) {
+                updated.add(replacement);
+            }
+            updated.sort((a, b) -> Long.compare(b.maxPostTime, a.maxPostTime));
+            segments = Collections.unmodifiableList(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        NotificationQueryCache.invalidate();
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete " + file);
+        }
+    }
+
+    private static Segment writeSegment(File dataFile, List<JSObject> rows) throws IOException, JSONException {
+        rows.sort((a, b) -> Long.compare(b.optLong("timestamp", 0L), a.optLong("timestamp", 0L)));
+        Segment segment = new Segment(dataFile);
+
+        try (FileOutputStream out = new FileOutputStream(dataFile)) {
+            long offset = 0;
+            for (int start = 0; start < rows.size(); start += BLOCK_ROWS) {
+                List<JSObject> blockRows = rows.subList(start, Math.min(start + BLOCK_ROWS, rows.size()));
+                byte[] payload = deflate(new JSONArray(blockRows).toString().getBytes(StandardCharsets.UTF_8));
+
+                ByteBuffer frame = ByteBuffer.allocate(8).putInt(payload.length).putInt(blockRows.size());
+                out.write(frame.array());
+                out.write(payload);
+
+                Block block = new Block(offset + 8, payload.length);
+                for (JSObject row : blockRows) {
+                    block.add(row);
+                }
+                segment.add(block);
+                offset += 8 + payload.length;
+            }
+            out.getFD().sync();
+        }
+        return segment;
+    }
+
+    private static Segment scanDataFile(File dataFile, List<String> ids) throws IOException, JSONException {
+        Segment segment = new Segment(dataFile);
+        try (DataInputStream in = new DataInputStream(new FileInputStream(dataFile))) {
+            long offset = 0;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                in.readInt(); // row count
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                Block block = new Block(offset + 8, length);
+                JSONArray rows = new JSONArray(inflate(payload));
+                for (int i = 0; i < rows.length(); i++) {
+                    JSObject row = JSObject.fromJSONObject(rows.getJSONObject(i));
+                    block.add(row);
+                    ids.add(row.getString("id"));
+                }
+                segment.add(block);
+                offset += 8 + length;
+            }
+        }
+        return segment;
+    }
+
+    private static List<JSObject> readBlock(File dataFile, Block block) throws IOException, JSONException {
+        byte[] payload = new byte[block.length];
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "r")) {
+            file.seek(block.offset);
+            file.readFully(payload);
+        }
+        JSONArray rows = new JSONArray(inflate(payload));
+        List<JSObject> result = new ArrayList<>(rows.length());
+        for (int i = 0; i < rows.length(); i++) {
+            result.add(JSObject.fromJSONObject(rows.getJSONObject(i)));
+        }
+        return result;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] payload) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(payload);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toString(StandardCharsets.UTF_8.name());
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static File indexFileFor(File dataFile) {
+        String name = dataFile.getName();
+        return new File(dataFile.getParentFile(), name.substring(0, name.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    private static void writeIndex(Segment segment) throws IOException {
+        JSONObject index = segment.toJSON();
+        File indexFile = indexFileFor(segment.dataFile);
+        File temp = new File(indexFile.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(index.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(indexFile)) {
+            throw new IOException("Failed to commit " + indexFile);
+        }
+    }
+
+    private static Segment readIndex(File indexFile) throws IOException, JSONException {
+        byte[] bytes = new byte[(int) indexFile.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+            in.readFully(bytes);
+        }
+        JSONObject index = new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+        String name = indexFile.getName();
+        File dataFile = new File(indexFile.getParentFile(), name.substring(0, name.length() - INDEX_SUFFIX.length()) + DATA_SUFFIX);
+        Segment segment = new Segment(dataFile);
+        JSONArray blocks = index.getJSONArray("blocks");
+        for (int i = 0; i < blocks.length(); i++) {
+            segment.add(Block.fromJSON(blocks.getJSONObject(i)));
+        }
+        return segment;
+    }
+
+    private static boolean isFull(List<JSObject> results, int limit) {
+        return results.size() >= limit;
+    }
+
+    private static long oldestTimestamp(List<JSObject> results) {
+        return results.get(results.size() - 1).optLong("timestamp", 0L);
+    }
+
+    private static void sortAndTrim(List<JSObject> results, int limit) {
+        results.sort((a, b) -> Long.compare(b.optLong("timestamp", 0L), a.optLong("timestamp", 0L)));
+        while (results.size() > limit) {
+            results.remove(results.size() - 1);
+        }
+    }
+
+    private static final class Segment {
+
+        final File dataFile;
+        final List<Block> blocks = new ArrayList<>();
+        long minPostTime = Long.MAX_VALUE;
+        long maxPostTime = Long.MIN_VALUE;
+        int rows;
+
+        Segment(File dataFile) {
+            this.dataFile = dataFile;
+        }
+
+        void add(Block block) {
+            blocks.add(block);
+            minPostTime = Math.min(minPostTime, block.minPostTime);
+            maxPostTime = Math.max(maxPostTime, block.maxPostTime);
+            rows += block.rows;
+        }
+
+        boolean mayMatch(NotificationFilterQuery filter) {
+            for (Block block : blocks) {
+                if (block.mayMatch(filter)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        JSONObject toJSON() {
+            JSONArray blockArray = new JSONArray();
+            for (Block block : blocks) {
+                blockArray.put(block.toJSON());
+            }
+            JSObject obj = new JSObject();
+            obj.put("version", 1);
+            obj.put("rows", rows);
+            obj.put("minPostTime", minPostTime);
+            obj.put("maxPostTime", maxPostTime);
+            obj.put("blocks", blockArray);
+            return obj;
+        }
+    }
+
+    private static final class Block {
+
+        final long offset;
+        final int length;
+        final Set<String> packages = new HashSet<>();
+        final Set<String> apps = new HashSet<>();
+        long minPostTime = Long.MAX_VALUE;
+        long maxPostTime = Long.MIN_VALUE;
+        int rows;
+
+        Block(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        void add(JSObject row) {
+            long postTime = row.optLong("timestamp", 0L);
+            minPostTime = Math.min(minPostTime, postTime);
+            maxPostTime = Math.max(maxPostTime, postTime);
+            packages.add(row.optString("packageName", ""));
+            apps.add(row.optString("appName", ""));
+            rows++;
+        }
+
+        boolean mayMatch(NotificationFilterQuery filter) {
+            if (filter.afterTimestamp != null && maxPostTime <= filter.afterTimestamp) {
+                return false;
+            }
+            if (filter.beforeTimestamp != null && minPostTime >= filter.beforeTimestamp) {
+                return false;
+            }
+            if (filter.packageName != null && !packages.contains(filter.packageName)) {
+                return false;
+            }
+            return filter.appNames == null || !Collections.disjoint(filter.appNames, apps);
+        }
+
+        JSONObject toJSON() {
+            JSObject obj = new JSObject();
+            obj.put("offset", offset);
+            obj.put("length", length);
+            obj.put("rows", rows);
+            obj.put("minPostTime", minPostTime);
+            obj.put("maxPostTime", maxPostTime);
+            obj.put("packages", new JSONArray(packages));
+            obj.put("apps", new JSONArray(apps));
+            return obj;
+        }
+
+        static Block fromJSON(JSONObject obj) throws JSONException {
+            Block block = new Block(obj.getLong("offset"), obj.getInt("length"));
+            block.rows = obj.getInt("rows");
+            block.minPostTime = obj.getLong("minPostTime");
+            block.maxPostTime = obj.getLong("maxPostTime");
+            JSONArray packages = obj.getJSONArray("packages");
+            for (int i = 0; i < packages.length(); i++) {
+                block.packages.add(packages.getString(i));
+            }
+            JSONArray apps = obj.getJSONArray("apps");
+            for (int i = 0; i < apps.length(); i++) {
+                block.apps.add(apps.getString(i));
+            }
+            return block;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationChangeDao;
+import com.whyash5114.plugins.notificationreader.db.NotificationChangeEntity;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of writes to stored notifications, so consumers can sync by asking what
+ * changed since the last sequence number they saw instead of reading everything again.
+ * <p>
+ * {@link NotificationPartitions} appends to the log in the same transaction as each write.
+ * Entries only hold the notification id; upserted rows are read when changes are returned, so
+ * a row changed several times is returned as it is now. Only the most recent
+ * {@link NotificationReaderConfig#getChangeLogRetention()} entries are kept; a consumer that
+ * fell further behind is told to start over.
+ */
+public final class NotificationChangeLog {
+
+    static final String TYPE_UPSERT = "upsert";
+    static final String TYPE_DELETE = "delete";
+    static final String TYPE_DELETE_BEFORE = "deleteBefore";
+    static final String TYPE_CLEAR = "clear";
+
+    private static volatile int retention = 10_000;
+
+    private NotificationChangeLog() {}
+
+    public static void configure(NotificationReaderConfig config) {
+        retention = config.getChangeLogRetention();
+    }
+
+    // region Appending; each must run in the transaction of the write it records
+
+    static void logUpserts(NotificationDatabase db, List<NotificationEntity> entities) {
+        long now = System.currentTimeMillis();
+        List<NotificationChangeEntity> changes = new ArrayList<>(entities.size());
+        for (NotificationEntity entity : entities) {
+            changes.add(new NotificationChangeEntity(TYPE_UPSERT, entity.id, 0, now));
+        }
+        append(db, changes);
+    }
+
+    static void logDeletes(NotificationDatabase db, List<String> ids) {
+        long now = System.currentTimeMillis();
+        List<NotificationChangeEntity> changes = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            changes.add(new NotificationChangeEntity(TYPE_DELETE, id, 0, now));
+        }
+        append(db, changes);
+    }
+
+    /**
+     * Records that every notification posted before the given time was removed, for evictions
+     * that drop a whole partition without reading its ids.
+     */
+    static void logDeleteBefore(NotificationDatabase db, long postedBefore) {
+        append(db, Collections.singletonList(new NotificationChangeEntity(TYPE_DELETE_BEFORE, null, postedBefore, System.currentTimeMillis())));
+    }
+
+    /**
+     * Records that every notification was deleted. Earlier changes no longer matter and are
+     * dropped from the log.
+     */
+    static void logClear(NotificationDatabase db) {
+        if (retention <= 0) {
+            return;
+        }
+        NotificationChangeDao dao = db.changeDao();
+        dao.deleteUpTo(dao.getLastSeq());
+        append(db, Collections.singletonList(new NotificationChangeEntity(TYPE_CLEAR, null, 0, System.currentTimeMillis())));
+    }
+
+    private static void append(NotificationDatabase db, List<NotificationChangeEntity> changes) {
+        int keep = retention;
+        if (keep <= 0 || changes.isEmpty()) {
+            return;
+        }
+        List<Long> seqs = db.changeDao().insertAll(changes);
+        long last = seqs.get(seqs.size() - 1);
+        if (last > keep) {
+            db.changeDao().deleteUpTo(last - keep);
+        }
+        NotificationChangePusher.requestPush();
+    }
+
+    // endregion
+
+    /**
+     * Returns changes after the given sequence number, oldest first.
+     *
+     * @param sinceSeq lastSeq of the previous call, or 0 to start from the oldest kept change
+     * @return {changes, lastSeq, hasMore, reset}; reset is true if changes after sinceSeq were
+     *         already trimmed (or the database was recreated), in which case the consumer
+     *         must read all stored notifications again before applying these
+     */
+    static JSObject getChanges(NotificationDatabase db, long sinceSeq, int limit) {
+        NotificationChangeDao dao = db.changeDao();
+        long firstSeq = dao.getFirstSeq();
+        long lastSeq = dao.getLastSeq();
+        // A sequence number from the future means the database was recreated
+        boolean reset = firstSeq > sinceSeq + 1 || sinceSeq > lastSeq;
+        long from = sinceSeq > lastSeq ? 0 : sinceSeq;
+        List<NotificationChangeEntity> page = dao.getSince(from, limit);
+
+        List<String> upsertIds = new ArrayList<>();
+        for (NotificationChangeEntity change : page) {
+            if (TYPE_UPSERT.equals(change.type)) {
+                upsertIds.add(change.notificationId);
+            }
+        }
+        Map<String, NotificationEntity> rows = new HashMap<>();
+        for (NotificationEntity row : NotificationPartitions.getByIds(db, upsertIds)) {
+            rows.put(row.id, row);
+        }
+
+        JSArray changes = new JSArray();
+        for (NotificationChangeEntity change : page) {
+            JSObject obj = new JSObject();
+            obj.put("seq", change.seq);
+            obj.put("type", change.type);
+            obj.put("changedAt", change.changedAt);
+            if (change.notificationId != null) {
+                obj.put("id", change.notificationId);
+            }
+            if (TYPE_DELETE_BEFORE.equals(change.type)) {
+                obj.put("postedBefore", change.postedBefore);
+            }
+            NotificationEntity row = TYPE_UPSERT.equals(change.type) ? rows.get(change.notificationId) : null;
+            if (row != null) {
+                // Absent if the row was deleted since; a later delete change follows
+                obj.put("notification", NotificationImages.toUrls(NotificationReaderPlugin.notificationEntityToJSObject(row)));
+            }
+            changes.put(obj);
+        }
+
+        JSObject result = new JSObject();
+        result.put("changes", changes);
+        result.put("lastSeq", page.isEmpty() ? lastSeq : page.get(page.size() - 1).seq);
+        result.put("hasMore", page.size() == limit);
+        result.put("reset", reset);
+        return result;
+    }
+}
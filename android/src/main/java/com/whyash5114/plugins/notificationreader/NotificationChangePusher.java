@@ -0,0 +1,210 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pushes the change log to a local HTTP endpoint in batches.
+ * <p>
+ * Each batch is POSTed as JSON in the shape returned by getChanges. A 2xx response
+ * acknowledges the batch, or only up to the "ack" sequence number if the response body has
+ * one; the last acknowledged sequence number is kept in the config so delivery resumes where
+ * it stopped. Failed pushes are retried with exponential backoff. Pushes are triggered by new
+ * changes, debounced so a burst of notifications is sent as one batch.
+ */
+public final class NotificationChangePusher {
+
+    private static final String TAG = "NotificationReader";
+    private static final long DEBOUNCE_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    private static final int BATCH_SIZE = 200;
+    private static final int TIMEOUT_MS = 10_000;
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "NotificationReader-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final AtomicLong pushed = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    private static volatile Context appContext;
+    private static volatile String endpoint;
+    private static ScheduledFuture<?> pending;
+    private static long backoffMs;
+
+    private NotificationChangePusher() {}
+
+    /**
+     * Applies the configured endpoint and pushes anything not yet acknowledged.
+     */
+    public static void configure(Context context, NotificationReaderConfig config) {
+        synchronized (NotificationChangePusher.class) {
+            appContext = context.getApplicationContext();
+            endpoint = config.getChangeLogEndpoint();
+            backoffMs = 0;
+        }
+        requestPush();
+    }
+
+    /**
+     * @return true if the URL is an http(s) URL on this device, the only endpoints accepted
+     */
+    public static boolean isLocalEndpoint(String url) {
+        Uri uri = Uri.parse(url);
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        return (
+            ("http".equals(scheme) || "https".equals(scheme)) &&
+            ("localhost".equals(host) || "127.0.0.1".equals(host) || "::1".equals(host) || "[::1]".equals(host))
+        );
+    }
+
+    /**
+     * Schedules a push unless one is already scheduled. Called after changes are appended.
+     */
+    static synchronized void requestPush() {
+        if (endpoint == null || appContext == null || (pending != null && !pending.isDone())) {
+            return;
+        }
+        pending = executor.schedule(NotificationChangePusher::push, backoffMs > 0 ? backoffMs : DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void push() {
+        Context context;
+        String url;
+        synchronized (NotificationChangePusher.class) {
+            // Changes appended from now on schedule another run
+            pending = null;
+            context = appContext;
+            url = endpoint;
+        }
+        if (context == null || url == null) {
+            return;
+        }
+        NotificationReaderConfig config = new NotificationReaderConfig(context);
+        NotificationDatabase db = NotificationDatabase.getDatabase(context);
+        boolean complete;
+        try {
+            while (true) {
+                long acked = config.getChangeLogAckedSeq();
+                JSObject batch = NotificationChangeLog.getChanges(db, acked, BATCH_SIZE);
+                long lastSeq = batch.getLong("lastSeq");
+                if (batch.getJSONArray("changes").length() == 0 && !batch.getBoolean("reset")) {
+                    complete = true;
+                    break;
+                }
+                long ack = post(url, batch, lastSeq);
+                if (!url.equals(endpoint)) {
+                    // Reconfigured meanwhile; the new endpoint starts over
+                    return;
+                }
+                // After a reset the log restarted below the old acknowledgement
+                config.setChangeLogAckedSeq(batch.getBoolean("reset") ? ack : Math.max(ack, acked));
+                pushed.addAndGet(batch.getJSONArray("changes").length());
+                if (ack < lastSeq || !batch.getBoolean("hasMore")) {
+                    // Partly acknowledged: the rest is sent again after the debounce
+                    complete = ack >= lastSeq;
+                    break;
+                }
+            }
+        } catch (IOException | JSONException | RuntimeException e) {
+            failures.incrementAndGet();
+            synchronized (NotificationChangePusher.class) {
+                backoffMs = backoffMs == 0 ? DEBOUNCE_MS : Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            }
+            Log.w(TAG, "Failed to push notification changes, retrying in " + backoffMs + "ms", e);
+            requestPush();
+            return;
+        }
+        synchronized (NotificationChangePusher.class) {
+            backoffMs = 0;
+        }
+        if (!complete) {
+            requestPush();
+        }
+    }
+
+    /**
+     * POSTs a batch and returns the sequence number the endpoint acknowledged.
+     *
+     * @throws IOException if the request fails or the response is not 2xx
+     */
+    private static long post(String url, JSObject batch, long lastSeq) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            byte[] body = batch.toString().getBytes(StandardCharsets.UTF_8);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException("Change endpoint responded with HTTP " + status);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return parseAck(readAll(in), lastSeq);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static long parseAck(String response, long lastSeq) {
+        try {
+            JSONObject json = new JSONObject(response);
+            if (json.opt("ack") instanceof Number ack) {
+                return Math.min(ack.longValue(), lastSeq);
+            }
+        } catch (JSONException e) {
+            // Any other body acknowledges the whole batch
+        }
+        return lastSeq;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * @return Delivery counters and the endpoint's progress
+     */
+    public static JSObject metrics(Context context) {
+        NotificationReaderConfig config = new NotificationReaderConfig(context);
+        JSObject obj = new JSObject();
+        obj.put("endpoint", config.getChangeLogEndpoint());
+        obj.put("ackedSeq", config.getChangeLogAckedSeq());
+        obj.put("pushed", pushed.get());
+        obj.put("failures", failures.get());
+        return obj;
+    }
+}
@@ -0,0 +1,47 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+
+/**
+ * A data migration too heavy to run inside a Room {@link androidx.room.migration.Migration},
+ * such as re-encoding values or backfilling side tables. {@link NotificationDataMigrations}
+ * runs it in the background in small chunks, each in its own short transaction, so reads and
+ * ingestion continue in between, and saves its progress so it resumes after process death.
+ */
+public interface NotificationDataMigration {
+    /**
+     * @return Stable id under which progress is saved; changing it runs the migration again
+     */
+    String getId();
+
+    /**
+     * @return Approximate number of rows to process, for progress reporting
+     */
+    long countRows(NotificationDatabase db);
+
+    /**
+     * Processes the next chunk. Must be idempotent: a chunk interrupted before its progress was
+     * saved runs again.
+     *
+     * @param cursor Cursor returned by the previous chunk, or null for the first
+     */
+    Chunk migrateChunk(NotificationDatabase db, String cursor, int chunkSize);
+
+    final class Chunk {
+
+        final int processed;
+        final String cursor;
+        final boolean done;
+
+        /**
+         * @param processed Number of rows processed by this chunk
+         * @param cursor Where the next chunk continues
+         * @param done true if there is nothing left to process
+         */
+        public Chunk(int processed, String cursor, boolean done) {
+            this.processed = processed;
+            this.cursor = cursor;
+            this.done = done;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the registered {@link NotificationDataMigration}s on the bulk lane, one after another,
+ * after Room has applied the schema migrations.
+ * <p>
+ * Each chunk waits for pending live ingestion first, like the initial backfill, and saves its
+ * cursor and progress when it completes, so an interrupted migration resumes where it stopped
+ * the next time it is started.
+ * <p>
+ * Built in: backfilling the extractions of notifications stored before version 9.
+ */
+public final class NotificationDataMigrations {
+
+    private static final String TAG = "NotificationReader";
+    private static final String PREFS_NAME = "NotificationReaderMigrations";
+    private static final int CHUNK_SIZE = 200;
+    // Upper bound on how long a chunk waits for live ingestion before going ahead anyway
+    private static final long MAX_YIELD_MS = 2_000;
+
+    private static final List<NotificationDataMigration> migrations = new CopyOnWriteArrayList<>(
+        List.of(new ExtractionBackfill())
+    );
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    private NotificationDataMigrations() {}
+
+    /**
+     * Adds a migration, run the next time migrations are started unless it already completed.
+     */
+    public static void register(NotificationDataMigration migration) {
+        migrations.add(migration);
+    }
+
+    /**
+     * Starts the pending migrations in the background unless they are already running.
+     */
+    public static void start(Context context) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        try {
+            PluginExecutors.execute(PluginExecutors.Lane.BULK, () -> {
+                try {
+                    run(appContext);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Started again on the next connect or load
+            running.set(false);
+        }
+    }
+
+    private static void run(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        NotificationDatabase db = NotificationDatabase.getDatabase(context);
+        for (NotificationDataMigration migration : migrations) {
+            String id = migration.getId();
+            if (prefs.getBoolean(id + ".done", false)) {
+                continue;
+            }
+            if (!prefs.contains(id + ".total")) {
+                prefs.edit().putLong(id + ".total", migration.countRows(db)).apply();
+            }
+            String cursor = prefs.getString(id + ".cursor", null);
+            long processed = prefs.getLong(id + ".processed", 0);
+            try {
+                while (true) {
+                    PluginExecutors.awaitDrained(PluginExecutors.Lane.INGESTION, MAX_YIELD_MS);
+
+                    NotificationDataMigration.Chunk chunk = migration.migrateChunk(db, cursor, CHUNK_SIZE);
+                    cursor = chunk.cursor;
+                    processed += chunk.processed;
+                    prefs
+                        .edit()
+                        .putString(id + ".cursor", cursor)
+                        .putLong(id + ".processed", processed)
+                        .putBoolean(id + ".done", chunk.done)
+                        .apply();
+                    if (chunk.processed > 0) {
+                        NotificationQueryCache.invalidate();
+                    }
+                    NotificationReaderPlugin.onMigrationProgress(status(prefs, id));
+                    if (chunk.done) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Data migration " + id + " failed, it will resume on the next start", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Progress of every registered migration and whether they are running
+     */
+    public static JSObject getStatus(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        JSArray list = new JSArray();
+        for (NotificationDataMigration migration : migrations) {
+            list.put(status(prefs, migration.getId()));
+        }
+        JSObject obj = new JSObject();
+        obj.put("running", running.get());
+        obj.put("migrations", list);
+        return obj;
+    }
+
+    private static JSObject status(SharedPreferences prefs, String id) {
+        JSObject obj = new JSObject();
+        obj.put("id", id);
+        long total = prefs.getLong(id + ".total", 0);
+        boolean done = prefs.getBoolean(id + ".done", false);
+        // Rows stored or deleted meanwhile and repeated chunk boundaries make processed approximate
+        obj.put("processed", done ? total : Math.min(prefs.getLong(id + ".processed", 0), total));
+        obj.put("total", total);
+        obj.put("done", done);
+        return obj;
+    }
+
+    /**
+     * Stores the extractions of notifications stored before extraction existed, newest first,
+     * so the hasOtp, hasUrl, hasPhoneNumber and amountBetween filters cover them. Rows stored
+     * since already have theirs and are rewritten unchanged.
+     */
+    private static final class ExtractionBackfill implements NotificationDataMigration {
+
+        @Override
+        public String getId() {
+            return "extractions";
+        }
+
+        @Override
+        public long countRows(NotificationDatabase db) {
+            return NotificationPartitions.getTotalCount(db);
+        }
+
+        @Override
+        public Chunk migrateChunk(NotificationDatabase db, String cursor, int chunkSize) {
+            // "postTime:id" of the last row done; ids may contain ':' but post times do not
+            int separator = cursor != null ? cursor.indexOf(':') : -1;
+            Long beforeTime = separator > 0 ? Long.parseLong(cursor.substring(0, separator)) : null;
+            String beforeId = separator > 0 ? cursor.substring(separator + 1) : null;
+            List<NotificationEntity> page = NotificationPartitions.getPageBefore(db, beforeTime, beforeId, chunkSize);
+            if (page.isEmpty()) {
+                return new Chunk(0, cursor, true);
+            }
+            db.runInTransaction(() -> NotificationExtractors.store(db, page));
+            NotificationEntity last = page.get(page.size() - 1);
+            return new Chunk(page.size(), last.postTime + ":" + last.id, page.size() < chunkSize);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.whyash5114.plugins.notificationreader.db.NotificationExtractionEntity;
+import java.util.List;
+
+/**
+ * Finds typed values in notification text at ingestion. Register custom extractors with
+ * {@link NotificationExtractors#register}; results are stored in notification_extractions.
+ * <p>
+ * Called on the ingestion lane for every stored notification, once per text field, so
+ * implementations should use precompiled patterns and must be thread-safe.
+ */
+public interface NotificationExtractor {
+    /**
+     * @param text Title, text or big text of a notification, never null
+     * @param out Receives the values found, as NotificationExtractionEntity(type, value, numericValue)
+     */
+    void extract(String text, List<NotificationExtractionEntity> out);
+}
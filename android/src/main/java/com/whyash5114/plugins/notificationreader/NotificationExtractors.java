@@ -0,0 +1,244 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import com.whyash5114.plugins.notificationreader.db.NotificationExtractionEntity;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extraction stage of ingestion: runs the registered {@link NotificationExtractor}s over the
+ * title, text and big text of each stored notification, and stores what they find in the
+ * notification_extractions side table. Filters such as hasOtp and amountBetween are then
+ * answered from its (type, numericValue) index instead of scanning text.
+ * <p>
+ * Built in: one-time codes, amounts with a currency, links and phone numbers.
+ */
+public final class NotificationExtractors {
+
+    public static final String TYPE_OTP = "otp";
+    public static final String TYPE_AMOUNT = "amount";
+    public static final String TYPE_URL = "url";
+    public static final String TYPE_PHONE = "phone";
+
+    static final String TABLE = "notification_extractions";
+
+    private static final List<NotificationExtractor> extractors = new CopyOnWriteArrayList<>(
+        List.of(new OtpExtractor(), new AmountExtractor(), new UrlExtractor(), new PhoneExtractor())
+    );
+
+    private NotificationExtractors() {}
+
+    /**
+     * Adds an extractor, applied to notifications stored from now on.
+     */
+    public static void register(NotificationExtractor extractor) {
+        extractors.add(extractor);
+    }
+
+    /**
+     * Runs the extractors over an entity once; later calls return the same results.
+     *
+     * @return The values found, without duplicates
+     */
+    public static List<NotificationExtractionEntity> extract(NotificationEntity entity) {
+        List<NotificationExtractionEntity> cached = entity.extractions;
+        if (cached != null) {
+            return cached;
+        }
+        long start = NotificationReaderMetrics.start();
+        List<NotificationExtractionEntity> found = new ArrayList<>();
+        String bigText = CompressedText.decode(entity.bigText);
+        for (String text : new String[] { entity.title, entity.text, bigText }) {
+            if (text == null || text.isEmpty()) {
+                continue;
+            }
+            for (NotificationExtractor extractor : extractors) {
+                extractor.extract(text, found);
+            }
+        }
+        // Big text usually repeats the text
+        Set<String> seen = new HashSet<>();
+        List<NotificationExtractionEntity> unique = new ArrayList<>(found.size());
+        for (NotificationExtractionEntity extraction : found) {
+            if (seen.add(extraction.type + '\n' + extraction.value + '\n' + extraction.numericValue)) {
+                unique.add(extraction);
+            }
+        }
+        entity.extractions = unique;
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.EXTRACTION, start);
+        return unique;
+    }
+
+    static boolean has(NotificationEntity entity, String type) {
+        for (NotificationExtractionEntity extraction : extract(entity)) {
+            if (extraction.type.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean hasAmountBetween(NotificationEntity entity, double min, double max) {
+        for (NotificationExtractionEntity extraction : extract(entity)) {
+            if (TYPE_AMOUNT.equals(extraction.type) && extraction.numericValue != null && extraction.numericValue >= min && extraction.numericValue <= max) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the extractions of rows being inserted, replacing those of rows with the same id.
+     * Must run in the insert transaction.
+     */
+    static void store(NotificationDatabase db, List<NotificationEntity> entities) {
+        List<String> ids = new ArrayList<>(entities.size());
+        List<NotificationExtractionEntity> rows = new ArrayList<>();
+        for (NotificationEntity entity : entities) {
+            ids.add(entity.id);
+            for (NotificationExtractionEntity extraction : extract(entity)) {
+                NotificationExtractionEntity row = new NotificationExtractionEntity(extraction.type, extraction.value, extraction.numericValue);
+                row.notificationId = entity.id;
+                rows.add(row);
+            }
+        }
+        // Imports and backfills replace rows by id
+        db.extractionDao().deleteByNotificationIds(ids);
+        if (!rows.isEmpty()) {
+            db.extractionDao().insertAll(rows);
+        }
+    }
+
+    /**
+     * Deletes the extractions of deleted notifications. Must run in the delete transaction.
+     */
+    static void delete(NotificationDatabase db, List<String> notificationIds) {
+        if (!notificationIds.isEmpty()) {
+            db.extractionDao().deleteByNotificationIds(notificationIds);
+        }
+    }
+
+    /**
+     * Deletes the extractions of every row of a table about to be dropped, looking each id up
+     * in the notificationId index.
+     */
+    static void deleteForTable(NotificationDatabase db, String table) {
+        db.getOpenHelper().getWritableDatabase().execSQL("DELETE FROM " + TABLE + " WHERE notificationId IN (SELECT id FROM " + table + ")");
+    }
+
+    /**
+     * A 4 to 8 digit code (or two groups of 3) in a text that mentions a code.
+     */
+    private static final class OtpExtractor implements NotificationExtractor {
+
+        private static final Pattern KEYWORD = Pattern.compile(
+            "(?i)\\b(otp|one[- ]?time|passcode|password|verification|verify|security code|login code|auth\\w*|2fa|code|pin)\\b"
+        );
+        private static final Pattern CODE = Pattern.compile("(?<![\\d.,/:])(\\d{4,8}|\\d{3}[- ]\\d{3})(?![\\d/:]|[.,-]\\d)");
+
+        @Override
+        public void extract(String text, List<NotificationExtractionEntity> out) {
+            if (!KEYWORD.matcher(text).find()) {
+                return;
+            }
+            Matcher matcher = CODE.matcher(text);
+            if (matcher.find()) {
+                out.add(new NotificationExtractionEntity(TYPE_OTP, matcher.group(1).replaceAll("[- ]", ""), null));
+            }
+        }
+    }
+
+    /**
+     * An amount next to a currency symbol or code, before or after it.
+     */
+    private static final class AmountExtractor implements NotificationExtractor {
+
+        // $ EUR GBP INR JPY and the rupee sign, written as escapes to keep the source ASCII
+        private static final String CURRENCY = "([$\\u20ac\\u00a3\\u20b9\\u00a5\\u20a8]|USD|EUR|GBP|INR|JPY|CAD|AUD|Rs\\.?)";
+        // Thousands grouped by 3, or by 2 above them as in 1,25,000 (Indian lakh grouping)
+        private static final String NUMBER = "(\\d{1,3}(?:,\\d{2})*(?:[,. ]\\d{3})+(?:[.,]\\d{1,2})?|\\d+(?:[.,]\\d{1,2})?)";
+        private static final Pattern AMOUNT = Pattern.compile(
+            "(?i)(?<![\\w.,])" + CURRENCY + "\\s?" + NUMBER + "(?![\\d.,]\\d)|(?<![\\w.,])" + NUMBER + "\\s?" + CURRENCY + "(?!\\w)"
+        );
+
+        @Override
+        public void extract(String text, List<NotificationExtractionEntity> out) {
+            Matcher matcher = AMOUNT.matcher(text);
+            while (matcher.find()) {
+                String currency = matcher.group(1) != null ? matcher.group(1) : matcher.group(4);
+                String number = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+                Double amount = parseAmount(number);
+                if (amount != null) {
+                    out.add(new NotificationExtractionEntity(TYPE_AMOUNT, currency.replace(".", "").toUpperCase(Locale.ROOT), amount));
+                }
+            }
+        }
+
+        /**
+         * Reads 1,234.56, 1.234,56, 1 234, 1,25,000 and 12,50 alike: a separator followed by one or two
+         * digits at the end is the decimal separator, any other separates thousands.
+         */
+        static Double parseAmount(String number) {
+            int separator = Math.max(number.lastIndexOf('.'), number.lastIndexOf(','));
+            int decimal = separator >= 0 && number.length() - separator - 1 <= 2 ? separator : -1;
+            StringBuilder plain = new StringBuilder(number.length());
+            for (int i = 0; i < number.length(); i++) {
+                char c = number.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    plain.append(c);
+                } else if (i == decimal) {
+                    plain.append('.');
+                }
+            }
+            try {
+                return Double.parseDouble(plain.toString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class UrlExtractor implements NotificationExtractor {
+
+        private static final Pattern URL = Pattern.compile("(?i)\\b(?:https?://|www\\.)[^\\s<>\"'()]+");
+
+        @Override
+        public void extract(String text, List<NotificationExtractionEntity> out) {
+            Matcher matcher = URL.matcher(text);
+            while (matcher.find()) {
+                // Sentence punctuation right after a link is not part of it
+                String url = matcher.group().replaceAll("[.,;:!?]+$", "");
+                out.add(new NotificationExtractionEntity(TYPE_URL, url, null));
+            }
+        }
+    }
+
+    /**
+     * International numbers (+ and 8 to 15 digits) and local numbers of 10 to 15 digits, with
+     * spaces, dots, dashes or parentheses between groups.
+     */
+    private static final class PhoneExtractor implements NotificationExtractor {
+
+        private static final Pattern PHONE = Pattern.compile("(?<![\\w+])(\\+?)(\\(?\\d[\\d ().-]{6,20}\\d)(?!\\w)");
+
+        @Override
+        public void extract(String text, List<NotificationExtractionEntity> out) {
+            Matcher matcher = PHONE.matcher(text);
+            while (matcher.find()) {
+                boolean international = !matcher.group(1).isEmpty();
+                String digits = matcher.group(2).replaceAll("\\D", "");
+                if (digits.length() <= 15 && digits.length() >= (international ? 8 : 10)) {
+                    out.add(new NotificationExtractionEntity(TYPE_PHONE, (international ? "+" : "") + digits, null));
+                }
+            }
+        }
+    }
+}
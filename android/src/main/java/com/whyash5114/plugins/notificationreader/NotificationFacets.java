@@ -0,0 +1,96 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.database.Cursor;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+
+/**
+ * Distinct apps, channels, categories and styles of stored notifications, with counts.
+ * <p>
+ * Each facet is a GROUP BY over the columns of one of the facet indexes declared on
+ * NotificationEntity, so SQLite answers it by scanning the index without reading rows. Counts
+ * are summed across partitions. Results are kept in {@link NotificationQueryCache}, which every
+ * write invalidates.
+ */
+public final class NotificationFacets {
+
+    private static final String CACHE_PREFIX = "facets\n";
+
+    private NotificationFacets() {}
+
+    /**
+     * @return {apps, channels, categories, styles}, each sorted by count, most frequent first
+     */
+    static JSObject get(NotificationDatabase db, NotificationFilterQuery filter) {
+        String cacheKey = CACHE_PREFIX + filter.whereClause() + "\n" + new JSONArray(filter.args);
+        JSObject cached = NotificationQueryCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = NotificationQueryCache.currentGeneration();
+        long start = NotificationReaderMetrics.start();
+
+        List<String> tables = NotificationPartitions.tablesFor(db, filter);
+        Map<List<String>, Long> apps = count(db, tables, filter, "packageName", "appName");
+        Map<List<String>, Long> channels = count(db, tables, filter, "packageName", "channelId");
+        Map<List<String>, Long> categories = count(db, tables, filter, "category");
+        Map<List<String>, Long> styles = count(db, tables, filter, "style");
+
+        JSObject result = new JSObject();
+        result.put("apps", toArray(apps, "packageName", "appName"));
+        result.put("channels", toArray(channels, "packageName", "channelId"));
+        result.put("categories", toArray(categories, "value"));
+        result.put("styles", toArray(styles, "value"));
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.QUERY, start);
+        NotificationQueryCache.put(cacheKey, generation, result, apps.size() + channels.size() + categories.size() + styles.size());
+        return result;
+    }
+
+    /**
+     * Counts rows matching the filter per distinct value of the given columns, leaving out rows
+     * where the last column is null.
+     */
+    private static Map<List<String>, Long> count(NotificationDatabase db, List<String> tables, NotificationFilterQuery filter, String... columns) {
+        List<String> conditions = new ArrayList<>(filter.conditions);
+        conditions.add(columns[columns.length - 1] + " IS NOT NULL");
+        String groupBy = String.join(", ", columns);
+        String where = " WHERE " + String.join(" AND ", conditions);
+        Object[] args = filter.args.toArray();
+
+        Map<List<String>, Long> counts = new LinkedHashMap<>();
+        for (String table : tables) {
+            String sql = "SELECT " + groupBy + ", COUNT(*) FROM " + table + where + " GROUP BY " + groupBy;
+            try (Cursor cursor = db.getOpenHelper().getReadableDatabase().query(sql, args)) {
+                while (cursor.moveToNext()) {
+                    List<String> key = new ArrayList<>(columns.length);
+                    for (int i = 0; i < columns.length; i++) {
+                        key.add(cursor.getString(i));
+                    }
+                    counts.merge(key, cursor.getLong(columns.length), Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static JSArray toArray(Map<List<String>, Long> counts, String... names) {
+        List<Map.Entry<List<String>, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        JSArray array = new JSArray();
+        for (Map.Entry<List<String>, Long> entry : entries) {
+            JSObject obj = new JSObject();
+            for (int i = 0; i < names.length; i++) {
+                obj.put(names[i], entry.getKey().get(i));
+            }
+            obj.put("count", entry.getValue());
+            array.put(obj);
+        }
+        return array;
+    }
+}
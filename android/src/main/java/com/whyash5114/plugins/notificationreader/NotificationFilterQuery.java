@@ -0,0 +1,283 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * SQL WHERE clause built from the NotificationFilter options accepted by getNotifications.
+ * Shared by every method that selects notifications by filter so they match the same rows.
+ * <p>
+ * Each option is read from the "filter" object first and falls back to the top-level call options.
+ * {@link #matches(NotificationEntity)} evaluates the same filter in memory, for rows that are
+ * not in the notifications table.
+ */
+public class NotificationFilterQuery {
+
+    public final List<String> conditions = new ArrayList<>();
+    public final List<Object> args = new ArrayList<>();
+
+    // Parsed options, null when not set
+    private final String textContains;
+    private final String titleContains;
+    private final String textContainsInsensitive;
+    private final String titleContainsInsensitive;
+    public final Set<String> appNames;
+    public final String packageName;
+    private final String category;
+    private final String style;
+    private final Boolean isOngoing;
+    private final Boolean isGroupSummary;
+    private final String channelId;
+    public final Long afterTimestamp;
+    public final Long beforeTimestamp;
+    private final Boolean hasOtp;
+    private final Boolean hasUrl;
+    private final Boolean hasPhoneNumber;
+    private final double[] amountBetween;
+
+    /**
+     * @param filter The "filter" object of the call, or null
+     * @param rootOptions The top-level call options, or null
+     * @throws JSONException if an option has the wrong type
+     */
+    public NotificationFilterQuery(JSONObject filter, JSONObject rootOptions) throws JSONException {
+        textContains = nonEmpty(getStringOption(filter, rootOptions, "textContains"));
+        if (textContains != null) {
+            conditions.add("text LIKE ? ESCAPE '\\'");
+            args.add(likeContainsPattern(textContains));
+        }
+
+        titleContains = nonEmpty(getStringOption(filter, rootOptions, "titleContains"));
+        if (titleContains != null) {
+            conditions.add("title LIKE ? ESCAPE '\\'");
+            args.add(likeContainsPattern(titleContains));
+        }
+
+        textContainsInsensitive = nonEmpty(getStringOption(filter, rootOptions, "textContainsInsensitive"));
+        if (textContainsInsensitive != null) {
+            conditions.add("LOWER(text) LIKE LOWER(?) ESCAPE '\\'");
+            args.add(likeContainsPattern(textContainsInsensitive));
+        }
+
+        titleContainsInsensitive = nonEmpty(getStringOption(filter, rootOptions, "titleContainsInsensitive"));
+        if (titleContainsInsensitive != null) {
+            conditions.add("LOWER(title) LIKE LOWER(?) ESCAPE '\\'");
+            args.add(likeContainsPattern(titleContainsInsensitive));
+        }
+
+        JSONArray appNamesArray = getJSONArrayOption(filter, rootOptions, "appNames");
+        if (appNamesArray != null && appNamesArray.length() > 0) {
+            appNames = new HashSet<>();
+            StringBuilder appNameCondition = new StringBuilder("appName IN (");
+            for (int i = 0; i < appNamesArray.length(); i++) {
+                appNameCondition.append(i == 0 ? "?" : ", ?");
+                args.add(appNamesArray.getString(i));
+                appNames.add(appNamesArray.getString(i));
+            }
+            appNameCondition.append(")");
+            conditions.add(appNameCondition.toString());
+        } else {
+            appNames = null;
+        }
+
+        packageName = nonEmpty(getStringOption(filter, rootOptions, "packageName"));
+        if (packageName != null) {
+            conditions.add("packageName = ?");
+            args.add(packageName);
+        }
+
+        category = nonEmpty(getStringOption(filter, rootOptions, "category"));
+        if (category != null) {
+            conditions.add("category = ?");
+            args.add(category);
+        }
+
+        style = nonEmpty(getStringOption(filter, rootOptions, "style"));
+        if (style != null) {
+            conditions.add("style = ?");
+            args.add(style);
+        }
+
+        isOngoing = getBooleanOption(filter, rootOptions, "isOngoing");
+        if (isOngoing != null) {
+            conditions.add("isOngoing = ?");
+            args.add(isOngoing ? 1 : 0);
+        }
+
+        isGroupSummary = getBooleanOption(filter, rootOptions, "isGroupSummary");
+        if (isGroupSummary != null) {
+            conditions.add("isGroupSummary = ?");
+            args.add(isGroupSummary ? 1 : 0);
+        }
+
+        channelId = nonEmpty(getStringOption(filter, rootOptions, "channelId"));
+        if (channelId != null) {
+            conditions.add("channelId = ?");
+            args.add(channelId);
+        }
+
+        Long after = getLongOption(filter, rootOptions, "afterTimestamp");
+        afterTimestamp = after != null && after > 0 ? after : null;
+        if (afterTimestamp != null) {
+            conditions.add("postTime > ?");
+            args.add(afterTimestamp);
+        }
+
+        Long before = getLongOption(filter, rootOptions, "beforeTimestamp");
+        beforeTimestamp = before != null && before > 0 ? before : null;
+        if (beforeTimestamp != null) {
+            conditions.add("postTime < ?");
+            args.add(beforeTimestamp);
+        }
+
+        // Answered from the extractions index, see NotificationExtractors
+        hasOtp = getBooleanOption(filter, rootOptions, "hasOtp");
+        addExtractionCondition(hasOtp, NotificationExtractors.TYPE_OTP);
+        hasUrl = getBooleanOption(filter, rootOptions, "hasUrl");
+        addExtractionCondition(hasUrl, NotificationExtractors.TYPE_URL);
+        hasPhoneNumber = getBooleanOption(filter, rootOptions, "hasPhoneNumber");
+        addExtractionCondition(hasPhoneNumber, NotificationExtractors.TYPE_PHONE);
+
+        JSONArray amountArray = getJSONArrayOption(filter, rootOptions, "amountBetween");
+        if (amountArray != null) {
+            if (amountArray.length() != 2) {
+                throw new JSONException("amountBetween must be [min, max]");
+            }
+            amountBetween = new double[] { amountArray.getDouble(0), amountArray.getDouble(1) };
+            conditions.add(
+                "id IN (SELECT notificationId FROM " +
+                NotificationExtractors.TABLE +
+                " WHERE type = ? AND numericValue BETWEEN ? AND ?)"
+            );
+            args.add(NotificationExtractors.TYPE_AMOUNT);
+            args.add(amountBetween[0]);
+            args.add(amountBetween[1]);
+        } else {
+            amountBetween = null;
+        }
+    }
+
+    private void addExtractionCondition(Boolean value, String type) {
+        if (value != null) {
+            conditions.add(
+                "id " + (value ? "IN" : "NOT IN") + " (SELECT notificationId FROM " + NotificationExtractors.TABLE + " WHERE type = ?)"
+            );
+            args.add(type);
+        }
+    }
+
+    /**
+     * @return " WHERE ..." joining all conditions with AND, or an empty string if there are none
+     */
+    public String whereClause() {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Evaluates the filter against an entity with the same semantics as the SQL conditions.
+     * Like SQLite's LIKE and LOWER, text matching ignores case for ASCII letters only; % and _
+     * are escaped in the SQL patterns, so both match them literally.
+     *
+     * @param entity Notification to test
+     * @return true if the entity satisfies every set option
+     */
+    public boolean matches(NotificationEntity entity) {
+        return (
+            (textContains == null || likeContains(entity.text, textContains)) &&
+            (titleContains == null || likeContains(entity.title, titleContains)) &&
+            (textContainsInsensitive == null || likeContains(entity.text, textContainsInsensitive)) &&
+            (titleContainsInsensitive == null || likeContains(entity.title, titleContainsInsensitive)) &&
+            (appNames == null || appNames.contains(entity.appName)) &&
+            (packageName == null || packageName.equals(entity.packageName)) &&
+            (category == null || category.equals(entity.category)) &&
+            (style == null || style.equals(entity.style)) &&
+            (isOngoing == null || isOngoing == entity.isOngoing) &&
+            (isGroupSummary == null || isGroupSummary == entity.isGroupSummary) &&
+            (channelId == null || channelId.equals(entity.channelId)) &&
+            (afterTimestamp == null || entity.postTime > afterTimestamp) &&
+            (beforeTimestamp == null || entity.postTime < beforeTimestamp) &&
+            (hasOtp == null || hasOtp == NotificationExtractors.has(entity, NotificationExtractors.TYPE_OTP)) &&
+            (hasUrl == null || hasUrl == NotificationExtractors.has(entity, NotificationExtractors.TYPE_URL)) &&
+            (hasPhoneNumber == null || hasPhoneNumber == NotificationExtractors.has(entity, NotificationExtractors.TYPE_PHONE)) &&
+            (amountBetween == null || NotificationExtractors.hasAmountBetween(entity, amountBetween[0], amountBetween[1]))
+        );
+    }
+
+    /**
+     * @return A LIKE pattern (with ESCAPE '\') matching values that contain needle, with % and _
+     *         in needle matched literally rather than as wildcards
+     */
+    private static String likeContainsPattern(String needle) {
+        return "%" + needle.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static boolean likeContains(String value, String needle) {
+        return value != null && asciiLowerCase(value).contains(asciiLowerCase(needle));
+    }
+
+    private static String asciiLowerCase(String value) {
+        StringBuilder builder = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (builder == null) {
+                    builder = new StringBuilder(value);
+                }
+                builder.setCharAt(i, (char) (c + ('a' - 'A')));
+            }
+        }
+        return builder != null ? builder.toString() : value;
+    }
+
+    private static String nonEmpty(String value) {
+        return value != null && !value.isEmpty() ? value : null;
+    }
+
+    private static boolean hasKey(JSONObject obj, String key) {
+        return obj != null && obj.has(key) && !obj.isNull(key);
+    }
+
+    private static String getStringOption(JSONObject primary, JSONObject fallback, String key) {
+        if (hasKey(primary, key)) {
+            return primary.optString(key);
+        }
+        if (hasKey(fallback, key)) {
+            return fallback.optString(key);
+        }
+        return null;
+    }
+
+    private static JSONArray getJSONArrayOption(JSONObject primary, JSONObject fallback, String key) {
+        JSONArray primaryArray = primary != null ? primary.optJSONArray(key) : null;
+        if (primaryArray != null) {
+            return primaryArray;
+        }
+        return fallback != null ? fallback.optJSONArray(key) : null;
+    }
+
+    private static Boolean getBooleanOption(JSONObject primary, JSONObject fallback, String key) {
+        if (hasKey(primary, key)) {
+            return primary.optBoolean(key);
+        }
+        if (hasKey(fallback, key)) {
+            return fallback.optBoolean(key);
+        }
+        return null;
+    }
+
+    private static Long getLongOption(JSONObject primary, JSONObject fallback, String key) {
+        if (hasKey(primary, key)) {
+            return primary.optLong(key);
+        }
+        if (hasKey(fallback, key)) {
+            return fallback.optLong(key);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,237 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.util.Base64;
+import android.util.Log;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Serves notification images (small, large and app icons, big pictures and action icons)
+ * through content-hashed URLs on the app's local server instead of inline base64.
+ * <p>
+ * Images stay stored as base64; they are swapped for URLs only at the response boundary, so
+ * the database and the archive do not depend on this cache. Each image is written once to
+ * the cache directory under the hash of its content and served by Capacitor's local server
+ * from its file path, so a repeated icon has one URL no matter how many rows share it and
+ * the WebView client is left alone.
+ */
+public final class NotificationImages {
+
+    private static final String TAG = "NotificationReader";
+    private static final String DIRECTORY = "notification_images";
+    // The cache directory is trimmed to this size, oldest images first, when the plugin loads
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    // Hashes known to be on disk; cleared when it grows past this so it stays small
+    private static final int MAX_KNOWN = 10_000;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static volatile boolean enabled;
+    private static volatile File directory;
+    private static volatile String baseUrl;
+    private static final Set<String> known = ConcurrentHashMap.newKeySet();
+
+    private NotificationImages() {}
+
+    /**
+     * Prepares the cache directory and the local server URL its files are served from.
+     */
+    static void install(Bridge bridge) {
+        File dir = new File(bridge.getContext().getCacheDir(), DIRECTORY);
+        directory = dir;
+        baseUrl = bridge.getLocalUrl() + Bridge.CAPACITOR_FILE_START + dir.getAbsolutePath() + "/";
+        known.clear();
+        try {
+            PluginExecutors.execute(PluginExecutors.Lane.BULK, () -> trim(dir, MAX_CACHE_BYTES));
+        } catch (RejectedExecutionException e) {
+            // Trimmed on the next load
+        }
+    }
+
+    /**
+     * Drops the index of images known to be on disk, while memory is low. Images are only
+     * checked on disk again.
+     */
+    static void forgetKnown() {
+        known.clear();
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * @return true if image fields are returned as URLs rather than base64
+     */
+    public static boolean isEnabled() {
+        return enabled && baseUrl != null;
+    }
+
+    /**
+     * Returns a URL serving the given base64 image, writing it to the cache if needed.
+     *
+     * @param base64 Base64-encoded image as stored
+     * @return The URL, or the value unchanged if it is empty or cannot be cached
+     */
+    public static String toUrl(String base64) {
+        if (base64 == null || base64.isEmpty()) {
+            return base64;
+        }
+        String name = fileName(base64);
+        if (name == null) {
+            return base64;
+        }
+        if (!known.contains(name)) {
+            try {
+                write(name, base64);
+            } catch (IOException | IllegalArgumentException e) {
+                Log.w(TAG, "Failed to cache notification image", e);
+                return base64;
+            }
+        }
+        return baseUrl + name;
+    }
+
+    /**
+     * Replaces the icons of a serialized actions array with URLs.
+     *
+     * @param actionsJson Actions as stored
+     * @return The rewritten array, or the value unchanged if no action has an icon
+     */
+    static String actionsToUrls(String actionsJson) {
+        if (actionsJson == null || !actionsJson.contains("\"icon\":\"")) {
+            return actionsJson;
+        }
+        try {
+            JSONArray actions = new JSONArray(actionsJson);
+            replaceActionIcons(actions);
+            return actions.toString();
+        } catch (JSONException e) {
+            return actionsJson;
+        }
+    }
+
+    /**
+     * Replaces the image fields of a row from notificationEntityToJSObject (or the archive)
+     * with URLs, in place. Does nothing unless enabled.
+     *
+     * @return The same row
+     */
+    public static JSObject toUrls(JSObject row) {
+        if (row == null || !isEnabled()) {
+            return row;
+        }
+        for (String field : new String[] { "smallIcon", "largeIcon", "appIcon", "bigPicture" }) {
+            if (row.opt(field) instanceof String value) {
+                row.put(field, toUrl(value));
+            }
+        }
+        JSONArray actions = row.optJSONArray("actions");
+        if (actions != null) {
+            try {
+                replaceActionIcons(actions);
+            } catch (JSONException e) {
+                // Leave the actions as they are
+            }
+        }
+        return row;
+    }
+
+    private static void replaceActionIcons(JSONArray actions) throws JSONException {
+        for (int i = 0; i < actions.length(); i++) {
+            JSONObject action = actions.optJSONObject(i);
+            if (action != null && action.opt("icon") instanceof String icon) {
+                action.put("icon", toUrl(icon));
+            }
+        }
+    }
+
+    private static String fileName(String base64) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        // The base64 text identifies the image as well as its bytes do, without decoding it
+        byte[] hash = digest.digest(base64.getBytes(StandardCharsets.US_ASCII));
+        char[] hex = new char[32];
+        for (int i = 0; i < 16; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex) + extension(base64);
+    }
+
+    private static String extension(String base64) {
+        // Base64 of the format signatures: PNG 89 50 4E 47, JPEG FF D8 FF, WebP RIFF....WEBP
+        if (base64.startsWith("iVBORw0KGgo")) return ".png";
+        if (base64.startsWith("/9j/")) return ".jpg";
+        if (base64.startsWith("UklGR")) return ".webp";
+        return ".png";
+    }
+
+    private static void write(String name, String base64) throws IOException {
+        File dir = directory;
+        File file = new File(dir, name);
+        if (!file.exists()) {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            byte[] bytes = Base64.decode(base64, Base64.DEFAULT);
+            // Renamed into place so the local server never serves a partly written file
+            File temp = File.createTempFile(name, ".tmp", dir);
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(bytes);
+            }
+            if (!temp.renameTo(file) && !file.exists()) {
+                temp.delete();
+                throw new IOException("Cannot write " + file);
+            }
+            temp.delete();
+        }
+        if (known.size() >= MAX_KNOWN) {
+            known.clear();
+        }
+        known.add(name);
+    }
+
+    private static void trim(File dir, long maxBytes) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                known.remove(file.getName());
+                total -= length;
+            }
+        }
+    }
+}
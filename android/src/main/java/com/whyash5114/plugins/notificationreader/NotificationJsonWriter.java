@@ -0,0 +1,373 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.database.Cursor;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONException;
+
+/**
+ * Writes stored notifications straight from a Cursor into one JSON buffer, in the same shape
+ * as {@link NotificationReaderPlugin#notificationEntityToJSObject}.
+ * <p>
+ * No NotificationEntity or intermediate JSObject is built per row: the pre-serialised actions,
+ * inbox lines and messages columns are spliced in verbatim, and the finished page is parsed
+ * once into the JSArray handed to the bridge.
+ */
+public final class NotificationJsonWriter {
+
+    // Initial buffer capacity per row; rows with icons grow it once or twice
+    private static final int ROW_CAPACITY_HINT = 1024;
+
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private NotificationJsonWriter() {}
+
+    /**
+     * A page of rows written to a JSON array, with each row's span and timestamp so it can be
+     * merged with rows from elsewhere (such as the archive) without re-parsing.
+     */
+    public static final class Page {
+
+        final StringBuilder json;
+        final int[] starts;
+        final int[] ends;
+        final long[] timestamps;
+        final int rowCount;
+
+        private Page(StringBuilder json, int[] starts, int[] ends, long[] timestamps, int rowCount) {
+            this.json = json;
+            this.starts = starts;
+            this.ends = ends;
+            this.timestamps = timestamps;
+            this.rowCount = rowCount;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return The rows as a JSON array
+         */
+        public JSArray toJson() throws JSONException {
+            return new JSArray(json.toString());
+        }
+
+        /**
+         * Merges serialized rows from another source, newest first, keeping at most limit rows.
+         *
+         * @param others Rows sorted by timestamp, newest first
+         */
+        public JSArray mergeWith(List<JSObject> others, int limit) throws JSONException {
+            StringBuilder merged = new StringBuilder(json.length() + others.size() * ROW_CAPACITY_HINT).append('[');
+            int own = 0;
+            int other = 0;
+            for (int count = 0; count < limit && (own < rowCount || other < others.size()); count++) {
+                if (count > 0) {
+                    merged.append(',');
+                }
+                boolean takeOwn =
+                    other >= others.size() ||
+                    (own < rowCount && timestamps[own] >= others.get(other).optLong("timestamp", 0L));
+                if (takeOwn) {
+                    merged.append(json, starts[own], ends[own]);
+                    own++;
+                } else {
+                    merged.append(others.get(other).toString());
+                    other++;
+                }
+            }
+            return new JSArray(merged.append(']').toString());
+        }
+    }
+
+    /**
+     * Writes every row of the cursor. The cursor is not closed. Image fields are written as
+     * URLs when {@link NotificationImages} is enabled, and conversation history is read from
+     * the messages table of db, see {@link NotificationMessages}.
+     */
+    public static Page writeRows(NotificationDatabase db, Cursor cursor) {
+        Columns columns = new Columns(cursor);
+        boolean imageUrls = NotificationImages.isEnabled();
+        int capacity = Math.max(1, cursor.getCount());
+        StringBuilder json = new StringBuilder(capacity * ROW_CAPACITY_HINT).append('[');
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+        long[] timestamps = new long[capacity];
+        int rows = 0;
+        while (cursor.moveToNext()) {
+            if (rows == starts.length) {
+                starts = Arrays.copyOf(starts, rows * 2);
+                ends = Arrays.copyOf(ends, rows * 2);
+                timestamps = Arrays.copyOf(timestamps, rows * 2);
+            }
+            if (rows > 0) {
+                json.append(',');
+            }
+            starts[rows] = json.length();
+            timestamps[rows] = cursor.getLong(columns.postTime);
+            writeRow(json, db, cursor, columns, imageUrls);
+            ends[rows] = json.length();
+            rows++;
+        }
+        json.append(']');
+        return new Page(json, starts, ends, timestamps, rows);
+    }
+
+    private static void writeRow(StringBuilder out, NotificationDatabase db, Cursor cursor, Columns c, boolean imageUrls) {
+        out.append('{');
+        // Keys in the order notificationEntityToJSObject puts them; null values are omitted there too
+        boolean first = stringField(out, true, "id", cursor, c.id);
+        first = stringField(out, first, "key", cursor, c.notificationKey);
+        first = stringField(out, first, "appName", cursor, c.appName);
+        first = stringField(out, first, "packageName", cursor, c.packageName);
+        first = stringField(out, first, "title", cursor, c.title);
+        first = stringField(out, first, "text", cursor, c.text);
+        first = rawField(out, first, "timestamp", Long.toString(cursor.getLong(c.postTime)));
+        first = imageField(out, first, "smallIcon", cursor, c.smallIcon, imageUrls);
+        first = imageField(out, first, "largeIcon", cursor, c.largeIcon, imageUrls);
+        first = imageField(out, first, "appIcon", cursor, c.appIcon, imageUrls);
+        first = stringField(out, first, "category", cursor, c.category);
+        first = stringField(out, first, "style", cursor, c.style);
+        first = stringField(out, first, "subText", cursor, c.subText);
+        first = stringField(out, first, "infoText", cursor, c.infoText);
+        first = stringField(out, first, "summaryText", cursor, c.summaryText);
+        first = stringField(out, first, "group", cursor, c.groupKey);
+        first = booleanField(out, first, "isGroupSummary", cursor, c.isGroupSummary);
+        first = stringField(out, first, "channelId", cursor, c.channelId);
+        String actions = cursor.isNull(c.actionsJson) ? null : cursor.getString(c.actionsJson);
+        first = rawField(out, first, "actions", jsonArrayOrEmpty(imageUrls ? NotificationImages.actionsToUrls(actions) : actions));
+        first = booleanField(out, first, "isOngoing", cursor, c.isOngoing);
+        first = booleanField(out, first, "autoCancel", cursor, c.autoCancel);
+        first = booleanField(out, first, "isLocalOnly", cursor, c.isLocalOnly);
+        first = rawField(out, first, "priority", Integer.toString(cursor.getInt(c.priority)));
+        first = rawField(out, first, "number", Integer.toString(cursor.getInt(c.number)));
+
+        String bigText = CompressedText.decodeStored(cursor.isNull(c.bigText) ? null : cursor.getBlob(c.bigText));
+        if (bigText != null) {
+            first = key(out, first, "bigText");
+            appendString(out, bigText);
+        }
+        first = imageField(out, first, "bigPicture", cursor, c.bigPicture, imageUrls);
+        first = stringField(out, first, "pictureContentDescription", cursor, c.pictureContentDescription);
+        first = rawField(out, first, "inboxLines", jsonArrayOrEmpty(blobText(cursor, c.inboxLinesJson)));
+        first = stringField(out, first, "conversationTitle", cursor, c.conversationTitle);
+        first = booleanField(out, first, "isGroupConversation", cursor, c.isGroupConversation);
+        String conversationKey = cursor.isNull(c.conversationKey) ? null : cursor.getString(c.conversationKey);
+        String messages = blobText(cursor, c.messagesJson);
+        if (messages == null && conversationKey != null) {
+            messages = NotificationMessages.windowJson(
+                db,
+                conversationKey,
+                cursor.getLong(c.firstMessageTime),
+                cursor.getLong(c.lastMessageTime),
+                cursor.getInt(c.messageCount)
+            );
+        }
+        first = rawField(out, first, "messages", jsonArrayOrEmpty(messages));
+        if (conversationKey != null) {
+            first = key(out, first, "conversationKey");
+            appendString(out, conversationKey);
+        }
+
+        int progressMax = cursor.getInt(c.progressMax);
+        if (progressMax > 0) {
+            first = key(out, first, "progress");
+            out
+                .append("{\"current\":")
+                .append(cursor.getInt(c.progress))
+                .append(",\"max\":")
+                .append(progressMax)
+                .append(",\"indeterminate\":")
+                .append(cursor.getInt(c.progressIndeterminate) != 0)
+                .append('}');
+        }
+        stringField(out, first, "callerName", cursor, c.callerName);
+        out.append('}');
+    }
+
+    private static String blobText(Cursor cursor, int column) {
+        return CompressedText.decodeStored(cursor.isNull(column) ? null : cursor.getBlob(column));
+    }
+
+    private static String jsonArrayOrEmpty(String json) {
+        // Written by JSArray.toString(), so anything else means the column was never set
+        return json != null && json.startsWith("[") ? json : "[]";
+    }
+
+    private static boolean key(StringBuilder out, boolean first, String name) {
+        if (!first) {
+            out.append(',');
+        }
+        out.append('"').append(name).append("\":");
+        return false;
+    }
+
+    private static boolean stringField(StringBuilder out, boolean first, String name, Cursor cursor, int column) {
+        if (cursor.isNull(column)) {
+            return first;
+        }
+        key(out, first, name);
+        appendString(out, cursor.getString(column));
+        return false;
+    }
+
+    private static boolean imageField(StringBuilder out, boolean first, String name, Cursor cursor, int column, boolean urls) {
+        if (!urls) {
+            return stringField(out, first, name, cursor, column);
+        }
+        if (cursor.isNull(column)) {
+            return first;
+        }
+        key(out, first, name);
+        appendString(out, NotificationImages.toUrl(cursor.getString(column)));
+        return false;
+    }
+
+    private static boolean booleanField(StringBuilder out, boolean first, String name, Cursor cursor, int column) {
+        key(out, first, name);
+        out.append(cursor.getInt(column) != 0);
+        return false;
+    }
+
+    private static boolean rawField(StringBuilder out, boolean first, String name, String json) {
+        key(out, first, name);
+        out.append(json);
+        return false;
+    }
+
+    /**
+     * Appends a JSON string literal. Escapes U+2028 and U+2029 as well, since the bridge
+     * evaluates the payload as JavaScript.
+     */
+    static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        int length = value.length();
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != LINE_SEPARATOR && c != PARAGRAPH_SEPARATOR) {
+                continue;
+            }
+            out.append(value, run, i);
+            run = i + 1;
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                default:
+                    out.append(String.format("\\u%04x", (int) c));
+                    break;
+            }
+        }
+        out.append(value, run, length).append('"');
+    }
+
+    private static final class Columns {
+
+        final int id;
+        final int notificationKey;
+        final int packageName;
+        final int appName;
+        final int title;
+        final int text;
+        final int postTime;
+        final int smallIcon;
+        final int largeIcon;
+        final int appIcon;
+        final int category;
+        final int style;
+        final int subText;
+        final int infoText;
+        final int summaryText;
+        final int groupKey;
+        final int isGroupSummary;
+        final int channelId;
+        final int actionsJson;
+        final int isOngoing;
+        final int autoCancel;
+        final int isLocalOnly;
+        final int priority;
+        final int number;
+        final int bigText;
+        final int bigPicture;
+        final int pictureContentDescription;
+        final int inboxLinesJson;
+        final int conversationTitle;
+        final int isGroupConversation;
+        final int messagesJson;
+        final int conversationKey;
+        final int firstMessageTime;
+        final int lastMessageTime;
+        final int messageCount;
+        final int progress;
+        final int progressMax;
+        final int progressIndeterminate;
+        final int callerName;
+
+        Columns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow("id");
+            notificationKey = cursor.getColumnIndexOrThrow("notificationKey");
+            packageName = cursor.getColumnIndexOrThrow("packageName");
+            appName = cursor.getColumnIndexOrThrow("appName");
+            title = cursor.getColumnIndexOrThrow("title");
+            text = cursor.getColumnIndexOrThrow("text");
+            postTime = cursor.getColumnIndexOrThrow("postTime");
+            smallIcon = cursor.getColumnIndexOrThrow("smallIcon");
+            largeIcon = cursor.getColumnIndexOrThrow("largeIcon");
+            appIcon = cursor.getColumnIndexOrThrow("appIcon");
+            category = cursor.getColumnIndexOrThrow("category");
+            style = cursor.getColumnIndexOrThrow("style");
+            subText = cursor.getColumnIndexOrThrow("subText");
+            infoText = cursor.getColumnIndexOrThrow("infoText");
+            summaryText = cursor.getColumnIndexOrThrow("summaryText");
+            groupKey = cursor.getColumnIndexOrThrow("groupKey");
+            isGroupSummary = cursor.getColumnIndexOrThrow("isGroupSummary");
+            channelId = cursor.getColumnIndexOrThrow("channelId");
+            actionsJson = cursor.getColumnIndexOrThrow("actionsJson");
+            isOngoing = cursor.getColumnIndexOrThrow("isOngoing");
+            autoCancel = cursor.getColumnIndexOrThrow("autoCancel");
+            isLocalOnly = cursor.getColumnIndexOrThrow("isLocalOnly");
+            priority = cursor.getColumnIndexOrThrow("priority");
+            number = cursor.getColumnIndexOrThrow("number");
+            bigText = cursor.getColumnIndexOrThrow("bigText");
+            bigPicture = cursor.getColumnIndexOrThrow("bigPicture");
+            pictureContentDescription = cursor.getColumnIndexOrThrow("pictureContentDescription");
+            inboxLinesJson = cursor.getColumnIndexOrThrow("inboxLinesJson");
+            conversationTitle = cursor.getColumnIndexOrThrow("conversationTitle");
+            isGroupConversation = cursor.getColumnIndexOrThrow("isGroupConversation");
+            messagesJson = cursor.getColumnIndexOrThrow("messagesJson");
+            conversationKey = cursor.getColumnIndexOrThrow("conversationKey");
+            firstMessageTime = cursor.getColumnIndexOrThrow("firstMessageTime");
+            lastMessageTime = cursor.getColumnIndexOrThrow("lastMessageTime");
+            messageCount = cursor.getColumnIndexOrThrow("messageCount");
+            progress = cursor.getColumnIndexOrThrow("progress");
+            progressMax = cursor.getColumnIndexOrThrow("progressMax");
+            progressIndeterminate = cursor.getColumnIndexOrThrow("progressIndeterminate");
+            callerName = cursor.getColumnIndexOrThrow("callerName");
+        }
+    }
+}
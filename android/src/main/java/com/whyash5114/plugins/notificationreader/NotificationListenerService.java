@@ -4,8 +4,11 @@ import android.app.Notification;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.service.notification.StatusBarNotification;
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
 import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
 import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import com.whyash5114.plugins.notificationreader.db.NotificationLifecycleEntity;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Android NotificationListenerService implementation.
@@ -17,8 +20,28 @@ public class NotificationListenerService extends android.service.notification.No
     private static final String PREFS_NAME = "NotificationReader";
     private static final String PREF_INITIAL_NOTIFICATIONS_PROCESSED = "initial_notifications_processed";
 
+    // Lifecycle rows kept before the oldest are trimmed, checked every LIFECYCLE_TRIM_INTERVAL removals
+    private static final int MAX_LIFECYCLE_EVENTS = 100_000;
+    private static final int LIFECYCLE_TRIM_INTERVAL = 1_000;
+
+    // Process-wide so versions stay monotonic across listener reconnects
+    private static final ActiveNotificationCache activeNotifications = new ActiveNotificationCache();
+
+    private static int removalsSinceTrim;
+
+    // Held while evicting; live ingestion and the backfill would otherwise each evict for the same overshoot
+    private static final Object storageLimitLock = new Object();
+
     private NotificationReaderConfig config;
 
+    /**
+     * Gets the in-memory mirror of the notifications currently in the drawer.
+     * @return The active notification cache
+     */
+    public static ActiveNotificationCache getActiveNotificationCache() {
+        return activeNotifications;
+    }
+
     /**
      * Called when the service is connected and ready to receive notification events.
      * Registers this service instance with the NotificationServiceHolder.
@@ -26,25 +49,48 @@ public class NotificationListenerService extends android.service.notification.No
     @Override
     public void onListenerConnected() {
         super.onListenerConnected();
+        activeNotifications.reset(getActiveNotifications());
         NotificationServiceHolder.setService(this);
 
         final Context context = getApplicationContext();
         config = new NotificationReaderConfig(context);
+        NotificationReaderMetrics.configure(context, config);
+        CompressedText.setEnabled(config.isCompressionEnabled());
+        NotificationPartitions.configure(config);
+        NotificationChangeLog.configure(config);
+        NotificationChangePusher.configure(context, config);
+        NotificationStores.configure(context, config);
+        NotificationRateLimiter.configure(config);
         final SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
 
+        if (config.getPartitioning() != NotificationPartitions.Granularity.NONE) {
+            // Finish moving rows stored before partitioning was enabled, if any are left
+            try {
+                PluginExecutors.execute(PluginExecutors.Lane.BULK, () -> {
+                    try {
+                        NotificationPartitions.migrateBaseTable(NotificationDatabase.getDatabase(context));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Bulk lane is busy; retried on the next connect
+            }
+        }
+
+        NotificationDataMigrations.start(context);
+
         if (!prefs.getBoolean(PREF_INITIAL_NOTIFICATIONS_PROCESSED, false)) {
-            // Process existing notifications
-            new Thread(() -> {
-                for (StatusBarNotification sbn : getActiveNotifications()) {
-                    if (shouldLogNotification(sbn)) {
-                        final NotificationEntity entity = new NotificationEntity(context, sbn);
-                        insertNotificationWithStorageCheck(context, entity);
+            // Store the notifications that were already active, in resumable batches
+            try {
+                PluginExecutors.execute(PluginExecutors.Lane.BULK, () -> {
+                    if (new InitialBackfill(this, context).run()) {
+                        prefs.edit().putBoolean(PREF_INITIAL_NOTIFICATIONS_PROCESSED, true).apply();
                     }
-                }
-                // Mark as processed
-                prefs.edit().putBoolean(PREF_INITIAL_NOTIFICATIONS_PROCESSED, true).apply();
-            })
-                .start();
+                });
+            } catch (RejectedExecutionException e) {
+                // Bulk lane is busy; the backfill is still pending and resumes on the next connect
+            }
         }
     }
 
@@ -57,26 +103,103 @@ public class NotificationListenerService extends android.service.notification.No
         NotificationServiceHolder.setService(null);
     }
 
+    /**
+     * Called when the system asks the process to release memory.
+     * Degrades caching, image encoding and page sizes, see NotificationMemoryPressure.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        NotificationMemoryPressure.onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        NotificationMemoryPressure.onLowMemory();
+    }
+
     @Override
     public void onNotificationPosted(StatusBarNotification sbn) {
         if (config == null) {
             config = new NotificationReaderConfig(getApplicationContext());
         }
 
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.NOTIFICATIONS_POSTED);
+        NotificationTraceRecorder.recordPosted(sbn);
+
         if (!shouldLogNotification(sbn)) {
+            // Not stored, but still mirrored; its entity is only built if the app asks for it
+            activeNotifications.put(sbn, null);
+            NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.NOTIFICATIONS_FILTERED);
+            return;
+        }
+
+        if (!NotificationRateLimiter.tryAcquire(sbn.getPackageName())) {
+            // Over its app's rate limit: counted and mirrored, but neither built nor stored
+            activeNotifications.put(sbn, null);
             return;
         }
 
         final Context context = getApplicationContext();
+        long constructionStart = NotificationReaderMetrics.start();
         final NotificationEntity entity = new NotificationEntity(context, sbn);
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.ENTITY_CONSTRUCTION, constructionStart);
+        activeNotifications.put(sbn, entity);
 
-        // Run database operations on a background thread
-        new Thread(() -> {
+        // Run database operations on the ingestion thread
+        PluginExecutors.execute(PluginExecutors.Lane.INGESTION, () -> {
             insertNotificationWithStorageCheck(context, entity);
             // Notify the plugin
             NotificationReaderPlugin.onNotificationPosted(entity);
-        })
-            .start();
+        });
+    }
+
+    /**
+     * Called on Android 8+ with the reason the notification was removed.
+     */
+    @Override
+    public void onNotificationRemoved(StatusBarNotification sbn, RankingMap rankingMap, int reason) {
+        handleNotificationRemoved(sbn, reason);
+    }
+
+    /**
+     * Called on older Android versions, where the removal reason is not available.
+     */
+    @Override
+    public void onNotificationRemoved(StatusBarNotification sbn) {
+        handleNotificationRemoved(sbn, NotificationLifecycleEntity.REASON_UNKNOWN);
+    }
+
+    private void handleNotificationRemoved(StatusBarNotification sbn, int reason) {
+        // Stored notifications always have their entity built when posted
+        final NotificationEntity removedEntity = activeNotifications.remove(sbn.getKey());
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.NOTIFICATIONS_REMOVED);
+        NotificationTraceRecorder.recordRemoved(sbn, reason);
+
+        final Context context = getApplicationContext();
+        final NotificationLifecycleEntity event = new NotificationLifecycleEntity(
+            sbn.getKey(),
+            sbn.getPackageName(),
+            sbn.getPostTime(),
+            System.currentTimeMillis(),
+            reason
+        );
+
+        PluginExecutors.execute(PluginExecutors.Lane.INGESTION, () -> {
+            NotificationDatabase db = NotificationDatabase.getDatabase(context);
+            db.lifecycleDao().insert(event);
+
+            // Only ever touched from the single ingestion lane thread
+            if (++removalsSinceTrim >= LIFECYCLE_TRIM_INTERVAL) {
+                removalsSinceTrim = 0;
+                db.lifecycleDao().trimToMostRecent(MAX_LIFECYCLE_EVENTS);
+            }
+
+            if (removedEntity != null && NotificationSubscriptions.wantsRemovals()) {
+                NotificationReaderPlugin.onNotificationRemoved(removedEntity);
+            }
+        });
     }
 
     /**
@@ -84,7 +207,7 @@ public class NotificationListenerService extends android.service.notification.No
      * @param sbn StatusBarNotification to check
      * @return true if the notification should be logged, false otherwise
      */
-    private boolean shouldLogNotification(StatusBarNotification sbn) {
+    boolean shouldLogNotification(StatusBarNotification sbn) {
         if (config == null) {
             config = new NotificationReaderConfig(getApplicationContext());
         }
@@ -105,34 +228,53 @@ public class NotificationListenerService extends android.service.notification.No
     }
 
     /**
-     * Inserts a notification into the database, enforcing storage limits if configured.
+     * Inserts a notification into the configured store, enforcing storage limits if configured.
      * @param context Application context
      * @param entity NotificationEntity to insert
      */
     private void insertNotificationWithStorageCheck(Context context, NotificationEntity entity) {
-        NotificationDatabase db = NotificationDatabase.getDatabase(context);
+        NotificationStore store = NotificationStores.get(context);
         
         // Insert the notification
-        db.notificationDao().insert(entity);
+        long insertStart = NotificationReaderMetrics.start();
+        store.insert(entity);
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.DB_INSERT, insertStart);
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.NOTIFICATIONS_STORED);
 
+        enforceStorageLimit(store);
+        NotificationQueryCache.invalidate();
+        NotificationArchive.maybeSchedule(context, config);
+    }
+
+    /**
+     * Deletes the oldest notifications while the store exceeds the configured storage limit.
+     * Safe to call from several threads; live ingestion and the initial backfill both call it.
+     * @param store Notification store
+     */
+    public void enforceStorageLimit(NotificationStore store) {
         // Check storage limit if configured
         if (config.hasStorageLimit()) {
-            Long currentSizeBytes = db.notificationDao().getDatabaseSizeBytes();
-            long limitBytes = config.getStorageLimitBytes();
-
-            if (currentSizeBytes != null && currentSizeBytes > limitBytes) {
-                // Delete oldest notifications until we're under the limit
-                // We'll delete in batches of 10 to avoid too many database operations
-                while (currentSizeBytes > limitBytes) {
-                    db.notificationDao().deleteOldestNotifications(10);
-                    currentSizeBytes = db.notificationDao().getDatabaseSizeBytes();
-                    
-                    // Safety check to avoid infinite loop
-                    if (currentSizeBytes == null || db.notificationDao().getTotalCount() == 0) {
-                        break;
+            long storageCheckStart = NotificationReaderMetrics.start();
+            synchronized (storageLimitLock) {
+                Long currentSizeBytes = store.sizeBytes();
+                long limitBytes = config.getStorageLimitBytes();
+
+                if (currentSizeBytes != null && currentSizeBytes > limitBytes) {
+                    // Delete oldest notifications until we're under the limit, 10 rows or one
+                    // whole partition at a time
+                    while (currentSizeBytes > limitBytes) {
+                        long evicted = store.evictOldest(10);
+                        NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.ROWS_EVICTED, evicted);
+                        currentSizeBytes = store.sizeBytes();
+
+                        // Safety check to avoid infinite loop
+                        if (currentSizeBytes == null || evicted == 0) {
+                            break;
+                        }
                     }
                 }
             }
+            NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.STORAGE_CHECK, storageCheckStart);
         }
     }
 }
@@ -0,0 +1,159 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import com.getcapacitor.JSObject;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Degrades gracefully while the system is low on memory, so the process is less likely to be
+ * killed and lose notifications.
+ * <p>
+ * Trim signals from the plugin's context and the listener service move the plugin into a
+ * degraded mode: caches are shrunk, big pictures are no longer encoded for new notifications
+ * and result pages are capped. Critical signals degrade further. The mode returns to normal
+ * once no signal has arrived for {@link #RECOVERY_MS}.
+ */
+public final class NotificationMemoryPressure {
+
+    public enum Mode {
+        NORMAL("normal", Integer.MAX_VALUE),
+        MODERATE("moderate", 50),
+        CRITICAL("critical", 10);
+
+        final String key;
+        final int maxPageSize;
+
+        Mode(String key, int maxPageSize) {
+            this.key = key;
+            this.maxPageSize = maxPageSize;
+        }
+    }
+
+    private static final long RECOVERY_MS = 60_000;
+
+    private static final AtomicLong signals = new AtomicLong();
+    private static final AtomicLong bigPicturesSkipped = new AtomicLong();
+
+    private static volatile Mode mode = Mode.NORMAL;
+    private static volatile int lastLevel;
+    private static volatile long lastSignalElapsed;
+    private static boolean registered;
+
+    private NotificationMemoryPressure() {}
+
+    /**
+     * Listens for trim signals on the application context. Safe to call more than once.
+     */
+    public static synchronized void register(Context context) {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                NotificationMemoryPressure.onTrimMemory(level);
+            }
+
+            @Override
+            public void onLowMemory() {
+                NotificationMemoryPressure.onLowMemory();
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {}
+        });
+    }
+
+    /**
+     * Handles a {@link ComponentCallbacks2#onTrimMemory} level.
+     */
+    @SuppressWarnings("deprecation")
+    public static void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            degrade(Mode.CRITICAL, level);
+        } else if (level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Running moderate or low, or cached in the background
+            degrade(Mode.MODERATE, level);
+        }
+    }
+
+    public static void onLowMemory() {
+        degrade(Mode.CRITICAL, ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    /**
+     * @return The current mode, returning to normal once the pressure has passed
+     */
+    public static Mode getMode() {
+        Mode current = mode;
+        if (current != Mode.NORMAL && SystemClock.elapsedRealtime() - lastSignalElapsed > RECOVERY_MS) {
+            synchronized (NotificationMemoryPressure.class) {
+                if (mode != Mode.NORMAL && SystemClock.elapsedRealtime() - lastSignalElapsed > RECOVERY_MS) {
+                    mode = Mode.NORMAL;
+                    NotificationQueryCache.resize(1);
+                    InstalledAppsCache.getInstance().resizeIcons(1);
+                }
+            }
+            current = mode;
+        }
+        return current;
+    }
+
+    /**
+     * @return The page size to use for a requested limit in the current mode
+     */
+    public static int capPageSize(int limit) {
+        return Math.min(limit, getMode().maxPageSize);
+    }
+
+    /**
+     * @return true if big pictures of new notifications should not be encoded, counting the skip
+     */
+    public static boolean skipBigPicture() {
+        if (getMode() == Mode.NORMAL) {
+            return false;
+        }
+        bigPicturesSkipped.incrementAndGet();
+        return true;
+    }
+
+    private static void degrade(Mode wanted, int level) {
+        signals.incrementAndGet();
+        // Recovers first if the previous pressure has passed
+        getMode();
+        synchronized (NotificationMemoryPressure.class) {
+            lastLevel = level;
+            lastSignalElapsed = SystemClock.elapsedRealtime();
+            if (wanted.ordinal() < mode.ordinal()) {
+                // Already degraded further; the later signal only extends it
+                return;
+            }
+            mode = wanted;
+            if (wanted == Mode.CRITICAL) {
+                NotificationQueryCache.resize(0);
+                InstalledAppsCache.getInstance().resizeIcons(0);
+                NotificationImages.forgetKnown();
+            } else {
+                NotificationQueryCache.resize(0.25);
+                InstalledAppsCache.getInstance().resizeIcons(0.25);
+            }
+        }
+    }
+
+    /**
+     * @return The current mode and the signals that caused it
+     */
+    public static JSObject metrics() {
+        JSObject obj = new JSObject();
+        obj.put("mode", getMode().key);
+        obj.put("lastTrimLevel", lastLevel);
+        obj.put("msSinceLastSignal", lastSignalElapsed > 0 ? SystemClock.elapsedRealtime() - lastSignalElapsed : -1);
+        obj.put("signals", signals.get());
+        obj.put("bigPicturesSkipped", bigPicturesSkipped.get());
+        return obj;
+    }
+}
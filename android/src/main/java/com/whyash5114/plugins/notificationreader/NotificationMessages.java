@@ -0,0 +1,223 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.database.Cursor;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import com.whyash5114.plugins.notificationreader.db.NotificationMessageDao;
+import com.whyash5114.plugins.notificationreader.db.NotificationMessageEntity;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Stores MessagingStyle history once per conversation instead of once per notification update.
+ * <p>
+ * Messaging apps repost the whole recent history with every new message, so storing
+ * messagesJson per row grows quadratically with the length of a chat. Instead each message is
+ * written to notification_messages, keyed by (conversation, sender, timestamp, text hash) so
+ * repeats are skipped, and the row keeps only the window it showed: conversationKey,
+ * firstMessageTime, lastMessageTime and messageCount. The window is turned back into the same
+ * messages array when rows are read.
+ * <p>
+ * Rows stored before this table existed keep their messagesJson and are read as before.
+ * Called by {@link NotificationPartitions}, which owns every write to the notification tables.
+ */
+public final class NotificationMessages {
+
+    // FNV-1a 64-bit
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private NotificationMessages() {}
+
+    /**
+     * Writes the messages of the given rows to the messages table, then runs insertRows with
+     * each row's messagesJson detached so only the window reference is stored. The entities get
+     * their messages back afterwards, for events and subscriptions. Must run in a transaction.
+     */
+    static void store(NotificationDatabase db, List<NotificationEntity> entities, Runnable insertRows) {
+        List<NotificationMessageEntity> messages = new ArrayList<>();
+        List<CompressedText> detached = new ArrayList<>(entities.size());
+        for (NotificationEntity entity : entities) {
+            CompressedText json = entity.messagesJson;
+            detached.add(json);
+            if (entity.conversationKey == null || json == null || !normalize(entity, json.get(), messages)) {
+                // Not a conversation, or history that cannot be parsed; stored as is
+                detached.set(detached.size() - 1, null);
+                continue;
+            }
+            entity.messagesJson = null;
+        }
+        if (!messages.isEmpty()) {
+            db.messageDao().insertAll(messages);
+        }
+        try {
+            insertRows.run();
+        } finally {
+            for (int i = 0; i < entities.size(); i++) {
+                if (detached.get(i) != null) {
+                    entities.get(i).messagesJson = detached.get(i);
+                }
+            }
+        }
+    }
+
+    private static boolean normalize(NotificationEntity entity, String json, List<NotificationMessageEntity> out) {
+        JSONArray array;
+        try {
+            array = new JSONArray(json);
+        } catch (JSONException e) {
+            return false;
+        }
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        int count = 0;
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject item = array.optJSONObject(i);
+            if (item == null) {
+                continue;
+            }
+            NotificationMessageEntity message = new NotificationMessageEntity();
+            message.conversationKey = entity.conversationKey;
+            message.sender = item.opt("sender") instanceof String sender ? sender : "";
+            message.timestamp = item.optLong("timestamp", 0);
+            message.text = item.opt("text") instanceof String text ? text : null;
+            message.textHash = textHash(message.text);
+            out.add(message);
+            first = Math.min(first, message.timestamp);
+            last = Math.max(last, message.timestamp);
+            count++;
+        }
+        entity.messageCount = count;
+        entity.firstMessageTime = count > 0 ? first : 0;
+        entity.lastMessageTime = count > 0 ? last : 0;
+        return true;
+    }
+
+    /**
+     * Restores messagesJson on rows read from the database that reference the messages table.
+     */
+    static void attach(NotificationDatabase db, List<NotificationEntity> rows) {
+        for (NotificationEntity row : rows) {
+            if (row.messagesJson == null && row.conversationKey != null) {
+                row.messagesJson = CompressedText.of(windowJson(db, row.conversationKey, row.firstMessageTime, row.lastMessageTime, row.messageCount));
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the messages array a row showed, oldest first, in the shape written by
+     * NotificationEntity.
+     */
+    static String windowJson(NotificationDatabase db, String conversationKey, long first, long last, int count) {
+        if (count <= 0) {
+            return "[]";
+        }
+        List<NotificationMessageEntity> window = db.messageDao().getWindow(conversationKey, first, last, count);
+        Collections.reverse(window);
+        JSArray array = new JSArray();
+        for (NotificationMessageEntity message : window) {
+            JSObject obj = new JSObject();
+            obj.put("text", message.text);
+            obj.put("timestamp", message.timestamp);
+            if (!message.sender.isEmpty()) {
+                obj.put("sender", message.sender);
+            }
+            array.put(obj);
+        }
+        return array.toString();
+    }
+
+    /**
+     * Returns a page of a conversation, oldest first.
+     *
+     * @param cursor nextCursor of the previous page, or null to start from the oldest message
+     * @return The messages and, if more may follow, the cursor for the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static JSObject getConversation(NotificationDatabase db, String conversationKey, String cursor, int limit) {
+        long afterTimestamp = Long.MIN_VALUE;
+        long afterId = Long.MIN_VALUE;
+        if (cursor != null) {
+            int separator = cursor.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            afterTimestamp = Long.parseLong(cursor.substring(0, separator));
+            afterId = Long.parseLong(cursor.substring(separator + 1));
+        }
+        List<NotificationMessageEntity> page = db.messageDao().getConversation(conversationKey, afterTimestamp, afterId, limit);
+        JSArray messages = new JSArray();
+        for (NotificationMessageEntity message : page) {
+            JSObject obj = new JSObject();
+            obj.put("id", message.id);
+            obj.put("text", message.text);
+            obj.put("timestamp", message.timestamp);
+            if (!message.sender.isEmpty()) {
+                obj.put("sender", message.sender);
+            }
+            messages.put(obj);
+        }
+        JSObject result = new JSObject();
+        result.put("messages", messages);
+        if (page.size() == limit) {
+            NotificationMessageEntity last = page.get(page.size() - 1);
+            result.put("nextCursor", last.timestamp + ":" + last.id);
+        }
+        return result;
+    }
+
+    /**
+     * Deletes messages of the given conversations that no remaining row can show: whole
+     * conversations no row references, and messages older than the oldest window still
+     * referencing their conversation. Each lookup reads the conversationKey index of a table.
+     *
+     * @param tables The notifications table and its partitions
+     * @param conversationKeys Conversations of the rows just deleted
+     */
+    static void collectGarbage(NotificationDatabase db, List<String> tables, Collection<String> conversationKeys) {
+        NotificationMessageDao dao = db.messageDao();
+        SupportSQLiteDatabase sdb = db.getOpenHelper().getReadableDatabase();
+        for (String conversationKey : conversationKeys) {
+            long oldest = Long.MAX_VALUE;
+            for (String table : tables) {
+                try (
+                    Cursor cursor = sdb.query(
+                        "SELECT firstMessageTime FROM " +
+                        table +
+                        " WHERE conversationKey = ? AND messagesJson IS NULL AND messageCount > 0 ORDER BY firstMessageTime LIMIT 1",
+                        new Object[] { conversationKey }
+                    )
+                ) {
+                    if (cursor.moveToFirst()) {
+                        oldest = Math.min(oldest, cursor.getLong(0));
+                    }
+                }
+            }
+            if (oldest == Long.MAX_VALUE) {
+                dao.deleteConversation(conversationKey);
+            } else {
+                dao.deleteBefore(conversationKey, oldest);
+            }
+        }
+    }
+
+    static long textHash(String text) {
+        long hash = FNV_OFFSET;
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+}
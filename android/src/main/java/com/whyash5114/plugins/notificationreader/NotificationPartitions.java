@@ -0,0 +1,796 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.database.Cursor;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationDao;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import com.whyash5114.plugins.notificationreader.db.NotificationRowSize;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Routes reads and writes of stored notifications across the notifications table and, when
+ * partitioning is enabled, per-week or per-month partition tables (notifications_w&lt;week&gt;,
+ * notifications_m&lt;yyyyMM&gt;, UTC boundaries).
+ * <p>
+ * Partitions share the schema of the notifications table, which also acts as the staging table:
+ * a row is inserted there through Room and moved to its partition in the same transaction.
+ * Rows stored before partitioning was enabled stay in the notifications table until
+ * {@link #migrateBaseTable} moves them. Storage eviction drops whole partitions, and queries
+ * bounded by time only read the partitions overlapping the bounds.
+ * <p>
+ * Every access to stored notifications goes through this class so that all tables are covered,
+ * whether or not partitioning is currently enabled.
+ */
+public final class NotificationPartitions {
+
+    public enum Granularity {
+        NONE("none"),
+        WEEK("week"),
+        MONTH("month");
+
+        final String key;
+
+        Granularity(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public static Granularity fromKey(String key) {
+            for (Granularity granularity : values()) {
+                if (granularity.key.equals(key)) {
+                    return granularity;
+                }
+            }
+            return NONE;
+        }
+    }
+
+    private static final String BASE_TABLE = "notifications";
+    private static final String WEEK_PREFIX = "notifications_w";
+    private static final String MONTH_PREFIX = "notifications_m";
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final int MIGRATION_CHUNK_SIZE = 500;
+    private static final long MAX_YIELD_MS = 2_000;
+
+    private static volatile Granularity granularity = Granularity.NONE;
+    // Existing partitions, newest first; replaced as a whole when one is created or dropped
+    private static volatile List<Partition> partitions;
+
+    private NotificationPartitions() {}
+
+    /**
+     * Applies the partitioning setting. Existing partitions stay readable when it is turned off.
+     */
+    public static void configure(NotificationReaderConfig config) {
+        granularity = config.getPartitioning();
+    }
+
+    public static Granularity getGranularity() {
+        return granularity;
+    }
+
+    // region Writes
+
+    public static void insert(NotificationDatabase db, NotificationEntity entity) {
+        // Extracted before the transaction so the text scan does not hold the write lock
+        NotificationExtractors.extract(entity);
+        List<NotificationEntity> entities = Collections.singletonList(entity);
+        db.runInTransaction(() ->
+            NotificationMessages.store(db, entities, () -> {
+                db.notificationDao().insert(entity);
+                if (granularity != Granularity.NONE) {
+                    moveToPartition(db, Collections.singletonList(entity.id), entity.postTime);
+                }
+                NotificationExtractors.store(db, entities);
+                NotificationChangeLog.logUpserts(db, entities);
+            })
+        );
+    }
+
+    public static void insertAll(NotificationDatabase db, List<NotificationEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        for (NotificationEntity entity : entities) {
+            NotificationExtractors.extract(entity);
+        }
+        db.runInTransaction(() ->
+            NotificationMessages.store(db, entities, () -> {
+                db.notificationDao().insertAll(entities);
+                if (granularity != Granularity.NONE) {
+                    for (Map.Entry<Long, List<String>> group : groupByPartition(entities).entrySet()) {
+                        moveToPartition(db, group.getValue(), group.getKey());
+                    }
+                }
+                NotificationExtractors.store(db, entities);
+                NotificationChangeLog.logUpserts(db, entities);
+            })
+        );
+    }
+
+    /**
+     * Moves rows stored in the notifications table before partitioning was enabled into their
+     * partitions, in short transactions. Must run on the bulk lane.
+     */
+    public static void migrateBaseTable(NotificationDatabase db) throws InterruptedException {
+        if (granularity == Granularity.NONE) {
+            return;
+        }
+        SupportSQLiteDatabase sdb = db.getOpenHelper().getWritableDatabase();
+        while (granularity != Granularity.NONE) {
+            PluginExecutors.awaitDrained(PluginExecutors.Lane.INGESTION, MAX_YIELD_MS);
+            int moved = db.runInTransaction(() -> {
+                List<NotificationEntity> rows = new ArrayList<>();
+                try (
+                    Cursor cursor = sdb.query(
+                        "SELECT id, postTime FROM " + BASE_TABLE + " ORDER BY postTime ASC LIMIT ?",
+                        new Object[] { MIGRATION_CHUNK_SIZE }
+                    )
+                ) {
+                    while (cursor.moveToNext()) {
+                        NotificationEntity row = new NotificationEntity();
+                        row.id = cursor.getString(0);
+                        row.postTime = cursor.getLong(1);
+                        rows.add(row);
+                    }
+                }
+                for (Map.Entry<Long, List<String>> group : groupByPartition(rows).entrySet()) {
+                    moveToPartition(db, group.getValue(), group.getKey());
+                }
+                return rows.size();
+            });
+            NotificationQueryCache.invalidate();
+            if (moved < MIGRATION_CHUNK_SIZE) {
+                break;
+            }
+        }
+    }
+
+    // endregion
+
+    // region Reads
+
+    /**
+     * Returns stored notifications matching a filter, newest first.
+     *
+     * @param cursor Only notifications posted strictly before this time, or null
+     */
+    public static List<NotificationEntity> query(NotificationDatabase db, NotificationFilterQuery filter, Long cursor, int limit) {
+        List<String> conditions = new ArrayList<>(filter.conditions);
+        List<Object> args = new ArrayList<>(filter.args);
+        if (cursor != null && cursor > 0) {
+            conditions.add("postTime < ?");
+            args.add(cursor);
+        }
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        args.add(limit);
+        Object[] argArray = args.toArray();
+        NotificationDao dao = db.notificationDao();
+
+        List<NotificationEntity> results = new ArrayList<>(dao.getNotifications(new SimpleSQLiteQuery(selectFrom(BASE_TABLE, where), argArray)));
+        long upper = upperBound(filter, cursor);
+        long lower = filter.afterTimestamp != null ? filter.afterTimestamp : Long.MIN_VALUE;
+        for (Partition partition : getPartitions(db)) {
+            if (results.size() >= limit && partition.end <= results.get(limit - 1).postTime) {
+                // Partitions are newest first and disjoint; none of the rest can rank higher
+                break;
+            }
+            if (!partition.overlaps(lower, upper)) {
+                continue;
+            }
+            results.addAll(dao.getNotifications(new SimpleSQLiteQuery(selectFrom(partition.table, where), argArray)));
+            results.sort((a, b) -> Long.compare(b.postTime, a.postTime));
+        }
+        List<NotificationEntity> page = results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+        NotificationMessages.attach(db, page);
+        return page;
+    }
+
+    /**
+     * Opens a cursor over the same rows as {@link #query}, as one UNION ALL across the
+     * notifications table and the overlapping partitions. The caller closes the cursor.
+     *
+     * @param cursor Only notifications posted strictly before this time, or null
+     */
+    public static Cursor queryCursor(NotificationDatabase db, NotificationFilterQuery filter, Long cursor, int limit) {
+        List<String> conditions = new ArrayList<>(filter.conditions);
+        List<Object> whereArgs = new ArrayList<>(filter.args);
+        if (cursor != null && cursor > 0) {
+            conditions.add("postTime < ?");
+            whereArgs.add(cursor);
+        }
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(BASE_TABLE).append(where);
+        List<Object> args = new ArrayList<>(whereArgs);
+        long upper = upperBound(filter, cursor);
+        long lower = filter.afterTimestamp != null ? filter.afterTimestamp : Long.MIN_VALUE;
+        for (Partition partition : getPartitions(db)) {
+            if (partition.overlaps(lower, upper)) {
+                sql.append(" UNION ALL SELECT * FROM ").append(partition.table).append(where);
+                args.addAll(whereArgs);
+            }
+        }
+        sql.append(" ORDER BY postTime DESC LIMIT ?");
+        args.add(limit);
+        return db.query(new SimpleSQLiteQuery(sql.toString(), args.toArray()));
+    }
+
+    /**
+     * @return The notifications table and the partitions that can hold rows matching the filter
+     */
+    public static List<String> tablesFor(NotificationDatabase db, NotificationFilterQuery filter) {
+        List<String> tables = new ArrayList<>();
+        tables.add(BASE_TABLE);
+        long upper = upperBound(filter, null);
+        long lower = filter.afterTimestamp != null ? filter.afterTimestamp : Long.MIN_VALUE;
+        for (Partition partition : getPartitions(db)) {
+            if (partition.overlaps(lower, upper)) {
+                tables.add(partition.table);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Returns the stored notifications with the given ids, in no particular order.
+     */
+    public static List<NotificationEntity> getByIds(NotificationDatabase db, List<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String where = " WHERE id IN (?" + ", ?".repeat(ids.size() - 1) + ")";
+        Object[] args = ids.toArray();
+        NotificationDao dao = db.notificationDao();
+        List<NotificationEntity> results = new ArrayList<>(dao.getNotifications(new SimpleSQLiteQuery("SELECT * FROM " + BASE_TABLE + where, args)));
+        for (Partition partition : getPartitions(db)) {
+            results.addAll(dao.getNotifications(new SimpleSQLiteQuery("SELECT * FROM " + partition.table + where, args)));
+        }
+        NotificationMessages.attach(db, results);
+        return results;
+    }
+
+    public static int getTotalCount(NotificationDatabase db) {
+        long total = db.notificationDao().getTotalCount();
+        for (Partition partition : getPartitions(db)) {
+            total += queryLong(db, "SELECT COUNT(*) FROM " + partition.table);
+        }
+        return (int) total;
+    }
+
+    /**
+     * @return Approximate stored size in bytes, see {@link NotificationDao#ROW_SIZE}
+     */
+    public static Long getDatabaseSizeBytes(NotificationDatabase db) {
+        Long base = db.notificationDao().getDatabaseSizeBytes();
+        Long messages = db.messageDao().getSizeBytes();
+        long total = (base != null ? base : 0) + (messages != null ? messages : 0);
+        for (Partition partition : getPartitions(db)) {
+            total += queryLong(db, "SELECT COALESCE(SUM(" + NotificationDao.ROW_SIZE + "), 0) FROM " + partition.table);
+        }
+        return base == null && total == 0 ? null : total;
+    }
+
+    public static List<String> getStoredPackageNames(NotificationDatabase db) {
+        Set<String> names = new HashSet<>(db.notificationDao().getStoredPackageNames());
+        for (Partition partition : getPartitions(db)) {
+            names.addAll(queryStrings(db, "SELECT DISTINCT packageName FROM " + partition.table, new Object[0]));
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Returns "key:postTime" for every stored posting of the given notification keys.
+     */
+    public static List<String> getStoredPostings(NotificationDatabase db, List<String> keys) {
+        List<String> postings = new ArrayList<>(db.notificationDao().getStoredPostings(keys));
+        if (keys.isEmpty()) {
+            return postings;
+        }
+        String placeholders = "?" + ", ?".repeat(keys.size() - 1);
+        for (Partition partition : getPartitions(db)) {
+            postings.addAll(
+                queryStrings(
+                    db,
+                    "SELECT notificationKey || ':' || postTime FROM " + partition.table + " WHERE notificationKey IN (" + placeholders + ")",
+                    keys.toArray()
+                )
+            );
+        }
+        return postings;
+    }
+
+    /**
+     * Returns the oldest notifications posted before the given time, oldest first.
+     */
+    public static List<NotificationEntity> getNotificationsBefore(NotificationDatabase db, long before, int limit) {
+        NotificationDao dao = db.notificationDao();
+        List<NotificationEntity> results = new ArrayList<>(dao.getNotificationsBefore(before, limit));
+        List<Partition> oldestFirst = new ArrayList<>(getPartitions(db));
+        Collections.reverse(oldestFirst);
+        for (Partition partition : oldestFirst) {
+            if (partition.start >= before || (results.size() >= limit && partition.start > results.get(limit - 1).postTime)) {
+                break;
+            }
+            results.addAll(
+                dao.getNotifications(
+                    new SimpleSQLiteQuery(
+                        "SELECT * FROM " + partition.table + " WHERE postTime < ? ORDER BY postTime ASC LIMIT ?",
+                        new Object[] { before, limit }
+                    )
+                )
+            );
+            results.sort((a, b) -> Long.compare(a.postTime, b.postTime));
+        }
+        List<NotificationEntity> page = results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+        NotificationMessages.attach(db, page);
+        return page;
+    }
+
+    /**
+     * Returns notifications after a position in (postTime, id) order, newest first, without
+     * their message history, for visiting every stored row in chunks. Unlike {@link #query},
+     * rows sharing a post time are never skipped and a postTime of 0 is an ordinary position.
+     *
+     * @param beforeTime Post time of the last row of the previous chunk, or null for the newest
+     * @param beforeId Id of that row
+     */
+    public static List<NotificationEntity> getPageBefore(NotificationDatabase db, Long beforeTime, String beforeId, int limit) {
+        String where = "";
+        Object[] args = new Object[] { limit };
+        if (beforeTime != null) {
+            // The postTime range keeps the postTime index usable
+            where = " WHERE postTime <= ? AND (postTime < ? OR id < ?)";
+            args = new Object[] { beforeTime, beforeTime, beforeId, limit };
+        }
+        String sql = " ORDER BY postTime DESC, id DESC LIMIT ?";
+        Comparator<NotificationEntity> order = Comparator.<NotificationEntity>comparingLong(e -> e.postTime)
+            .thenComparing(e -> e.id)
+            .reversed();
+        NotificationDao dao = db.notificationDao();
+
+        List<NotificationEntity> results = new ArrayList<>(
+            dao.getNotifications(new SimpleSQLiteQuery("SELECT * FROM " + BASE_TABLE + where + sql, args))
+        );
+        for (Partition partition : getPartitions(db)) {
+            if (results.size() >= limit && partition.end <= results.get(limit - 1).postTime) {
+                break;
+            }
+            if (beforeTime != null && partition.start > beforeTime) {
+                continue;
+            }
+            results.addAll(dao.getNotifications(new SimpleSQLiteQuery("SELECT * FROM " + partition.table + where + sql, args)));
+            results.sort(order);
+        }
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    // endregion
+
+    // region Deletes
+
+    /**
+     * Deletes up to chunkSize rows matching a filter from each table, in one transaction.
+     *
+     * @return Number of rows deleted and their approximate size in bytes
+     */
+    public static long[] deleteChunk(NotificationDatabase db, NotificationFilterQuery filter, int chunkSize) {
+        List<Object> args = new ArrayList<>(filter.args);
+        args.add(chunkSize);
+        Object[] argArray = args.toArray();
+        long upper = upperBound(filter, null);
+        long lower = filter.afterTimestamp != null ? filter.afterTimestamp : Long.MIN_VALUE;
+
+        return db.runInTransaction(() -> {
+            long deleted = 0;
+            long bytes = 0;
+            List<String> deletedIds = new ArrayList<>();
+            Set<String> conversations = new HashSet<>();
+            List<String> tables = new ArrayList<>();
+            tables.add(BASE_TABLE);
+            for (Partition partition : getPartitions(db)) {
+                if (partition.overlaps(lower, upper)) {
+                    tables.add(partition.table);
+                }
+            }
+            for (String table : tables) {
+                List<NotificationRowSize> rows = db
+                    .notificationDao()
+                    .getRowSizes(
+                        new SimpleSQLiteQuery(
+                            "SELECT id, " + NotificationDao.ROW_SIZE + " AS size FROM " + table + filter.whereClause() + " LIMIT ?",
+                            argArray
+                        )
+                    );
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                List<String> ids = new ArrayList<>(rows.size());
+                for (NotificationRowSize row : rows) {
+                    ids.add(row.id);
+                    bytes += row.size;
+                }
+                addConversationKeys(db, table, ids, conversations);
+                deleted += deleteIds(db, table, ids);
+                deletedIds.addAll(ids);
+                NotificationChangeLog.logDeletes(db, ids);
+            }
+            if (deleted > 0) {
+                collectOrphans(db, deletedIds, conversations);
+            }
+            return new long[] { deleted, bytes };
+        });
+    }
+
+    /**
+     * Deletes rows by id from whichever table holds them.
+     */
+    public static int deleteByIds(NotificationDatabase db, List<String> ids) {
+        return db.runInTransaction(() -> {
+            Set<String> conversations = new HashSet<>();
+            addConversationKeys(db, BASE_TABLE, ids, conversations);
+            int deleted = db.notificationDao().deleteByIds(ids);
+            for (Partition partition : getPartitions(db)) {
+                addConversationKeys(db, partition.table, ids, conversations);
+                deleted += deleteIds(db, partition.table, ids);
+            }
+            if (deleted > 0) {
+                collectOrphans(db, ids, conversations);
+                NotificationChangeLog.logDeletes(db, ids);
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Frees space by removing the oldest notifications. Drops the oldest partition as a whole
+     * unless it is the newest one; otherwise deletes the oldest rows one batch at a time.
+     * Messages and extractions only the evicted rows had count towards the limit as well, so
+     * they are removed with them.
+     *
+     * @return Number of rows removed
+     */
+    public static long evictOldest(NotificationDatabase db, int batchSize) {
+        List<Partition> current = getPartitions(db);
+        NotificationDao dao = db.notificationDao();
+        if (current.size() > 1) {
+            Partition oldest = current.get(current.size() - 1);
+            List<String> oldestBaseIds = queryStrings(
+                db,
+                "SELECT id FROM " + BASE_TABLE + " WHERE postTime < ? LIMIT 1",
+                new Object[] { oldest.end }
+            );
+            if (oldestBaseIds.isEmpty()) {
+                return db.runInTransaction(() -> {
+                    long rows = queryLong(db, "SELECT COUNT(*) FROM " + oldest.table);
+                    // Read from the conversationKey index, without visiting the rows
+                    Set<String> conversations = new HashSet<>(
+                        queryStrings(
+                            db,
+                            "SELECT DISTINCT conversationKey FROM " + oldest.table + " WHERE conversationKey IS NOT NULL",
+                            new Object[0]
+                        )
+                    );
+                    NotificationExtractors.deleteForTable(db, oldest.table);
+                    drop(db, oldest);
+                    NotificationMessages.collectGarbage(db, tables(db), conversations);
+                    // Recorded as a range, without reading the ids of the dropped rows
+                    NotificationChangeLog.logDeleteBefore(db, oldest.end);
+                    return rows;
+                });
+            }
+        } else if (current.size() == 1 && dao.getTotalCount() == 0) {
+            return deleteOldest(db, current.get(0).table, batchSize);
+        }
+        return deleteOldest(db, BASE_TABLE, batchSize);
+    }
+
+    private static int deleteOldest(NotificationDatabase db, String table, int batchSize) {
+        return db.runInTransaction(() -> {
+            List<String> ids = queryStrings(db, "SELECT id FROM " + table + " ORDER BY postTime ASC LIMIT ?", new Object[] { batchSize });
+            Set<String> conversations = new HashSet<>();
+            addConversationKeys(db, table, ids, conversations);
+            int deleted = deleteIds(db, table, ids);
+            if (deleted > 0) {
+                collectOrphans(db, ids, conversations);
+            }
+            NotificationChangeLog.logDeletes(db, ids);
+            return deleted;
+        });
+    }
+
+    /**
+     * Drops partitions that no longer hold any rows, for example after archiving.
+     */
+    public static void dropEmptyPartitions(NotificationDatabase db) {
+        for (Partition partition : getPartitions(db)) {
+            if (queryLong(db, "SELECT COUNT(*) FROM (SELECT 1 FROM " + partition.table + " LIMIT 1)") == 0) {
+                drop(db, partition);
+            }
+        }
+    }
+
+    /**
+     * Deletes every notification, its message history and extractions, and drops the
+     * partitions, all in one transaction.
+     */
+    public static void deleteAll(NotificationDatabase db) {
+        try {
+            db.runInTransaction(() -> {
+                db.notificationDao().deleteAllNotifications();
+                db.messageDao().deleteAll();
+                db.extractionDao().deleteAll();
+                for (Partition partition : getPartitions(db)) {
+                    drop(db, partition);
+                }
+                NotificationChangeLog.logClear(db);
+            });
+        } catch (RuntimeException e) {
+            // The rollback restored the dropped partitions; list them again from the database
+            synchronized (NotificationPartitions.class) {
+                partitions = null;
+            }
+            throw e;
+        }
+    }
+
+    // endregion
+
+    /**
+     * @return Number of partitions and their granularity
+     */
+    public static JSObject metrics(NotificationDatabase db) {
+        JSObject obj = new JSObject();
+        obj.put("granularity", granularity.key);
+        obj.put("partitions", getPartitions(db).size());
+        return obj;
+    }
+
+    /**
+     * Deletes the extractions of deleted rows and the message history no remaining row
+     * references. Only the conversations of the deleted rows are checked.
+     *
+     * @param ids Ids of the deleted rows
+     * @param conversations Conversation keys of the deleted rows
+     */
+    private static void collectOrphans(NotificationDatabase db, List<String> ids, Set<String> conversations) {
+        NotificationExtractors.delete(db, ids);
+        NotificationMessages.collectGarbage(db, tables(db), conversations);
+    }
+
+    /**
+     * Adds the conversation keys of the given rows of a table to keys. Called before the rows
+     * are deleted, so their messages can be collected afterwards.
+     */
+    private static void addConversationKeys(NotificationDatabase db, String table, List<String> ids, Set<String> keys) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String placeholders = "?" + ", ?".repeat(ids.size() - 1);
+        keys.addAll(
+            queryStrings(
+                db,
+                "SELECT DISTINCT conversationKey FROM " + table + " WHERE conversationKey IS NOT NULL AND id IN (" + placeholders + ")",
+                ids.toArray()
+            )
+        );
+    }
+
+    private static List<String> tables(NotificationDatabase db) {
+        List<String> tables = new ArrayList<>();
+        tables.add(BASE_TABLE);
+        for (Partition partition : getPartitions(db)) {
+            tables.add(partition.table);
+        }
+        return tables;
+    }
+
+    private static String selectFrom(String table, String where) {
+        return "SELECT * FROM " + table + where + " ORDER BY postTime DESC LIMIT ?";
+    }
+
+    private static long upperBound(NotificationFilterQuery filter, Long cursor) {
+        long upper = Long.MAX_VALUE;
+        if (cursor != null && cursor > 0) {
+            upper = cursor;
+        }
+        if (filter.beforeTimestamp != null) {
+            upper = Math.min(upper, filter.beforeTimestamp);
+        }
+        return upper;
+    }
+
+    private static Map<Long, List<String>> groupByPartition(List<NotificationEntity> entities) {
+        Map<Long, List<String>> groups = new LinkedHashMap<>();
+        for (NotificationEntity entity : entities) {
+            long start = Partition.forTime(granularity, entity.postTime).start;
+            List<String> ids = groups.get(start);
+            if (ids == null) {
+                ids = new ArrayList<>();
+                groups.put(start, ids);
+            }
+            ids.add(entity.id);
+        }
+        return groups;
+    }
+
+    private static void moveToPartition(NotificationDatabase db, List<String> ids, long postTime) {
+        Partition partition = ensurePartition(db, Partition.forTime(granularity, postTime));
+        SupportSQLiteDatabase sdb = db.getOpenHelper().getWritableDatabase();
+        String placeholders = "?" + ", ?".repeat(ids.size() - 1);
+        Object[] args = ids.toArray();
+        sdb.execSQL("INSERT OR REPLACE INTO " + partition.table + " SELECT * FROM " + BASE_TABLE + " WHERE id IN (" + placeholders + ")", args);
+        sdb.execSQL("DELETE FROM " + BASE_TABLE + " WHERE id IN (" + placeholders + ")", args);
+    }
+
+    private static int deleteIds(NotificationDatabase db, String table, List<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = "?" + ", ?".repeat(ids.size() - 1);
+        return db.getOpenHelper().getWritableDatabase().delete(table, "id IN (" + placeholders + ")", ids.toArray());
+    }
+
+    private static List<Partition> getPartitions(NotificationDatabase db) {
+        List<Partition> current = partitions;
+        if (current != null) {
+            return current;
+        }
+        synchronized (NotificationPartitions.class) {
+            if (partitions == null) {
+                List<Partition> loaded = new ArrayList<>();
+                for (String table : queryStrings(
+                    db,
+                    "SELECT name FROM sqlite_master WHERE type = 'table' AND (name LIKE ? OR name LIKE ?)",
+                    new Object[] { WEEK_PREFIX + "%", MONTH_PREFIX + "%" }
+                )) {
+                    Partition partition = Partition.fromTable(table);
+                    if (partition != null) {
+                        loaded.add(partition);
+                    }
+                }
+                setPartitions(loaded);
+            }
+            return partitions;
+        }
+    }
+
+    private static synchronized Partition ensurePartition(NotificationDatabase db, Partition wanted) {
+        for (Partition partition : getPartitions(db)) {
+            if (partition.table.equals(wanted.table)) {
+                return partition;
+            }
+        }
+        SupportSQLiteDatabase sdb = db.getOpenHelper().getWritableDatabase();
+        List<String> schema = queryStrings(db, "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?", new Object[] { BASE_TABLE });
+        // Same columns and column order as the notifications table, so rows can be copied with SELECT *
+        sdb.execSQL(schema.get(0).replaceFirst("`?" + BASE_TABLE + "`?", "`" + wanted.table + "`"));
+        sdb.execSQL("CREATE INDEX IF NOT EXISTS `index_" + wanted.table + "_postTime` ON `" + wanted.table + "` (`postTime`)");
+        sdb.execSQL(
+            "CREATE INDEX IF NOT EXISTS `index_" +
+            wanted.table +
+            "_notificationKey_postTime` ON `" +
+            wanted.table +
+            "` (`notificationKey`, `postTime`)"
+        );
+        NotificationDatabase.createFacetIndexes(sdb, wanted.table);
+        NotificationDatabase.createConversationIndex(sdb, wanted.table);
+
+        List<Partition> updated = new ArrayList<>(getPartitions(db));
+        updated.add(wanted);
+        setPartitions(updated);
+        return wanted;
+    }
+
+    private static synchronized void drop(NotificationDatabase db, Partition partition) {
+        db.getOpenHelper().getWritableDatabase().execSQL("DROP TABLE IF EXISTS `" + partition.table + "`");
+        List<Partition> updated = new ArrayList<>(getPartitions(db));
+        updated.remove(partition);
+        setPartitions(updated);
+        NotificationQueryCache.invalidate();
+    }
+
+    private static void setPartitions(List<Partition> updated) {
+        updated.sort((a, b) -> Long.compare(b.start, a.start));
+        partitions = Collections.unmodifiableList(updated);
+    }
+
+    private static long queryLong(NotificationDatabase db, String sql) {
+        try (Cursor cursor = db.getOpenHelper().getReadableDatabase().query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    private static List<String> queryStrings(NotificationDatabase db, String sql, Object[] args) {
+        List<String> values = new ArrayList<>();
+        try (Cursor cursor = db.getOpenHelper().getReadableDatabase().query(sql, args)) {
+            while (cursor.moveToNext()) {
+                values.add(cursor.getString(0));
+            }
+        }
+        return values;
+    }
+
+    private static final class Partition {
+
+        final String table;
+        final long start;
+        final long end;
+
+        Partition(String table, long start, long end) {
+            this.table = table;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean overlaps(long lowerExclusive, long upperExclusive) {
+            return end > lowerExclusive + 1 && start < upperExclusive;
+        }
+
+        static Partition forTime(Granularity granularity, long postTime) {
+            if (granularity == Granularity.WEEK) {
+                // Weeks start on Monday; 1970-01-01 was a Thursday
+                long week = Math.floorDiv(Math.floorDiv(postTime, DAY_MS) + 3, 7);
+                return week(week);
+            }
+            Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            calendar.setTimeInMillis(postTime);
+            return month(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+        }
+
+        static Partition fromTable(String table) {
+            try {
+                if (table.startsWith(WEEK_PREFIX)) {
+                    return week(Long.parseLong(table.substring(WEEK_PREFIX.length())));
+                }
+                if (table.startsWith(MONTH_PREFIX)) {
+                    int yearMonth = Integer.parseInt(table.substring(MONTH_PREFIX.length()));
+                    return month(yearMonth / 100, yearMonth % 100 - 1);
+                }
+            } catch (NumberFormatException ignored) {
+                // Not a partition table
+            }
+            return null;
+        }
+
+        private static Partition week(long week) {
+            long start = (week * 7 - 3) * DAY_MS;
+            return new Partition(WEEK_PREFIX + week, start, start + 7 * DAY_MS);
+        }
+
+        private static Partition month(int year, int month) {
+            Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            calendar.clear();
+            calendar.set(year, month, 1);
+            long start = calendar.getTimeInMillis();
+            calendar.add(Calendar.MONTH, 1);
+            return new Partition(String.format(Locale.US, "%s%04d%02d", MONTH_PREFIX, year, month + 1), start, calendar.getTimeInMillis());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Partition partition && partition.table.equals(table);
+        }
+
+        @Override
+        public int hashCode() {
+            return table.hashCode();
+        }
+    }
+}
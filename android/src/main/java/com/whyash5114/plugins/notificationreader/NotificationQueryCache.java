@@ -0,0 +1,111 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.util.LruCache;
+import com.getcapacitor.JSObject;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of getNotifications results.
+ * <p>
+ * Entries are keyed by the generated SQL and its arguments, which already normalise the
+ * filter, cursor and limit. Every write to the notifications table bumps a generation
+ * counter; an entry is only served if it was computed in the current generation, so
+ * readers never see results older than the last completed write.
+ */
+public final class NotificationQueryCache {
+
+    // Bounded by the number of cached rows so pages with icons cannot grow without limit
+    private static final int MAX_CACHED_ROWS = 500;
+
+    private static final AtomicLong generation = new AtomicLong();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    private static final LruCache<String, Entry> cache = new LruCache<>(MAX_CACHED_ROWS) {
+        @Override
+        protected int sizeOf(String key, Entry value) {
+            return Math.max(1, value.rows);
+        }
+    };
+
+    private NotificationQueryCache() {}
+
+    /**
+     * Must be called after every insert, update or delete of stored notifications.
+     */
+    public static void invalidate() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        cache.evictAll();
+    }
+
+    /**
+     * Scales the cache to a fraction of its normal size, evicting as needed, while memory is low.
+     *
+     * @param fraction 1 for the normal size, 0 to keep at most one row
+     */
+    public static void resize(double fraction) {
+        cache.resize(Math.max(1, (int) (MAX_CACHED_ROWS * fraction)));
+    }
+
+    /**
+     * @return The current write generation, captured before running a query
+     */
+    public static long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns a cached result if it is still valid for the current generation.
+     */
+    public static JSObject get(String key) {
+        Entry entry = cache.get(key);
+        if (entry != null && entry.generation == generation.get()) {
+            hits.incrementAndGet();
+            return entry.result;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a result computed from a query that started at the given generation.
+     * Results from a generation that has since been invalidated are dropped.
+     */
+    public static void put(String key, long queryGeneration, JSObject result, int rows) {
+        if (queryGeneration == generation.get()) {
+            cache.put(key, new Entry(queryGeneration, result, rows));
+        }
+    }
+
+    /**
+     * @return Hit/miss counters for tuning
+     */
+    public static JSObject metrics() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        JSObject obj = new JSObject();
+        obj.put("hits", hitCount);
+        obj.put("misses", missCount);
+        obj.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        obj.put("invalidations", invalidations.get());
+        obj.put("entries", cache.snapshot().size());
+        obj.put("cachedRows", cache.size());
+        obj.put("generation", generation.get());
+        return obj;
+    }
+
+    private static final class Entry {
+
+        final long generation;
+        final JSObject result;
+        final int rows;
+
+        Entry(long generation, JSObject result, int rows) {
+            this.generation = generation;
+            this.result = result;
+            this.rows = rows;
+        }
+    }
+}
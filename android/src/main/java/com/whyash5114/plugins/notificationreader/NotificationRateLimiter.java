@@ -0,0 +1,133 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.os.SystemClock;
+import com.getcapacitor.JSObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-package token buckets limiting how many notifications an app gets stored.
+ * <p>
+ * Each package may post up to the configured burst at once, refilled at the configured rate.
+ * Notifications beyond it are dropped before their entity is built, so an app posting
+ * hundreds of updates per second costs one bucket check each instead of entity construction,
+ * image encoding, an insert, a storage check and a bridge event. Drops are counted per package.
+ */
+public final class NotificationRateLimiter {
+
+    private static final NotificationRateLimiter instance = new NotificationRateLimiter(SystemClock::elapsedRealtime);
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> dropped = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    private volatile int perMinute;
+    private volatile int burst;
+
+    /**
+     * @param clock Milliseconds on a monotonic clock
+     */
+    NotificationRateLimiter(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Applies the configured rate and burst. Buckets restart full.
+     */
+    public static void configure(NotificationReaderConfig config) {
+        instance.setLimit(config.getRateLimitPerMinute(), config.getRateLimitBurst());
+    }
+
+    /**
+     * Takes a token from the package's bucket.
+     *
+     * @return true if the notification may be stored, false if it was counted as dropped
+     */
+    public static boolean tryAcquire(String packageName) {
+        if (instance.acquire(packageName)) {
+            return true;
+        }
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.NOTIFICATIONS_RATE_LIMITED);
+        return false;
+    }
+
+    /**
+     * @return The configured limit and the notifications dropped per package since the last reset
+     */
+    public static JSObject metrics() {
+        JSObject packages = new JSObject();
+        for (Map.Entry<String, AtomicLong> entry : instance.dropped.entrySet()) {
+            packages.put(entry.getKey(), entry.getValue().get());
+        }
+        JSObject obj = new JSObject();
+        obj.put("perMinute", instance.perMinute);
+        obj.put("burst", instance.burst);
+        obj.put("dropped", packages);
+        return obj;
+    }
+
+    public static void reset() {
+        instance.dropped.clear();
+    }
+
+    /**
+     * Sets the rate and burst, restarting the buckets full if either changed.
+     *
+     * @param rate Tokens per minute, 0 or less for no limit
+     */
+    synchronized void setLimit(int rate, int size) {
+        if (rate != perMinute || size != burst) {
+            perMinute = rate;
+            burst = size;
+            buckets.clear();
+        }
+    }
+
+    /**
+     * Takes a token from the package's bucket, counting the notification as dropped if it is empty.
+     */
+    boolean acquire(String packageName) {
+        int rate = perMinute;
+        if (rate <= 0) {
+            return true;
+        }
+        int size = burst;
+        long now = clock.getAsLong();
+        if (buckets.computeIfAbsent(packageName, key -> new Bucket(size, now)).tryAcquire(now, rate / 60_000.0, size)) {
+            return true;
+        }
+        dropped.computeIfAbsent(packageName, key -> new AtomicLong()).incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return Notifications of the package dropped since the last reset
+     */
+    long getDropped(String packageName) {
+        AtomicLong count = dropped.get(packageName);
+        return count != null ? count.get() : 0;
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(int size, long now) {
+            tokens = size;
+            refilledAt = now;
+        }
+
+        synchronized boolean tryAcquire(long now, double tokensPerMs, int size) {
+            tokens = Math.min(size, tokens + (now - refilledAt) * tokensPerMs);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -5,7 +5,8 @@ import android.content.SharedPreferences;
 
 /**
  * Configuration manager for NotificationReader plugin.
- * Handles reading and writing configuration options like filterOngoing, filterTransport and storageLimit.
+ * Handles reading and writing configuration options like filterOngoing, filterTransport, storageLimit,
+ * metrics, compression, archiving, partitioning and the change log.
  */
 public class NotificationReaderConfig {
 
@@ -13,11 +14,37 @@ public class NotificationReaderConfig {
     private static final String PREF_FILTER_ONGOING = "filter_ongoing";
     private static final String PREF_FILTER_TRANSPORT = "filter_transport";
     private static final String PREF_STORAGE_LIMIT = "storage_limit";
+    private static final String PREF_METRICS_ENABLED = "metrics_enabled";
+    private static final String PREF_METRICS_DUMP_INTERVAL = "metrics_dump_interval";
+    private static final String PREF_METRICS_DUMP_TO_FILE = "metrics_dump_to_file";
+    private static final String PREF_COMPRESSION_ENABLED = "compression_enabled";
+    private static final String PREF_ARCHIVE_AFTER_DAYS = "archive_after_days";
+    private static final String PREF_PARTITIONING = "partitioning";
+    private static final String PREF_IMAGE_URLS = "image_urls";
+    private static final String PREF_CHANGE_LOG_RETENTION = "change_log_retention";
+    private static final String PREF_CHANGE_LOG_ENDPOINT = "change_log_endpoint";
+    private static final String PREF_CHANGE_LOG_ACKED_SEQ = "change_log_acked_seq";
+    private static final String PREF_STORAGE_BACKEND = "storage_backend";
+    private static final String PREF_MEMORY_STORE_CAPACITY = "memory_store_capacity";
+    private static final String PREF_RATE_LIMIT_PER_MINUTE = "rate_limit_per_minute";
+    private static final String PREF_RATE_LIMIT_BURST = "rate_limit_burst";
 
     // Default values
     private static final boolean DEFAULT_FILTER_ONGOING = true; // Filter out ongoing notifications by default
     private static final boolean DEFAULT_FILTER_TRANSPORT = true; // Filter out transport category by default
     private static final float DEFAULT_STORAGE_LIMIT = 500f; // 500 MB default
+    private static final boolean DEFAULT_METRICS_ENABLED = false;
+    private static final long DEFAULT_METRICS_DUMP_INTERVAL = 0; // No periodic dump
+    private static final boolean DEFAULT_METRICS_DUMP_TO_FILE = false;
+    private static final boolean DEFAULT_COMPRESSION_ENABLED = false;
+    private static final int DEFAULT_ARCHIVE_AFTER_DAYS = 0; // Archiving disabled
+    private static final String DEFAULT_PARTITIONING = "none"; // Single notifications table
+    private static final boolean DEFAULT_IMAGE_URLS = false; // Images inline as base64
+    private static final int DEFAULT_CHANGE_LOG_RETENTION = 10_000; // Most recent changes kept
+    private static final String DEFAULT_STORAGE_BACKEND = NotificationStores.BACKEND_DATABASE;
+    private static final int DEFAULT_MEMORY_STORE_CAPACITY = 1000;
+    private static final int DEFAULT_RATE_LIMIT_PER_MINUTE = 0; // No rate limit
+    private static final int DEFAULT_RATE_LIMIT_BURST = 20;
 
     private final SharedPreferences prefs;
 
@@ -92,4 +119,232 @@ public class NotificationReaderConfig {
     public boolean hasStorageLimit() {
         return getStorageLimit() > 0;
     }
+
+    /**
+     * Gets whether hot-path metrics are collected.
+     * @return true if metrics are collected, false otherwise (default)
+     */
+    public boolean isMetricsEnabled() {
+        return prefs.getBoolean(PREF_METRICS_ENABLED, DEFAULT_METRICS_ENABLED);
+    }
+
+    /**
+     * Sets whether hot-path metrics are collected.
+     * @param enabled true to collect metrics
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        prefs.edit().putBoolean(PREF_METRICS_ENABLED, enabled).apply();
+    }
+
+    /**
+     * Gets the interval at which metrics are dumped to logcat.
+     * @return interval in seconds, or 0 if periodic dumps are disabled (default)
+     */
+    public long getMetricsDumpIntervalSeconds() {
+        return prefs.getLong(PREF_METRICS_DUMP_INTERVAL, DEFAULT_METRICS_DUMP_INTERVAL);
+    }
+
+    /**
+     * Sets the interval at which metrics are dumped to logcat.
+     * @param seconds interval in seconds, or 0 to disable periodic dumps
+     */
+    public void setMetricsDumpIntervalSeconds(long seconds) {
+        prefs.edit().putLong(PREF_METRICS_DUMP_INTERVAL, Math.max(0, seconds)).apply();
+    }
+
+    /**
+     * Gets whether periodic metric dumps are also written to a file in the app's files directory.
+     * @return true if dumps are written to a file, false otherwise (default)
+     */
+    public boolean shouldDumpMetricsToFile() {
+        return prefs.getBoolean(PREF_METRICS_DUMP_TO_FILE, DEFAULT_METRICS_DUMP_TO_FILE);
+    }
+
+    /**
+     * Sets whether periodic metric dumps are also written to a file in the app's files directory.
+     * @param enabled true to write dumps to a file
+     */
+    public void setMetricsDumpToFile(boolean enabled) {
+        prefs.edit().putBoolean(PREF_METRICS_DUMP_TO_FILE, enabled).apply();
+    }
+
+    /**
+     * Gets whether long-form text (big text, inbox lines, messages) is stored compressed.
+     * @return true if new rows are compressed, false otherwise (default)
+     */
+    public boolean isCompressionEnabled() {
+        return prefs.getBoolean(PREF_COMPRESSION_ENABLED, DEFAULT_COMPRESSION_ENABLED);
+    }
+
+    /**
+     * Sets whether long-form text (big text, inbox lines, messages) is stored compressed.
+     * Rows already stored keep their current encoding and remain readable either way.
+     * @param enabled true to compress new rows
+     */
+    public void setCompressionEnabled(boolean enabled) {
+        prefs.edit().putBoolean(PREF_COMPRESSION_ENABLED, enabled).apply();
+    }
+
+    /**
+     * Gets the age after which notifications are moved from the database into the archive.
+     * @return age in days, or 0 if archiving is disabled (default)
+     */
+    public int getArchiveAfterDays() {
+        return prefs.getInt(PREF_ARCHIVE_AFTER_DAYS, DEFAULT_ARCHIVE_AFTER_DAYS);
+    }
+
+    /**
+     * Sets the age after which notifications are moved from the database into the archive.
+     * @param days age in days, or 0 to disable archiving
+     */
+    public void setArchiveAfterDays(int days) {
+        prefs.edit().putInt(PREF_ARCHIVE_AFTER_DAYS, Math.max(0, days)).apply();
+    }
+
+    /**
+     * Gets how stored notifications are split into time-partitioned tables.
+     * @return partition granularity, NONE (default) for a single table
+     */
+    public NotificationPartitions.Granularity getPartitioning() {
+        return NotificationPartitions.Granularity.fromKey(prefs.getString(PREF_PARTITIONING, DEFAULT_PARTITIONING));
+    }
+
+    /**
+     * Sets how stored notifications are split into time-partitioned tables.
+     * @param granularity partition granularity, NONE for a single table
+     */
+    public void setPartitioning(NotificationPartitions.Granularity granularity) {
+        prefs.edit().putString(PREF_PARTITIONING, granularity.getKey()).apply();
+    }
+
+    /**
+     * Gets whether icons and pictures are returned as local URLs instead of inline base64.
+     * @return true if image fields are URLs, false otherwise (default)
+     */
+    public boolean useImageUrls() {
+        return prefs.getBoolean(PREF_IMAGE_URLS, DEFAULT_IMAGE_URLS);
+    }
+
+    /**
+     * Sets whether icons and pictures are returned as local URLs instead of inline base64.
+     * Stored notifications are unaffected; only returned values change.
+     * @param enabled true to return URLs
+     */
+    public void setImageUrls(boolean enabled) {
+        prefs.edit().putBoolean(PREF_IMAGE_URLS, enabled).apply();
+    }
+
+    /**
+     * Gets how many of the most recent changes the change log keeps.
+     * @return number of changes, or 0 if the change log is disabled
+     */
+    public int getChangeLogRetention() {
+        return prefs.getInt(PREF_CHANGE_LOG_RETENTION, DEFAULT_CHANGE_LOG_RETENTION);
+    }
+
+    /**
+     * Sets how many of the most recent changes the change log keeps.
+     * @param changes number of changes, or 0 to disable the change log
+     */
+    public void setChangeLogRetention(int changes) {
+        prefs.edit().putInt(PREF_CHANGE_LOG_RETENTION, Math.max(0, changes)).apply();
+    }
+
+    /**
+     * Gets the local HTTP endpoint changes are pushed to.
+     * @return the URL, or null if changes are not pushed (default)
+     */
+    public String getChangeLogEndpoint() {
+        return prefs.getString(PREF_CHANGE_LOG_ENDPOINT, null);
+    }
+
+    /**
+     * Sets the local HTTP endpoint changes are pushed to. Changing it restarts delivery from
+     * the oldest change still in the log.
+     * @param url the URL, or null to stop pushing
+     */
+    public void setChangeLogEndpoint(String url) {
+        prefs.edit().putString(PREF_CHANGE_LOG_ENDPOINT, url).putLong(PREF_CHANGE_LOG_ACKED_SEQ, 0).apply();
+    }
+
+    /**
+     * Gets the sequence number of the last change the endpoint acknowledged.
+     * @return sequence number, or 0 if none was acknowledged
+     */
+    public long getChangeLogAckedSeq() {
+        return prefs.getLong(PREF_CHANGE_LOG_ACKED_SEQ, 0);
+    }
+
+    /**
+     * Sets the sequence number of the last change the endpoint acknowledged.
+     * @param seq sequence number
+     */
+    public void setChangeLogAckedSeq(long seq) {
+        prefs.edit().putLong(PREF_CHANGE_LOG_ACKED_SEQ, seq).apply();
+    }
+
+    /**
+     * Gets where notifications are stored.
+     * @return "database" (default) or "memory"
+     */
+    public String getStorageBackend() {
+        return prefs.getString(PREF_STORAGE_BACKEND, DEFAULT_STORAGE_BACKEND);
+    }
+
+    /**
+     * Sets where notifications are stored. Notifications already stored stay in the backend
+     * they were written to.
+     * @param backend "database" or "memory"
+     */
+    public void setStorageBackend(String backend) {
+        prefs.edit().putString(PREF_STORAGE_BACKEND, backend).apply();
+    }
+
+    /**
+     * Gets how many notifications the memory backend keeps.
+     * @return number of notifications
+     */
+    public int getMemoryStoreCapacity() {
+        return prefs.getInt(PREF_MEMORY_STORE_CAPACITY, DEFAULT_MEMORY_STORE_CAPACITY);
+    }
+
+    /**
+     * Sets how many notifications the memory backend keeps. The oldest are dropped beyond it.
+     * @param capacity number of notifications, at least 1
+     */
+    public void setMemoryStoreCapacity(int capacity) {
+        prefs.edit().putInt(PREF_MEMORY_STORE_CAPACITY, Math.max(1, capacity)).apply();
+    }
+
+    /**
+     * Gets how many notifications per minute each app may have stored beyond its burst.
+     * @return notifications per minute, or 0 if not rate limited (default)
+     */
+    public int getRateLimitPerMinute() {
+        return prefs.getInt(PREF_RATE_LIMIT_PER_MINUTE, DEFAULT_RATE_LIMIT_PER_MINUTE);
+    }
+
+    /**
+     * Sets how many notifications per minute each app may have stored beyond its burst.
+     * @param perMinute notifications per minute, or 0 to disable rate limiting
+     */
+    public void setRateLimitPerMinute(int perMinute) {
+        prefs.edit().putInt(PREF_RATE_LIMIT_PER_MINUTE, Math.max(0, perMinute)).apply();
+    }
+
+    /**
+     * Gets how many notifications an app may have stored at once before the rate limit applies.
+     * @return number of notifications
+     */
+    public int getRateLimitBurst() {
+        return prefs.getInt(PREF_RATE_LIMIT_BURST, DEFAULT_RATE_LIMIT_BURST);
+    }
+
+    /**
+     * Sets how many notifications an app may have stored at once before the rate limit applies.
+     * @param burst number of notifications, at least 1
+     */
+    public void setRateLimitBurst(int burst) {
+        prefs.edit().putInt(PREF_RATE_LIMIT_BURST, Math.max(1, burst)).apply();
+    }
 }
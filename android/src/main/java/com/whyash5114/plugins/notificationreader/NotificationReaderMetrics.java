@@ -0,0 +1,192 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and latency histograms for the ingestion and query hot paths.
+ * <p>
+ * Instrumented code brackets a stage with {@link #start()} and {@link #record(Stage, long)}.
+ * While metrics are disabled start() returns 0 and record() returns immediately, so the
+ * cost is a single volatile read per stage.
+ */
+public final class NotificationReaderMetrics {
+
+    private static final String TAG = "NotificationReader";
+    private static final String DUMP_FILE_NAME = "notification_reader_metrics.json";
+
+    public enum Stage {
+        ENTITY_CONSTRUCTION("entityConstruction"),
+        IMAGE_ENCODING("imageEncoding"),
+        DB_INSERT("dbInsert"),
+        STORAGE_CHECK("storageCheck"),
+        EVENT_DISPATCH("eventDispatch"),
+        QUERY("query"),
+        SERIALIZATION("serialization"),
+        COMPRESSION("compression"),
+        DECOMPRESSION("decompression"),
+        EXTRACTION("extraction");
+
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    public enum Counter {
+        NOTIFICATIONS_POSTED("notificationsPosted"),
+        NOTIFICATIONS_FILTERED("notificationsFiltered"),
+        NOTIFICATIONS_RATE_LIMITED("notificationsRateLimited"),
+        NOTIFICATIONS_STORED("notificationsStored"),
+        NOTIFICATIONS_REMOVED("notificationsRemoved"),
+        ROWS_EVICTED("rowsEvicted"),
+        QUERIES("queries"),
+        ROWS_RETURNED("rowsReturned"),
+        COMPRESSION_BYPASSED("compressionBypassed"),
+        COMPRESSION_INPUT_BYTES("compressionInputBytes"),
+        COMPRESSION_OUTPUT_BYTES("compressionOutputBytes");
+
+        final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private static final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    private static volatile boolean enabled;
+    private static volatile long resetAtElapsed = SystemClock.elapsedRealtime();
+
+    private static ScheduledExecutorService dumpExecutor;
+    private static ScheduledFuture<?> dumpTask;
+
+    private NotificationReaderMetrics() {}
+
+    /**
+     * Applies the metrics settings from the configuration, starting or stopping the periodic dump.
+     * @param context Context used to resolve the dump file location
+     * @param config Current plugin configuration
+     */
+    public static synchronized void configure(Context context, NotificationReaderConfig config) {
+        enabled = config.isMetricsEnabled();
+
+        if (dumpTask != null) {
+            dumpTask.cancel(false);
+            dumpTask = null;
+        }
+
+        long intervalSeconds = config.getMetricsDumpIntervalSeconds();
+        if (enabled && intervalSeconds > 0) {
+            if (dumpExecutor == null) {
+                dumpExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "NotificationReaderMetrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            final File dumpFile = config.shouldDumpMetricsToFile() ? new File(context.getFilesDir(), DUMP_FILE_NAME) : null;
+            dumpTask = dumpExecutor.scheduleWithFixedDelay(() -> dump(dumpFile), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the start of a stage.
+     * @return Start timestamp to pass to {@link #record(Stage, long)}, or 0 while disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the duration of a stage started with {@link #start()}.
+     * @param stage Stage being measured
+     * @param startNanos Value returned by start()
+     */
+    public static void record(Stage stage, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public static void increment(Counter counter) {
+        add(counter, 1);
+    }
+
+    public static void add(Counter counter, long delta) {
+        if (enabled) {
+            counters.addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        resetAtElapsed = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return Snapshot of all counters and stage histograms
+     */
+    public static JSObject snapshot() {
+        JSObject counterObj = new JSObject();
+        for (Counter counter : Counter.values()) {
+            counterObj.put(counter.key, counters.get(counter.ordinal()));
+        }
+        JSObject stageObj = new JSObject();
+        for (Stage stage : Stage.values()) {
+            stageObj.put(stage.key, histograms[stage.ordinal()].toJSObject());
+        }
+
+        JSObject obj = new JSObject();
+        obj.put("enabled", enabled);
+        obj.put("sinceResetMs", SystemClock.elapsedRealtime() - resetAtElapsed);
+        obj.put("counters", counterObj);
+        obj.put("stages", stageObj);
+
+        // Uncompressed / compressed size of the values that were stored compressed
+        long compressedBytes = counters.get(Counter.COMPRESSION_OUTPUT_BYTES.ordinal());
+        obj.put("compressionRatio", compressedBytes > 0 ? (double) counters.get(Counter.COMPRESSION_INPUT_BYTES.ordinal()) / compressedBytes : 0);
+        return obj;
+    }
+
+    private static void dump(File file) {
+        String json = snapshot().toString();
+        Log.i(TAG, "metrics " + json);
+        if (file != null) {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write metrics to " + file, e);
+            }
+        }
+    }
+}
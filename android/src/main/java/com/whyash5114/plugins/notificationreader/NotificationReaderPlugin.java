@@ -1,18 +1,10 @@
 package com.whyash5114.plugins.notificationreader;
 
+import android.content.Context;
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.database.Cursor;
 import android.provider.Settings;
-import android.service.notification.StatusBarNotification;
-import android.util.Base64;
 import androidx.activity.result.ActivityResult;
-import androidx.sqlite.db.SimpleSQLiteQuery;
-import java.io.ByteArrayOutputStream;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
@@ -20,12 +12,21 @@ import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.ActivityCallback;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
+import com.whyash5114.plugins.notificationreader.db.DwellTimeStats;
 import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
 import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import com.whyash5114.plugins.notificationreader.db.NotificationLifecycleDao;
+import com.whyash5114.plugins.notificationreader.db.NotificationLifecycleEntity;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -37,18 +38,69 @@ import org.json.JSONObject;
 @CapacitorPlugin(name = "NotificationReader")
 public class NotificationReaderPlugin extends Plugin {
 
+    // Rows deleted per transaction by deleteNotifications, and the longest wait for ingestion between chunks
+    private static final int DELETE_CHUNK_SIZE = 500;
+    private static final long MAX_DELETE_YIELD_MS = 2_000;
+    // Largest page of getChanges, so one page of ids fits in a single IN (...) lookup
+    private static final int MAX_CHANGES_LIMIT = 500;
+    // Notifications stored per transaction by importNotifications
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
     private static NotificationReaderPlugin instance;
 
     @Override
     public void load() {
         super.load();
         instance = this;
+        NotificationReaderConfig config = new NotificationReaderConfig(getContext());
+        NotificationReaderMetrics.configure(getContext(), config);
+        CompressedText.setEnabled(config.isCompressionEnabled());
+        NotificationPartitions.configure(config);
+        NotificationImages.install(getBridge());
+        NotificationImages.setEnabled(config.useImageUrls());
+        NotificationChangeLog.configure(config);
+        NotificationChangePusher.configure(getContext(), config);
+        NotificationStores.configure(getContext(), config);
+        NotificationRateLimiter.configure(config);
+        NotificationMemoryPressure.register(getContext());
+        NotificationDataMigrations.start(getContext());
+        NotificationWarmup.start(getContext());
+        // Subscriptions from a previous page load have no listener left to receive them
+        NotificationSubscriptions.clear();
     }
 
     public static void onNotificationPosted(NotificationEntity entity) {
         if (instance != null) {
-            JSObject notificationData = instance.notificationEntityToJSObject(entity);
+            long start = NotificationReaderMetrics.start();
+            JSObject notificationData = NotificationImages.toUrls(notificationEntityToJSObject(entity));
             instance.notifyListeners("notificationPosted", notificationData);
+            // Serialized once and shared by every matching subscription
+            JSObject update = NotificationSubscriptions.match(entity, NotificationSubscriptions.TYPE_POSTED, notificationData);
+            if (update != null) {
+                instance.notifyListeners("subscriptionUpdate", update);
+            }
+            NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.EVENT_DISPATCH, start);
+        }
+    }
+
+    static void onNotificationRemoved(NotificationEntity entity) {
+        if (instance != null) {
+            JSObject update = NotificationSubscriptions.match(entity, NotificationSubscriptions.TYPE_REMOVED, null);
+            if (update != null) {
+                instance.notifyListeners("subscriptionUpdate", update);
+            }
+        }
+    }
+
+    static void onBackfillProgress(JSObject status) {
+        if (instance != null) {
+            instance.notifyListeners("backfillProgress", status);
+        }
+    }
+
+    static void onMigrationProgress(JSObject status) {
+        if (instance != null) {
+            instance.notifyListeners("migrationProgress", status);
         }
     }
 
@@ -86,6 +138,10 @@ public class NotificationReaderPlugin extends Plugin {
     /**
      * Retrieves all currently active notifications from the notification drawer.
      * Requires notification listener permission to be granted.
+     * <p>
+     * Served from the listener service's in-memory mirror. When "sinceVersion" is passed,
+     * only the notifications posted or updated after that version are returned, together
+     * with the keys of the ones removed since.
      */
     @SuppressWarnings("unused")
     @PluginMethod
@@ -97,16 +153,24 @@ public class NotificationReaderPlugin extends Plugin {
             return;
         }
 
-        StatusBarNotification[] notifs = service.getActiveNotifications();
-        JSArray arr = new JSArray();
+        ActiveNotificationCache cache = NotificationListenerService.getActiveNotificationCache();
+        Long sinceVersion = call.getLong("sinceVersion");
+        ActiveNotificationCache.Snapshot snapshot = sinceVersion != null
+            ? cache.changesSince(getContext(), sinceVersion)
+            : cache.snapshot(getContext());
 
-        for (StatusBarNotification sbn : notifs) {
-            NotificationEntity entity = new NotificationEntity(getContext(), sbn);
-            arr.put(notificationEntityToJSObject(entity));
+        JSArray arr = new JSArray();
+        for (ActiveNotificationCache.ActiveNotification active : snapshot.notifications) {
+            arr.put(NotificationImages.toUrls(notificationEntityToJSObject(active.entity)));
         }
 
         JSObject ret = new JSObject();
         ret.put("notifications", arr);
+        ret.put("version", snapshot.version);
+        if (sinceVersion != null) {
+            ret.put("removedKeys", new JSArray(snapshot.removedKeys));
+            ret.put("reset", snapshot.reset);
+        }
 
         call.resolve(ret);
     }
@@ -119,136 +183,308 @@ public class NotificationReaderPlugin extends Plugin {
         JSONObject rootOptions = cloneJSONObject(call.getData());
         Long cursor = call.getLong("cursor");
         Integer limit = call.getInt("limit", 10);
-        int safeLimit = limit != null && limit > 0 ? limit : 10;
+        // Pages are capped while memory is low
+        int safeLimit = NotificationMemoryPressure.capPageSize(limit != null && limit > 0 ? limit : 10);
+        // A newer call with the same supersedeKey cancels this one if it is still pending
+        String supersedeKey = call.getString("supersedeKey");
 
-        new Thread(() -> {
+        PluginExecutors.executeLatest(call, supersedeKey, () -> {
             try {
-                StringBuilder queryBuilder = new StringBuilder("SELECT * FROM notifications");
-                List<Object> args = new ArrayList<>();
-                List<String> conditions = new ArrayList<>();
-
-                String textContains = getStringOption(filterCopy, rootOptions, "textContains");
-                if (textContains != null && !textContains.isEmpty()) {
-                    conditions.add("text LIKE ?");
-                    args.add("%" + textContains + "%");
+                NotificationFilterQuery filterQuery = new NotificationFilterQuery(filterCopy, rootOptions);
+                String cacheKey = pageCacheKey(filterQuery, cursor, safeLimit);
+                if (cursor == null || cursor <= 0) {
+                    // The next load prefetches this first page, and this one may be in flight already
+                    NotificationWarmup.rememberFirstPage(getContext(), filterCopy, rootOptions, limit);
+                    NotificationWarmup.awaitPrefetch(cacheKey);
                 }
-
-                String titleContains = getStringOption(filterCopy, rootOptions, "titleContains");
-                if (titleContains != null && !titleContains.isEmpty()) {
-                    conditions.add("title LIKE ?");
-                    args.add("%" + titleContains + "%");
+                JSObject cached = NotificationQueryCache.get(cacheKey);
+                JSObject result = cached != null ? cached : queryPage(getContext(), filterQuery, cursor, safeLimit, cacheKey);
+                // Superseded meanwhile; the call has already been rejected
+                if (result == null || !PluginExecutors.claimCall()) {
+                    return;
                 }
-
-                String textContainsInsensitive = getStringOption(filterCopy, rootOptions, "textContainsInsensitive");
-                if (textContainsInsensitive != null && !textContainsInsensitive.isEmpty()) {
-                    conditions.add("LOWER(text) LIKE LOWER(?)");
-                    args.add("%" + textContainsInsensitive + "%");
+                NotificationWarmup.onPageResolved(cached != null);
+                call.resolve(result);
+            } catch (JSONException e) {
+                if (PluginExecutors.claimCall()) {
+                    call.reject("Invalid filter options", e);
                 }
+            }
+        });
+    }
 
-                String titleContainsInsensitive = getStringOption(filterCopy, rootOptions, "titleContainsInsensitive");
-                if (titleContainsInsensitive != null && !titleContainsInsensitive.isEmpty()) {
-                    conditions.add("LOWER(title) LIKE LOWER(?)");
-                    args.add("%" + titleContainsInsensitive + "%");
-                }
+    /**
+     * @return The result cache key of a page; the conditions and their arguments are a normalised
+     *         form of filter, cursor and limit
+     */
+    static String pageCacheKey(NotificationFilterQuery filterQuery, Long cursor, int limit) {
+        List<Object> keyArgs = new ArrayList<>(filterQuery.args);
+        keyArgs.add(cursor != null && cursor > 0 ? cursor : 0);
+        keyArgs.add(limit);
+        return filterQuery.whereClause() + "\n" + new JSONArray(keyArgs);
+    }
 
-                JSONArray appNames = getJSONArrayOption(filterCopy, rootOptions);
-                if (appNames != null && appNames.length() > 0) {
-                    StringBuilder appNameCondition = new StringBuilder("appName IN (");
-                    for (int i = 0; i < appNames.length(); i++) {
-                        appNameCondition.append(i == 0 ? "?" : ", ?");
-                        args.add(appNames.getString(i));
-                    }
-                    appNameCondition.append(")");
-                    conditions.add(appNameCondition.toString());
-                }
+    /**
+     * Queries a page of getNotifications from the store, continuing into the archive, and caches it
+     * under cacheKey.
+     *
+     * @return The page, or null if the call running it was superseded meanwhile
+     */
+    static JSObject queryPage(Context context, NotificationFilterQuery filterQuery, Long cursor, int safeLimit, String cacheKey)
+        throws JSONException {
+        long generation = NotificationQueryCache.currentGeneration();
+
+        NotificationStore store = NotificationStores.get(context);
+        if (!(store instanceof RoomNotificationStore roomStore)) {
+            // Other backends hold no archive and are serialized entity by entity
+            long queryStart = NotificationReaderMetrics.start();
+            List<NotificationEntity> entities = store.query(filterQuery, cursor, safeLimit);
+            NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.QUERY, queryStart);
+            long serializationStart = NotificationReaderMetrics.start();
+            JSArray rows = new JSArray();
+            for (NotificationEntity entity : entities) {
+                rows.put(NotificationImages.toUrls(notificationEntityToJSObject(entity)));
+            }
+            NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.SERIALIZATION, serializationStart);
+            NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.QUERIES);
+            NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.ROWS_RETURNED, rows.length());
+            JSObject result = new JSObject();
+            result.put("notifications", rows);
+            NotificationQueryCache.put(cacheKey, generation, result, rows.length());
+            return result;
+        }
 
-                String packageNameFilter = getStringOption(filterCopy, rootOptions, "packageName");
-                if (packageNameFilter != null && !packageNameFilter.isEmpty()) {
-                    conditions.add("packageName = ?");
-                    args.add(packageNameFilter);
-                }
+        // Rows are written straight from the cursor into the response, see NotificationJsonWriter
+        NotificationDatabase db = roomStore.getDatabase();
+        long queryStart = NotificationReaderMetrics.start();
+        NotificationJsonWriter.Page page;
+        long serializationStart;
+        try (
+            Cursor rowsCursor = roomStore.queryCursor(filterQuery, cursor, safeLimit)
+        ) {
+            // Runs the query and fills the first cursor window; the rows are serialized from it
+            rowsCursor.getCount();
+            NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.QUERY, queryStart);
+            serializationStart = NotificationReaderMetrics.start();
+            page = NotificationJsonWriter.writeRows(db, rowsCursor);
+        }
+        long writtenAt = NotificationReaderMetrics.start();
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.QUERIES);
+        NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.ROWS_RETURNED, page.getRowCount());
 
-                String categoryFilter = getStringOption(filterCopy, rootOptions, "category");
-                if (categoryFilter != null && !categoryFilter.isEmpty()) {
-                    conditions.add("category = ?");
-                    args.add(categoryFilter);
-                }
+        if (PluginExecutors.isCancelled()) {
+            // Superseded while querying; the call has already been rejected
+            return null;
+        }
 
-                String styleFilter = getStringOption(filterCopy, rootOptions, "style");
-                if (styleFilter != null && !styleFilter.isEmpty()) {
-                    conditions.add("style = ?");
-                    args.add(styleFilter);
-                }
+        int rowCount = page.getRowCount();
+        List<JSObject> archived = Collections.emptyList();
+        if (rowCount < safeLimit) {
+            // No more matches in the database below the cursor; continue into the archive
+            archived = NotificationArchive.query(context, filterQuery, cursor, safeLimit);
+        }
+        long mergeStart = NotificationReaderMetrics.start();
+        JSArray notifications;
+        if (archived.isEmpty()) {
+            notifications = page.toJson();
+        } else {
+            List<JSObject> sorted = new ArrayList<>(archived);
+            for (JSObject row : sorted) {
+                NotificationImages.toUrls(row);
+            }
+            sorted.sort((a, b) -> Long.compare(b.optLong("timestamp", 0L), a.optLong("timestamp", 0L)));
+            notifications = page.mergeWith(sorted, safeLimit);
+            rowCount = Math.min(safeLimit, rowCount + sorted.size());
+        }
+        // Writing the rows and building the bridge array, without the archive lookup in between
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.SERIALIZATION, serializationStart + (mergeStart - writtenAt));
+        JSObject result = new JSObject();
+        result.put("notifications", notifications);
+        NotificationQueryCache.put(cacheKey, generation, result, rowCount);
+        return result;
+    }
 
-                Boolean isOngoingFilter = getBooleanOption(filterCopy, rootOptions, "isOngoing");
-                if (isOngoingFilter != null) {
-                    conditions.add("isOngoing = ?");
-                    args.add(isOngoingFilter ? 1 : 0);
-                }
+    /**
+     * Returns the changes to stored notifications after a sequence number, oldest first, for
+     * incremental sync.
+     *
+     * @param call PluginCall with the optional "sinceSeq" (lastSeq of the previous call, default 0)
+     *             and "limit" (default 100, at most 500)
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getChanges(PluginCall call) {
+        Long sinceSeq = call.getLong("sinceSeq", 0L);
+        Integer limit = call.getInt("limit", 100);
+        long safeSinceSeq = sinceSeq != null && sinceSeq > 0 ? sinceSeq : 0;
+        int safeLimit = NotificationMemoryPressure.capPageSize(limit != null && limit > 0 ? Math.min(limit, MAX_CHANGES_LIMIT) : 100);
+
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () ->
+            call.resolve(NotificationChangeLog.getChanges(NotificationDatabase.getDatabase(getContext()), safeSinceSeq, safeLimit))
+        );
+    }
 
-                Boolean isGroupSummaryFilter = getBooleanOption(filterCopy, rootOptions, "isGroupSummary");
-                if (isGroupSummaryFilter != null) {
-                    conditions.add("isGroupSummary = ?");
-                    args.add(isGroupSummaryFilter ? 1 : 0);
-                }
+    /**
+     * Returns the distinct apps, channels, categories and styles of stored notifications
+     * matching a filter, with counts, for building filter UIs.
+     *
+     * @param call PluginCall with the optional filter (same options as getNotifications)
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getFacets(PluginCall call) {
+        JSONObject filterCopy = cloneJSONObject(call.getObject("filter"));
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            try {
+                NotificationFilterQuery filterQuery = new NotificationFilterQuery(filterCopy, null);
+                call.resolve(NotificationFacets.get(NotificationDatabase.getDatabase(getContext()), filterQuery));
+            } catch (JSONException e) {
+                call.reject("Invalid filter options", e);
+            }
+        });
+    }
 
-                String channelIdFilter = getStringOption(filterCopy, rootOptions, "channelId");
-                if (channelIdFilter != null && !channelIdFilter.isEmpty()) {
-                    conditions.add("channelId = ?");
-                    args.add(channelIdFilter);
-                }
+    /**
+     * Returns the messages of a MessagingStyle conversation oldest first, one page at a time.
+     * Each message is stored once however many notification updates repeated it.
+     *
+     * @param call PluginCall with "conversationKey" (from a notification) and the optional
+     *             "cursor" (nextCursor of the previous page) and "limit" (default 100)
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getConversation(PluginCall call) {
+        String conversationKey = call.getString("conversationKey");
+        if (conversationKey == null || conversationKey.isEmpty()) {
+            call.reject("Missing 'conversationKey' argument");
+            return;
+        }
+        String cursor = call.getString("cursor");
+        Integer limit = call.getInt("limit", 100);
+        int safeLimit = NotificationMemoryPressure.capPageSize(limit != null && limit > 0 ? limit : 100);
 
-                Long afterTimestamp = getLongOption(filterCopy, rootOptions, "afterTimestamp");
-                if (afterTimestamp != null && afterTimestamp > 0) {
-                    conditions.add("postTime > ?");
-                    args.add(afterTimestamp);
-                }
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            try {
+                call.resolve(NotificationMessages.getConversation(NotificationDatabase.getDatabase(getContext()), conversationKey, cursor, safeLimit));
+            } catch (IllegalArgumentException e) {
+                call.reject("Invalid cursor", e);
+            }
+        });
+    }
 
-                Long beforeTimestamp = getLongOption(filterCopy, rootOptions, "beforeTimestamp");
-                if (beforeTimestamp != null && beforeTimestamp > 0) {
-                    conditions.add("postTime < ?");
-                    args.add(beforeTimestamp);
-                }
+    /**
+     * Registers a live query. Every notification stored from now on (and, with includeRemoved,
+     * every stored notification removed from the drawer) that matches the filter is pushed to the
+     * "subscriptionUpdate" listener, projected to the requested fields.
+     *
+     * @param call PluginCall with the optional filter, fields and includeRemoved options,
+     *             resolved with the subscription id
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void subscribe(PluginCall call) {
+        NotificationFilterQuery filterQuery;
+        Set<String> fields = null;
+        try {
+            filterQuery = new NotificationFilterQuery(cloneJSONObject(call.getObject("filter")), null);
+            JSArray fieldsArray = call.getArray("fields");
+            if (fieldsArray != null && fieldsArray.length() > 0) {
+                fields = new HashSet<>(fieldsArray.<String>toList());
+            }
+        } catch (JSONException e) {
+            call.reject("Invalid subscription options", e);
+            return;
+        }
 
-                if (cursor != null && cursor > 0) {
-                    conditions.add("postTime < ?");
-                    args.add(cursor);
-                }
+        String id = NotificationSubscriptions.add(filterQuery, fields, Boolean.TRUE.equals(call.getBoolean("includeRemoved", false)));
+        JSObject result = new JSObject();
+        result.put("id", id);
+        call.resolve(result);
+    }
 
-                if (!conditions.isEmpty()) {
-                    queryBuilder.append(" WHERE ").append(String.join(" AND ", conditions));
-                }
+    /**
+     * Removes a live query registered with subscribe.
+     *
+     * @param call PluginCall with the subscription id
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void unsubscribe(PluginCall call) {
+        String id = call.getString("id");
+        if (id == null) {
+            call.reject("Missing 'id' argument");
+            return;
+        }
+        NotificationSubscriptions.remove(id);
+        call.resolve();
+    }
 
-                queryBuilder.append(" ORDER BY postTime DESC LIMIT ?");
-                args.add(safeLimit);
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void deleteAllNotifications(PluginCall call) {
+        PluginExecutors.execute(call, PluginExecutors.Lane.BULK, () -> {
+            NotificationStores.get(getContext()).deleteAll();
+            NotificationArchive.clear(getContext());
+            NotificationQueryCache.invalidate();
+            call.resolve();
+        });
+    }
 
-                SimpleSQLiteQuery query = new SimpleSQLiteQuery(queryBuilder.toString(), args.toArray());
-                List<NotificationEntity> entities = NotificationDatabase.getDatabase(getContext())
-                    .notificationDao()
-                    .getNotifications(query);
+    /**
+     * Deletes the stored notifications matching a filter, using the same filter options as
+     * getNotifications. Rows are deleted in small chunks, each in its own short transaction,
+     * waiting for pending live ingestion between chunks so that new notifications are not held up.
+     *
+     * @param call PluginCall with the optional filter, resolved with the deleted count and
+     *             the approximate number of bytes reclaimed (as measured by getDatabaseSize)
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void deleteNotifications(PluginCall call) {
+        JSONObject filterCopy = cloneJSONObject(call.getObject("filter"));
+        JSONObject rootOptions = cloneJSONObject(call.getData());
 
-                JSArray notificationArray = new JSArray();
-                for (NotificationEntity entity : entities) {
-                    notificationArray.put(notificationEntityToJSObject(entity));
-                }
-                JSObject result = new JSObject();
-                result.put("notifications", notificationArray);
-                call.resolve(result);
+        PluginExecutors.execute(call, PluginExecutors.Lane.BULK, () -> {
+            NotificationFilterQuery filterQuery;
+            try {
+                filterQuery = new NotificationFilterQuery(filterCopy, rootOptions);
             } catch (JSONException e) {
                 call.reject("Invalid filter options", e);
+                return;
             }
-        })
-            .start();
-    }
 
-    @SuppressWarnings("unused")
-    @PluginMethod
-    public void deleteAllNotifications(PluginCall call) {
-        new Thread(() -> {
-            NotificationDatabase.getDatabase(getContext()).notificationDao().deleteAllNotifications();
-            call.resolve();
-        })
-            .start();
+            NotificationStore store = NotificationStores.get(getContext());
+            long deleted = 0;
+            long bytesReclaimed = 0;
+            try {
+                while (true) {
+                    PluginExecutors.awaitDrained(PluginExecutors.Lane.INGESTION, MAX_DELETE_YIELD_MS);
+
+                    long[] chunk = store.deleteMatching(filterQuery, DELETE_CHUNK_SIZE);
+                    if (chunk[0] == 0) {
+                        break;
+                    }
+                    deleted += chunk[0];
+                    bytesReclaimed += chunk[1];
+                    NotificationQueryCache.invalidate();
+                    if (chunk[0] < DELETE_CHUNK_SIZE) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // Archived rows are deleted by rewriting the segments that hold them
+            long[] archived = NotificationArchive.delete(getContext(), filterQuery);
+            deleted += archived[0];
+            bytesReclaimed += archived[1];
+
+            JSObject result = new JSObject();
+            result.put("deleted", deleted);
+            result.put("bytesReclaimed", bytesReclaimed);
+            call.resolve(result);
+        });
     }
 
     /**
@@ -260,56 +496,103 @@ public class NotificationReaderPlugin extends Plugin {
     @SuppressWarnings("unused")
     @PluginMethod
     public void getTotalCount(PluginCall call) {
-        new Thread(() -> {
-            int count = NotificationDatabase.getDatabase(getContext()).notificationDao().getTotalCount();
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            int count = NotificationStores.get(getContext()).count();
             JSObject result = new JSObject();
             result.put("count", count);
             call.resolve(result);
-        })
-            .start();
+        });
     }
 
     /**
-     * Retrieves a list of all installed applications with their metadata.
-     * Returns app name, package name, and base64-encoded app icon for each app.
+     * Retrieves a list of installed applications with their metadata.
+     * Returns app name, package name, system app flag and (optionally) the base64-encoded app icon.
+     * <p>
+     * The app list and rendered icons are cached between calls; icons for a page are rendered in parallel.
      *
-     * @param call PluginCall to resolve with the list of installed apps
+     * @param call PluginCall with optional "offset", "limit", "userAppsOnly", "storedOnly",
+     *             "includeIcons" (default true) and "iconSize" (pixels, default intrinsic size)
      */
     @SuppressWarnings("unused")
     @PluginMethod
     public void getInstalledApps(PluginCall call) {
-        new Thread(() -> {
+        int offset = Math.max(0, call.getInt("offset", 0));
+        int limit = call.getInt("limit", -1);
+        boolean userAppsOnly = Boolean.TRUE.equals(call.getBoolean("userAppsOnly", false));
+        boolean storedOnly = Boolean.TRUE.equals(call.getBoolean("storedOnly", false));
+        boolean includeIcons = Boolean.TRUE.equals(call.getBoolean("includeIcons", true));
+        int iconSize = Math.max(0, call.getInt("iconSize", 0));
+
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
             try {
-                PackageManager pm = getContext().getPackageManager();
-                List<ApplicationInfo> apps = pm.getInstalledApplications(PackageManager.GET_META_DATA);
-                JSArray appsArray = new JSArray();
+                InstalledAppsCache cache = InstalledAppsCache.getInstance();
+                Set<String> storedPackages = storedOnly
+                    ? new HashSet<>(NotificationStores.get(getContext()).getStoredPackageNames())
+                    : null;
+
+                List<InstalledAppsCache.AppInfo> matching = new ArrayList<>();
+                for (InstalledAppsCache.AppInfo app : cache.getApps(getContext())) {
+                    if (userAppsOnly && app.isSystemApp) continue;
+                    if (storedPackages != null && !storedPackages.contains(app.packageName)) continue;
+                    matching.add(app);
+                }
 
-                for (ApplicationInfo appInfo : apps) {
-                    JSObject appObj = new JSObject();
-                    appObj.put("packageName", appInfo.packageName);
-                    appObj.put("appName", pm.getApplicationLabel(appInfo).toString());
+                int end = limit > 0 ? Math.min(matching.size(), offset + limit) : matching.size();
+                List<InstalledAppsCache.AppInfo> page = offset < end ? matching.subList(offset, end) : new ArrayList<>();
 
-                    try {
-                        Drawable icon = pm.getApplicationIcon(appInfo);
-                        appObj.put("appIcon", drawableToBase64(icon));
-                    } catch (Exception e) {
-                        appObj.put("appIcon", null);
+                List<String> icons = null;
+                if (includeIcons) {
+                    List<String> packageNames = new ArrayList<>(page.size());
+                    for (InstalledAppsCache.AppInfo app : page) {
+                        packageNames.add(app.packageName);
                     }
+                    icons = cache.getIcons(getContext(), packageNames, iconSize);
+                }
 
-                    // Check if it's a system app
-                    boolean isSystemApp = (appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
-                    appObj.put("isSystemApp", isSystemApp);
-
+                JSArray appsArray = new JSArray();
+                for (int i = 0; i < page.size(); i++) {
+                    InstalledAppsCache.AppInfo app = page.get(i);
+                    JSObject appObj = new JSObject();
+                    appObj.put("packageName", app.packageName);
+                    appObj.put("appName", app.appName);
+                    if (icons != null) {
+                        appObj.put("appIcon", icons.get(i));
+                    }
+                    appObj.put("isSystemApp", app.isSystemApp);
                     appsArray.put(appObj);
                 }
 
                 JSObject result = new JSObject();
                 result.put("apps", appsArray);
+                result.put("total", matching.size());
                 call.resolve(result);
             } catch (Exception e) {
                 call.reject("Error getting installed apps", e);
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Retrieves the icon of a single installed application, for lazily loading icons
+     * after calling getInstalledApps with includeIcons set to false.
+     *
+     * @param call PluginCall with "packageName" and optional "iconSize" (pixels)
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getAppIcon(PluginCall call) {
+        String packageName = call.getString("packageName");
+        if (packageName == null || packageName.isEmpty()) {
+            call.reject("Missing 'packageName' argument");
+            return;
+        }
+        int iconSize = Math.max(0, call.getInt("iconSize", 0));
+
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            JSObject result = new JSObject();
+            result.put("appIcon", InstalledAppsCache.getInstance().getIcon(getContext(), packageName, iconSize));
+            call.resolve(result);
+        });
     }
 
     /**
@@ -318,7 +601,8 @@ public class NotificationReaderPlugin extends Plugin {
      * migrating data from another source, or bulk-importing notification data.
      * <p>
      * Each notification will be inserted using REPLACE strategy, meaning if a
-     * notification with the same ID already exists, it will be updated.
+     * notification with the same ID already exists, it will be updated. Notifications are
+     * stored in chunks of {@value #IMPORT_CHUNK_SIZE}, one transaction each.
      *
      * @param call PluginCall containing the array of notifications to import
      *             Expected parameter: "notifications" - JSArray of notification objects
@@ -332,34 +616,54 @@ public class NotificationReaderPlugin extends Plugin {
             return;
         }
 
-        new Thread(() -> {
+        PluginExecutors.execute(call, PluginExecutors.Lane.BULK, () -> {
+            NotificationStore store = NotificationStores.get(getContext());
+            int importedCount = 0;
             try {
-                int importedCount = 0;
+                List<NotificationEntity> batch = new ArrayList<>(Math.min(notifications.length(), IMPORT_CHUNK_SIZE));
                 for (int i = 0; i < notifications.length(); i++) {
                     try {
                         JSONObject jsonObj = notifications.getJSONObject(i);
                         JSObject item = JSObject.fromJSONObject(jsonObj);
-                        NotificationEntity entity = jsObjectToNotificationEntity(item);
-                        NotificationDatabase.getDatabase(getContext()).notificationDao().insert(entity);
-                        importedCount++;
+                        batch.add(jsObjectToNotificationEntity(item));
                     } catch (JSONException e) {
                         // Log individual item errors but continue processing
                         android.util.Log.e("NotificationReader", "Error importing notification at index " + i, e);
                     }
+                    if (batch.size() == IMPORT_CHUNK_SIZE) {
+                        store.insertAll(batch);
+                        importedCount += batch.size();
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    store.insertAll(batch);
+                    importedCount += batch.size();
                 }
+                NotificationQueryCache.invalidate();
                 JSObject result = new JSObject();
                 result.put("imported", importedCount);
                 call.resolve(result);
             } catch (Exception e) {
+                // Chunks stored before the failure stay imported
+                if (importedCount > 0) {
+                    NotificationQueryCache.invalidate();
+                }
                 call.reject("Error importing notifications", e);
             }
-        })
-            .start();
+        });
     }
 
-    public JSObject notificationEntityToJSObject(NotificationEntity entity) {
+    /**
+     * Converts a NotificationEntity (from the database) to the JSObject shape returned to JavaScript.
+     *
+     * @param entity NotificationEntity to convert
+     * @return JSObject describing the notification
+     */
+    public static JSObject notificationEntityToJSObject(NotificationEntity entity) {
         JSObject obj = new JSObject();
         obj.put("id", entity.id);
+        obj.put("key", entity.notificationKey);
         obj.put("appName", entity.appName);
         obj.put("packageName", entity.packageName);
         obj.put("title", entity.title);
@@ -388,21 +692,22 @@ public class NotificationReaderPlugin extends Plugin {
         obj.put("number", entity.number);
 
         // Style-specific fields
-        obj.put("bigText", entity.bigText);
+        obj.put("bigText", CompressedText.decode(entity.bigText));
         obj.put("bigPicture", entity.bigPicture);
         obj.put("pictureContentDescription", entity.pictureContentDescription);
         try {
-            obj.put("inboxLines", entity.inboxLinesJson != null ? new JSArray(entity.inboxLinesJson) : new JSArray());
+            obj.put("inboxLines", entity.inboxLinesJson != null ? new JSArray(entity.inboxLinesJson.get()) : new JSArray());
         } catch (JSONException e) {
             obj.put("inboxLines", new JSArray());
         }
         obj.put("conversationTitle", entity.conversationTitle);
         obj.put("isGroupConversation", entity.isGroupConversation);
         try {
-            obj.put("messages", entity.messagesJson != null ? new JSArray(entity.messagesJson) : new JSArray());
+            obj.put("messages", entity.messagesJson != null ? new JSArray(entity.messagesJson.get()) : new JSArray());
         } catch (JSONException e) {
             obj.put("messages", new JSArray());
         }
+        obj.put("conversationKey", entity.conversationKey);
 
         if (entity.progressMax > 0) {
             JSObject progressObj = new JSObject();
@@ -425,10 +730,11 @@ public class NotificationReaderPlugin extends Plugin {
      * @param obj JSObject containing notification data from JavaScript
      * @return NotificationEntity populated with data from the JSObject
      */
-    private NotificationEntity jsObjectToNotificationEntity(JSObject obj) {
+    public static NotificationEntity jsObjectToNotificationEntity(JSObject obj) {
         NotificationEntity entity = new NotificationEntity();
 
         entity.id = Objects.requireNonNull(obj.getString("id", UUID.randomUUID().toString()));
+        entity.notificationKey = obj.getString("key", null);
         entity.appName = Objects.requireNonNull(obj.getString("appName", ""));
         entity.packageName = Objects.requireNonNull(obj.getString("packageName", ""));
         entity.title = obj.getString("title", "");
@@ -460,13 +766,13 @@ public class NotificationReaderPlugin extends Plugin {
         entity.number = obj.getInteger("number", 0);
 
         // Style-specific fields
-        entity.bigText = obj.getString("bigText", "");
+        entity.bigText = CompressedText.of(obj.getString("bigText", ""));
         entity.bigPicture = obj.getString("bigPicture", "");
         entity.pictureContentDescription = obj.getString("pictureContentDescription", "");
 
         JSONArray inboxLines = obj.optJSONArray("inboxLines");
         if (inboxLines != null) {
-            entity.inboxLinesJson = inboxLines.toString();
+            entity.inboxLinesJson = CompressedText.of(inboxLines.toString());
         } else {
             entity.inboxLinesJson = null;
         }
@@ -476,10 +782,16 @@ public class NotificationReaderPlugin extends Plugin {
 
         JSONArray messages = obj.optJSONArray("messages");
         if (messages != null) {
-            entity.messagesJson = messages.toString();
+            entity.messagesJson = CompressedText.of(messages.toString());
         } else {
             entity.messagesJson = null;
         }
+        entity.conversationKey = obj.getString("conversationKey");
+        if (entity.conversationKey == null && "MessagingStyle".equals(entity.style) && messages != null) {
+            // Exported before conversation keys existed; the title is the closest stable identity
+            String conversation = !entity.conversationTitle.isEmpty() ? entity.conversationTitle : entity.title;
+            entity.conversationKey = entity.packageName + "|" + conversation;
+        }
 
         JSObject progressObj = obj.getJSObject("progress");
         if (progressObj != null) {
@@ -493,15 +805,99 @@ public class NotificationReaderPlugin extends Plugin {
         return entity;
     }
 
+    /**
+     * Retrieves recorded notification removals, newest first.
+     * Each event carries the notification key, post time, removal time and removal reason.
+     *
+     * @param call PluginCall with optional "key", "packageName", "afterTimestamp", "beforeTimestamp" and "limit"
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getLifecycleEvents(PluginCall call) {
+        String key = call.getString("key");
+        String packageName = call.getString("packageName");
+        long after = call.getLong("afterTimestamp", 0L);
+        long before = call.getLong("beforeTimestamp", Long.MAX_VALUE);
+        Integer limit = call.getInt("limit", 100);
+        int safeLimit = NotificationMemoryPressure.capPageSize(limit != null && limit > 0 ? limit : 100);
+
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            try {
+                NotificationLifecycleDao dao = NotificationDatabase.getDatabase(getContext()).lifecycleDao();
+                List<NotificationLifecycleEntity> events;
+                if (key != null && !key.isEmpty()) {
+                    events = dao.getByKey(key, safeLimit);
+                } else if (packageName != null && !packageName.isEmpty()) {
+                    events = dao.getEvents(packageName, after, before, safeLimit);
+                } else {
+                    events = dao.getEvents(after, before, safeLimit);
+                }
+
+                JSArray eventsArray = new JSArray();
+                for (NotificationLifecycleEntity event : events) {
+                    JSObject obj = new JSObject();
+                    obj.put("key", event.notificationKey);
+                    obj.put("packageName", event.packageName);
+                    obj.put("postTime", event.postTime);
+                    obj.put("removedAt", event.removedAt);
+                    obj.put("dwellTimeMs", event.removedAt - event.postTime);
+                    obj.put("reason", event.reason);
+                    eventsArray.put(obj);
+                }
+                JSObject result = new JSObject();
+                result.put("events", eventsArray);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get lifecycle events", e);
+            }
+        });
+    }
+
+    /**
+     * Computes per-package dwell time statistics from recorded notification removals.
+     *
+     * @param call PluginCall with optional "afterTimestamp" and "beforeTimestamp" bounds on the removal time
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getDwellTimeStats(PluginCall call) {
+        long after = call.getLong("afterTimestamp", 0L);
+        long before = call.getLong("beforeTimestamp", Long.MAX_VALUE);
+
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            try {
+                List<DwellTimeStats> stats = NotificationDatabase.getDatabase(getContext()).lifecycleDao().getDwellTimeStats(after, before);
+
+                JSArray statsArray = new JSArray();
+                for (DwellTimeStats stat : stats) {
+                    JSObject obj = new JSObject();
+                    obj.put("packageName", stat.packageName);
+                    obj.put("removals", stat.removals);
+                    obj.put("avgDwellMs", stat.avgDwellMs);
+                    obj.put("minDwellMs", stat.minDwellMs);
+                    obj.put("maxDwellMs", stat.maxDwellMs);
+                    obj.put("clicked", stat.clicked);
+                    obj.put("dismissed", stat.dismissed);
+                    statsArray.put(obj);
+                }
+                JSObject result = new JSObject();
+                result.put("stats", statsArray);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get dwell time stats", e);
+            }
+        });
+    }
+
     /**
      * Gets the current database size consumed by notifications.
      */
     @SuppressWarnings("unused")
     @PluginMethod
     public void getDatabaseSize(PluginCall call) {
-        new Thread(() -> {
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
             try {
-                Long sizeBytes = NotificationDatabase.getDatabase(getContext()).notificationDao().getDatabaseSizeBytes();
+                Long sizeBytes = NotificationStores.get(getContext()).sizeBytes();
                 JSObject ret = new JSObject();
                 
                 if (sizeBytes != null) {
@@ -516,7 +912,7 @@ public class NotificationReaderPlugin extends Plugin {
             } catch (Exception e) {
                 call.reject("Failed to get database size", e);
             }
-        }).start();
+        });
     }
 
     /**
@@ -537,6 +933,20 @@ public class NotificationReaderPlugin extends Plugin {
         } else {
             ret.put("storageLimit", (Object) null);
         }
+
+        ret.put("metricsEnabled", config.isMetricsEnabled());
+        ret.put("metricsDumpIntervalSeconds", config.getMetricsDumpIntervalSeconds());
+        ret.put("metricsDumpToFile", config.shouldDumpMetricsToFile());
+        ret.put("compressionEnabled", config.isCompressionEnabled());
+        ret.put("archiveAfterDays", config.getArchiveAfterDays());
+        ret.put("partitioning", config.getPartitioning().getKey());
+        ret.put("imageUrls", config.useImageUrls());
+        ret.put("changeLogRetention", config.getChangeLogRetention());
+        ret.put("changeLogEndpoint", config.getChangeLogEndpoint());
+        ret.put("storageBackend", config.getStorageBackend());
+        ret.put("memoryStoreCapacity", config.getMemoryStoreCapacity());
+        ret.put("rateLimitPerMinute", config.getRateLimitPerMinute());
+        ret.put("rateLimitBurst", config.getRateLimitBurst());
         
         call.resolve(ret);
     }
@@ -548,6 +958,17 @@ public class NotificationReaderPlugin extends Plugin {
     @PluginMethod
     public void setConfig(PluginCall call) {
         NotificationReaderConfig config = new NotificationReaderConfig(getContext());
+
+        String changeLogEndpoint = call.getData().opt("changeLogEndpoint") instanceof String url ? url : null;
+        if (changeLogEndpoint != null && !NotificationChangePusher.isLocalEndpoint(changeLogEndpoint)) {
+            call.reject("changeLogEndpoint must be an http or https URL on localhost");
+            return;
+        }
+        String storageBackend = call.getString("storageBackend");
+        if (storageBackend != null && !NotificationStores.isValidBackend(storageBackend)) {
+            call.reject("storageBackend must be 'database' or 'memory'");
+            return;
+        }
         
         Boolean filterOngoing = call.getBoolean("filterOngoing");
         if (filterOngoing != null) {
@@ -572,89 +993,206 @@ public class NotificationReaderPlugin extends Plugin {
                 }
             }
         }
-        
-        call.resolve();
-    }
 
-    private boolean isNotificationAccessEnabled() {
-        String enabled = Settings.Secure.getString(getContext().getContentResolver(), "enabled_notification_listeners");
-        return enabled != null && enabled.contains(getContext().getPackageName());
-    }
+        Boolean metricsEnabled = call.getBoolean("metricsEnabled");
+        if (metricsEnabled != null) {
+            config.setMetricsEnabled(metricsEnabled);
+        }
 
-    private JSONObject cloneJSONObject(JSONObject source) {
-        if (source == null) {
-            return null;
+        Long metricsDumpInterval = call.getLong("metricsDumpIntervalSeconds");
+        if (metricsDumpInterval != null) {
+            config.setMetricsDumpIntervalSeconds(metricsDumpInterval);
         }
-        try {
-            return new JSONObject(source.toString());
-        } catch (JSONException e) {
-            return null;
+
+        Boolean metricsDumpToFile = call.getBoolean("metricsDumpToFile");
+        if (metricsDumpToFile != null) {
+            config.setMetricsDumpToFile(metricsDumpToFile);
         }
-    }
 
-    private boolean hasKey(JSONObject obj, String key) {
-        return obj != null && obj.has(key) && !obj.isNull(key);
-    }
+        Boolean compressionEnabled = call.getBoolean("compressionEnabled");
+        if (compressionEnabled != null) {
+            config.setCompressionEnabled(compressionEnabled);
+        }
+
+        Integer archiveAfterDays = call.getInt("archiveAfterDays");
+        if (archiveAfterDays != null) {
+            config.setArchiveAfterDays(archiveAfterDays);
+            NotificationArchive.requestRun();
+            NotificationArchive.maybeSchedule(getContext(), config);
+        }
 
-    private String getStringOption(JSONObject primary, JSONObject fallback, String key) {
-        if (hasKey(primary, key)) {
-            return primary.optString(key);
+        String partitioning = call.getString("partitioning");
+        if (partitioning != null) {
+            NotificationPartitions.Granularity previous = config.getPartitioning();
+            config.setPartitioning(NotificationPartitions.Granularity.fromKey(partitioning));
+            NotificationPartitions.configure(config);
+            if (previous == NotificationPartitions.Granularity.NONE && config.getPartitioning() != NotificationPartitions.Granularity.NONE) {
+                // Move rows stored so far into partitions in the background
+                NotificationDatabase db = NotificationDatabase.getDatabase(getContext());
+                try {
+                    PluginExecutors.execute(PluginExecutors.Lane.BULK, () -> {
+                        try {
+                            NotificationPartitions.migrateBaseTable(db);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Retried when the listener service next connects
+                    android.util.Log.w("NotificationReader", "Bulk lane busy, partition migration postponed");
+                }
+            }
         }
-        if (hasKey(fallback, key)) {
-            return fallback.optString(key);
+
+        Boolean imageUrls = call.getBoolean("imageUrls");
+        if (imageUrls != null && imageUrls != config.useImageUrls()) {
+            config.setImageUrls(imageUrls);
+            NotificationImages.setEnabled(imageUrls);
+            // Cached pages hold the other representation
+            NotificationQueryCache.invalidate();
         }
-        return null;
-    }
 
-    private JSONArray getJSONArrayOption(JSONObject primary, JSONObject fallback) {
-        JSONArray primaryArray = primary != null ? primary.optJSONArray("appNames") : null;
-        if (primaryArray != null) {
-            return primaryArray;
+        Integer changeLogRetention = call.getInt("changeLogRetention");
+        if (changeLogRetention != null) {
+            config.setChangeLogRetention(changeLogRetention);
         }
-        return fallback != null ? fallback.optJSONArray("appNames") : null;
-    }
 
-    private Boolean getBooleanOption(JSONObject primary, JSONObject fallback, String key) {
-        if (hasKey(primary, key)) {
-            return primary.optBoolean(key);
+        // Can be a URL or null to stop pushing
+        if (call.getData().has("changeLogEndpoint")) {
+            if (!Objects.equals(changeLogEndpoint, config.getChangeLogEndpoint())) {
+                config.setChangeLogEndpoint(changeLogEndpoint);
+            }
         }
-        if (hasKey(fallback, key)) {
-            return fallback.optBoolean(key);
+
+        if (storageBackend != null) {
+            config.setStorageBackend(storageBackend);
         }
-        return null;
-    }
 
-    private Long getLongOption(JSONObject primary, JSONObject fallback, String key) {
-        if (hasKey(primary, key)) {
-            return primary.optLong(key);
+        Integer memoryStoreCapacity = call.getInt("memoryStoreCapacity");
+        if (memoryStoreCapacity != null) {
+            config.setMemoryStoreCapacity(memoryStoreCapacity);
         }
-        if (hasKey(fallback, key)) {
-            return fallback.optLong(key);
+
+        Integer rateLimitPerMinute = call.getInt("rateLimitPerMinute");
+        if (rateLimitPerMinute != null) {
+            config.setRateLimitPerMinute(rateLimitPerMinute);
+        }
+
+        Integer rateLimitBurst = call.getInt("rateLimitBurst");
+        if (rateLimitBurst != null) {
+            config.setRateLimitBurst(rateLimitBurst);
         }
-        return null;
+
+        NotificationReaderMetrics.configure(getContext(), config);
+        CompressedText.setEnabled(config.isCompressionEnabled());
+        NotificationChangeLog.configure(config);
+        NotificationChangePusher.configure(getContext(), config);
+        NotificationStores.configure(getContext(), config);
+        NotificationRateLimiter.configure(config);
+        
+        call.resolve();
     }
 
-    private String drawableToBase64(Drawable drawable) {
-        if (drawable == null) return null;
-        Bitmap bitmap;
-        if (drawable instanceof BitmapDrawable) {
-            bitmap = ((BitmapDrawable) drawable).getBitmap();
-        } else {
-            int width = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : 96;
-            int height = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : 96;
-            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(bitmap);
-            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-            drawable.draw(canvas);
-        }
-        return bitmapToBase64(bitmap);
-    }
-
-    private String bitmapToBase64(Bitmap bitmap) {
-        if (bitmap == null) return null;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
-        byte[] byteArray = outputStream.toByteArray();
-        return Base64.encodeToString(byteArray, Base64.NO_WRAP);
+    /**
+     * Starts recording the notifications delivered to the listener service into a trace file
+     * that can be replayed off-device. Text is redacted unless redact is false.
+     *
+     * @param call PluginCall with the optional redact option, resolved with the trace path
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void startTraceRecording(PluginCall call) {
+        boolean redact = Boolean.TRUE.equals(call.getBoolean("redact", true));
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            try {
+                JSObject result = new JSObject();
+                result.put("path", NotificationTraceRecorder.start(getContext(), redact).getAbsolutePath());
+                call.resolve(result);
+            } catch (IOException e) {
+                call.reject("Failed to start trace recording", e);
+            }
+        });
+    }
+
+    /**
+     * Stops the current trace recording.
+     * Resolves with the trace path, event count and size, or an empty object if none was recording.
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void stopTraceRecording(PluginCall call) {
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            JSObject result = NotificationTraceRecorder.stop();
+            call.resolve(result != null ? result : new JSObject());
+        });
+    }
+
+    /**
+     * Returns the progress of the initial backfill of already-active notifications.
+     * Resolves with an empty object if no backfill ran since the process started.
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getBackfillStatus(PluginCall call) {
+        JSObject status = InitialBackfill.getLastStatus();
+        call.resolve(status != null ? status : new JSObject());
+    }
+
+    /**
+     * Returns the progress of the background data migrations that run after a schema upgrade.
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getMigrationStatus(PluginCall call) {
+        call.resolve(NotificationDataMigrations.getStatus(getContext()));
+    }
+
+    /**
+     * Returns counters and latency histograms for the ingestion and query hot paths.
+     * Metrics are only collected while enabled through setConfig({ metricsEnabled: true }).
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        // The archive, partition and change log metrics count rows and read file sizes
+        PluginExecutors.execute(call, PluginExecutors.Lane.INTERACTIVE, () -> {
+            JSObject metrics = NotificationReaderMetrics.snapshot();
+            metrics.put("lanes", PluginExecutors.metrics());
+            metrics.put("queryCache", NotificationQueryCache.metrics());
+            metrics.put("archive", NotificationArchive.metrics(getContext()));
+            metrics.put("partitions", NotificationPartitions.metrics(NotificationDatabase.getDatabase(getContext())));
+            metrics.put("changeLog", NotificationChangePusher.metrics(getContext()));
+            metrics.put("rateLimit", NotificationRateLimiter.metrics());
+            metrics.put("memoryPressure", NotificationMemoryPressure.metrics());
+            metrics.put("startup", NotificationWarmup.metrics());
+            call.resolve(metrics);
+        });
+    }
+
+    /**
+     * Resets all counters and latency histograms.
+     */
+    @SuppressWarnings("unused")
+    @PluginMethod
+    public void resetMetrics(PluginCall call) {
+        NotificationReaderMetrics.reset();
+        NotificationRateLimiter.reset();
+        call.resolve();
+    }
+
+    private boolean isNotificationAccessEnabled() {
+        String enabled = Settings.Secure.getString(getContext().getContentResolver(), "enabled_notification_listeners");
+        return enabled != null && enabled.contains(getContext().getPackageName());
+    }
+
+    private JSONObject cloneJSONObject(JSONObject source) {
+        if (source == null) {
+            return null;
+        }
+        try {
+            return new JSONObject(source.toString());
+        } catch (JSONException e) {
+            return null;
+        }
     }
 }
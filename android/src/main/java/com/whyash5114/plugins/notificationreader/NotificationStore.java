@@ -0,0 +1,79 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.List;
+
+/**
+ * Storage backend for notifications: the operations the listener service, the plugin methods
+ * and the import and backfill code need, so the Room database can be swapped for another
+ * implementation or benchmarked against one.
+ * <p>
+ * {@link RoomNotificationStore} is the default and the only backend that also keeps the
+ * archive, conversation history, extractions, facets and change log.
+ * {@link MemoryNotificationStore} keeps a bounded number of notifications in memory only.
+ * Use {@link NotificationStores#get} to obtain the configured one.
+ * <p>
+ * Implementations must be thread-safe. Callers invalidate {@link NotificationQueryCache}
+ * after writes.
+ */
+public interface NotificationStore {
+    /**
+     * Stores a notification, replacing any stored notification with the same id.
+     */
+    void insert(NotificationEntity entity);
+
+    /**
+     * Stores notifications in one batch, replacing any stored notification with the same id.
+     */
+    void insertAll(List<NotificationEntity> entities);
+
+    /**
+     * Returns stored notifications matching a filter, newest first.
+     *
+     * @param cursor Only notifications posted strictly before this time, or null
+     */
+    List<NotificationEntity> query(NotificationFilterQuery filter, Long cursor, int limit);
+
+    /**
+     * @return Number of stored notifications
+     */
+    int count();
+
+    /**
+     * @return Approximate size of the stored notifications in bytes, see
+     *         {@link com.whyash5114.plugins.notificationreader.db.NotificationDao#ROW_SIZE},
+     *         or null if nothing is stored
+     */
+    Long sizeBytes();
+
+    /**
+     * Removes the oldest notifications to free space.
+     *
+     * @return Number of notifications removed, 0 if nothing is stored
+     */
+    long evictOldest(int batchSize);
+
+    /**
+     * @return Number of notifications deleted
+     */
+    int deleteByIds(List<String> ids);
+
+    /**
+     * Deletes up to chunkSize notifications matching a filter.
+     *
+     * @return Number of notifications deleted and their approximate size in bytes
+     */
+    long[] deleteMatching(NotificationFilterQuery filter, int chunkSize);
+
+    void deleteAll();
+
+    /**
+     * @return Distinct package names of stored notifications
+     */
+    List<String> getStoredPackageNames();
+
+    /**
+     * @return "key:postTime" for every stored posting of the given notification keys
+     */
+    List<String> getStoredPostings(List<String> keys);
+}
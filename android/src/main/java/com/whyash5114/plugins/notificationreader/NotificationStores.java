@@ -0,0 +1,59 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+
+/**
+ * Holds the configured {@link NotificationStore}, shared by the listener service and the plugin.
+ */
+public final class NotificationStores {
+
+    public static final String BACKEND_DATABASE = "database";
+    public static final String BACKEND_MEMORY = "memory";
+
+    private static volatile NotificationStore store;
+
+    private NotificationStores() {}
+
+    /**
+     * @return The configured store, created from the saved config on first use
+     */
+    public static NotificationStore get(Context context) {
+        NotificationStore current = store;
+        if (current == null) {
+            configure(context, new NotificationReaderConfig(context));
+            current = store;
+        }
+        return current;
+    }
+
+    /**
+     * Switches to the configured backend if it changed. A memory store being resized keeps its
+     * most recent notifications; switching backends starts from what the new backend holds.
+     */
+    public static synchronized void configure(Context context, NotificationReaderConfig config) {
+        boolean memory = BACKEND_MEMORY.equals(config.getStorageBackend());
+        NotificationStore current = store;
+        if (memory) {
+            int capacity = config.getMemoryStoreCapacity();
+            if (current instanceof MemoryNotificationStore memoryStore && memoryStore.getCapacity() == capacity) {
+                return;
+            }
+            MemoryNotificationStore updated = new MemoryNotificationStore(capacity);
+            if (current instanceof MemoryNotificationStore memoryStore) {
+                updated.insertAll(memoryStore.snapshot());
+            }
+            store = updated;
+        } else {
+            if (current instanceof RoomNotificationStore) {
+                return;
+            }
+            store = new RoomNotificationStore(NotificationDatabase.getDatabase(context));
+        }
+        NotificationQueryCache.invalidate();
+    }
+
+    public static boolean isValidBackend(String backend) {
+        return BACKEND_DATABASE.equals(backend) || BACKEND_MEMORY.equals(backend);
+    }
+}
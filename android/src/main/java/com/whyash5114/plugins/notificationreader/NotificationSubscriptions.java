@@ -0,0 +1,160 @@
+package com.whyash5114.plugins.notificationreader;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live query subscriptions registered through subscribe().
+ * <p>
+ * Each ingested (and, if requested, removed) notification is evaluated against every registered
+ * filter in native code. All subscriptions it matches are answered with a single
+ * "subscriptionUpdate" event carrying the ids of the matching subscriptions and the row projected
+ * to the union of their fields, so several screens watching overlapping filters do not multiply
+ * the traffic over the bridge.
+ */
+public final class NotificationSubscriptions {
+
+    public static final String TYPE_POSTED = "posted";
+    public static final String TYPE_REMOVED = "removed";
+
+    // Always sent so subscribers can key and order rows whatever fields they ask for
+    private static final String[] IDENTITY_FIELDS = { "id", "timestamp" };
+
+    private static final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private static final AtomicLong nextId = new AtomicLong(1);
+    private static volatile boolean wantsRemovals;
+
+    private NotificationSubscriptions() {}
+
+    /**
+     * Registers a filter.
+     *
+     * @param filter Filter rows must match
+     * @param fields Fields to send for matching rows, or null for the full row
+     * @param includeRemoved true to also be told when a matching notification is removed
+     * @return The subscription id
+     */
+    public static String add(NotificationFilterQuery filter, Set<String> fields, boolean includeRemoved) {
+        String id = "sub-" + nextId.getAndIncrement();
+        subscriptions.put(id, new Subscription(filter, fields, includeRemoved));
+        updateWantsRemovals();
+        return id;
+    }
+
+    /**
+     * @return true if the subscription existed
+     */
+    public static boolean remove(String id) {
+        boolean removed = subscriptions.remove(id) != null;
+        updateWantsRemovals();
+        return removed;
+    }
+
+    /**
+     * Drops all subscriptions, e.g. when the web view is reloaded and its listeners are gone.
+     */
+    public static void clear() {
+        subscriptions.clear();
+        wantsRemovals = false;
+    }
+
+    public static boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    /**
+     * @return true if any subscription asked to be told about removals
+     */
+    public static boolean wantsRemovals() {
+        return wantsRemovals;
+    }
+
+    public static int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Evaluates an entity against every subscription.
+     *
+     * @param entity The ingested or removed notification
+     * @param type TYPE_POSTED or TYPE_REMOVED
+     * @param row The entity serialized by notificationEntityToJSObject, or null to serialize on demand
+     * @return The event payload, or null if no subscription matched
+     */
+    public static JSObject match(NotificationEntity entity, String type, JSObject row) {
+        if (subscriptions.isEmpty()) {
+            return null;
+        }
+        boolean removal = TYPE_REMOVED.equals(type);
+
+        JSArray ids = new JSArray();
+        Set<String> fields = new HashSet<>();
+        boolean allFields = false;
+        for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
+            Subscription subscription = entry.getValue();
+            if ((removal && !subscription.includeRemoved) || !subscription.filter.matches(entity)) {
+                continue;
+            }
+            ids.put(entry.getKey());
+            if (subscription.fields == null) {
+                allFields = true;
+            } else {
+                fields.addAll(subscription.fields);
+            }
+        }
+        if (ids.length() == 0) {
+            return null;
+        }
+
+        JSObject full = row != null ? row : NotificationImages.toUrls(NotificationReaderPlugin.notificationEntityToJSObject(entity));
+        JSObject payload = new JSObject();
+        payload.put("subscriptionIds", ids);
+        payload.put("type", type);
+        payload.put("notification", allFields ? full : project(full, fields));
+        return payload;
+    }
+
+    private static JSObject project(JSObject row, Set<String> fields) {
+        JSObject projected = new JSObject();
+        for (String field : IDENTITY_FIELDS) {
+            projected.put(field, row.opt(field));
+        }
+        for (String field : fields) {
+            if (row.has(field)) {
+                projected.put(field, row.opt(field));
+            }
+        }
+        return projected;
+    }
+
+    private static void updateWantsRemovals() {
+        boolean any = false;
+        Iterator<Subscription> iterator = subscriptions.values().iterator();
+        while (!any && iterator.hasNext()) {
+            any = iterator.next().includeRemoved;
+        }
+        wantsRemovals = any;
+    }
+
+    private static final class Subscription {
+
+        final NotificationFilterQuery filter;
+        final List<String> fields;
+        final boolean includeRemoved;
+
+        Subscription(NotificationFilterQuery filter, Set<String> fields, boolean includeRemoved) {
+            this.filter = filter;
+            this.fields = fields != null ? new ArrayList<>(fields) : null;
+            this.includeRemoved = includeRemoved;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.app.Notification;
+import android.app.Person;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.service.notification.StatusBarNotification;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary recording of the incoming notification stream, so that a real notification
+ * storm can be replayed off-device through the ingestion path.
+ * <p>
+ * An event holds the fields NotificationEntity reads from the StatusBarNotification and its
+ * extras. Images are not recorded, only their presence (and the picture's dimensions), so
+ * replays can substitute bitmaps of the same cost. Text can be redacted while recording by
+ * replacing letters and digits with 'x', which keeps sizes (and so storage growth) realistic.
+ * <p>
+ * Layout: a 4-byte magic and a version byte, followed by a raw Deflate stream of events. Each
+ * event starts with its type and the milliseconds since the previous event. Strings are UTF-8
+ * prefixed with length + 1 (0 for null); integers are zig-zag varints. A trace cut short by
+ * process death is read up to its last complete event.
+ */
+public final class NotificationTrace {
+
+    public static final String FILE_EXTENSION = ".nrt";
+
+    public static final byte EVENT_POSTED = 1;
+    public static final byte EVENT_REMOVED = 2;
+
+    private static final int MAGIC = 0x4e525452; // "NRTR"
+    private static final byte VERSION = 1;
+
+    private NotificationTrace() {}
+
+    /**
+     * A recorded posted or removed notification. Removals only carry key, packageName,
+     * postTime and reason.
+     */
+    public static final class Event {
+
+        public byte type;
+        // Milliseconds since recording started
+        public long elapsedMs;
+
+        public String key;
+        public String packageName;
+        public long postTime;
+        public int reason;
+
+        public int flags;
+        public String category;
+        public String group;
+        public String channelId;
+        public int priority;
+        public int number;
+        public boolean hasSmallIcon;
+        public boolean hasLargeIcon;
+
+        public String template;
+        public String title;
+        public String text;
+        public String subText;
+        public String infoText;
+        public String summaryText;
+        public String bigText;
+        public String pictureContentDescription;
+        // 0 when the notification has no picture
+        public int pictureWidth;
+        public int pictureHeight;
+        public String[] textLines;
+        public String conversationTitle;
+        public boolean isGroupConversation;
+        public Message[] messages;
+        public boolean hasProgress;
+        public int progress;
+        public int progressMax;
+        public boolean progressIndeterminate;
+        public Action[] actions;
+
+        /**
+         * Captures a posted notification. Only reads fields, so it is cheap enough for the binder thread.
+         *
+         * @param redact true to replace letters and digits of every text field with 'x'
+         */
+        public static Event posted(StatusBarNotification sbn, long elapsedMs, boolean redact) {
+            Event event = new Event();
+            event.type = EVENT_POSTED;
+            event.elapsedMs = elapsedMs;
+            event.key = sbn.getKey();
+            event.packageName = sbn.getPackageName();
+            event.postTime = sbn.getPostTime();
+
+            Notification notification = sbn.getNotification();
+            if (notification == null) {
+                return event;
+            }
+            event.flags = notification.flags;
+            event.category = notification.category;
+            event.group = notification.getGroup();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                event.channelId = notification.getChannelId();
+            }
+            event.priority = notification.priority;
+            event.number = notification.number;
+            event.hasSmallIcon = notification.getSmallIcon() != null;
+            event.hasLargeIcon = notification.getLargeIcon() != null;
+
+            Bundle extras = notification.extras;
+            event.template = extras.getString(Notification.EXTRA_TEMPLATE);
+            event.title = text(extras.getString(Notification.EXTRA_TITLE), redact);
+            event.text = text(extras.getCharSequence(Notification.EXTRA_TEXT), redact);
+            event.subText = text(extras.getCharSequence(Notification.EXTRA_SUB_TEXT), redact);
+            event.infoText = text(extras.getCharSequence(Notification.EXTRA_INFO_TEXT), redact);
+            event.summaryText = text(extras.getCharSequence(Notification.EXTRA_SUMMARY_TEXT), redact);
+            event.bigText = text(extras.getCharSequence(Notification.EXTRA_BIG_TEXT), redact);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                event.pictureContentDescription = text(extras.getString(Notification.EXTRA_PICTURE_CONTENT_DESCRIPTION), redact);
+            }
+            Bitmap picture = extras.getParcelable(Notification.EXTRA_PICTURE);
+            if (picture != null) {
+                event.pictureWidth = picture.getWidth();
+                event.pictureHeight = picture.getHeight();
+            }
+            CharSequence[] lines = extras.getCharSequenceArray(Notification.EXTRA_TEXT_LINES);
+            if (lines != null) {
+                event.textLines = new String[lines.length];
+                for (int i = 0; i < lines.length; i++) {
+                    event.textLines[i] = text(lines[i], redact);
+                }
+            }
+            event.conversationTitle = text(extras.getCharSequence(Notification.EXTRA_CONVERSATION_TITLE), redact);
+            event.isGroupConversation = extras.getBoolean(Notification.EXTRA_IS_GROUP_CONVERSATION, false);
+            event.messages = messages(extras, redact);
+            event.hasProgress = extras.containsKey(Notification.EXTRA_PROGRESS);
+            event.progress = extras.getInt(Notification.EXTRA_PROGRESS, 0);
+            event.progressMax = extras.getInt(Notification.EXTRA_PROGRESS_MAX, 0);
+            event.progressIndeterminate = extras.getBoolean(Notification.EXTRA_PROGRESS_INDETERMINATE, false);
+
+            if (notification.actions != null) {
+                event.actions = new Action[notification.actions.length];
+                for (int i = 0; i < notification.actions.length; i++) {
+                    Notification.Action action = notification.actions[i];
+                    event.actions[i] = new Action(
+                        text(action.title, redact),
+                        action.getIcon() != null,
+                        action.getRemoteInputs() != null && action.getRemoteInputs().length > 0
+                    );
+                }
+            }
+            return event;
+        }
+
+        /**
+         * Captures a removal.
+         */
+        public static Event removed(StatusBarNotification sbn, long elapsedMs, int reason) {
+            Event event = new Event();
+            event.type = EVENT_REMOVED;
+            event.elapsedMs = elapsedMs;
+            event.key = sbn.getKey();
+            event.packageName = sbn.getPackageName();
+            event.postTime = sbn.getPostTime();
+            event.reason = reason;
+            return event;
+        }
+
+        private static Message[] messages(Bundle extras, boolean redact) {
+            Parcelable[] parcelables = extras.getParcelableArray(Notification.EXTRA_MESSAGES);
+            if (parcelables == null) {
+                return null;
+            }
+            Message[] messages = new Message[parcelables.length];
+            int count = 0;
+            for (Parcelable p : parcelables) {
+                if (p instanceof Bundle messageBundle) {
+                    CharSequence sender = messageBundle.getCharSequence("sender");
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                        Person person = messageBundle.getParcelable("sender_person");
+                        if (person != null) {
+                            sender = person.getName();
+                        }
+                    }
+                    messages[count++] = new Message(
+                        text(messageBundle.getCharSequence("text"), redact),
+                        messageBundle.getLong("time", 0),
+                        text(sender, redact)
+                    );
+                }
+            }
+            if (count < messages.length) {
+                Message[] trimmed = new Message[count];
+                System.arraycopy(messages, 0, trimmed, 0, count);
+                return trimmed;
+            }
+            return messages;
+        }
+
+        private static String text(CharSequence value, boolean redact) {
+            if (value == null) {
+                return null;
+            }
+            String text = value.toString();
+            if (!redact) {
+                return text;
+            }
+            StringBuilder redacted = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                redacted.append(Character.isLetterOrDigit(c) ? 'x' : c);
+            }
+            return redacted.toString();
+        }
+    }
+
+    public static final class Message {
+
+        public final String text;
+        public final long time;
+        public final String sender;
+
+        public Message(String text, long time, String sender) {
+            this.text = text;
+            this.time = time;
+            this.sender = sender;
+        }
+    }
+
+    public static final class Action {
+
+        public final String title;
+        public final boolean hasIcon;
+        public final boolean allowsRemoteInput;
+
+        public Action(String title, boolean hasIcon, boolean allowsRemoteInput) {
+            this.title = title;
+            this.hasIcon = hasIcon;
+            this.allowsRemoteInput = allowsRemoteInput;
+        }
+    }
+
+    /**
+     * Appends events to a trace file. Not thread-safe; callers write from a single thread.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final DataOutputStream out;
+        private long lastElapsedMs;
+        private int events;
+
+        public Writer(File file) throws IOException {
+            FileOutputStream fileOut = new FileOutputStream(file);
+            DataOutputStream header = new DataOutputStream(fileOut);
+            header.writeInt(MAGIC);
+            header.writeByte(VERSION);
+            // Sync flushes let flush() push complete events to disk while recording continues
+            out = new DataOutputStream(
+                new BufferedOutputStream(new DeflaterOutputStream(fileOut, deflater, 8192, true))
+            );
+        }
+
+        public void write(Event event) throws IOException {
+            out.writeByte(event.type);
+            writeVarLong(Math.max(0, event.elapsedMs - lastElapsedMs));
+            lastElapsedMs = Math.max(lastElapsedMs, event.elapsedMs);
+            writeString(event.key);
+            writeString(event.packageName);
+            writeVarLong(event.postTime);
+            if (event.type == EVENT_REMOVED) {
+                writeVarLong(event.reason);
+            } else {
+                writeVarLong(event.flags);
+                writeString(event.category);
+                writeString(event.group);
+                writeString(event.channelId);
+                writeVarLong(event.priority);
+                writeVarLong(event.number);
+                out.writeByte((event.hasSmallIcon ? 1 : 0) | (event.hasLargeIcon ? 2 : 0));
+                writeString(event.template);
+                writeString(event.title);
+                writeString(event.text);
+                writeString(event.subText);
+                writeString(event.infoText);
+                writeString(event.summaryText);
+                writeString(event.bigText);
+                writeString(event.pictureContentDescription);
+                writeVarLong(event.pictureWidth);
+                writeVarLong(event.pictureHeight);
+                writeStrings(event.textLines);
+                writeString(event.conversationTitle);
+                out.writeBoolean(event.isGroupConversation);
+                writeVarLong(event.messages != null ? event.messages.length + 1 : 0);
+                if (event.messages != null) {
+                    for (Message message : event.messages) {
+                        writeString(message.text);
+                        writeVarLong(message.time);
+                        writeString(message.sender);
+                    }
+                }
+                out.writeByte((event.hasProgress ? 1 : 0) | (event.progressIndeterminate ? 2 : 0));
+                if (event.hasProgress) {
+                    writeVarLong(event.progress);
+                    writeVarLong(event.progressMax);
+                }
+                writeVarLong(event.actions != null ? event.actions.length + 1 : 0);
+                if (event.actions != null) {
+                    for (Action action : event.actions) {
+                        writeString(action.title);
+                        out.writeByte((action.hasIcon ? 1 : 0) | (action.allowsRemoteInput ? 2 : 0));
+                    }
+                }
+            }
+            events++;
+        }
+
+        public int getEventCount() {
+            return events;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            out.write(bytes);
+        }
+
+        private void writeStrings(String[] values) throws IOException {
+            writeVarLong(values != null ? values.length + 1L : 0);
+            if (values != null) {
+                for (String value : values) {
+                    writeString(value);
+                }
+            }
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.writeByte((int) zigzag);
+        }
+    }
+
+    /**
+     * Reads events back from a trace file.
+     */
+    public static final class Reader implements Closeable {
+
+        private final Inflater inflater = new Inflater(true);
+        private final DataInputStream in;
+        private long elapsedMs;
+
+        public Reader(File file) throws IOException {
+            FileInputStream fileIn = new FileInputStream(file);
+            try {
+                DataInputStream header = new DataInputStream(fileIn);
+                if (header.readInt() != MAGIC || header.readByte() != VERSION) {
+                    throw new IOException("Not a notification trace: " + file);
+                }
+            } catch (IOException e) {
+                fileIn.close();
+                throw e;
+            }
+            in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(fileIn, inflater, 8192)));
+        }
+
+        /**
+         * @return The next event, or null at the end of the trace (including a truncated last event)
+         */
+        public Event next() throws IOException {
+            try {
+                int type = in.read();
+                if (type < 0) {
+                    return null;
+                }
+                Event event = new Event();
+                event.type = (byte) type;
+                elapsedMs += readVarLong();
+                event.elapsedMs = elapsedMs;
+                event.key = readString();
+                event.packageName = readString();
+                event.postTime = readVarLong();
+                if (event.type == EVENT_REMOVED) {
+                    event.reason = (int) readVarLong();
+                    return event;
+                }
+                event.flags = (int) readVarLong();
+                event.category = readString();
+                event.group = readString();
+                event.channelId = readString();
+                event.priority = (int) readVarLong();
+                event.number = (int) readVarLong();
+                int icons = in.readUnsignedByte();
+                event.hasSmallIcon = (icons & 1) != 0;
+                event.hasLargeIcon = (icons & 2) != 0;
+                event.template = readString();
+                event.title = readString();
+                event.text = readString();
+                event.subText = readString();
+                event.infoText = readString();
+                event.summaryText = readString();
+                event.bigText = readString();
+                event.pictureContentDescription = readString();
+                event.pictureWidth = (int) readVarLong();
+                event.pictureHeight = (int) readVarLong();
+                event.textLines = readStrings();
+                event.conversationTitle = readString();
+                event.isGroupConversation = in.readBoolean();
+                int messageCount = (int) readVarLong() - 1;
+                if (messageCount >= 0) {
+                    event.messages = new Message[messageCount];
+                    for (int i = 0; i < messageCount; i++) {
+                        event.messages[i] = new Message(readString(), readVarLong(), readString());
+                    }
+                }
+                int progressFlags = in.readUnsignedByte();
+                event.hasProgress = (progressFlags & 1) != 0;
+                event.progressIndeterminate = (progressFlags & 2) != 0;
+                if (event.hasProgress) {
+                    event.progress = (int) readVarLong();
+                    event.progressMax = (int) readVarLong();
+                }
+                int actionCount = (int) readVarLong() - 1;
+                if (actionCount >= 0) {
+                    event.actions = new Action[actionCount];
+                    for (int i = 0; i < actionCount; i++) {
+                        String title = readString();
+                        int actionFlags = in.readUnsignedByte();
+                        event.actions[i] = new Action(title, (actionFlags & 1) != 0, (actionFlags & 2) != 0);
+                    }
+                }
+                return event;
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                inflater.end();
+            }
+        }
+
+        private String readString() throws IOException {
+            int length = (int) readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String[] readStrings() throws IOException {
+            int count = (int) readVarLong() - 1;
+            if (count < 0) {
+                return null;
+            }
+            String[] values = new String[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        private long readVarLong() throws IOException {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+}
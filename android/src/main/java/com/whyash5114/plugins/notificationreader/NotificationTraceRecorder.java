@@ -0,0 +1,149 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.service.notification.StatusBarNotification;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Records the notifications delivered to the listener service into a NotificationTrace file,
+ * between startTraceRecording and stopTraceRecording.
+ * <p>
+ * Events are captured on the callback thread and written on the ingestion lane, which keeps
+ * them in arrival order without adding file I/O to the binder thread.
+ */
+public final class NotificationTraceRecorder {
+
+    private static final String TAG = "NotificationReader";
+    private static final String DIRECTORY = "notification_traces";
+    // Events written between sync flushes, bounding what is lost if the process dies
+    private static final int FLUSH_INTERVAL = 100;
+
+    private static final Object lock = new Object();
+    private static volatile Recording recording;
+
+    private NotificationTraceRecorder() {}
+
+    /**
+     * Starts a new recording, stopping the current one if any.
+     *
+     * @param redact true to replace letters and digits of recorded text with 'x'
+     * @return The trace file being written
+     */
+    public static File start(Context context, boolean redact) throws IOException {
+        synchronized (lock) {
+            stop();
+            File dir = new File(context.getFilesDir(), DIRECTORY);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            File file = new File(dir, "trace-" + System.currentTimeMillis() + NotificationTrace.FILE_EXTENSION);
+            recording = new Recording(file, new NotificationTrace.Writer(file), redact);
+            return file;
+        }
+    }
+
+    /**
+     * Stops the current recording once the events captured so far have been written.
+     *
+     * @return The path, event count and size of the finished trace, or null if none was recording
+     */
+    public static JSObject stop() {
+        Recording finished;
+        synchronized (lock) {
+            finished = recording;
+            recording = null;
+        }
+        if (finished == null) {
+            return null;
+        }
+        try {
+            // Queued behind every event captured before recording was cleared
+            PluginExecutors.execute(PluginExecutors.Lane.INGESTION, finished::close).get();
+        } catch (Exception e) {
+            finished.close();
+        }
+        JSObject result = new JSObject();
+        result.put("path", finished.file.getAbsolutePath());
+        result.put("events", finished.writer.getEventCount());
+        result.put("bytes", finished.file.length());
+        return result;
+    }
+
+    public static boolean isRecording() {
+        return recording != null;
+    }
+
+    static void recordPosted(StatusBarNotification sbn) {
+        Recording current = recording;
+        if (current != null) {
+            current.enqueue(NotificationTrace.Event.posted(sbn, current.elapsedMs(), current.redact));
+        }
+    }
+
+    static void recordRemoved(StatusBarNotification sbn, int reason) {
+        Recording current = recording;
+        if (current != null) {
+            current.enqueue(NotificationTrace.Event.removed(sbn, current.elapsedMs(), reason));
+        }
+    }
+
+    private static final class Recording {
+
+        final File file;
+        final NotificationTrace.Writer writer;
+        final boolean redact;
+        final long startElapsed = SystemClock.elapsedRealtime();
+        private boolean closed;
+
+        Recording(File file, NotificationTrace.Writer writer, boolean redact) {
+            this.file = file;
+            this.writer = writer;
+            this.redact = redact;
+        }
+
+        long elapsedMs() {
+            return SystemClock.elapsedRealtime() - startElapsed;
+        }
+
+        void enqueue(NotificationTrace.Event event) {
+            PluginExecutors.execute(PluginExecutors.Lane.INGESTION, () -> {
+                try {
+                    write(event);
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to write notification trace, stopping recording", e);
+                    synchronized (lock) {
+                        if (recording == this) {
+                            recording = null;
+                        }
+                    }
+                    close();
+                }
+            });
+        }
+
+        private synchronized void write(NotificationTrace.Event event) throws IOException {
+            if (closed) {
+                return;
+            }
+            writer.write(event);
+            if (writer.getEventCount() % FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+
+        synchronized void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to close notification trace", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Warms the plugin up in the background when it loads, so the first screen renders from memory.
+ * <p>
+ * The database is opened (running any pending schema migrations), the statements used on every
+ * start are run once, and the first page of the last cursor-less getNotifications call (the
+ * default page on a first run) is queried into the {@link NotificationQueryCache}. A first call
+ * for that page made while the prefetch is running waits for it instead of querying again; one
+ * made while the prefetch is still queued queries itself, since it may hold the worker the
+ * prefetch is queued for.
+ * <p>
+ * The time from load to the first resolved getNotifications call is measured alongside the
+ * duration of each step.
+ */
+public final class NotificationWarmup {
+
+    private static final String TAG = "NotificationReader";
+    private static final String PREFS_NAME = "NotificationReaderWarmup";
+    private static final String PREF_FIRST_PAGE = "first_page";
+    private static final int DEFAULT_LIMIT = 10;
+    // Upper bound on how long a first call waits for the prefetch of its page before querying itself
+    private static final long MAX_PREFETCH_WAIT_MS = 5_000;
+
+    private static final AtomicBoolean firstPageResolved = new AtomicBoolean();
+
+    private static volatile long loadedAtElapsed;
+    private static volatile long dbOpenMs = -1;
+    private static volatile long statementWarmupMs = -1;
+    private static volatile long prefetchMs = -1;
+    private static volatile long timeToFirstPageMs = -1;
+    private static volatile boolean firstPageFromCache;
+    private static volatile String prefetchKey;
+    private static volatile AtomicBoolean prefetchStarted = new AtomicBoolean();
+    private static volatile CountDownLatch prefetchDone = new CountDownLatch(0);
+    private static volatile String rememberedFirstPage;
+
+    private NotificationWarmup() {}
+
+    /**
+     * Starts the warm-up on the interactive lane and restarts the time-to-first-page measurement.
+     * Called when the plugin loads.
+     */
+    public static void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        loadedAtElapsed = SystemClock.elapsedRealtime();
+        dbOpenMs = -1;
+        statementWarmupMs = -1;
+        prefetchMs = -1;
+        timeToFirstPageMs = -1;
+        firstPageFromCache = false;
+        firstPageResolved.set(false);
+
+        NotificationFilterQuery filterQuery;
+        int limit;
+        try {
+            SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            rememberedFirstPage = prefs.getString(PREF_FIRST_PAGE, null);
+            JSONObject page = rememberedFirstPage != null ? new JSONObject(rememberedFirstPage) : new JSONObject();
+            filterQuery = new NotificationFilterQuery(page.optJSONObject("filter"), page.optJSONObject("options"));
+            limit = page.optInt("limit", DEFAULT_LIMIT);
+        } catch (JSONException e) {
+            // Only the filter of a call that succeeded is remembered; fall back to the default page
+            Log.w(TAG, "Ignoring the remembered first page", e);
+            try {
+                filterQuery = new NotificationFilterQuery(null, null);
+            } catch (JSONException unexpected) {
+                throw new IllegalStateException(unexpected);
+            }
+            limit = DEFAULT_LIMIT;
+        }
+        NotificationFilterQuery pageQuery = filterQuery;
+        int pageLimit = NotificationMemoryPressure.capPageSize(limit > 0 ? limit : DEFAULT_LIMIT);
+        String cacheKey = NotificationReaderPlugin.pageCacheKey(pageQuery, null, pageLimit);
+
+        // Published before queueing so a first call racing the warm-up finds it
+        AtomicBoolean started = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        prefetchKey = cacheKey;
+        prefetchStarted = started;
+        prefetchDone = done;
+        try {
+            PluginExecutors.execute(PluginExecutors.Lane.INTERACTIVE, () -> {
+                started.set(true);
+                try {
+                    run(appContext, pageQuery, pageLimit, cacheKey);
+                } finally {
+                    done.countDown();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The first call queries the page itself
+            done.countDown();
+        }
+    }
+
+    private static void run(Context context, NotificationFilterQuery filterQuery, int limit, String cacheKey) {
+        try {
+            long start = SystemClock.elapsedRealtime();
+            NotificationDatabase db = NotificationDatabase.getDatabase(context);
+            // Room opens lazily; this runs the pending schema migrations off the first call's path
+            db.getOpenHelper().getWritableDatabase();
+            long opened = SystemClock.elapsedRealtime();
+            dbOpenMs = opened - start;
+
+            // Loads the partition list and compiles the count statements used by storage checks
+            NotificationStores.get(context).count();
+            long warmed = SystemClock.elapsedRealtime();
+            statementWarmupMs = warmed - opened;
+
+            if (NotificationMemoryPressure.getMode() != NotificationMemoryPressure.Mode.NORMAL) {
+                // The page would be evicted again right away
+                return;
+            }
+            if (NotificationQueryCache.get(cacheKey) != null) {
+                // A first call that came before the prefetch started queried it already
+                return;
+            }
+            NotificationReaderPlugin.queryPage(context, filterQuery, null, limit, cacheKey);
+            prefetchMs = SystemClock.elapsedRealtime() - warmed;
+        } catch (JSONException | RuntimeException e) {
+            Log.w(TAG, "Warm-up failed, the first page is queried on demand", e);
+        }
+    }
+
+    /**
+     * Remembers the options of a cursor-less getNotifications call as the first page to prefetch
+     * on the next load. Writes only when they changed.
+     *
+     * @param limit The requested limit, capped again when prefetching
+     */
+    static void rememberFirstPage(Context context, JSONObject filter, JSONObject options, Integer limit) {
+        String page;
+        try {
+            JSONObject obj = new JSONObject();
+            obj.put("filter", filter);
+            obj.put("options", options);
+            obj.put("limit", limit != null && limit > 0 ? limit : DEFAULT_LIMIT);
+            page = obj.toString();
+        } catch (JSONException e) {
+            return;
+        }
+        if (page.equals(rememberedFirstPage)) {
+            return;
+        }
+        rememberedFirstPage = page;
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().putString(PREF_FIRST_PAGE, page).apply();
+    }
+
+    /**
+     * Waits for the prefetch if it is querying the page with this cache key. Does not wait for a
+     * prefetch that has not started: it is queued on the same lane as the caller, possibly behind it.
+     */
+    static void awaitPrefetch(String cacheKey) {
+        CountDownLatch done = prefetchDone;
+        if (done.getCount() == 0 || !prefetchStarted.get() || !cacheKey.equals(prefetchKey)) {
+            return;
+        }
+        try {
+            done.await(MAX_PREFETCH_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // Superseded; the caller checks for cancellation
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records the time to the first page after load.
+     *
+     * @param fromCache true if the page was served from the result cache
+     */
+    static void onPageResolved(boolean fromCache) {
+        if (firstPageResolved.compareAndSet(false, true)) {
+            timeToFirstPageMs = SystemClock.elapsedRealtime() - loadedAtElapsed;
+            firstPageFromCache = fromCache;
+        }
+    }
+
+    /**
+     * @return Durations of the warm-up steps and the time to the first page, -1 where not measured yet
+     */
+    public static JSObject metrics() {
+        JSObject obj = new JSObject();
+        obj.put("dbOpenMs", dbOpenMs);
+        obj.put("statementWarmupMs", statementWarmupMs);
+        obj.put("prefetchMs", prefetchMs);
+        obj.put("timeToFirstPageMs", timeToFirstPageMs);
+        obj.put("firstPageFromCache", firstPageFromCache);
+        return obj;
+    }
+}
@@ -0,0 +1,291 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.os.Process;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared, bounded executors for all background work of the plugin and the listener service.
+ * <p>
+ * Work is split into lanes so a flood of one kind cannot starve another:
+ * <ul>
+ *     <li>{@link Lane#INGESTION}: persisting posted/removed notifications, in order, on one thread</li>
+ *     <li>{@link Lane#INTERACTIVE}: short reads issued by the UI</li>
+ *     <li>{@link Lane#BULK}: long-running jobs such as import and delete, at background priority</li>
+ * </ul>
+ */
+public final class PluginExecutors {
+
+    public enum Lane {
+        // threads, queue capacity (-1 = unbounded), thread priority
+        INGESTION("ingestion", 1, -1, Process.THREAD_PRIORITY_DEFAULT),
+        INTERACTIVE("interactive", 2, 64, Process.THREAD_PRIORITY_DEFAULT),
+        BULK("bulk", 1, 16, Process.THREAD_PRIORITY_BACKGROUND);
+
+        final String key;
+        final int threads;
+        final int queueCapacity;
+        final int priority;
+
+        Lane(String key, int threads, int queueCapacity, int priority) {
+            this.key = key;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.priority = priority;
+        }
+    }
+
+    private static final String TAG = "NotificationReader";
+    private static final long DRAIN_POLL_MS = 20;
+
+    private static final LaneExecutor[] executors = new LaneExecutor[Lane.values().length];
+
+    static {
+        for (Lane lane : Lane.values()) {
+            executors[lane.ordinal()] = new LaneExecutor(lane);
+        }
+    }
+
+    // Latest pending or running task per supersede key
+    private static final Map<String, Future<?>> latestByKey = new ConcurrentHashMap<>();
+    private static final ThreadLocal<LaneTask> currentTask = new ThreadLocal<>();
+
+    private PluginExecutors() {}
+
+    /**
+     * Runs a task on the given lane.
+     *
+     * @throws RejectedExecutionException if the lane's queue is full
+     */
+    public static Future<?> execute(Lane lane, Runnable task) {
+        return executors[lane.ordinal()].submitTask(new LaneTask(lane, task, null));
+    }
+
+    /**
+     * Runs a plugin call's work on the given lane, rejecting the call if the lane is saturated.
+     *
+     * @return The scheduled task, or null if the call was rejected
+     */
+    public static Future<?> execute(PluginCall call, Lane lane, Runnable task) {
+        try {
+            return executors[lane.ordinal()].submitTask(new LaneTask(lane, task, call));
+        } catch (RejectedExecutionException e) {
+            call.reject("Too many pending requests, try again later", "BUSY");
+            return null;
+        }
+    }
+
+    /**
+     * Runs a plugin call's work on the interactive lane, cancelling the previous call submitted
+     * with the same supersede key (for example an in-flight search when a new keystroke arrives).
+     * A superseded call is rejected with code "SUPERSEDED"; the task must settle the call only
+     * after {@link #claimCall()} succeeds, as it may already be running when it is superseded.
+     *
+     * @param supersedeKey Key identifying the query slot, or null to never supersede
+     */
+    public static Future<?> executeLatest(PluginCall call, String supersedeKey, Runnable task) {
+        if (supersedeKey == null || supersedeKey.isEmpty()) {
+            return execute(call, Lane.INTERACTIVE, task);
+        }
+        Future<?> future = execute(call, Lane.INTERACTIVE, task);
+        if (future != null) {
+            Future<?> previous = latestByKey.put(supersedeKey, future);
+            if (previous != null && previous != future) {
+                previous.cancel(true);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Returns true if the task running on the current thread was superseded or cancelled.
+     * Long-running tasks should check this before expensive steps such as serialization.
+     */
+    public static boolean isCancelled() {
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Claims the plugin call of the task running on the current thread for settling. A call is
+     * settled once: either by its task after claiming it, or rejected here when it is superseded
+     * or fails first.
+     *
+     * @return false if the call was already rejected, in which case the task must not resolve it
+     */
+    public static boolean claimCall() {
+        LaneTask task = currentTask.get();
+        return task == null || task.claim();
+    }
+
+    /**
+     * @return Number of tasks currently waiting on the given lane
+     */
+    public static int getQueuedCount(Lane lane) {
+        return executors[lane.ordinal()].getQueue().size();
+    }
+
+    /**
+     * Blocks until no tasks are waiting on the given lane, or until maxWaitMs has passed.
+     * Used by bulk jobs between batches so that they do not hold up live work.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public static void awaitDrained(Lane lane, long maxWaitMs) throws InterruptedException {
+        long waited = 0;
+        while (getQueuedCount(lane) > 0 && waited < maxWaitMs) {
+            Thread.sleep(DRAIN_POLL_MS);
+            waited += DRAIN_POLL_MS;
+        }
+    }
+
+    /**
+     * @return Per-lane queue and throughput metrics
+     */
+    public static JSObject metrics() {
+        JSObject obj = new JSObject();
+        for (Lane lane : Lane.values()) {
+            obj.put(lane.key, executors[lane.ordinal()].toJSObject());
+        }
+        return obj;
+    }
+
+    private static final class LaneExecutor extends ThreadPoolExecutor {
+
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final LatencyHistogram queueWait = new LatencyHistogram();
+
+        LaneExecutor(Lane lane) {
+            super(lane.threads, lane.threads, 30, TimeUnit.SECONDS, createQueue(lane.queueCapacity), new LaneThreadFactory(lane));
+            allowCoreThreadTimeOut(true);
+        }
+
+        private static BlockingQueue<Runnable> createQueue(int capacity) {
+            return capacity > 0 ? new LinkedBlockingQueue<>(capacity) : new LinkedBlockingQueue<>();
+        }
+
+        Future<?> submitTask(LaneTask task) {
+            try {
+                execute(task);
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                throw e;
+            }
+            submitted.incrementAndGet();
+            return task;
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable) {
+            super.beforeExecute(thread, runnable);
+            if (runnable instanceof LaneTask task) {
+                queueWait.record(System.nanoTime() - task.enqueuedAt);
+                currentTask.set(task);
+            }
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            super.afterExecute(runnable, throwable);
+            completed.incrementAndGet();
+            currentTask.remove();
+            // Clear a cancellation interrupt so it does not leak into the next task on this thread
+            Thread.interrupted();
+        }
+
+        JSObject toJSObject() {
+            JSObject obj = new JSObject();
+            obj.put("threads", getMaximumPoolSize());
+            obj.put("active", getActiveCount());
+            obj.put("queued", getQueue().size());
+            obj.put("submitted", submitted.get());
+            obj.put("completed", completed.get());
+            obj.put("rejected", rejected.get());
+            obj.put("cancelled", cancelled.get());
+            obj.put("queueWait", queueWait.toJSObject());
+            return obj;
+        }
+    }
+
+    private static final class LaneTask extends FutureTask<Void> {
+
+        final Lane lane;
+        final PluginCall call;
+        final long enqueuedAt = System.nanoTime();
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        LaneTask(Lane lane, Runnable task, PluginCall call) {
+            super(task, null);
+            this.lane = lane;
+            this.call = call;
+        }
+
+        boolean claim() {
+            return call == null || settled.compareAndSet(false, true);
+        }
+
+        @Override
+        protected void done() {
+            latestByKey.values().remove(this);
+            if (isCancelled()) {
+                executors[lane.ordinal()].cancelled.incrementAndGet();
+                if (call != null && claim()) {
+                    call.reject("Superseded by a newer request", "SUPERSEDED");
+                }
+                return;
+            }
+            try {
+                get();
+            } catch (ExecutionException e) {
+                // Surface failures that a raw Thread would have reported as uncaught
+                Log.e(TAG, "Background task failed on " + lane.key + " lane", e.getCause());
+                if (call != null && claim()) {
+                    call.reject("Unexpected error: " + e.getCause(), e.getCause() instanceof Exception ex ? ex : null);
+                }
+            } catch (InterruptedException | CancellationException ignored) {
+                // Not reachable once done() is called without cancellation
+            }
+        }
+    }
+
+    private static final class LaneThreadFactory implements ThreadFactory {
+
+        private final Lane lane;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(Lane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(
+                () -> {
+                    Process.setThreadPriority(lane.priority);
+                    runnable.run();
+                },
+                "NotificationReader-" + lane.key + "-" + count.incrementAndGet()
+            );
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
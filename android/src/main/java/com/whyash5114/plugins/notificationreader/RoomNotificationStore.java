@@ -0,0 +1,86 @@
+package com.whyash5114.plugins.notificationreader;
+
+import android.database.Cursor;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.List;
+
+/**
+ * The Room database backend. Reads and writes go through {@link NotificationPartitions}, which
+ * also maintains the partitions, message history, extractions and change log.
+ */
+public final class RoomNotificationStore implements NotificationStore {
+
+    private final NotificationDatabase db;
+
+    public RoomNotificationStore(NotificationDatabase db) {
+        this.db = db;
+    }
+
+    public NotificationDatabase getDatabase() {
+        return db;
+    }
+
+    @Override
+    public void insert(NotificationEntity entity) {
+        NotificationPartitions.insert(db, entity);
+    }
+
+    @Override
+    public void insertAll(List<NotificationEntity> entities) {
+        NotificationPartitions.insertAll(db, entities);
+    }
+
+    @Override
+    public List<NotificationEntity> query(NotificationFilterQuery filter, Long cursor, int limit) {
+        return NotificationPartitions.query(db, filter, cursor, limit);
+    }
+
+    /**
+     * Opens a cursor over the same rows as {@link #query}, for streaming them straight into a
+     * response. The caller closes the cursor.
+     */
+    public Cursor queryCursor(NotificationFilterQuery filter, Long cursor, int limit) {
+        return NotificationPartitions.queryCursor(db, filter, cursor, limit);
+    }
+
+    @Override
+    public int count() {
+        return NotificationPartitions.getTotalCount(db);
+    }
+
+    @Override
+    public Long sizeBytes() {
+        return NotificationPartitions.getDatabaseSizeBytes(db);
+    }
+
+    @Override
+    public long evictOldest(int batchSize) {
+        return NotificationPartitions.evictOldest(db, batchSize);
+    }
+
+    @Override
+    public int deleteByIds(List<String> ids) {
+        return NotificationPartitions.deleteByIds(db, ids);
+    }
+
+    @Override
+    public long[] deleteMatching(NotificationFilterQuery filter, int chunkSize) {
+        return NotificationPartitions.deleteChunk(db, filter, chunkSize);
+    }
+
+    @Override
+    public void deleteAll() {
+        NotificationPartitions.deleteAll(db);
+    }
+
+    @Override
+    public List<String> getStoredPackageNames() {
+        return NotificationPartitions.getStoredPackageNames(db);
+    }
+
+    @Override
+    public List<String> getStoredPostings(List<String> keys) {
+        return NotificationPartitions.getStoredPostings(db, keys);
+    }
+}
@@ -0,0 +1,206 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import com.whyash5114.plugins.notificationreader.NotificationReaderMetrics;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Long-form text column (bigText, inboxLinesJson, messagesJson) stored Deflate-compressed when
+ * compression is enabled and the value is large enough to benefit.
+ * <p>
+ * Values are encoded when Room writes the row and decoded only when {@link #get()} is first
+ * called, so rows that are read but never serialized are never inflated.
+ * <p>
+ * Stored layout: plain UTF-8 (rows written without compression, including TEXT values from
+ * before this column type existed), or a 0x00 marker followed by a format byte, the decoded
+ * length as 4 big-endian bytes, and the payload. Plain values never start or end with 0x00:
+ * Cursor#getBlob returns a TEXT value with its terminating NUL, which is dropped on read.
+ */
+public final class CompressedText {
+
+    // Values below this many UTF-8 bytes are stored as-is; Deflate cannot win much on them
+    static final int MIN_COMPRESS_BYTES = 256;
+
+    private static final byte MARKER = 0;
+    private static final byte FORMAT_RAW = 0;
+    // Raw Deflate primed with PRESET_DICTIONARY
+    private static final byte FORMAT_DEFLATE_PRESET = 1;
+    private static final int HEADER_BYTES = 6;
+
+    // Substrings common to the compressed columns, most frequent last so they get the shortest distances
+    private static final byte[] PRESET_DICTIONARY = (
+        "you the and to for is in of your this that with on have be are it at will from not can " +
+        "http https:// www .com Hi Hello Thanks OK ok Yes No\\n " +
+        "\",\"\",\"\",\"[\"\"]\"sender\":null,\"sender\":\"\"},{\"text\":\"\",\"timestamp\":"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private static volatile boolean enabled;
+
+    private volatile String text;
+    private volatile byte[] stored;
+
+    private CompressedText(String text, byte[] stored) {
+        this.text = text;
+        this.stored = stored;
+    }
+
+    /**
+     * Sets whether newly written values are compressed. Values already stored are read either way.
+     * @param compress true to compress values of at least MIN_COMPRESS_BYTES
+     */
+    public static void setEnabled(boolean compress) {
+        enabled = compress;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return A column value holding the text, or null if text is null
+     */
+    public static CompressedText of(String text) {
+        return text != null ? new CompressedText(text, null) : null;
+    }
+
+    /**
+     * @return The decoded text of a possibly null value
+     */
+    public static String decode(CompressedText value) {
+        return value != null ? value.get() : null;
+    }
+
+    /**
+     * Decodes a column value read directly from a Cursor, bypassing Room.
+     * @return The decoded text, or null if stored is null
+     */
+    public static String decodeStored(byte[] stored) {
+        return stored != null ? inflateStored(stored) : null;
+    }
+
+    static CompressedText fromStored(byte[] stored) {
+        return stored != null ? new CompressedText(null, stored) : null;
+    }
+
+    /**
+     * @return The text, inflating the stored bytes on first access
+     */
+    public String get() {
+        String result = text;
+        if (result == null) {
+            // Racing readers may both decode; either result is equivalent
+            result = inflateStored(stored);
+            text = result;
+        }
+        return result;
+    }
+
+    byte[] toStored() {
+        byte[] result = stored;
+        if (result == null) {
+            result = encode(text);
+            stored = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return get();
+    }
+
+    private static byte[] encode(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (!enabled || utf8.length < MIN_COMPRESS_BYTES) {
+            NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.COMPRESSION_BYPASSED);
+            return utf8.length > 0 && needsHeader(utf8) ? withHeader(FORMAT_RAW, utf8.length, utf8, utf8.length) : utf8;
+        }
+
+        long start = NotificationReaderMetrics.start();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        byte[] compressed;
+        int compressedLength;
+        try {
+            deflater.setDictionary(PRESET_DICTIONARY);
+            deflater.setInput(utf8);
+            deflater.finish();
+            // Anything that does not fit in the input size is not worth storing compressed
+            compressed = new byte[utf8.length];
+            compressedLength = 0;
+            while (!deflater.finished() && compressedLength < compressed.length) {
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            if (!deflater.finished()) {
+                compressedLength = -1;
+            }
+        } finally {
+            deflater.end();
+        }
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.COMPRESSION, start);
+
+        if (compressedLength < 0 || compressedLength + HEADER_BYTES >= utf8.length) {
+            NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.COMPRESSION_BYPASSED);
+            return needsHeader(utf8) ? withHeader(FORMAT_RAW, utf8.length, utf8, utf8.length) : utf8;
+        }
+        NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.COMPRESSION_INPUT_BYTES, utf8.length);
+        NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.COMPRESSION_OUTPUT_BYTES, compressedLength + HEADER_BYTES);
+        return withHeader(FORMAT_DEFLATE_PRESET, utf8.length, compressed, compressedLength);
+    }
+
+    private static boolean needsHeader(byte[] utf8) {
+        return utf8[0] == MARKER || utf8[utf8.length - 1] == 0;
+    }
+
+    private static byte[] withHeader(byte format, int decodedLength, byte[] payload, int payloadLength) {
+        byte[] result = new byte[HEADER_BYTES + payloadLength];
+        result[0] = MARKER;
+        result[1] = format;
+        result[2] = (byte) (decodedLength >>> 24);
+        result[3] = (byte) (decodedLength >>> 16);
+        result[4] = (byte) (decodedLength >>> 8);
+        result[5] = (byte) decodedLength;
+        System.arraycopy(payload, 0, result, HEADER_BYTES, payloadLength);
+        return result;
+    }
+
+    private static String inflateStored(byte[] stored) {
+        if (stored.length < HEADER_BYTES || stored[0] != MARKER) {
+            int length = stored.length;
+            if (length > 0 && stored[length - 1] == 0) {
+                // A TEXT value, read with its terminating NUL
+                length--;
+            }
+            return new String(stored, 0, length, StandardCharsets.UTF_8);
+        }
+        int decodedLength =
+            ((stored[2] & 0xff) << 24) | ((stored[3] & 0xff) << 16) | ((stored[4] & 0xff) << 8) | (stored[5] & 0xff);
+        if (stored[1] == FORMAT_RAW) {
+            return new String(stored, HEADER_BYTES, stored.length - HEADER_BYTES, StandardCharsets.UTF_8);
+        }
+
+        long start = NotificationReaderMetrics.start();
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(PRESET_DICTIONARY);
+            inflater.setInput(stored, HEADER_BYTES, stored.length - HEADER_BYTES);
+            byte[] decoded = new byte[decodedLength];
+            int length = 0;
+            while (length < decodedLength && !inflater.finished()) {
+                int inflated = inflater.inflate(decoded, length, decodedLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            return new String(decoded, 0, length, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            // Corrupt payload; surface what we can rather than failing the whole query
+            return "";
+        } finally {
+            inflater.end();
+            NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.DECOMPRESSION, start);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.room.TypeConverter;
+
+/**
+ * Room converters storing {@link CompressedText} columns as bytes. The columns keep TEXT
+ * affinity, which stores bound bytes as BLOB values unchanged.
+ */
+public class CompressedTextConverter {
+
+    @TypeConverter
+    public static byte[] toBlob(CompressedText value) {
+        return value != null ? value.toStored() : null;
+    }
+
+    @TypeConverter
+    public static CompressedText fromBlob(byte[] blob) {
+        return CompressedText.fromStored(blob);
+    }
+}
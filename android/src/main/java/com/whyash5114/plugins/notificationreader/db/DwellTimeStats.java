@@ -0,0 +1,15 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+/**
+ * Per-package dwell time aggregate computed from the notification_lifecycle table.
+ */
+public class DwellTimeStats {
+
+    public String packageName;
+    public int removals;
+    public long avgDwellMs;
+    public long minDwellMs;
+    public long maxDwellMs;
+    public int clicked;
+    public int dismissed;
+}
@@ -0,0 +1,25 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface NotificationChangeDao {
+    @Insert
+    List<Long> insertAll(List<NotificationChangeEntity> changes);
+
+    @Query("SELECT * FROM notification_changes WHERE seq > :sinceSeq ORDER BY seq ASC LIMIT :limit")
+    List<NotificationChangeEntity> getSince(long sinceSeq, int limit);
+
+    @Query("SELECT COALESCE(MIN(seq), 0) FROM notification_changes")
+    long getFirstSeq();
+
+    // Trimming only removes the oldest changes, so the newest is always kept
+    @Query("SELECT COALESCE(MAX(seq), 0) FROM notification_changes")
+    long getLastSeq();
+
+    @Query("DELETE FROM notification_changes WHERE seq <= :seq")
+    int deleteUpTo(long seq);
+}
@@ -0,0 +1,40 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * One entry of the change log: a stored notification written or deleted, or a range of them
+ * removed at once. Only the id is kept; the row itself is read when changes are returned.
+ */
+@Entity(tableName = "notification_changes")
+public class NotificationChangeEntity {
+
+    // Assigned by SQLite; AUTOINCREMENT so numbers are never reused after trimming
+    @PrimaryKey(autoGenerate = true)
+    public long seq;
+
+    // "upsert", "delete", "deleteBefore" or "clear"
+    @NonNull
+    public String type = "";
+
+    // The notification for upsert and delete, null otherwise
+    public String notificationId;
+
+    // For deleteBefore, every notification posted before this time was removed
+    public long postedBefore;
+
+    public long changedAt;
+
+    public NotificationChangeEntity() {}
+
+    @Ignore
+    public NotificationChangeEntity(@NonNull String type, String notificationId, long postedBefore, long changedAt) {
+        this.type = type;
+        this.notificationId = notificationId;
+        this.postedBefore = postedBefore;
+        this.changedAt = changedAt;
+    }
+}
@@ -13,6 +13,9 @@ public interface NotificationDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(NotificationEntity notification);
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<NotificationEntity> notifications);
+
     @Query("SELECT * FROM notifications WHERE postTime < :cursor ORDER BY postTime DESC LIMIT :limit")
     List<NotificationEntity> getNotifications(long cursor, int limit);
 
@@ -22,13 +25,19 @@ public interface NotificationDao {
     @RawQuery
     List<NotificationEntity> getNotifications(SupportSQLiteQuery query);
 
+    @Query("SELECT * FROM notifications WHERE postTime < :before ORDER BY postTime ASC LIMIT :limit")
+    List<NotificationEntity> getNotificationsBefore(long before, int limit);
+
     @Query("DELETE FROM notifications")
     void deleteAllNotifications();
 
     @Query("SELECT COUNT(*) FROM notifications")
     int getTotalCount();
 
-    @Query("SELECT SUM(LENGTH(id) + LENGTH(packageName) + LENGTH(appName) + " +
+    /**
+     * Approximate stored size of one row in bytes, summed over its columns.
+     */
+    String ROW_SIZE = "LENGTH(id) + LENGTH(packageName) + LENGTH(appName) + " +
             "COALESCE(LENGTH(title), 0) + COALESCE(LENGTH(text), 0) + " +
             "COALESCE(LENGTH(smallIcon), 0) + COALESCE(LENGTH(largeIcon), 0) + " +
             "COALESCE(LENGTH(appIcon), 0) + COALESCE(LENGTH(category), 0) + " +
@@ -38,13 +47,34 @@ public interface NotificationDao {
             "COALESCE(LENGTH(bigText), 0) + COALESCE(LENGTH(bigPicture), 0) + " +
             "COALESCE(LENGTH(pictureContentDescription), 0) + COALESCE(LENGTH(inboxLinesJson), 0) + " +
             "COALESCE(LENGTH(conversationTitle), 0) + COALESCE(LENGTH(messagesJson), 0) + " +
-            "COALESCE(LENGTH(callerName), 0)) FROM notifications")
+            "COALESCE(LENGTH(callerName), 0) + COALESCE(LENGTH(notificationKey), 0) + " +
+            "COALESCE(LENGTH(conversationKey), 0)";
+
+    @Query("SELECT SUM(" + ROW_SIZE + ") FROM notifications")
     Long getDatabaseSizeBytes();
 
     @Query("DELETE FROM notifications WHERE id IN " +
             "(SELECT id FROM notifications ORDER BY postTime ASC LIMIT :count)")
-    void deleteOldestNotifications(int count);
+    int deleteOldestNotifications(int count);
+
+    /**
+     * Selects ids and sizes of rows, for queries of the form "SELECT id, ROW_SIZE AS size ...".
+     */
+    @RawQuery
+    List<NotificationRowSize> getRowSizes(SupportSQLiteQuery query);
+
+    @Query("DELETE FROM notifications WHERE id IN (:ids)")
+    int deleteByIds(List<String> ids);
 
     @Query("SELECT id FROM notifications ORDER BY postTime ASC LIMIT 1")
     String getOldestNotificationId();
+
+    @Query("SELECT DISTINCT packageName FROM notifications")
+    List<String> getStoredPackageNames();
+
+    /**
+     * Returns "key:postTime" for every stored posting of the given notification keys.
+     */
+    @Query("SELECT notificationKey || ':' || postTime FROM notifications WHERE notificationKey IN (:keys)")
+    List<String> getStoredPostings(List<String> keys);
 }
@@ -1,27 +1,266 @@
 package com.whyash5114.plugins.notificationreader.db;
 
 import android.content.Context;
+import android.database.Cursor;
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import java.util.ArrayList;
+import java.util.List;
 
-@Database(entities = { NotificationEntity.class }, version = 4, exportSchema = false)
+@Database(
+    entities = {
+        NotificationEntity.class,
+        NotificationLifecycleEntity.class,
+        NotificationMessageEntity.class,
+        NotificationExtractionEntity.class,
+        NotificationChangeEntity.class
+    },
+    version = 12,
+    exportSchema = true
+)
+@TypeConverters(CompressedTextConverter.class)
 public abstract class NotificationDatabase extends RoomDatabase {
 
     public abstract NotificationDao notificationDao();
 
+    public abstract NotificationLifecycleDao lifecycleDao();
+
+    public abstract NotificationMessageDao messageDao();
+
+    public abstract NotificationExtractionDao extractionDao();
+
+    public abstract NotificationChangeDao changeDao();
+
     private static volatile NotificationDatabase INSTANCE;
 
+    /**
+     * Adds the notification_lifecycle table.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `notification_lifecycle` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`notificationKey` TEXT NOT NULL, `packageName` TEXT NOT NULL, `postTime` INTEGER NOT NULL, " +
+                "`removedAt` INTEGER NOT NULL, `reason` INTEGER NOT NULL)"
+            );
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_notification_lifecycle_notificationKey_removedAt` " +
+                "ON `notification_lifecycle` (`notificationKey`, `removedAt`)"
+            );
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_notification_lifecycle_removedAt` ON `notification_lifecycle` (`removedAt`)"
+            );
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_notification_lifecycle_packageName_removedAt` " +
+                "ON `notification_lifecycle` (`packageName`, `removedAt`)"
+            );
+        }
+    };
+
+    /**
+     * Adds the notificationKey column. Rows stored earlier have no key, like imported ones.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notifications` ADD COLUMN `notificationKey` TEXT");
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_notifications_notificationKey_postTime` " +
+                "ON `notifications` (`notificationKey`, `postTime`)"
+            );
+        }
+    };
+
+    /**
+     * Introduced CompressedText for bigText, inboxLinesJson and messagesJson. The columns keep
+     * their TEXT affinity: new values are stored as BLOBs in them and existing text is read as
+     * uncompressed UTF-8, so no table is rebuilt.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // Nothing to change
+        }
+    };
+
+    /**
+     * Adds the notification_messages table and the conversation columns. Partition tables are
+     * altered too, so they keep the column order of the notifications table.
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String table : notificationTables(db)) {
+                db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `conversationKey` TEXT");
+                db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `firstMessageTime` INTEGER NOT NULL DEFAULT 0");
+                db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `lastMessageTime` INTEGER NOT NULL DEFAULT 0");
+                db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `messageCount` INTEGER NOT NULL DEFAULT 0");
+            }
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `notification_messages` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`conversationKey` TEXT NOT NULL, `sender` TEXT NOT NULL, `timestamp` INTEGER NOT NULL, `text` TEXT, " +
+                "`textHash` INTEGER NOT NULL)"
+            );
+            db.execSQL(
+                "CREATE UNIQUE INDEX IF NOT EXISTS `index_notification_messages_conversationKey_sender_timestamp_textHash` " +
+                "ON `notification_messages` (`conversationKey`, `sender`, `timestamp`, `textHash`)"
+            );
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_notification_messages_conversationKey_timestamp` " +
+                "ON `notification_messages` (`conversationKey`, `timestamp`)"
+            );
+        }
+    };
+
+    /**
+     * Adds the notification_extractions table. Rows stored earlier have no extractions and do
+     * not match the extraction filters.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `notification_extractions` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`notificationId` TEXT NOT NULL, `type` TEXT NOT NULL, `value` TEXT, `numericValue` REAL)"
+            );
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_notification_extractions_type_numericValue_notificationId` " +
+                "ON `notification_extractions` (`type`, `numericValue`, `notificationId`)"
+            );
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_notification_extractions_notificationId` " +
+                "ON `notification_extractions` (`notificationId`)"
+            );
+        }
+    };
+
+    /**
+     * Adds the facet indexes to the notifications table and its partitions.
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String table : notificationTables(db)) {
+                createFacetIndexes(db, table);
+            }
+        }
+    };
+
+    /**
+     * Adds the notification_changes table. The log starts empty; consumers that synced before
+     * read everything once.
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `notification_changes` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`type` TEXT NOT NULL, `notificationId` TEXT, `postedBefore` INTEGER NOT NULL, `changedAt` INTEGER NOT NULL)"
+            );
+        }
+    };
+
+    /**
+     * Adds the conversation index to the notifications table and its partitions, which message
+     * garbage collection looks up the conversations of deleted rows in.
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String table : notificationTables(db)) {
+                createConversationIndex(db, table);
+            }
+        }
+    };
+
+    // Columns of the indexes declared on NotificationEntity for getFacets; each ends in postTime
+    // so a time-bounded facet query is still answered from the index alone
+    private static final String[][] FACET_INDEXES = {
+        { "packageName", "appName", "postTime" },
+        { "packageName", "channelId", "postTime" },
+        { "category", "postTime" },
+        { "style", "postTime" }
+    };
+
+    /**
+     * Creates the facet indexes on a notifications or partition table, named the way Room
+     * names the indexes of the notifications table.
+     */
+    public static void createFacetIndexes(SupportSQLiteDatabase db, String table) {
+        for (String[] columns : FACET_INDEXES) {
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_" +
+                table +
+                "_" +
+                String.join("_", columns) +
+                "` ON `" +
+                table +
+                "` (`" +
+                String.join("`, `", columns) +
+                "`)"
+            );
+        }
+    }
+
+    /**
+     * Creates the (conversationKey, firstMessageTime) index declared on NotificationEntity on a
+     * notifications or partition table.
+     */
+    public static void createConversationIndex(SupportSQLiteDatabase db, String table) {
+        db.execSQL(
+            "CREATE INDEX IF NOT EXISTS `index_" +
+            table +
+            "_conversationKey_firstMessageTime` ON `" +
+            table +
+            "` (`conversationKey`, `firstMessageTime`)"
+        );
+    }
+
     public static NotificationDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (NotificationDatabase.class) {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(), NotificationDatabase.class, "notification_database")
-                        .fallbackToDestructiveMigration()
+                        .addMigrations(
+                            MIGRATION_4_5,
+                            MIGRATION_5_6,
+                            MIGRATION_6_7,
+                            MIGRATION_7_8,
+                            MIGRATION_8_9,
+                            MIGRATION_9_10,
+                            MIGRATION_10_11,
+                            MIGRATION_11_12
+                        )
+                        // Versions before 4 predate the exported schemas; downgrades have no path back
+                        .fallbackToDestructiveMigrationFrom(1, 2, 3)
+                        .fallbackToDestructiveMigrationOnDowngrade()
                         .build();
                 }
             }
         }
         return INSTANCE;
     }
+
+    /**
+     * @return The notifications table and its partitions (notifications_w*, notifications_m*)
+     */
+    static List<String> notificationTables(SupportSQLiteDatabase db) {
+        List<String> tables = new ArrayList<>();
+        try (
+            Cursor cursor = db.query(
+                "SELECT name FROM sqlite_master WHERE type = 'table' AND (name = 'notifications' OR name LIKE 'notifications\\_%' ESCAPE '\\')"
+            )
+        ) {
+            while (cursor.moveToNext()) {
+                tables.add(cursor.getString(0));
+            }
+        }
+        return tables;
+    }
 }
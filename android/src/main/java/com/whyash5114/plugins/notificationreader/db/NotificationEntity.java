@@ -6,30 +6,46 @@ import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Icon;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.service.notification.StatusBarNotification;
-import android.util.Base64;
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
-import java.io.ByteArrayOutputStream;
+import com.whyash5114.plugins.notificationreader.ImageEncoder;
+import com.whyash5114.plugins.notificationreader.NotificationMemoryPressure;
+import java.util.List;
 import java.util.UUID;
 
-@Entity(tableName = "notifications")
+// The packageName, channelId, category and style indexes cover the getFacets queries, see NotificationDatabase#createFacetIndexes
+@Entity(
+    tableName = "notifications",
+    indices = {
+        @Index({ "notificationKey", "postTime" }),
+        @Index({ "packageName", "appName", "postTime" }),
+        @Index({ "packageName", "channelId", "postTime" }),
+        @Index({ "category", "postTime" }),
+        @Index({ "style", "postTime" }),
+        @Index({ "conversationKey", "firstMessageTime" })
+    }
+)
 public class NotificationEntity {
 
     @PrimaryKey
     @NonNull
     public String id;
 
+    // System key (StatusBarNotification#getKey), null for imported notifications
+    public String notificationKey;
+
     // Base notification fields
     @NonNull
     public String packageName;
@@ -65,18 +81,34 @@ public class NotificationEntity {
     public int number;
 
     // Style-specific fields
-    public String bigText;
+    // The CompressedText columns keep TEXT affinity, so rows from before compression need no rebuild
+    @ColumnInfo(typeAffinity = ColumnInfo.TEXT)
+    public CompressedText bigText;
     public String bigPicture;
     public String pictureContentDescription;
-    public String inboxLinesJson;
+    @ColumnInfo(typeAffinity = ColumnInfo.TEXT)
+    public CompressedText inboxLinesJson;
     public String conversationTitle;
     public boolean isGroupConversation;
-    public String messagesJson;
+    @ColumnInfo(typeAffinity = ColumnInfo.TEXT)
+    public CompressedText messagesJson;
     public int progress;
     public int progressMax;
     public boolean progressIndeterminate;
     public String callerName; // For CallStyle
 
+    // MessagingStyle history, stored in notification_messages: this row shows the last
+    // messageCount messages of the conversation posted between firstMessageTime and lastMessageTime
+    public String conversationKey;
+    public long firstMessageTime;
+    public long lastMessageTime;
+    public int messageCount;
+
+    // Values found by NotificationExtractors, stored in notification_extractions; filled on
+    // first use and kept with the entity so filters and inserts share one extraction pass
+    @Ignore
+    public List<NotificationExtractionEntity> extractions;
+
     public NotificationEntity() {
         this.id = UUID.randomUUID().toString();
         this.packageName = "";
@@ -87,6 +119,7 @@ public class NotificationEntity {
 
     public NotificationEntity(Context context, StatusBarNotification sbn) {
         this.id = UUID.randomUUID().toString();
+        this.notificationKey = sbn.getKey();
         Notification notification = sbn.getNotification();
         if (notification == null) {
             this.packageName = sbn.getPackageName();
@@ -136,6 +169,9 @@ public class NotificationEntity {
 
         // Style-specific fields
         addStyleSpecificData(extras);
+        if ("MessagingStyle".equals(this.style)) {
+            this.conversationKey = getConversationKey(sbn, notification);
+        }
     }
 
     private String getAppName(Context context, String packageName) {
@@ -179,12 +215,12 @@ public class NotificationEntity {
                 if (action.getIcon() != null) {
                     try {
                         Drawable drawable = action.getIcon().loadDrawable(packageContext);
-                        actionObj.put("icon", drawableToBase64(drawable));
+                        actionObj.put("icon", ImageEncoder.drawableToBase64(drawable));
                     } catch (Exception e) {
                         // Try with original context as fallback
                         try {
                             Drawable drawable = action.getIcon().loadDrawable(context);
-                            actionObj.put("icon", drawableToBase64(drawable));
+                            actionObj.put("icon", ImageEncoder.drawableToBase64(drawable));
                         } catch (Exception e2) {
                             actionObj.put("icon", null);
                         }
@@ -203,15 +239,16 @@ public class NotificationEntity {
         switch (this.style) {
             case "BigTextStyle":
                 CharSequence bigTextChars = extras.getCharSequence(Notification.EXTRA_BIG_TEXT);
-                this.bigText = bigTextChars != null ? bigTextChars.toString() : null;
+                this.bigText = bigTextChars != null ? CompressedText.of(bigTextChars.toString()) : null;
                 break;
             case "BigPictureStyle":
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
                     this.pictureContentDescription = extras.getString(Notification.EXTRA_PICTURE_CONTENT_DESCRIPTION);
                 }
                 Bitmap picture = extras.getParcelable(Notification.EXTRA_PICTURE);
-                if (picture != null) {
-                    this.bigPicture = bitmapToBase64(picture);
+                // Skipped while memory is low; the largest image a notification carries
+                if (picture != null && !NotificationMemoryPressure.skipBigPicture()) {
+                    this.bigPicture = ImageEncoder.bitmapToBase64(picture);
                 }
                 break;
             case "InboxStyle":
@@ -221,7 +258,7 @@ public class NotificationEntity {
                     for (CharSequence line : lines) {
                         linesArray.put(line.toString());
                     }
-                    this.inboxLinesJson = linesArray.toString();
+                    this.inboxLinesJson = CompressedText.of(linesArray.toString());
                 }
                 break;
             case "MessagingStyle":
@@ -233,7 +270,7 @@ public class NotificationEntity {
                     this.isGroupConversation = extras.getBoolean(Notification.EXTRA_IS_GROUP_CONVERSATION, false);
                 }
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                    this.messagesJson = extractMessagesJson(extras);
+                    this.messagesJson = CompressedText.of(extractMessagesJson(extras));
                 }
                 break;
         }
@@ -245,6 +282,15 @@ public class NotificationEntity {
         }
     }
 
+    /**
+     * Identifies the conversation a MessagingStyle notification belongs to: its shortcut when the
+     * app publishes one, otherwise the notification key, which messaging apps keep per chat.
+     */
+    private static String getConversationKey(StatusBarNotification sbn, Notification notification) {
+        String shortcutId = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? notification.getShortcutId() : null;
+        return shortcutId != null ? sbn.getPackageName() + "|" + shortcutId : sbn.getKey();
+    }
+
     private String extractMessagesJson(Bundle extras) {
         JSArray messagesArray = new JSArray();
         Parcelable[] parcelables = null;
@@ -288,7 +334,7 @@ public class NotificationEntity {
                 Context packageContext = context.createPackageContext(packageName, 0);
                 Drawable drawable = icon.loadDrawable(packageContext);
                 if (drawable != null) {
-                    return drawableToBase64(drawable);
+                    return ImageEncoder.drawableToBase64(drawable);
                 }
             }
         } catch (Exception e) {
@@ -298,7 +344,7 @@ public class NotificationEntity {
                 if (icon != null) {
                     Drawable drawable = icon.loadDrawable(context);
                     if (drawable != null) {
-                        return drawableToBase64(drawable);
+                        return ImageEncoder.drawableToBase64(drawable);
                     }
                 }
             } catch (Exception e2) {
@@ -316,7 +362,7 @@ public class NotificationEntity {
                 Context packageContext = context.createPackageContext(packageName, 0);
                 Drawable drawable = icon.loadDrawable(packageContext);
                 if (drawable != null) {
-                    return drawableToBase64(drawable);
+                    return ImageEncoder.drawableToBase64(drawable);
                 }
             }
         } catch (Exception e) {
@@ -326,7 +372,7 @@ public class NotificationEntity {
                 if (icon != null) {
                     Drawable drawable = icon.loadDrawable(context);
                     if (drawable != null) {
-                        return drawableToBase64(drawable);
+                        return ImageEncoder.drawableToBase64(drawable);
                     }
                 }
             } catch (Exception e2) {
@@ -339,33 +385,9 @@ public class NotificationEntity {
     private String getAppIconBase64(Context context, String packageName) {
         try {
             Drawable drawable = context.getPackageManager().getApplicationIcon(packageName);
-            return drawableToBase64(drawable);
+            return ImageEncoder.drawableToBase64(drawable);
         } catch (PackageManager.NameNotFoundException e) {
             return null;
         }
     }
-
-    private String drawableToBase64(Drawable drawable) {
-        if (drawable == null) return null;
-        Bitmap bitmap;
-        if (drawable instanceof BitmapDrawable) {
-            bitmap = ((BitmapDrawable) drawable).getBitmap();
-        } else {
-            int width = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : 96;
-            int height = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : 96;
-            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(bitmap);
-            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-            drawable.draw(canvas);
-        }
-        return bitmapToBase64(bitmap);
-    }
-
-    private String bitmapToBase64(Bitmap bitmap) {
-        if (bitmap == null) return null;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
-        byte[] byteArray = outputStream.toByteArray();
-        return Base64.encodeToString(byteArray, Base64.NO_WRAP);
-    }
 }
@@ -0,0 +1,18 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface NotificationExtractionDao {
+    @Insert
+    void insertAll(List<NotificationExtractionEntity> extractions);
+
+    @Query("DELETE FROM notification_extractions WHERE notificationId IN (:ids)")
+    int deleteByNotificationIds(List<String> ids);
+
+    @Query("DELETE FROM notification_extractions")
+    void deleteAll();
+}
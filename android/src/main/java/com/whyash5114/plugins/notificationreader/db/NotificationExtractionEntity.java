@@ -0,0 +1,42 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Typed value found in a stored notification's text at ingestion (a one-time code, an amount,
+ * a link or a phone number), so filters on it are answered from an index.
+ */
+@Entity(
+    tableName = "notification_extractions",
+    indices = { @Index({ "type", "numericValue", "notificationId" }), @Index({ "notificationId" }) }
+)
+public class NotificationExtractionEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    public String notificationId = "";
+
+    @NonNull
+    public String type = "";
+
+    // The code, currency, URL or phone number as found
+    public String value;
+
+    // The amount for type "amount", null otherwise
+    public Double numericValue;
+
+    public NotificationExtractionEntity() {}
+
+    @Ignore
+    public NotificationExtractionEntity(@NonNull String type, String value, Double numericValue) {
+        this.type = type;
+        this.value = value;
+        this.numericValue = numericValue;
+    }
+}
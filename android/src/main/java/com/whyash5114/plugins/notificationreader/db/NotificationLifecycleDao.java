@@ -0,0 +1,38 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface NotificationLifecycleDao {
+    @Insert
+    void insert(NotificationLifecycleEntity event);
+
+    @Query("SELECT * FROM notification_lifecycle WHERE notificationKey = :key ORDER BY removedAt DESC LIMIT :limit")
+    List<NotificationLifecycleEntity> getByKey(String key, int limit);
+
+    @Query("SELECT * FROM notification_lifecycle WHERE removedAt >= :after AND removedAt < :before " +
+            "ORDER BY removedAt DESC LIMIT :limit")
+    List<NotificationLifecycleEntity> getEvents(long after, long before, int limit);
+
+    @Query("SELECT * FROM notification_lifecycle WHERE packageName = :packageName " +
+            "AND removedAt >= :after AND removedAt < :before ORDER BY removedAt DESC LIMIT :limit")
+    List<NotificationLifecycleEntity> getEvents(String packageName, long after, long before, int limit);
+
+    // Reason codes: 1 = REASON_CLICK, 2 = REASON_CANCEL (user swiped), 3 = REASON_CANCEL_ALL
+    @Query("SELECT packageName, COUNT(*) AS removals, " +
+            "CAST(AVG(removedAt - postTime) AS INTEGER) AS avgDwellMs, " +
+            "MIN(removedAt - postTime) AS minDwellMs, MAX(removedAt - postTime) AS maxDwellMs, " +
+            "SUM(reason = 1) AS clicked, SUM(reason IN (2, 3)) AS dismissed " +
+            "FROM notification_lifecycle WHERE removedAt >= :after AND removedAt < :before " +
+            "GROUP BY packageName ORDER BY removals DESC")
+    List<DwellTimeStats> getDwellTimeStats(long after, long before);
+
+    @Query("DELETE FROM notification_lifecycle WHERE id <= (SELECT MAX(id) FROM notification_lifecycle) - :keep")
+    void trimToMostRecent(int keep);
+
+    @Query("DELETE FROM notification_lifecycle")
+    void deleteAll();
+}
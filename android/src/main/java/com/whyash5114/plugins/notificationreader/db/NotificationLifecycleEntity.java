@@ -0,0 +1,49 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Compact record of a notification leaving the notification drawer.
+ * The post time is copied from the removed notification so dwell time
+ * (removedAt - postTime) can be computed without joining the notifications table.
+ */
+@Entity(
+    tableName = "notification_lifecycle",
+    indices = { @Index({ "notificationKey", "removedAt" }), @Index({ "removedAt" }), @Index({ "packageName", "removedAt" }) }
+)
+public class NotificationLifecycleEntity {
+
+    // Mirrors NotificationListenerService.REASON_* where available, 0 when the reason is unknown
+    public static final int REASON_UNKNOWN = 0;
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    public String notificationKey;
+
+    @NonNull
+    public String packageName;
+
+    public long postTime;
+    public long removedAt;
+    public int reason;
+
+    public NotificationLifecycleEntity() {
+        this.notificationKey = "";
+        this.packageName = "";
+    }
+
+    @Ignore
+    public NotificationLifecycleEntity(@NonNull String notificationKey, @NonNull String packageName, long postTime, long removedAt, int reason) {
+        this.notificationKey = notificationKey;
+        this.packageName = packageName;
+        this.postTime = postTime;
+        this.removedAt = removedAt;
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,46 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface NotificationMessageDao {
+    // Messages already stored for the conversation are skipped by the unique index
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertAll(List<NotificationMessageEntity> messages);
+
+    /**
+     * Returns the last messages of a conversation within a time window, newest first.
+     */
+    @Query("SELECT * FROM notification_messages WHERE conversationKey = :conversationKey " +
+            "AND timestamp BETWEEN :first AND :last ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<NotificationMessageEntity> getWindow(String conversationKey, long first, long last, int limit);
+
+    /**
+     * Returns messages of a conversation after the given position, oldest first.
+     */
+    @Query("SELECT * FROM notification_messages WHERE conversationKey = :conversationKey " +
+            "AND (timestamp > :afterTimestamp OR (timestamp = :afterTimestamp AND id > :afterId)) " +
+            "ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    List<NotificationMessageEntity> getConversation(String conversationKey, long afterTimestamp, long afterId, int limit);
+
+    @Query("DELETE FROM notification_messages WHERE conversationKey = :conversationKey AND timestamp < :before")
+    int deleteBefore(String conversationKey, long before);
+
+    @Query("DELETE FROM notification_messages WHERE conversationKey = :conversationKey")
+    int deleteConversation(String conversationKey);
+
+    @Query("DELETE FROM notification_messages")
+    void deleteAll();
+
+    /**
+     * Approximate stored size of one message in bytes, as NotificationDao#ROW_SIZE.
+     */
+    String ROW_SIZE = "LENGTH(conversationKey) + LENGTH(sender) + COALESCE(LENGTH(text), 0) + 16";
+
+    @Query("SELECT SUM(" + ROW_SIZE + ") FROM notification_messages")
+    Long getSizeBytes();
+}
@@ -0,0 +1,35 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One message of a MessagingStyle conversation, stored once however many notification updates
+ * repeat it. Notification rows reference a window of these through conversationKey,
+ * firstMessageTime, lastMessageTime and messageCount instead of storing the whole history.
+ */
+@Entity(
+    tableName = "notification_messages",
+    indices = {
+        @Index(value = { "conversationKey", "sender", "timestamp", "textHash" }, unique = true),
+        @Index({ "conversationKey", "timestamp" })
+    }
+)
+public class NotificationMessageEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    public String conversationKey = "";
+
+    // Empty when the message has no sender, so the unique index still applies
+    @NonNull
+    public String sender = "";
+
+    public long timestamp;
+    public String text;
+    public long textHash;
+}
@@ -0,0 +1,10 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+/**
+ * Id and approximate stored size of a notification row, see {@link NotificationDao#ROW_SIZE}.
+ */
+public class NotificationRowSize {
+
+    public String id;
+    public long size;
+}
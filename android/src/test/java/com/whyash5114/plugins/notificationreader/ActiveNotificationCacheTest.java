@@ -0,0 +1,60 @@
+package com.whyash5114.plugins.notificationreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ActiveNotificationCacheTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    @Test
+    public void deltaWithinTheSameProcess() {
+        ActiveNotificationCache cache = new ActiveNotificationCache(1L << 32);
+        cache.reset(null);
+        long version = cache.getVersion();
+        cache.remove("missing");
+
+        ActiveNotificationCache.Snapshot delta = cache.changesSince(context, version);
+        assertFalse(delta.reset);
+        assertEquals(version, delta.version);
+        assertTrue(delta.notifications.isEmpty());
+    }
+
+    @Test
+    public void versionFromAnEarlierProcessResets() {
+        ActiveNotificationCache earlier = new ActiveNotificationCache(1L << 32);
+        earlier.reset(null);
+        for (int i = 0; i < 5; i++) {
+            earlier.reset(null);
+        }
+
+        // A later process has advanced past the old version with fewer changes of its own
+        ActiveNotificationCache later = new ActiveNotificationCache(7L << 32);
+        later.reset(null);
+        assertTrue(later.changesSince(context, earlier.getVersion()).reset);
+
+        ActiveNotificationCache lowerEpoch = new ActiveNotificationCache(1L << 32);
+        lowerEpoch.reset(null);
+        assertTrue(lowerEpoch.changesSince(context, new ActiveNotificationCache(3L << 32).getVersion()).reset);
+    }
+
+    @Test
+    public void defaultEpochsStayExactInJavaScript() {
+        for (int i = 0; i < 100; i++) {
+            ActiveNotificationCache cache = new ActiveNotificationCache();
+            cache.reset(null);
+            assertTrue(cache.getVersion() > 1L << 32);
+            assertTrue(cache.getVersion() < 1L << 53);
+        }
+    }
+}
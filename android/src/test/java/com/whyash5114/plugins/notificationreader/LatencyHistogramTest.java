@@ -0,0 +1,72 @@
+package com.whyash5114.plugins.notificationreader;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketUpperBounds() {
+        // { sample in nanoseconds, upper bound of its bucket in microseconds }
+        long[][] cases = {
+            { 0, 1 },
+            { 999, 1 },
+            { 1_000, 2 },
+            { 1_999, 2 },
+            { 2_000, 4 },
+            { 3_999, 4 },
+            { 4_000, 8 },
+            { 1_000_000, 1024 },
+            { 1L << 40, 1L << 27 },
+            { Long.MAX_VALUE, 1L << 27 }
+        };
+        for (long[] c : cases) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(c[0]);
+            assertEquals("sample " + c[0] + "ns", c[1], histogram.percentileMicros(1));
+        }
+    }
+
+    @Test
+    public void negativeSamplesAreIgnored() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentileMicros(0.5));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentileMicros(0.5));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(1_000);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(100_000);
+        }
+        histogram.record(10_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(2, histogram.percentileMicros(0.5));
+        assertEquals(2, histogram.percentileMicros(0.9));
+        assertEquals(128, histogram.percentileMicros(0.91));
+        assertEquals(128, histogram.percentileMicros(0.99));
+        assertEquals(16384, histogram.percentileMicros(1));
+    }
+
+    @Test
+    public void resetClearsSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentileMicros(1));
+
+        histogram.record(1_000);
+        assertEquals(1, histogram.getCount());
+        assertEquals(2, histogram.percentileMicros(1));
+    }
+}
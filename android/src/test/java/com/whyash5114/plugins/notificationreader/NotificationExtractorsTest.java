@@ -0,0 +1,162 @@
+package com.whyash5114.plugins.notificationreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import com.whyash5114.plugins.notificationreader.db.NotificationExtractionEntity;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationExtractorsTest {
+
+    @Test
+    public void otp() {
+        // { text, expected codes separated by spaces }
+        String[][] cases = {
+            { "Your OTP is 123456", "123456" },
+            { "Use code 4821 to log in", "4821" },
+            { "123 456 is your verification code", "123456" },
+            { "123-456 is your login code", "123456" },
+            { "G-583920 is your Google verification code.", "583920" },
+            { "Your one-time passcode: 90210345", "90210345" },
+            { "PIN: 0042", "0042" },
+            // Near misses
+            { "Your order 123456 has shipped", "" },
+            { "Barcode 123456 scanned", "" },
+            { "Verification id 1234567890123", "" },
+            { "Your code expires at 12:30", "" },
+            { "Code 3.14159 is not a code", "" },
+            { "PIN reset on 12/05/2024", "" },
+            { "Payment code 1,500", "" },
+            { "Code 123", "" }
+        };
+        for (String[] c : cases) {
+            assertEquals(c[0], c[1], values(NotificationExtractors.TYPE_OTP, c[0]));
+        }
+    }
+
+    @Test
+    public void amounts() {
+        // { text, expected currency:amount pairs separated by spaces }
+        String[][] cases = {
+            { "Paid $12.50 to Alice", "$:12.5" },
+            { "€1.234,56 debited from your account", "€:1234.56" },
+            { "Refund of 1 234,50 EUR issued", "EUR:1234.5" },
+            { "Transfer of USD 99 received", "USD:99.0" },
+            { "Total 45 usd", "USD:45.0" },
+            { "¥5000 charged", "¥:5000.0" },
+            { "₹499.00 paid to the merchant", "₹:499.0" },
+            { "Rs. 2,500 credited", "RS:2500.0" },
+            { "Rs. 1,25,000 credited", "RS:125000.0" },
+            { "INR 12,34,567.89 debited", "INR:1234567.89" },
+            { "1.000 EUR", "EUR:1000.0" },
+            { "£12,50 tip", "£:12.5" },
+            { "$1,000,000.99 won", "$:1000000.99" },
+            { "Paid $5 and $7.25", "$:5.0 $:7.25" },
+            // Near misses
+            { "Meet at 5 tomorrow", "" },
+            { "Order #1234 shipped", "" },
+            { "abc$5", "" },
+            { "5 EUROS", "" },
+            { "Version 2.0.1 released", "" }
+        };
+        for (String[] c : cases) {
+            assertEquals(c[0], c[1], values(NotificationExtractors.TYPE_AMOUNT, c[0]));
+        }
+    }
+
+    @Test
+    public void urls() {
+        String[][] cases = {
+            { "Track it at https://example.com/t?id=1.", "https://example.com/t?id=1" },
+            { "See www.example.org, then reply", "www.example.org" },
+            { "HTTP://EXAMPLE.COM/a and http://b.example/x!", "HTTP://EXAMPLE.COM/a http://b.example/x" },
+            { "(https://example.com/paren)", "https://example.com/paren" },
+            // Near misses
+            { "example.com has no scheme", "" },
+            { "ftp://files.example.com", "" }
+        };
+        for (String[] c : cases) {
+            assertEquals(c[0], c[1], values(NotificationExtractors.TYPE_URL, c[0]));
+        }
+    }
+
+    @Test
+    public void phoneNumbers() {
+        String[][] cases = {
+            { "Call +1 (555) 123-4567 now", "+15551234567" },
+            { "Call 020 7946 0958 for help", "02079460958" },
+            { "Reach us at 555.123.4567", "5551234567" },
+            { "+44 20 7946 0958", "+442079460958" },
+            // Near misses
+            { "Order 1234567 confirmed", "" },
+            { "Due 2024-01-15", "" },
+            { "Reference AB1234567890", "" },
+            { "Account 1234567890123456", "" }
+        };
+        for (String[] c : cases) {
+            assertEquals(c[0], c[1], values(NotificationExtractors.TYPE_PHONE, c[0]));
+        }
+    }
+
+    @Test
+    public void titleTextAndBigTextAreSearchedOnce() {
+        NotificationEntity entity = new NotificationEntity();
+        entity.title = "Bank";
+        entity.text = "Your OTP is 482913";
+        entity.bigText = CompressedText.of("Your OTP is 482913. Visit https://bank.example for help.");
+
+        List<NotificationExtractionEntity> extractions = NotificationExtractors.extract(entity);
+        assertEquals("482913", values(extractions, NotificationExtractors.TYPE_OTP));
+        assertEquals("https://bank.example", values(extractions, NotificationExtractors.TYPE_URL));
+        // Cached on the entity
+        assertTrue(extractions == NotificationExtractors.extract(entity));
+    }
+
+    @Test
+    public void hasAndAmountBetween() {
+        NotificationEntity paid = entity("Paid $12.50 and €40");
+        assertTrue(NotificationExtractors.hasAmountBetween(paid, 10, 20));
+        assertTrue(NotificationExtractors.hasAmountBetween(paid, 12.5, 12.5));
+        assertTrue(NotificationExtractors.hasAmountBetween(paid, 30, 50));
+        assertFalse(NotificationExtractors.hasAmountBetween(paid, 13, 39.99));
+        assertFalse(NotificationExtractors.has(paid, NotificationExtractors.TYPE_OTP));
+
+        NotificationEntity plain = entity("Nothing to see here");
+        assertFalse(NotificationExtractors.hasAmountBetween(plain, 0, Double.MAX_VALUE));
+        assertFalse(NotificationExtractors.has(plain, NotificationExtractors.TYPE_URL));
+        assertTrue(NotificationExtractors.has(entity("Your code is 1234"), NotificationExtractors.TYPE_OTP));
+    }
+
+    private static NotificationEntity entity(String text) {
+        NotificationEntity entity = new NotificationEntity();
+        entity.text = text;
+        return entity;
+    }
+
+    private static String values(String type, String text) {
+        return values(NotificationExtractors.extract(entity(text)), type);
+    }
+
+    /**
+     * @return The values of the given type, with the amount after the currency, separated by spaces
+     */
+    private static String values(List<NotificationExtractionEntity> extractions, String type) {
+        List<String> values = new ArrayList<>();
+        for (NotificationExtractionEntity extraction : extractions) {
+            if (extraction.type.equals(type)) {
+                values.add(extraction.numericValue != null ? extraction.value + ":" + extraction.numericValue : extraction.value);
+            }
+        }
+        return String.join(" ", values);
+    }
+}
@@ -0,0 +1,123 @@
+package com.whyash5114.plugins.notificationreader;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Runs the same filters through the SQL conditions and through matches(), which the archive,
+ * the memory store and live subscriptions use, and expects the same notifications from both.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationFilterQueryTest {
+
+    private static final String[][] NOTIFICATIONS = {
+        // { title, text, packageName }
+        { "Sale", "50% off everything", "com.example.shop" },
+        { "Sale", "5000 off", "com.example.shop" },
+        { "Files", "file_name.txt uploaded", "com.example.drive" },
+        { "Files", "filexname.txt uploaded", "com.example.drive" },
+        { "Path", "C:\\temp\\new", "com.example.drive" },
+        { "HELLO World", "Hello there", "com.example.chat" },
+        { "héllo", "Ünïcode ÉCLAIR", "com.example.chat" },
+        { null, null, "com.example.chat" }
+    };
+
+    private NotificationDatabase db;
+    private RoomNotificationStore store;
+    private final List<NotificationEntity> entities = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(context, NotificationDatabase.class).allowMainThreadQueries().build();
+        store = new RoomNotificationStore(db);
+        for (int i = 0; i < NOTIFICATIONS.length; i++) {
+            NotificationEntity entity = new NotificationEntity();
+            entity.title = NOTIFICATIONS[i][0];
+            entity.text = NOTIFICATIONS[i][1];
+            entity.packageName = NOTIFICATIONS[i][2];
+            entity.appName = NOTIFICATIONS[i][2];
+            entity.postTime = 1_000 + i;
+            entities.add(entity);
+        }
+        store.insertAll(entities);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void textFiltersMatchLiterally() throws Exception {
+        assertMatches(new JSONObject().put("textContains", "%"), 0);
+        assertMatches(new JSONObject().put("textContains", "50%"), 0);
+        assertMatches(new JSONObject().put("textContains", "_"), 2);
+        assertMatches(new JSONObject().put("textContains", "file_n"), 2);
+        assertMatches(new JSONObject().put("textContains", "\\"), 4);
+        assertMatches(new JSONObject().put("textContains", "\\temp"), 4);
+        assertMatches(new JSONObject().put("textContainsInsensitive", "FILE_"), 2);
+        assertMatches(new JSONObject().put("textContainsInsensitive", "%OFF"), 0);
+        assertMatches(new JSONObject().put("titleContainsInsensitive", "_"));
+    }
+
+    @Test
+    public void textFiltersIgnoreAsciiCase() throws Exception {
+        assertMatches(new JSONObject().put("titleContains", "hello"), 5);
+        assertMatches(new JSONObject().put("titleContainsInsensitive", "HeLLo"), 5);
+        assertMatches(new JSONObject().put("textContains", "HELLO"), 5);
+        assertMatches(new JSONObject().put("textContains", "ÉCLAIR"), 6);
+    }
+
+    @Test
+    public void otherFilters() throws Exception {
+        assertMatches(new JSONObject().put("packageName", "com.example.drive"), 2, 3, 4);
+        assertMatches(new JSONObject().put("appNames", new JSONArray().put("com.example.shop").put("com.example.chat")), 0, 1, 5, 6, 7);
+        assertMatches(new JSONObject().put("afterTimestamp", 1_005).put("beforeTimestamp", 1_007), 6);
+        assertMatches(new JSONObject().put("packageName", "com.example.shop").put("textContains", "off"), 0, 1);
+        assertMatches(new JSONObject(), 0, 1, 2, 3, 4, 5, 6, 7);
+    }
+
+    /**
+     * Asserts that the filter selects exactly the given notifications, both in SQL and in memory.
+     */
+    private void assertMatches(JSONObject filter, int... expected) throws Exception {
+        NotificationFilterQuery query = new NotificationFilterQuery(filter, null);
+        Set<String> expectedIds = new HashSet<>();
+        for (int index : expected) {
+            expectedIds.add(entities.get(index).id);
+        }
+
+        Set<String> sqlIds = new HashSet<>();
+        for (NotificationEntity entity : store.query(query, null, 100)) {
+            sqlIds.add(entity.id);
+        }
+        Set<String> memoryIds = new HashSet<>();
+        for (NotificationEntity entity : entities) {
+            if (query.matches(entity)) {
+                memoryIds.add(entity.id);
+            }
+        }
+
+        assertEquals("SQL " + filter, expectedIds, sqlIds);
+        assertEquals("matches() " + filter, expectedIds, memoryIds);
+    }
+}
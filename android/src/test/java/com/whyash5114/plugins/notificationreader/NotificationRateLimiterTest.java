@@ -0,0 +1,110 @@
+package com.whyash5114.plugins.notificationreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NotificationRateLimiterTest {
+
+    private static final String APP = "com.example.app";
+    private static final String OTHER_APP = "com.example.other";
+
+    private long now = 1_000_000;
+    private final NotificationRateLimiter limiter = new NotificationRateLimiter(() -> now);
+
+    @Test
+    public void burstThenDrop() {
+        limiter.setLimit(60, 3);
+        assertEquals(3, acquireAll(APP, 10));
+        assertEquals(7, limiter.getDropped(APP));
+    }
+
+    @Test
+    public void refillsAtTheConfiguredRate() {
+        // One token per second
+        limiter.setLimit(60, 3);
+        assertEquals(3, acquireAll(APP, 3));
+        assertFalse(limiter.acquire(APP));
+
+        now += 999;
+        assertFalse(limiter.acquire(APP));
+        now += 1;
+        assertTrue(limiter.acquire(APP));
+        assertFalse(limiter.acquire(APP));
+
+        now += 2_000;
+        assertEquals(2, acquireAll(APP, 5));
+    }
+
+    @Test
+    public void partialTokensAccumulate() {
+        // One token per minute, refilled a third at a time
+        limiter.setLimit(1, 1);
+        assertTrue(limiter.acquire(APP));
+        for (int i = 0; i < 2; i++) {
+            now += 20_000;
+            assertFalse(limiter.acquire(APP));
+        }
+        now += 20_000;
+        assertTrue(limiter.acquire(APP));
+    }
+
+    @Test
+    public void refillIsCappedAtTheBurst() {
+        limiter.setLimit(60, 3);
+        assertEquals(3, acquireAll(APP, 3));
+        now += 3_600_000;
+        assertEquals(3, acquireAll(APP, 10));
+    }
+
+    @Test
+    public void packagesHaveTheirOwnBuckets() {
+        limiter.setLimit(60, 2);
+        assertEquals(2, acquireAll(APP, 5));
+        assertEquals(2, acquireAll(OTHER_APP, 2));
+        assertEquals(3, limiter.getDropped(APP));
+        assertEquals(0, limiter.getDropped(OTHER_APP));
+    }
+
+    @Test
+    public void changedLimitRestartsBucketsFull() {
+        limiter.setLimit(60, 2);
+        assertEquals(2, acquireAll(APP, 2));
+
+        // Applying the same limit again keeps the buckets
+        limiter.setLimit(60, 2);
+        assertFalse(limiter.acquire(APP));
+
+        limiter.setLimit(60, 5);
+        assertEquals(5, acquireAll(APP, 10));
+
+        limiter.setLimit(120, 5);
+        assertEquals(5, acquireAll(APP, 10));
+    }
+
+    @Test
+    public void zeroRateDisablesTheLimit() {
+        limiter.setLimit(0, 1);
+        assertEquals(1_000, acquireAll(APP, 1_000));
+        assertEquals(0, limiter.getDropped(APP));
+
+        limiter.setLimit(60, 1);
+        assertTrue(limiter.acquire(APP));
+        assertFalse(limiter.acquire(APP));
+    }
+
+    /**
+     * @return How many of the attempts got a token
+     */
+    private int acquireAll(String packageName, int attempts) {
+        int acquired = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limiter.acquire(packageName)) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+}
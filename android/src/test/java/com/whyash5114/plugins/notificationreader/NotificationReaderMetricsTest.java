@@ -0,0 +1,98 @@
+package com.whyash5114.plugins.notificationreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import com.getcapacitor.JSObject;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationReaderMetricsTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        configure(true);
+        NotificationReaderMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        configure(false);
+        NotificationReaderMetrics.reset();
+    }
+
+    @Test
+    public void countersAndStagesAreReported() throws Exception {
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.QUERIES);
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.QUERIES);
+        NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.ROWS_RETURNED, 25);
+        long start = NotificationReaderMetrics.start();
+        assertTrue(start != 0);
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.QUERY, start);
+
+        JSObject snapshot = NotificationReaderMetrics.snapshot();
+        assertTrue(snapshot.getBoolean("enabled"));
+        JSONObject counters = snapshot.getJSONObject("counters");
+        assertEquals(2, counters.getLong("queries"));
+        assertEquals(25, counters.getLong("rowsReturned"));
+        assertEquals(0, counters.getLong("notificationsStored"));
+        JSONObject stages = snapshot.getJSONObject("stages");
+        assertEquals(1, stages.getJSONObject("query").getLong("count"));
+        assertEquals(0, stages.getJSONObject("dbInsert").getLong("count"));
+    }
+
+    @Test
+    public void compressionRatio() throws Exception {
+        assertEquals(0, NotificationReaderMetrics.snapshot().getDouble("compressionRatio"), 0);
+        NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.COMPRESSION_INPUT_BYTES, 1000);
+        NotificationReaderMetrics.add(NotificationReaderMetrics.Counter.COMPRESSION_OUTPUT_BYTES, 250);
+        assertEquals(4, NotificationReaderMetrics.snapshot().getDouble("compressionRatio"), 0.0001);
+    }
+
+    @Test
+    public void resetClearsCountersAndStages() throws Exception {
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.NOTIFICATIONS_POSTED);
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.DB_INSERT, NotificationReaderMetrics.start());
+
+        NotificationReaderMetrics.reset();
+
+        JSObject snapshot = NotificationReaderMetrics.snapshot();
+        assertEquals(0, snapshot.getJSONObject("counters").getLong("notificationsPosted"));
+        assertEquals(0, snapshot.getJSONObject("stages").getJSONObject("dbInsert").getLong("count"));
+        assertTrue(snapshot.getLong("sinceResetMs") >= 0);
+    }
+
+    @Test
+    public void nothingIsRecordedWhileDisabled() throws Exception {
+        configure(false);
+
+        assertEquals(0, NotificationReaderMetrics.start());
+        NotificationReaderMetrics.record(NotificationReaderMetrics.Stage.QUERY, NotificationReaderMetrics.start());
+        NotificationReaderMetrics.increment(NotificationReaderMetrics.Counter.QUERIES);
+
+        JSObject snapshot = NotificationReaderMetrics.snapshot();
+        assertFalse(snapshot.getBoolean("enabled"));
+        assertEquals(0, snapshot.getJSONObject("counters").getLong("queries"));
+        assertEquals(0, snapshot.getJSONObject("stages").getJSONObject("query").getLong("count"));
+    }
+
+    private void configure(boolean enabled) {
+        NotificationReaderConfig config = new NotificationReaderConfig(context);
+        config.setMetricsEnabled(enabled);
+        config.setMetricsDumpIntervalSeconds(0);
+        NotificationReaderMetrics.configure(context, config);
+    }
+}
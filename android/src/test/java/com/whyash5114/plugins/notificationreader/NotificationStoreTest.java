@@ -0,0 +1,135 @@
+package com.whyash5114.plugins.notificationreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Runs the same contract checks against every NotificationStore backend: the Room database and
+ * the in-memory ring buffer.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationStoreTest {
+
+    private static final long START_TIME = 1_600_000_000_000L;
+
+    @Test
+    public void databaseStoreConformance() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        NotificationDatabase db = Room.inMemoryDatabaseBuilder(context, NotificationDatabase.class).allowMainThreadQueries().build();
+        try {
+            assertConformance("database", new RoomNotificationStore(db));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void memoryStoreConformance() throws Exception {
+        assertConformance("memory", new MemoryNotificationStore(100));
+    }
+
+    @Test
+    public void memoryStoreDropsOldestWhenFull() throws Exception {
+        MemoryNotificationStore ring = new MemoryNotificationStore(3);
+        List<NotificationEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entities.add(entity(START_TIME + i * 1000L, "com.example.app"));
+        }
+        ring.insertAll(entities);
+
+        assertEquals(3, ring.count());
+        assertEquals(Arrays.asList(4000L, 3000L, 2000L), offsets(ring.query(new NotificationFilterQuery(null, null), null, 10)));
+    }
+
+    private static void assertConformance(String backend, NotificationStore store) throws Exception {
+        List<NotificationEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            NotificationEntity entity = entity(START_TIME + i, i % 2 == 0 ? "com.example.a" : "com.example.b");
+            entity.notificationKey = "key" + i;
+            entities.add(entity);
+        }
+        store.insert(entities.get(0));
+        store.insertAll(entities.subList(1, 5));
+        NotificationFilterQuery all = new NotificationFilterQuery(null, null);
+
+        assertEquals(backend, 5, store.count());
+        assertNotNull(backend, store.sizeBytes());
+        assertEquals(backend, Arrays.asList(4L, 3L, 2L, 1L, 0L), offsets(store.query(all, null, 10)));
+        assertEquals(backend, Arrays.asList(4L, 3L), offsets(store.query(all, null, 2)));
+        assertEquals(backend, Arrays.asList(2L, 1L, 0L), offsets(store.query(all, START_TIME + 3, 10)));
+
+        NotificationFilterQuery packageA = new NotificationFilterQuery(new JSONObject().put("packageName", "com.example.a"), null);
+        assertEquals(backend, Arrays.asList(4L, 2L, 0L), offsets(store.query(packageA, null, 10)));
+        assertEquals(
+            backend,
+            new HashSet<>(Arrays.asList("com.example.a", "com.example.b")),
+            new HashSet<>(store.getStoredPackageNames())
+        );
+        assertEquals(backend, Arrays.asList("key1:" + (START_TIME + 1)), store.getStoredPostings(Arrays.asList("key1", "missing")));
+
+        // Storing the same id replaces the notification
+        NotificationEntity replacement = entity(START_TIME + 4, "com.example.a");
+        replacement.id = entities.get(4).id;
+        replacement.title = "Replaced";
+        store.insert(replacement);
+        assertEquals(backend, 5, store.count());
+        assertEquals(backend, "Replaced", store.query(all, null, 1).get(0).title);
+
+        assertEquals(backend, 1, store.deleteByIds(Arrays.asList(entities.get(2).id, "missing")));
+        assertEquals(backend, Arrays.asList(4L, 3L, 1L, 0L), offsets(store.query(all, null, 10)));
+
+        NotificationFilterQuery packageB = new NotificationFilterQuery(new JSONObject().put("packageName", "com.example.b"), null);
+        long[] deleted = store.deleteMatching(packageB, 1);
+        assertEquals(backend, 1, deleted[0]);
+        assertTrue(backend, deleted[1] > 0);
+        assertEquals(backend, 1, store.deleteMatching(packageB, 10)[0]);
+        assertEquals(backend, 0, store.deleteMatching(packageB, 10)[0]);
+
+        assertEquals(backend, 1, store.evictOldest(1));
+        assertEquals(backend, Arrays.asList(4L), offsets(store.query(all, null, 10)));
+
+        store.deleteAll();
+        assertEquals(backend, 0, store.count());
+        assertEquals(backend, 0, store.evictOldest(10));
+        Long emptySize = store.sizeBytes();
+        assertTrue(backend, emptySize == null || emptySize == 0);
+    }
+
+    private static NotificationEntity entity(long postTime, String packageName) {
+        NotificationEntity entity = new NotificationEntity();
+        entity.packageName = packageName;
+        entity.appName = "App " + packageName;
+        entity.title = "Title " + postTime;
+        entity.text = "Text of the notification posted at " + postTime;
+        entity.postTime = postTime;
+        return entity;
+    }
+
+    /**
+     * @return Post times relative to START_TIME, in the order returned
+     */
+    private static List<Long> offsets(List<NotificationEntity> entities) {
+        List<Long> offsets = new ArrayList<>();
+        for (NotificationEntity entity : entities) {
+            offsets.add(entity.postTime - START_TIME);
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,167 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal repeatable benchmark harness for the Robolectric benchmark suites.
+ * <p>
+ * JMH cannot run inside Robolectric's sandboxed class loader, so this measures wall-clock
+ * time per operation after a warmup phase and writes one JSON file per suite to the
+ * directory given by the "benchmark.outputDir" system property.
+ */
+final class BenchmarkRunner {
+
+    /** Operation under measurement. The returned value is consumed to prevent dead-code elimination. */
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    // Written by every op so the JIT cannot discard results
+    static volatile Object blackhole;
+
+    private final String suite;
+    private final List<Result> results = new ArrayList<>();
+
+    BenchmarkRunner(String suite) {
+        this.suite = suite;
+    }
+
+    /**
+     * Parses the "benchmark.rows" system property, a comma separated list of table sizes.
+     */
+    static int[] rowCounts() {
+        String value = System.getProperty("benchmark.rows", "10000,100000,1000000");
+        return Arrays.stream(value.split(",")).map(String::trim).filter(v -> !v.isEmpty()).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Runs op in warmup and measured iterations, each iteration executing it opsPerIteration times.
+     *
+     * @return The recorded result
+     */
+    Result measure(String name, Map<String, Object> params, int warmupIterations, int iterations, int opsPerIteration, Op op)
+        throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            for (int j = 0; j < opsPerIteration; j++) {
+                blackhole = op.run();
+            }
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            for (int j = 0; j < opsPerIteration; j++) {
+                blackhole = op.run();
+            }
+            samples[i] = (System.nanoTime() - start) / opsPerIteration;
+        }
+        Result result = new Result(name, params, opsPerIteration, samples);
+        results.add(result);
+        System.out.println("[benchmark] " + suite + "." + name + " " + params + " mean=" + result.meanNs + "ns p99=" + result.percentile(0.99) + "ns");
+        return result;
+    }
+
+    /**
+     * Records a single timed operation, for setup steps that are too expensive to repeat.
+     */
+    Result measureOnce(String name, Map<String, Object> params, Op op) throws Exception {
+        return measure(name, params, 0, 1, 1, op);
+    }
+
+    /**
+     * Records samples collected outside of measure(), e.g. per-event latencies of a replay.
+     */
+    Result record(String name, Map<String, Object> params, long[] samples) {
+        Result result = new Result(name, params, 1, samples);
+        results.add(result);
+        System.out.println("[benchmark] " + suite + "." + name + " " + params + " mean=" + result.meanNs + "ns p99=" + result.percentile(0.99) + "ns");
+        return result;
+    }
+
+    static Map<String, Object> params(Object... keyValues) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            params.put(String.valueOf(keyValues[i]), keyValues[i + 1]);
+        }
+        return params;
+    }
+
+    /**
+     * Writes all results of this suite as {@code <outputDir>/<suite>.json}.
+     */
+    void writeResults() throws IOException {
+        File dir = new File(System.getProperty("benchmark.outputDir", "build/benchmark-results"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (Writer writer = new FileWriter(new File(dir, suite + ".json"))) {
+            writer.write("{\"suite\":" + quote(suite) + ",\"timestamp\":" + System.currentTimeMillis() + ",\"results\":[");
+            for (int i = 0; i < results.size(); i++) {
+                if (i > 0) writer.write(",");
+                writer.write(results.get(i).toJson());
+            }
+            writer.write("]}\n");
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    static final class Result {
+
+        final String name;
+        final Map<String, Object> params;
+        final int opsPerIteration;
+        final long[] sortedSamples;
+        final long meanNs;
+
+        Result(String name, Map<String, Object> params, int opsPerIteration, long[] samples) {
+            this.name = name;
+            this.params = params;
+            this.opsPerIteration = opsPerIteration;
+            this.sortedSamples = samples.clone();
+            Arrays.sort(sortedSamples);
+            long sum = 0;
+            for (long sample : samples) {
+                sum += sample;
+            }
+            this.meanNs = samples.length > 0 ? sum / samples.length : 0;
+        }
+
+        long percentile(double p) {
+            if (sortedSamples.length == 0) return 0;
+            int index = (int) Math.ceil(p * sortedSamples.length) - 1;
+            return sortedSamples[Math.max(0, Math.min(index, sortedSamples.length - 1))];
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder("{\"name\":").append(quote(name)).append(",\"params\":{");
+            int i = 0;
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                if (i++ > 0) json.append(",");
+                json.append(quote(param.getKey())).append(":");
+                Object value = param.getValue();
+                json.append(value instanceof Number || value instanceof Boolean ? value.toString() : quote(String.valueOf(value)));
+            }
+            json
+                .append("},\"iterations\":").append(sortedSamples.length)
+                .append(",\"opsPerIteration\":").append(opsPerIteration)
+                .append(",\"meanNs\":").append(meanNs)
+                .append(",\"minNs\":").append(sortedSamples.length > 0 ? sortedSamples[0] : 0)
+                .append(",\"p50Ns\":").append(percentile(0.5))
+                .append(",\"p90Ns\":").append(percentile(0.9))
+                .append(",\"p99Ns\":").append(percentile(0.99))
+                .append(",\"maxNs\":").append(sortedSamples.length > 0 ? sortedSamples[sortedSamples.length - 1] : 0)
+                .append("}");
+            return json.toString();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import static com.whyash5114.plugins.notificationreader.benchmark.BenchmarkRunner.params;
+
+import android.content.Context;
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+import com.whyash5114.plugins.notificationreader.db.NotificationDao;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures DAO insert, query and eviction against file-backed databases of
+ * increasing size (set with -PbenchmarkRows, default 10k, 100k and 1M rows).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DaoBenchmark {
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final int PACKAGE_COUNT = 50;
+    private static final long START_TIME = 1_600_000_000_000L;
+
+    @Test
+    public void daoOperations() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        SyntheticNotifications fixtures = new SyntheticNotifications(context);
+        BenchmarkRunner runner = new BenchmarkRunner("dao");
+
+        for (int rows : BenchmarkRunner.rowCounts()) {
+            String name = "benchmark-" + rows + ".db";
+            context.deleteDatabase(name);
+            NotificationDatabase db = Room.databaseBuilder(context, NotificationDatabase.class, name).allowMainThreadQueries().build();
+            NotificationDao dao = db.notificationDao();
+            Map<String, Object> params = params("rows", rows);
+
+            runner.measureOnce("populate", params, () -> {
+                for (int inserted = 0; inserted < rows; inserted += BATCH_SIZE) {
+                    int count = Math.min(BATCH_SIZE, rows - inserted);
+                    dao.insertAll(fixtures.entities(count, START_TIME + inserted * 1000L, PACKAGE_COUNT, false));
+                }
+                return rows;
+            });
+
+            long[] nextTime = { START_TIME + rows * 1000L };
+            runner.measure("insert", params, 50, 200, 1, () -> {
+                dao.insert(fixtures.entity(nextTime[0]++, "com.example.app0", true));
+                return null;
+            });
+
+            runner.measure("firstPage", params, 20, 100, 1, () -> dao.getNotifications(10));
+            runner.measure("cursorPage", params, 20, 100, 1, () -> dao.getNotifications(START_TIME + (rows / 2) * 1000L, 10));
+
+            SimpleSQLiteQuery filtered = new SimpleSQLiteQuery(
+                "SELECT * FROM notifications WHERE packageName = ? ORDER BY postTime DESC LIMIT ?",
+                new Object[] { "com.example.app7", 10 }
+            );
+            runner.measure("filteredPage", params, 5, 30, 1, () -> dao.getNotifications(filtered));
+
+            SimpleSQLiteQuery textSearch = new SimpleSQLiteQuery(
+                "SELECT * FROM notifications WHERE LOWER(text) LIKE LOWER(?) ORDER BY postTime DESC LIMIT ?",
+                new Object[] { "%zz%", 10 }
+            );
+            runner.measure("textSearchPage", params, 2, 10, 1, () -> dao.getNotifications(textSearch));
+
+            runner.measure("totalCount", params, 5, 30, 1, dao::getTotalCount);
+            runner.measure("databaseSize", params, 2, 10, 1, dao::getDatabaseSizeBytes);
+
+            // One eviction step of the storage-limit loop: delete 10 oldest, then re-measure size
+            runner.measure("evictionStep", params, 5, 50, 1, () -> {
+                dao.deleteOldestNotifications(10);
+                return dao.getDatabaseSizeBytes();
+            });
+            runner.measure("deleteOldest", params, 5, 100, 1, () -> {
+                dao.deleteOldestNotifications(10);
+                return null;
+            });
+
+            db.close();
+            context.deleteDatabase(name);
+        }
+
+        runner.writeResults();
+    }
+}
@@ -0,0 +1,46 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import static com.whyash5114.plugins.notificationreader.benchmark.BenchmarkRunner.params;
+
+import android.content.Context;
+import android.service.notification.StatusBarNotification;
+import androidx.test.core.app.ApplicationProvider;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Measures NotificationEntity construction from synthetic StatusBarNotifications,
+ * including icon rasterisation and encoding.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class EntityConstructionBenchmark {
+
+    @Test
+    public void entityConstruction() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        SyntheticNotifications fixtures = new SyntheticNotifications(context);
+        BenchmarkRunner runner = new BenchmarkRunner("entity-construction");
+
+        StatusBarNotification plain = fixtures.defaultNotification(1);
+        StatusBarNotification bigText = fixtures.bigTextNotification(2);
+        StatusBarNotification bigPicture = fixtures.bigPictureNotification(3);
+        StatusBarNotification messaging = fixtures.messagingNotification(4, 50);
+
+        runner.measure("default", params("style", "default"), 20, 50, 10, () -> new NotificationEntity(context, plain));
+        runner.measure("bigText", params("style", "BigTextStyle"), 20, 50, 10, () -> new NotificationEntity(context, bigText));
+        runner.measure("bigPicture", params("style", "BigPictureStyle", "pictureSize", 512), 5, 20, 2, () ->
+            new NotificationEntity(context, bigPicture)
+        );
+        runner.measure("messaging", params("style", "MessagingStyle", "messages", 50), 20, 50, 10, () ->
+            new NotificationEntity(context, messaging)
+        );
+
+        runner.writeResults();
+    }
+}
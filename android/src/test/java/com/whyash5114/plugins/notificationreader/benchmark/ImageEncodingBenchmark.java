@@ -0,0 +1,33 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import static com.whyash5114.plugins.notificationreader.benchmark.BenchmarkRunner.params;
+
+import android.graphics.Bitmap;
+import com.whyash5114.plugins.notificationreader.ImageEncoder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Measures bitmap PNG + base64 encoding at typical icon and picture sizes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ImageEncodingBenchmark {
+
+    @Test
+    public void bitmapToBase64() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner("image-encoding");
+
+        for (int size : new int[] { 48, 96, 192, 512 }) {
+            Bitmap bitmap = SyntheticNotifications.bitmap(size);
+            int ops = size >= 512 ? 2 : 20;
+            runner.measure("bitmapToBase64", params("size", size), 10, 30, ops, () -> ImageEncoder.bitmapToBase64(bitmap));
+        }
+
+        runner.writeResults();
+    }
+}
@@ -0,0 +1,212 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import static com.whyash5114.plugins.notificationreader.benchmark.BenchmarkRunner.params;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.service.notification.StatusBarNotification;
+import android.util.Log;
+import androidx.test.core.app.ApplicationProvider;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.NotificationListenerService;
+import com.whyash5114.plugins.notificationreader.NotificationPartitions;
+import com.whyash5114.plugins.notificationreader.NotificationReaderConfig;
+import com.whyash5114.plugins.notificationreader.NotificationReaderMetrics;
+import com.whyash5114.plugins.notificationreader.NotificationStore;
+import com.whyash5114.plugins.notificationreader.NotificationTrace;
+import com.whyash5114.plugins.notificationreader.PluginExecutors;
+import com.whyash5114.plugins.notificationreader.RoomNotificationStore;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadows.ShadowLog;
+
+/**
+ * Replays a notification trace through the listener service's ingestion path
+ * (onNotificationPosted, entity construction, insert, storage check, dispatch) and reports
+ * throughput, per-notification latency percentiles and database growth.
+ * <p>
+ * Options (system properties, set through gradle -P):
+ * <ul>
+ *     <li>replay.trace (-PreplayTrace): trace recorded with startTraceRecording; a synthetic storm is used when unset</li>
+ *     <li>replay.rateMultiplier (-PreplayRateMultiplier): speed-up over recorded timing, 0 for as fast as possible</li>
+ *     <li>replay.threads (-PreplayThreads): threads delivering callbacks concurrently</li>
+ *     <li>replay.storageLimitMb (-PreplayStorageLimitMb): storage limit that forces eviction during the replay</li>
+ * </ul>
+ * While replaying, the storage limit is also enforced from the bulk lane as the initial backfill
+ * does, so concurrent eviction loops are exercised. The run fails if a background task fails or
+ * the final state breaks the storage invariants.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class IngestionReplayBenchmark {
+
+    private static final int SYNTHETIC_EVENTS = 3_000;
+    private static final int SYNTHETIC_PACKAGES = 40;
+    private static final int GROWTH_SAMPLES = 20;
+    // Rows deleted per step of the eviction loop
+    private static final int EVICTION_BATCH = 10;
+
+    @Test
+    public void replay() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        new SyntheticNotifications(context);
+        BenchmarkRunner runner = new BenchmarkRunner("ingestion-replay");
+
+        String tracePath = System.getProperty("replay.trace", "");
+        File trace = !tracePath.isEmpty()
+            ? new File(tracePath)
+            : TraceReplay.synthesize(new File(context.getCacheDir(), "synthetic" + NotificationTrace.FILE_EXTENSION), SYNTHETIC_EVENTS, SYNTHETIC_PACKAGES);
+        double rateMultiplier = Double.parseDouble(System.getProperty("replay.rateMultiplier", "0"));
+        int threads = Math.max(1, Integer.parseInt(System.getProperty("replay.threads", "2")));
+        float storageLimitMb = Float.parseFloat(System.getProperty("replay.storageLimitMb", "1"));
+
+        List<NotificationTrace.Event> events = TraceReplay.read(trace);
+        TraceReplay replay = new TraceReplay(context);
+        Map<String, Object> params = params(
+            "trace", tracePath.isEmpty() ? "synthetic" : trace.getName(),
+            "events", events.size(),
+            "rateMultiplier", rateMultiplier,
+            "threads", threads,
+            "storageLimitMb", storageLimitMb
+        );
+
+        context.deleteDatabase("notification_database");
+        NotificationReaderConfig config = new NotificationReaderConfig(context);
+        config.setStorageLimit(storageLimitMb);
+        config.setMetricsEnabled(true);
+        NotificationReaderMetrics.configure(context, config);
+        NotificationReaderMetrics.reset();
+        NotificationPartitions.configure(config);
+        NotificationDatabase db = NotificationDatabase.getDatabase(context);
+        NotificationStore store = new RoomNotificationStore(db);
+
+        NotificationListenerService service = Robolectric.setupService(NotificationListenerService.class);
+        ShadowLog.clear();
+
+        // Completion of each posting is observed by a marker queued behind it on the ingestion lane
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean replaying = new AtomicBoolean(true);
+        List<long[]> growth = new ArrayList<>();
+        int growthInterval = Math.max(1, events.size() / GROWTH_SAMPLES);
+
+        long start = System.nanoTime();
+        List<Thread> posters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            Thread poster = new Thread(() -> {
+                try {
+                    for (int i = 0; i < events.size(); i++) {
+                        NotificationTrace.Event event = events.get(i);
+                        // A key always goes to the same thread so its removal follows its posting
+                        if (Math.floorMod(event.key.hashCode(), threads) != thread) {
+                            continue;
+                        }
+                        if (rateMultiplier > 0) {
+                            long due = start + (long) (event.elapsedMs * 1_000_000L / rateMultiplier);
+                            LockSupport.parkNanos(due - System.nanoTime());
+                        }
+                        StatusBarNotification sbn = replay.toStatusBarNotification(event);
+                        long posted = System.nanoTime();
+                        if (event.type == NotificationTrace.EVENT_POSTED) {
+                            service.onNotificationPosted(sbn);
+                            PluginExecutors.execute(PluginExecutors.Lane.INGESTION, () -> latencies.add(System.nanoTime() - posted));
+                        } else {
+                            service.onNotificationRemoved(sbn, null, event.reason);
+                        }
+                        if (thread == 0 && i % growthInterval == 0) {
+                            PluginExecutors.execute(PluginExecutors.Lane.INGESTION, () ->
+                                growth.add(new long[] { System.nanoTime() - start, NotificationPartitions.getTotalCount(db), sizeBytes(db) })
+                            );
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "replay-" + t);
+            posters.add(poster);
+        }
+
+        // Same entry point the initial backfill uses from the bulk lane, racing live ingestion
+        Thread backfillEviction = new Thread(() -> {
+            try {
+                while (replaying.get()) {
+                    PluginExecutors.execute(PluginExecutors.Lane.BULK, () -> service.enforceStorageLimit(store)).get();
+                    Thread.sleep(5);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }, "replay-bulk-eviction");
+
+        for (Thread poster : posters) {
+            poster.start();
+        }
+        backfillEviction.start();
+        for (Thread poster : posters) {
+            poster.join();
+        }
+        PluginExecutors.execute(PluginExecutors.Lane.INGESTION, () -> {}).get(10, TimeUnit.MINUTES);
+        long elapsedNs = System.nanoTime() - start;
+        replaying.set(false);
+        backfillEviction.join();
+        if (failure.get() != null) {
+            throw new AssertionError("Replay failed", failure.get());
+        }
+
+        long[] samples = latencies.stream().mapToLong(Long::longValue).toArray();
+        runner.record("postToStored", params, samples);
+        long posted = events.stream().filter(e -> e.type == NotificationTrace.EVENT_POSTED).count();
+        double throughput = posted * 1e9 / elapsedNs;
+        JSObject metrics = NotificationReaderMetrics.snapshot();
+        System.out.println("[benchmark] ingestion-replay throughput=" + Math.round(throughput) + "/s elapsed=" + elapsedNs / 1_000_000 + "ms");
+        System.out.println("[benchmark] ingestion-replay stages=" + metrics.getJSONObject("stages"));
+        for (long[] sample : growth) {
+            System.out.println("[benchmark] ingestion-replay growth atMs=" + sample[0] / 1_000_000 + " rows=" + sample[1] + " bytes=" + sample[2]);
+        }
+        runner.writeResults();
+
+        // Background failures are only logged, by PluginExecutors
+        for (ShadowLog.LogItem item : ShadowLog.getLogsForTag("NotificationReader")) {
+            assertTrue("Background failure: " + item.msg + " " + item.throwable, item.type < Log.ERROR);
+        }
+
+        // Every stored row is either still there or was counted as evicted
+        JSObject counters = metrics.getJSONObject("counters");
+        long stored = counters.getLong("notificationsStored");
+        long evicted = counters.getLong("rowsEvicted");
+        assertEquals(stored - evicted, NotificationPartitions.getTotalCount(db));
+
+        // The limit holds, and concurrent eviction loops did not delete more than one batch past it
+        long limitBytes = config.getStorageLimitBytes();
+        long finalBytes = sizeBytes(db);
+        int rows = NotificationPartitions.getTotalCount(db);
+        assertTrue("Over the storage limit: " + finalBytes, finalBytes <= limitBytes);
+        if (evicted > 0 && rows > 0) {
+            long rowBytes = finalBytes / rows;
+            long underLimit = limitBytes - finalBytes;
+            assertTrue("Evicted " + underLimit + " bytes past the limit", underLimit <= 2L * EVICTION_BATCH * rowBytes);
+        }
+    }
+
+    private static long sizeBytes(NotificationDatabase db) {
+        Long size = NotificationPartitions.getDatabaseSizeBytes(db);
+        return size != null ? size : 0;
+    }
+}
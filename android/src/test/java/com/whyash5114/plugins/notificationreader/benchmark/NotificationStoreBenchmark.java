@@ -0,0 +1,96 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import static com.whyash5114.plugins.notificationreader.benchmark.BenchmarkRunner.params;
+
+import android.content.Context;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import com.whyash5114.plugins.notificationreader.MemoryNotificationStore;
+import com.whyash5114.plugins.notificationreader.NotificationFilterQuery;
+import com.whyash5114.plugins.notificationreader.NotificationStore;
+import com.whyash5114.plugins.notificationreader.RoomNotificationStore;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Runs the same measurements against every NotificationStore backend: the Room database and
+ * the in-memory ring buffer. The contract checks live in NotificationStoreTest.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NotificationStoreBenchmark {
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final int PACKAGE_COUNT = 50;
+    private static final long START_TIME = 1_600_000_000_000L;
+
+    @Test
+    public void storeOperations() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        SyntheticNotifications fixtures = new SyntheticNotifications(context);
+        BenchmarkRunner runner = new BenchmarkRunner("store");
+        NotificationFilterQuery all = new NotificationFilterQuery(null, null);
+        NotificationFilterQuery filtered = new NotificationFilterQuery(new JSONObject().put("packageName", "com.example.app7"), null);
+        NotificationFilterQuery textSearch = new NotificationFilterQuery(new JSONObject().put("textContains", "zz"), null);
+
+        for (int rows : BenchmarkRunner.rowCounts()) {
+            for (String backend : new String[] { "database", "memory" }) {
+                String name = "store-benchmark-" + rows + ".db";
+                NotificationDatabase db = null;
+                NotificationStore store;
+                if (backend.equals("database")) {
+                    context.deleteDatabase(name);
+                    db = openDatabase(context, name);
+                    store = new RoomNotificationStore(db);
+                } else {
+                    store = new MemoryNotificationStore(rows);
+                }
+                Map<String, Object> params = params("backend", backend, "rows", rows);
+
+                runner.measureOnce("populate", params, () -> {
+                    for (int inserted = 0; inserted < rows; inserted += BATCH_SIZE) {
+                        int count = Math.min(BATCH_SIZE, rows - inserted);
+                        store.insertAll(fixtures.entities(count, START_TIME + inserted * 1000L, PACKAGE_COUNT, false));
+                    }
+                    return rows;
+                });
+
+                long[] nextTime = { START_TIME + rows * 1000L };
+                runner.measure("insert", params, 50, 200, 1, () -> {
+                    store.insert(fixtures.entity(nextTime[0]++, "com.example.app0", true));
+                    return null;
+                });
+
+                runner.measure("firstPage", params, 20, 100, 1, () -> store.query(all, null, 10));
+                runner.measure("cursorPage", params, 20, 100, 1, () -> store.query(all, START_TIME + (rows / 2) * 1000L, 10));
+                runner.measure("filteredPage", params, 5, 30, 1, () -> store.query(filtered, null, 10));
+                runner.measure("textSearchPage", params, 2, 10, 1, () -> store.query(textSearch, null, 10));
+                runner.measure("totalCount", params, 5, 30, 1, store::count);
+                runner.measure("size", params, 2, 10, 1, store::sizeBytes);
+
+                // One eviction step of the storage-limit loop: evict 10 oldest, then re-measure size
+                runner.measure("evictionStep", params, 5, 50, 1, () -> {
+                    store.evictOldest(10);
+                    return store.sizeBytes();
+                });
+                runner.measure("deleteMatching", params, 2, 10, 1, () -> store.deleteMatching(filtered, 10));
+
+                if (db != null) {
+                    db.close();
+                    context.deleteDatabase(name);
+                }
+            }
+        }
+
+        runner.writeResults();
+    }
+
+    private static NotificationDatabase openDatabase(Context context, String name) {
+        return Room.databaseBuilder(context, NotificationDatabase.class, name).allowMainThreadQueries().build();
+    }
+}
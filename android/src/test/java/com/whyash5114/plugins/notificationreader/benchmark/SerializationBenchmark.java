@@ -0,0 +1,103 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import static com.whyash5114.plugins.notificationreader.benchmark.BenchmarkRunner.params;
+
+import android.content.Context;
+import android.database.Cursor;
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.whyash5114.plugins.notificationreader.NotificationJsonWriter;
+import com.whyash5114.plugins.notificationreader.NotificationReaderPlugin;
+import com.whyash5114.plugins.notificationreader.db.NotificationDatabase;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures conversion between NotificationEntity and the JSObject bridge payload, and the
+ * streaming NotificationJsonWriter path that bypasses both.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SerializationBenchmark {
+
+    private static final int PAGE_SIZE = 500;
+
+    @Test
+    public void serialization() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        SyntheticNotifications fixtures = new SyntheticNotifications(context);
+        BenchmarkRunner runner = new BenchmarkRunner("serialization");
+
+        for (boolean withIcons : new boolean[] { false, true }) {
+            NotificationEntity entity = fixtures.entity(1_700_000_000_000L, "com.example.app", withIcons);
+            JSObject obj = NotificationReaderPlugin.notificationEntityToJSObject(entity);
+
+            runner.measure("notificationEntityToJSObject", params("icons", withIcons), 1_000, 50, 200, () ->
+                NotificationReaderPlugin.notificationEntityToJSObject(entity)
+            );
+            runner.measure("jsObjectToNotificationEntity", params("icons", withIcons), 1_000, 50, 200, () ->
+                NotificationReaderPlugin.jsObjectToNotificationEntity(obj)
+            );
+
+            // A full page as returned by getNotifications, including the final string serialization
+            List<NotificationEntity> page = fixtures.entities(PAGE_SIZE, 1_700_000_000_000L, 10, withIcons);
+            runner.measure("pageToJsonString", params("icons", withIcons, "rows", PAGE_SIZE), 5, 30, 1, () -> {
+                JSArray array = new JSArray();
+                for (NotificationEntity row : page) {
+                    array.put(NotificationReaderPlugin.notificationEntityToJSObject(row));
+                }
+                JSObject result = new JSObject();
+                result.put("notifications", array);
+                return result.toString();
+            });
+
+            // The same page read from the database: entity mapping and JSObject tree against
+            // writing straight from the cursor
+            NotificationDatabase db = Room.inMemoryDatabaseBuilder(context, NotificationDatabase.class).allowMainThreadQueries().build();
+            db.notificationDao().insertAll(page);
+            String sql = "SELECT * FROM notifications ORDER BY postTime DESC LIMIT " + PAGE_SIZE;
+            BenchmarkRunner.Op viaEntities = () -> {
+                JSArray array = new JSArray();
+                for (NotificationEntity row : db.notificationDao().getNotifications(new SimpleSQLiteQuery(sql))) {
+                    array.put(NotificationReaderPlugin.notificationEntityToJSObject(row));
+                }
+                JSObject result = new JSObject();
+                result.put("notifications", array);
+                return result.toString();
+            };
+            BenchmarkRunner.Op viaCursor = () -> {
+                try (Cursor cursor = db.query(new SimpleSQLiteQuery(sql))) {
+                    JSObject result = new JSObject();
+                    result.put("notifications", NotificationJsonWriter.writeRows(db, cursor).toJson());
+                    return result.toString();
+                }
+            };
+            runner.measure("pageFromDaoToJsonString", params("icons", withIcons, "rows", PAGE_SIZE), 5, 30, 1, viaEntities);
+            runner.measure("pageFromCursorToJsonString", params("icons", withIcons, "rows", PAGE_SIZE), 5, 30, 1, viaCursor);
+            System.out.println(
+                "[benchmark] serialization allocatedBytes icons=" + withIcons +
+                " dao=" + allocatedBytes(viaEntities) +
+                " cursor=" + allocatedBytes(viaCursor)
+            );
+            db.close();
+        }
+
+        runner.writeResults();
+    }
+
+    private static long allocatedBytes(BenchmarkRunner.Op op) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        BenchmarkRunner.blackhole = op.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,171 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Person;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.Icon;
+import android.os.Process;
+import android.service.notification.StatusBarNotification;
+import com.whyash5114.plugins.notificationreader.db.CompressedText;
+import com.whyash5114.plugins.notificationreader.db.NotificationEntity;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic synthetic notifications for the benchmark suites.
+ */
+final class SyntheticNotifications {
+
+    static final String CHANNEL_ID = "benchmark";
+
+    // Fixed seed so every run measures the same data
+    private final Random random = new Random(42);
+    private final Context context;
+
+    SyntheticNotifications(Context context) {
+        this.context = context;
+        NotificationManager manager = context.getSystemService(NotificationManager.class);
+        manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Benchmark", NotificationManager.IMPORTANCE_DEFAULT));
+    }
+
+    static Bitmap bitmap(int size) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        canvas.drawColor(Color.WHITE);
+        paint.setColor(Color.rgb(33, 150, 243));
+        canvas.drawCircle(size / 2f, size / 2f, size / 3f, paint);
+        return bitmap;
+    }
+
+    StatusBarNotification defaultNotification(int id) {
+        Notification.Builder builder = baseBuilder(id);
+        return wrap(id, builder.build());
+    }
+
+    StatusBarNotification bigTextNotification(int id) {
+        Notification.Builder builder = baseBuilder(id).setStyle(new Notification.BigTextStyle().bigText(sentence(60)));
+        return wrap(id, builder.build());
+    }
+
+    StatusBarNotification bigPictureNotification(int id) {
+        Notification.Builder builder = baseBuilder(id).setStyle(new Notification.BigPictureStyle().bigPicture(bitmap(512)));
+        return wrap(id, builder.build());
+    }
+
+    StatusBarNotification messagingNotification(int id, int messageCount) {
+        Person me = new Person.Builder().setName("Me").build();
+        Notification.MessagingStyle style = new Notification.MessagingStyle(me).setConversationTitle("Group " + id);
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < messageCount; i++) {
+            Person sender = new Person.Builder().setName("Sender " + (i % 4)).build();
+            style.addMessage(sentence(12), time + i * 1000L, sender);
+        }
+        Notification.Builder builder = baseBuilder(id).setStyle(style).setCategory(Notification.CATEGORY_MESSAGE);
+        return wrap(id, builder.build());
+    }
+
+    /**
+     * Builds a fully populated entity without going through StatusBarNotification,
+     * for serialization and DAO benchmarks.
+     */
+    NotificationEntity entity(long postTime, String packageName, boolean withIcons) {
+        NotificationEntity entity = new NotificationEntity();
+        entity.id = UUID.randomUUID().toString();
+        entity.packageName = packageName;
+        entity.appName = "App " + packageName;
+        entity.title = sentence(4);
+        entity.text = sentence(20);
+        entity.postTime = postTime;
+        entity.style = "MessagingStyle";
+        entity.category = Notification.CATEGORY_MESSAGE;
+        entity.channelId = CHANNEL_ID;
+        entity.actionsJson = "[{\"title\":\"Reply\",\"icon\":null,\"allowsRemoteInput\":true},{\"title\":\"Mark as read\",\"icon\":null,\"allowsRemoteInput\":false}]";
+        entity.conversationTitle = "Conversation";
+        entity.messagesJson = CompressedText.of(messagesJson(5));
+        if (withIcons) {
+            // Roughly the size of a base64 encoded 96x96 PNG icon
+            entity.smallIcon = randomBase64(2_000);
+            entity.largeIcon = randomBase64(8_000);
+            entity.appIcon = randomBase64(6_000);
+        }
+        return entity;
+    }
+
+    List<NotificationEntity> entities(int count, long startTime, int packageCount, boolean withIcons) {
+        List<NotificationEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(entity(startTime + i * 1000L, "com.example.app" + (i % packageCount), withIcons));
+        }
+        return entities;
+    }
+
+    private Notification.Builder baseBuilder(int id) {
+        PendingIntent intent = PendingIntent.getActivity(context, 0, new Intent(), PendingIntent.FLAG_IMMUTABLE);
+        return new Notification.Builder(context, CHANNEL_ID)
+            .setContentTitle("Title " + id)
+            .setContentText(sentence(20))
+            .setSubText("sub text")
+            .setSmallIcon(Icon.createWithBitmap(bitmap(48)))
+            .setLargeIcon(bitmap(96))
+            .setGroup("group-" + (id % 5))
+            .addAction(new Notification.Action.Builder(Icon.createWithBitmap(bitmap(32)), "Reply", intent).build())
+            .addAction(new Notification.Action.Builder(Icon.createWithBitmap(bitmap(32)), "Archive", intent).build());
+    }
+
+    private StatusBarNotification wrap(int id, Notification notification) {
+        String packageName = context.getPackageName();
+        return new StatusBarNotification(
+            packageName,
+            packageName,
+            id,
+            null,
+            Process.myUid(),
+            Process.myPid(),
+            0,
+            notification,
+            Process.myUserHandle(),
+            1_700_000_000_000L + id
+        );
+    }
+
+    private String messagesJson(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(",");
+            json.append("{\"text\":\"").append(sentence(10)).append("\",\"timestamp\":").append(1_700_000_000_000L + i).append(",\"sender\":\"Sender ").append(i % 3).append("\"}");
+        }
+        return json.append("]").toString();
+    }
+
+    private String sentence(int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) text.append(' ');
+            int length = 2 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return text.toString();
+    }
+
+    private String randomBase64(int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder value = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return value.toString();
+    }
+}
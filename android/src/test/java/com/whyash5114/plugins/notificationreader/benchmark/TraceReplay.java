@@ -0,0 +1,241 @@
+package com.whyash5114.plugins.notificationreader.benchmark;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.RemoteInput;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Icon;
+import android.os.Bundle;
+import android.os.Process;
+import android.service.notification.StatusBarNotification;
+import com.whyash5114.plugins.notificationreader.NotificationTrace;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns NotificationTrace events back into StatusBarNotifications, and synthesizes a storm
+ * trace when no recorded one is given.
+ */
+final class TraceReplay {
+
+    private final Context context;
+    private final PendingIntent intent;
+    private final Icon smallIcon;
+    private final Bitmap largeIcon;
+    private final Icon actionIcon;
+    // Pictures are only recorded by size; one bitmap per size is enough to reproduce the encoding cost
+    private final Map<Long, Bitmap> pictures = new ConcurrentHashMap<>();
+
+    TraceReplay(Context context) {
+        this.context = context;
+        this.intent = PendingIntent.getActivity(context, 0, new Intent(), PendingIntent.FLAG_IMMUTABLE);
+        this.smallIcon = Icon.createWithBitmap(SyntheticNotifications.bitmap(48));
+        this.largeIcon = SyntheticNotifications.bitmap(96);
+        this.actionIcon = Icon.createWithBitmap(SyntheticNotifications.bitmap(32));
+    }
+
+    static List<NotificationTrace.Event> read(File file) throws IOException {
+        List<NotificationTrace.Event> events = new ArrayList<>();
+        try (NotificationTrace.Reader reader = new NotificationTrace.Reader(file)) {
+            NotificationTrace.Event event;
+            while ((event = reader.next()) != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Builds the notification as the listener service would receive it. The recorded key is used
+     * as the tag, so a removal maps to the same key as its posting.
+     */
+    StatusBarNotification toStatusBarNotification(NotificationTrace.Event event) {
+        Notification notification = event.type == NotificationTrace.EVENT_POSTED ? toNotification(event) : new Notification();
+        return new StatusBarNotification(
+            event.packageName,
+            event.packageName,
+            event.key.hashCode(),
+            event.key,
+            Process.myUid(),
+            Process.myPid(),
+            0,
+            notification,
+            Process.myUserHandle(),
+            event.postTime
+        );
+    }
+
+    private Notification toNotification(NotificationTrace.Event event) {
+        Notification.Builder builder = new Notification.Builder(
+            context,
+            event.channelId != null ? event.channelId : SyntheticNotifications.CHANNEL_ID
+        )
+            .setGroup(event.group)
+            .setCategory(event.category)
+            .setNumber(event.number);
+        if (event.hasSmallIcon) {
+            builder.setSmallIcon(smallIcon);
+        }
+        if (event.hasLargeIcon) {
+            builder.setLargeIcon(largeIcon);
+        }
+        if (event.actions != null) {
+            for (NotificationTrace.Action action : event.actions) {
+                Notification.Action.Builder actionBuilder = new Notification.Action.Builder(
+                    action.hasIcon ? actionIcon : null,
+                    action.title,
+                    intent
+                );
+                if (action.allowsRemoteInput) {
+                    actionBuilder.addRemoteInput(new RemoteInput.Builder("reply").build());
+                }
+                builder.addAction(actionBuilder.build());
+            }
+        }
+
+        Notification notification = builder.build();
+        notification.flags = event.flags;
+        notification.priority = event.priority;
+
+        Bundle extras = notification.extras;
+        extras.putString(Notification.EXTRA_TEMPLATE, event.template);
+        extras.putString(Notification.EXTRA_TITLE, event.title);
+        extras.putCharSequence(Notification.EXTRA_TEXT, event.text);
+        extras.putCharSequence(Notification.EXTRA_SUB_TEXT, event.subText);
+        extras.putCharSequence(Notification.EXTRA_INFO_TEXT, event.infoText);
+        extras.putCharSequence(Notification.EXTRA_SUMMARY_TEXT, event.summaryText);
+        extras.putCharSequence(Notification.EXTRA_BIG_TEXT, event.bigText);
+        extras.putString(Notification.EXTRA_PICTURE_CONTENT_DESCRIPTION, event.pictureContentDescription);
+        if (event.pictureWidth > 0 && event.pictureHeight > 0) {
+            extras.putParcelable(Notification.EXTRA_PICTURE, picture(event.pictureWidth, event.pictureHeight));
+        }
+        if (event.textLines != null) {
+            extras.putCharSequenceArray(Notification.EXTRA_TEXT_LINES, event.textLines);
+        }
+        extras.putCharSequence(Notification.EXTRA_CONVERSATION_TITLE, event.conversationTitle);
+        extras.putBoolean(Notification.EXTRA_IS_GROUP_CONVERSATION, event.isGroupConversation);
+        if (event.messages != null) {
+            Bundle[] messages = new Bundle[event.messages.length];
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = new Bundle();
+                messages[i].putCharSequence("text", event.messages[i].text);
+                messages[i].putLong("time", event.messages[i].time);
+                messages[i].putCharSequence("sender", event.messages[i].sender);
+            }
+            extras.putParcelableArray(Notification.EXTRA_MESSAGES, messages);
+        }
+        if (event.hasProgress) {
+            extras.putInt(Notification.EXTRA_PROGRESS, event.progress);
+            extras.putInt(Notification.EXTRA_PROGRESS_MAX, event.progressMax);
+            extras.putBoolean(Notification.EXTRA_PROGRESS_INDETERMINATE, event.progressIndeterminate);
+        }
+        return notification;
+    }
+
+    private Bitmap picture(int width, int height) {
+        return pictures.computeIfAbsent(((long) width << 32) | height, size -> {
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.eraseColor(0xff2196f3);
+            return bitmap;
+        });
+    }
+
+    /**
+     * Writes a deterministic storm: bursts of notifications from many packages in a mix of
+     * styles, a few milliseconds apart, with quiet gaps between bursts and some removals.
+     *
+     * @return The trace file
+     */
+    static File synthesize(File file, int events, int packageCount) throws IOException {
+        // Fixed seed so every run replays the same storm
+        Random random = new Random(7);
+        String[] templates = {
+            null,
+            "android.app.Notification$BigTextStyle",
+            "android.app.Notification$InboxStyle",
+            "android.app.Notification$MessagingStyle",
+            "android.app.Notification$BigPictureStyle",
+        };
+        List<String> postedKeys = new ArrayList<>();
+        long elapsed = 0;
+        try (NotificationTrace.Writer writer = new NotificationTrace.Writer(file)) {
+            for (int i = 0; i < events; i++) {
+                elapsed += i % 50 == 0 ? 500 : 2 + random.nextInt(4);
+
+                if (!postedKeys.isEmpty() && random.nextInt(10) == 0) {
+                    String key = postedKeys.remove(random.nextInt(postedKeys.size()));
+                    NotificationTrace.Event removed = new NotificationTrace.Event();
+                    removed.type = NotificationTrace.EVENT_REMOVED;
+                    removed.elapsedMs = elapsed;
+                    removed.key = key;
+                    removed.packageName = key.substring(0, key.indexOf('|'));
+                    removed.postTime = 1_700_000_000_000L + elapsed;
+                    removed.reason = 2;
+                    writer.write(removed);
+                    continue;
+                }
+
+                NotificationTrace.Event event = new NotificationTrace.Event();
+                event.type = NotificationTrace.EVENT_POSTED;
+                event.elapsedMs = elapsed;
+                event.packageName = "com.example.app" + random.nextInt(packageCount);
+                event.key = event.packageName + "|" + i;
+                event.postTime = 1_700_000_000_000L + elapsed;
+                event.flags = Notification.FLAG_AUTO_CANCEL;
+                event.category = Notification.CATEGORY_MESSAGE;
+                event.group = "group-" + random.nextInt(5);
+                event.hasSmallIcon = true;
+                event.hasLargeIcon = random.nextBoolean();
+                event.template = templates[random.nextInt(templates.length)];
+                event.title = sentence(random, 4);
+                event.text = sentence(random, 20);
+                event.subText = "sub text";
+                if (event.template == null) {
+                    event.hasProgress = random.nextInt(4) == 0;
+                    event.progress = random.nextInt(100);
+                    event.progressMax = 100;
+                } else if (event.template.endsWith("BigTextStyle")) {
+                    event.bigText = sentence(random, 120);
+                } else if (event.template.endsWith("InboxStyle")) {
+                    event.textLines = new String[] { sentence(random, 8), sentence(random, 8), sentence(random, 8) };
+                } else if (event.template.endsWith("MessagingStyle")) {
+                    event.conversationTitle = "Group " + random.nextInt(20);
+                    event.isGroupConversation = true;
+                    event.messages = new NotificationTrace.Message[1 + random.nextInt(10)];
+                    for (int m = 0; m < event.messages.length; m++) {
+                        event.messages[m] = new NotificationTrace.Message(sentence(random, 12), event.postTime - m * 1000L, "Sender " + m % 4);
+                    }
+                } else {
+                    event.pictureWidth = 512;
+                    event.pictureHeight = 256;
+                }
+                event.actions = new NotificationTrace.Action[] {
+                    new NotificationTrace.Action("Reply", true, true),
+                    new NotificationTrace.Action("Mark as read", false, false),
+                };
+                writer.write(event);
+                postedKeys.add(event.key);
+            }
+        }
+        return file;
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) text.append(' ');
+            int length = 2 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.whyash5114.plugins.notificationreader.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class CompressedTextTest {
+
+    private static final String SHORT = "See you at 6 🙂";
+    private static final String LONG = "Hi, thanks for the update on the order. ".repeat(40);
+
+    @After
+    public void tearDown() {
+        CompressedText.setEnabled(false);
+    }
+
+    @Test
+    public void nullValues() {
+        assertNull(CompressedText.of(null));
+        assertNull(CompressedText.decode(null));
+        assertNull(CompressedText.decodeStored(null));
+        assertNull(CompressedTextConverter.toBlob(null));
+        assertNull(CompressedTextConverter.fromBlob(null));
+    }
+
+    @Test
+    public void valuesAreStoredPlainWhileDisabled() {
+        CompressedText.setEnabled(false);
+        for (String text : new String[] { "", SHORT, LONG }) {
+            byte[] stored = CompressedText.of(text).toStored();
+            assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), stored);
+            assertEquals(text, roundTrip(stored));
+        }
+    }
+
+    @Test
+    public void shortValuesAreStoredPlainWhileEnabled() {
+        CompressedText.setEnabled(true);
+        String belowThreshold = "a".repeat(CompressedText.MIN_COMPRESS_BYTES - 1);
+        for (String text : new String[] { SHORT, belowThreshold }) {
+            byte[] stored = CompressedText.of(text).toStored();
+            assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), stored);
+            assertEquals(text, roundTrip(stored));
+        }
+    }
+
+    @Test
+    public void longValuesAreCompressedWhileEnabled() {
+        CompressedText.setEnabled(true);
+        byte[] stored = CompressedText.of(LONG).toStored();
+        assertEquals(0, stored[0]);
+        assertTrue(stored.length < LONG.getBytes(StandardCharsets.UTF_8).length / 2);
+        assertEquals(LONG, roundTrip(stored));
+        assertEquals(LONG, CompressedText.decodeStored(stored));
+    }
+
+    @Test
+    public void valuesStartingWithTheMarkerByteRoundTrip() {
+        for (boolean enabled : new boolean[] { false, true }) {
+            CompressedText.setEnabled(enabled);
+            for (String text : new String[] { "\0", "\0short", "\0" + LONG, "short\0", LONG + "\0" }) {
+                assertEquals(text, roundTrip(CompressedText.of(text).toStored()));
+            }
+        }
+    }
+
+    @Test
+    public void textValuesReadWithTheirTerminatorAreDecoded() {
+        // Cursor#getBlob returns a TEXT value's UTF-8 bytes followed by NUL
+        assertEquals("short", CompressedText.decodeStored("short\0".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(LONG, CompressedText.decodeStored((LONG + "\0").getBytes(StandardCharsets.UTF_8)));
+        assertEquals("", CompressedText.decodeStored(new byte[] { 0 }));
+    }
+
+    @Test
+    public void valuesStayReadableAfterToggling() {
+        CompressedText.setEnabled(true);
+        byte[] compressed = CompressedText.of(LONG).toStored();
+        CompressedText.setEnabled(false);
+        byte[] plain = CompressedText.of(LONG).toStored();
+
+        assertEquals(LONG, roundTrip(compressed));
+        CompressedText.setEnabled(true);
+        assertEquals(LONG, roundTrip(plain));
+    }
+
+    @Test
+    public void valuesAreNotReencodedOnceStored() {
+        CompressedText.setEnabled(true);
+        CompressedText value = CompressedText.of(LONG);
+        byte[] stored = value.toStored();
+        CompressedText.setEnabled(false);
+        assertArrayEquals(stored, value.toStored());
+    }
+
+    @Test
+    public void rowsWrittenBeforeCompressionAreRead() {
+        Context context = ApplicationProvider.getApplicationContext();
+        NotificationDatabase db = Room.inMemoryDatabaseBuilder(context, NotificationDatabase.class).allowMainThreadQueries().build();
+        try {
+            NotificationEntity entity = new NotificationEntity();
+            db.notificationDao().insert(entity);
+            // Rows from before CompressedText hold TEXT values, which the columns still store as is
+            db
+                .getOpenHelper()
+                .getWritableDatabase()
+                .execSQL(
+                    "UPDATE notifications SET bigText = ?, inboxLinesJson = ?, messagesJson = NULL WHERE id = ?",
+                    new Object[] { LONG, "[\"line é\"]", entity.id }
+                );
+
+            NotificationEntity read = db.notificationDao().getNotifications(1).get(0);
+            assertEquals(LONG, CompressedText.decode(read.bigText));
+            assertEquals("[\"line é\"]", CompressedText.decode(read.inboxLinesJson));
+            assertNull(read.messagesJson);
+        } finally {
+            db.close();
+        }
+    }
+
+    private static String roundTrip(byte[] stored) {
+        return CompressedTextConverter.fromBlob(stored).get();
+    }
+}
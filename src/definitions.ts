@@ -52,7 +52,7 @@ export interface NotificationAction {
    */
   title: string;
   /**
-   * Base64-encoded icon for the action (if available)
+   * Base64-encoded icon for the action (if available), or a local URL when `imageUrls` is enabled
    */
   icon?: string;
   /**
@@ -105,6 +105,11 @@ export interface BaseNotification {
    * The unique database ID of the notification (UUID).
    */
   id: string;
+  /**
+   * The system notification key (`StatusBarNotification.getKey()`).
+   * Absent for imported notifications that did not carry one.
+   */
+  key?: string;
   /**
    * The human-readable name of the app that posted the notification.
    */
@@ -126,15 +131,16 @@ export interface BaseNotification {
    */
   timestamp: number;
   /**
-   * Base64-encoded PNG of the notification's small icon (status bar icon).
+   * Base64-encoded PNG of the notification's small icon (status bar icon),
+   * or a local URL when `imageUrls` is enabled.
    */
   smallIcon?: string;
   /**
-   * Base64-encoded PNG of the notification's large icon.
+   * Base64-encoded PNG of the notification's large icon, or a local URL when `imageUrls` is enabled.
    */
   largeIcon?: string;
   /**
-   * Base64-encoded PNG of the app's launcher icon.
+   * Base64-encoded PNG of the app's launcher icon, or a local URL when `imageUrls` is enabled.
    */
   appIcon?: string;
   /**
@@ -212,7 +218,7 @@ export interface BigTextNotification extends BaseNotification {
 export interface BigPictureNotification extends BaseNotification {
   style: NotificationStyle.BIG_PICTURE;
   /**
-   * Base64-encoded picture shown in expanded view
+   * Base64-encoded picture shown in expanded view, or a local URL when `imageUrls` is enabled
    */
   bigPicture?: string;
   /**
@@ -250,6 +256,11 @@ export interface MessagingNotification extends BaseNotification {
    * Array of messages in the conversation
    */
   messages: NotificationMessage[];
+  /**
+   * Identifies the conversation across notification updates; pass it to getConversation
+   * to read the whole stored thread.
+   */
+  conversationKey?: string;
 }
 
 /**
@@ -314,14 +325,41 @@ export type NotificationItem =
   | MediaNotification
   | GenericNotification;
 
+/**
+ * Options for getActiveNotifications.
+ */
+export interface GetActiveNotificationsOptions {
+  /**
+   * Only return changes made after this version (the `version` of a previous result).
+   * Removed notifications are reported through `removedKeys`.
+   */
+  sinceVersion?: number;
+}
+
 /**
  * Result returned by getActiveNotifications.
  */
 export interface GetActiveNotificationsResult {
   /**
    * Array of active notifications with type-specific shapes.
+   * When `sinceVersion` was passed, only notifications posted or updated since that version.
    */
   notifications: NotificationItem[];
+  /**
+   * Version of the most recent change. Pass it as `sinceVersion` to receive only later changes.
+   * Versions are only comparable within one process; one from before the app was restarted
+   * gets a `reset`.
+   */
+  version: number;
+  /**
+   * Keys of notifications removed since `sinceVersion`. Only present when `sinceVersion` was passed.
+   */
+  removedKeys?: string[];
+  /**
+   * True when the changes since `sinceVersion` could not be computed and `notifications`
+   * holds the complete set instead. Discard any previously held state in that case.
+   */
+  reset?: boolean;
 }
 
 /**
@@ -334,7 +372,9 @@ export interface GetNotificationsOptions {
    */
   cursor?: number;
   /**
-   * Maximum number of notifications to retrieve.
+   * Maximum number of notifications to retrieve. Capped while the device is low on memory
+   * (see getMetrics' `memoryPressure`), so a shorter page does not mean there are no more;
+   * an empty page does.
    * @default 10
    */
   limit?: number;
@@ -342,6 +382,12 @@ export interface GetNotificationsOptions {
    * Optional filter criteria applied on the stored notifications.
    */
   filter?: NotificationFilter;
+  /**
+   * Identifies the query slot this request belongs to, e.g. `'search'`.
+   * A newer request with the same key cancels this one if it has not completed yet,
+   * rejecting it with code `SUPERSEDED`. Useful for search-as-you-type.
+   */
+  supersedeKey?: string;
 }
 
 /**
@@ -354,6 +400,290 @@ export interface GetNotificationsResult {
   notifications: NotificationItem[];
 }
 
+/**
+ * Options for deleteNotifications.
+ */
+export interface DeleteNotificationsOptions {
+  /**
+   * Notifications matching this filter are deleted, with the same semantics as in getNotifications.
+   * When omitted, every stored notification is deleted.
+   */
+  filter?: NotificationFilter;
+}
+
+/**
+ * Result returned by deleteNotifications.
+ */
+export interface DeleteNotificationsResult {
+  /**
+   * Number of notifications deleted.
+   */
+  deleted: number;
+  /**
+   * Approximate number of bytes reclaimed, measured the same way as getDatabaseSize.
+   */
+  bytesReclaimed: number;
+}
+
+/**
+ * Options for getConversation.
+ */
+export interface GetConversationOptions {
+  /**
+   * `conversationKey` of a messaging notification.
+   */
+  conversationKey: string;
+  /**
+   * `nextCursor` of the previous page. When omitted, starts from the oldest stored message.
+   */
+  cursor?: string;
+  /**
+   * Maximum number of messages to return.
+   * @default 100
+   */
+  limit?: number;
+}
+
+/**
+ * Stored message of a conversation.
+ */
+export interface ConversationMessage extends NotificationMessage {
+  /**
+   * Message id, stable while the message is stored.
+   */
+  id: number;
+}
+
+/**
+ * Result returned by getConversation.
+ */
+export interface GetConversationResult {
+  /**
+   * Messages, oldest first.
+   */
+  messages: ConversationMessage[];
+  /**
+   * Cursor for the next page; absent when this page is the last.
+   */
+  nextCursor?: string;
+}
+
+/**
+ * Options for getChanges.
+ */
+export interface GetChangesOptions {
+  /**
+   * `lastSeq` of the previous call. When omitted, starts from the oldest change kept.
+   * @default 0
+   */
+  sinceSeq?: number;
+  /**
+   * Maximum number of changes to return, at most 500.
+   * @default 100
+   */
+  limit?: number;
+}
+
+/**
+ * A change to the stored notifications.
+ */
+export interface NotificationChange {
+  /**
+   * Sequence number, increasing with every change.
+   */
+  seq: number;
+  /**
+   * `upsert`: the notification was stored or replaced.
+   * `delete`: the notification was deleted (or moved to the archive).
+   * `deleteBefore`: every notification posted before `postedBefore` was evicted.
+   * `clear`: every notification was deleted.
+   */
+  type: 'upsert' | 'delete' | 'deleteBefore' | 'clear';
+  /**
+   * When the change was made (in milliseconds).
+   */
+  changedAt: number;
+  /**
+   * Database ID of the notification, for upsert and delete.
+   */
+  id?: string;
+  /**
+   * The notification as currently stored, for upsert. Absent if it was deleted since;
+   * a later delete change follows.
+   */
+  notification?: NotificationItem;
+  /**
+   * For deleteBefore, the timestamp (in milliseconds) below which notifications were removed.
+   */
+  postedBefore?: number;
+}
+
+/**
+ * Result returned by getChanges.
+ */
+export interface GetChangesResult {
+  /**
+   * Changes after `sinceSeq`, oldest first.
+   */
+  changes: NotificationChange[];
+  /**
+   * Sequence number to pass as `sinceSeq` next time.
+   */
+  lastSeq: number;
+  /**
+   * Whether more changes follow this page.
+   */
+  hasMore: boolean;
+  /**
+   * True if changes after `sinceSeq` are no longer kept (see `changeLogRetention`).
+   * Read all stored notifications again with getNotifications before applying these changes.
+   */
+  reset: boolean;
+}
+
+/**
+ * Options for getFacets.
+ */
+export interface GetFacetsOptions {
+  /**
+   * Only count notifications matching this filter, with the same semantics as in getNotifications.
+   */
+  filter?: NotificationFilter;
+}
+
+/**
+ * A stored app and the number of its notifications.
+ */
+export interface AppFacet {
+  /**
+   * The package name of the app.
+   */
+  packageName: string;
+  /**
+   * The app name stored with its notifications.
+   */
+  appName: string;
+  /**
+   * Number of matching notifications.
+   */
+  count: number;
+}
+
+/**
+ * A notification channel of an app and the number of its notifications.
+ */
+export interface ChannelFacet {
+  /**
+   * The package name of the app owning the channel.
+   */
+  packageName: string;
+  /**
+   * The notification channel ID.
+   */
+  channelId: string;
+  /**
+   * Number of matching notifications.
+   */
+  count: number;
+}
+
+/**
+ * A category or style value and the number of notifications with it.
+ */
+export interface ValueFacet {
+  /**
+   * The category or style.
+   */
+  value: string;
+  /**
+   * Number of matching notifications.
+   */
+  count: number;
+}
+
+/**
+ * Result returned by getFacets. Each list is sorted by count, most frequent first;
+ * notifications without a channel, category or style are not counted in that list.
+ */
+export interface GetFacetsResult {
+  /**
+   * Apps with stored notifications.
+   */
+  apps: AppFacet[];
+  /**
+   * Notification channels, per app.
+   */
+  channels: ChannelFacet[];
+  /**
+   * Notification categories.
+   */
+  categories: ValueFacet[];
+  /**
+   * Notification styles.
+   */
+  styles: ValueFacet[];
+}
+
+/**
+ * Options for subscribe.
+ */
+export interface SubscribeOptions {
+  /**
+   * Only notifications matching this filter are pushed, with the same semantics as in getNotifications.
+   * When omitted, every stored notification is pushed.
+   */
+  filter?: NotificationFilter;
+  /**
+   * Fields of each notification to push. `id` and `timestamp` are always included.
+   * When omitted, the full notification is pushed.
+   */
+  fields?: string[];
+  /**
+   * Also push matching notifications when they are removed from the notification drawer.
+   * @default false
+   */
+  includeRemoved?: boolean;
+}
+
+/**
+ * Result returned by subscribe.
+ */
+export interface SubscribeResult {
+  /**
+   * Subscription id, passed to unsubscribe and listed in subscriptionUpdate events.
+   */
+  id: string;
+}
+
+/**
+ * Options for unsubscribe.
+ */
+export interface UnsubscribeOptions {
+  /**
+   * Subscription id returned by subscribe.
+   */
+  id: string;
+}
+
+/**
+ * Event fired when a notification matches one or more subscriptions.
+ * A notification matching several subscriptions is delivered once.
+ */
+export interface SubscriptionUpdateEvent {
+  /**
+   * Ids of the subscriptions the notification matches.
+   */
+  subscriptionIds: string[];
+  /**
+   * Whether the notification was just stored or removed from the notification drawer.
+   */
+  type: 'posted' | 'removed';
+  /**
+   * The notification, limited to the union of the fields requested by the matching subscriptions.
+   */
+  notification: Partial<NotificationItem>;
+}
+
 /**
  * Advanced filters for querying stored notifications.
  * Each filter is optional and multiple filters are combined with AND logic.
@@ -413,6 +743,24 @@ export interface NotificationFilter {
    * Creates an upper bound for the time range.
    */
   beforeTimestamp?: number;
+  /**
+   * Filter by whether the title or text contains a one-time code.
+   * Codes are extracted when a notification is stored.
+   */
+  hasOtp?: boolean;
+  /**
+   * Filter by whether the title or text contains a link.
+   */
+  hasUrl?: boolean;
+  /**
+   * Filter by whether the title or text contains a phone number.
+   */
+  hasPhoneNumber?: boolean;
+  /**
+   * Only return notifications mentioning an amount with a currency (e.g. `$12.50`, `1.234,00 EUR`)
+   * between these bounds, inclusive. The currency itself is not compared.
+   */
+  amountBetween?: [number, number];
 }
 
 /**
@@ -448,6 +796,40 @@ export interface InstalledApp {
   isSystemApp: boolean;
 }
 
+/**
+ * Options for getInstalledApps.
+ */
+export interface GetInstalledAppsOptions {
+  /**
+   * Number of apps to skip (apps are sorted by name).
+   * @default 0
+   */
+  offset?: number;
+  /**
+   * Maximum number of apps to return. Omit to return all remaining apps.
+   */
+  limit?: number;
+  /**
+   * Only return apps that are not system apps.
+   * @default false
+   */
+  userAppsOnly?: boolean;
+  /**
+   * Only return apps that have notifications in the database.
+   * @default false
+   */
+  storedOnly?: boolean;
+  /**
+   * Whether to include `appIcon`. Set to false and use getAppIcon to load icons lazily.
+   * @default true
+   */
+  includeIcons?: boolean;
+  /**
+   * Render icons at this width and height in pixels instead of their intrinsic size.
+   */
+  iconSize?: number;
+}
+
 /**
  * Result returned by getInstalledApps.
  */
@@ -456,70 +838,698 @@ export interface GetInstalledAppsResult {
    * Array of installed applications with their metadata.
    */
   apps: InstalledApp[];
+  /**
+   * Number of apps matching the filters, across all pages.
+   */
+  total: number;
 }
 
 /**
- * Configuration options for the notification reader plugin.
+ * Options for getAppIcon.
  */
-export interface NotificationReaderConfig {
-  /**
-   * Whether to filter out ongoing (non-dismissible) notifications.
-   * When true, ongoing notifications will be filtered out and not stored.
-   * @default true
-   */
-  filterOngoing?: boolean;
+export interface GetAppIconOptions {
   /**
-   * Whether to filter out transport category notifications.
-   * When true, notifications with category 'transport' will be filtered out and not stored.
-   * @default true
+   * The package name of the app.
    */
-  filterTransport?: boolean;
+  packageName: string;
   /**
-   * Storage limit for notifications in megabytes (MB).
-   * When the database exceeds this limit, older notifications will be removed using FIFO.
-   * Set to undefined for unlimited storage.
-   * @default 500
+   * Render the icon at this width and height in pixels instead of its intrinsic size.
    */
-  storageLimit?: number;
+  iconSize?: number;
 }
 
-export interface NotificationReaderPlugin extends Plugin {
+/**
+ * Options for getLifecycleEvents.
+ */
+export interface GetLifecycleEventsOptions {
   /**
-   * Gets all active notifications from the notification listener service.
-   *
-   * @returns Promise resolving with the list of active notifications
-   * @throws Error if notification listener service is not connected or permission is not granted
-   * @since 1.0.0
-   * @platform Android
+   * Only return removals of the notification with this system key.
    */
-  getActiveNotifications(): Promise<GetActiveNotificationsResult>;
-
+  key?: string;
   /**
-   * Opens the system settings page to allow the user to grant notification access
-   * to the app. The promise resolves when the user returns from settings with
-   * the current permission status.
-   *
-   * @returns Promise resolving with an object indicating if permission was granted
-   * @throws Error if unable to open settings
-   * @since 1.0.0
-   * @platform Android
+   * Only return removals of notifications posted by this package.
    */
-  openAccessSettings(): Promise<{ enabled: boolean }>;
-
+  packageName?: string;
   /**
-   * Checks if the app has notification access enabled.
-   *
-   * @returns Promise resolving with an object indicating if access is enabled
-   * @since 1.0.0
-   * @platform Android
+   * Only return removals at or after this timestamp (in milliseconds).
    */
-  isAccessEnabled(): Promise<{ enabled: boolean }>;
+  afterTimestamp?: number;
+  /**
+   * Only return removals before this timestamp (in milliseconds).
+   */
+  beforeTimestamp?: number;
+  /**
+   * Maximum number of events to retrieve.
+   * @default 100
+   */
+  limit?: number;
+}
+
+/**
+ * A notification leaving the notification drawer.
+ */
+export interface NotificationLifecycleEvent {
+  /**
+   * The system notification key.
+   */
+  key: string;
+  /**
+   * The package name of the app that posted the notification.
+   */
+  packageName: string;
+  /**
+   * When the notification was posted (in milliseconds).
+   */
+  postTime: number;
+  /**
+   * When the notification was removed (in milliseconds).
+   */
+  removedAt: number;
+  /**
+   * Time the notification spent in the drawer (in milliseconds).
+   */
+  dwellTimeMs: number;
+  /**
+   * Android removal reason (`NotificationListenerService.REASON_*`), or 0 if unknown (Android 7 and below).
+   * For example 1 = clicked, 2 = dismissed by the user, 8 = cancelled by the app.
+   */
+  reason: number;
+}
+
+/**
+ * Result returned by getLifecycleEvents.
+ */
+export interface GetLifecycleEventsResult {
+  /**
+   * Removal events, newest first.
+   */
+  events: NotificationLifecycleEvent[];
+}
+
+/**
+ * Options for getDwellTimeStats.
+ */
+export interface GetDwellTimeStatsOptions {
+  /**
+   * Only include removals at or after this timestamp (in milliseconds).
+   */
+  afterTimestamp?: number;
+  /**
+   * Only include removals before this timestamp (in milliseconds).
+   */
+  beforeTimestamp?: number;
+}
+
+/**
+ * Dwell time statistics for a single package.
+ */
+export interface DwellTimeStats {
+  /**
+   * The package name of the app.
+   */
+  packageName: string;
+  /**
+   * Number of recorded removals.
+   */
+  removals: number;
+  /**
+   * Average time in the drawer (in milliseconds).
+   */
+  avgDwellMs: number;
+  /**
+   * Shortest time in the drawer (in milliseconds).
+   */
+  minDwellMs: number;
+  /**
+   * Longest time in the drawer (in milliseconds).
+   */
+  maxDwellMs: number;
+  /**
+   * Number of removals caused by the user clicking the notification.
+   */
+  clicked: number;
+  /**
+   * Number of removals caused by the user dismissing the notification.
+   */
+  dismissed: number;
+}
+
+/**
+ * Result returned by getDwellTimeStats.
+ */
+export interface GetDwellTimeStatsResult {
+  /**
+   * Per-package statistics, most removals first.
+   */
+  stats: DwellTimeStats[];
+}
+
+/**
+ * Configuration options for the notification reader plugin.
+ */
+export interface NotificationReaderConfig {
+  /**
+   * Whether to filter out ongoing (non-dismissible) notifications.
+   * When true, ongoing notifications will be filtered out and not stored.
+   * @default true
+   */
+  filterOngoing?: boolean;
+  /**
+   * Whether to filter out transport category notifications.
+   * When true, notifications with category 'transport' will be filtered out and not stored.
+   * @default true
+   */
+  filterTransport?: boolean;
+  /**
+   * Storage limit for notifications in megabytes (MB).
+   * When the database exceeds this limit, older notifications will be removed using FIFO.
+   * Set to undefined for unlimited storage.
+   * @default 500
+   */
+  storageLimit?: number;
+  /**
+   * Whether to collect counters and latency histograms for the ingestion and query hot paths.
+   * Read them with getMetrics().
+   * @default false
+   */
+  metricsEnabled?: boolean;
+  /**
+   * When metrics are enabled, dump them to logcat every this many seconds. 0 disables periodic dumps.
+   * @default 0
+   */
+  metricsDumpIntervalSeconds?: number;
+  /**
+   * Whether periodic metric dumps are also written to `notification_reader_metrics.json`
+   * in the app's files directory.
+   * @default false
+   */
+  metricsDumpToFile?: boolean;
+  /**
+   * Whether long-form text (big text, inbox lines and messages) is stored Deflate-compressed.
+   * Values shorter than 256 bytes are always stored as-is.
+   * Rows stored before changing this setting stay readable.
+   * @default false
+   */
+  compressionEnabled?: boolean;
+  /**
+   * Move notifications older than this many days out of the database into compressed,
+   * append-only archive files. Archived notifications are still returned by getNotifications
+   * once paging passes the notifications left in the database, and are removed by
+   * deleteNotifications and deleteAllNotifications. They do not count towards storageLimit,
+   * getTotalCount or getDatabaseSize. 0 disables archiving.
+   * @default 0
+   */
+  archiveAfterDays?: number;
+  /**
+   * Split stored notifications into one table per week or per month (UTC).
+   * Storage limit eviction then drops whole old partitions instead of deleting rows, and
+   * queries bounded by `afterTimestamp`/`beforeTimestamp` only read the overlapping partitions.
+   * Notifications stored before enabling this are moved into partitions in the background.
+   * @default 'none'
+   */
+  partitioning?: 'none' | 'week' | 'month';
+  /**
+   * Return `smallIcon`, `largeIcon`, `appIcon`, `bigPicture` and action icons as
+   * content-hashed URLs served from the app's local server, instead of inline base64.
+   * The URLs are immutable and can be used directly as an image `src`, so the WebView
+   * caches and decodes each distinct image once. Stored notifications are unaffected.
+   * @default false
+   */
+  imageUrls?: boolean;
+  /**
+   * Number of most recent changes kept in the change log read by getChanges.
+   * Set to 0 to stop recording changes.
+   * @default 10000
+   */
+  changeLogRetention?: number;
+  /**
+   * Local HTTP endpoint (`http://localhost:…` or `http://127.0.0.1:…`) that changes are POSTed to
+   * in batches, in the shape returned by getChanges. A 2xx response acknowledges the batch, or
+   * only up to `{ "ack": seq }` if the response has that body; failed pushes are retried with
+   * backoff. Cleartext traffic to localhost must be allowed by the app's network security config.
+   * Set to null to stop pushing.
+   * @default null
+   */
+  changeLogEndpoint?: string | null;
+  /**
+   * Where notifications are stored. `'memory'` keeps only the most recent
+   * `memoryStoreCapacity` notifications in memory, for live-only use where nothing should be
+   * written to disk; they are lost when the app process ends. The archive, getConversation,
+   * getFacets and getChanges only cover the `'database'` backend.
+   * Notifications already stored stay in the backend they were written to.
+   * @default 'database'
+   */
+  storageBackend?: 'database' | 'memory';
+  /**
+   * Number of notifications kept by the `'memory'` storage backend; the oldest are dropped
+   * beyond it.
+   * @default 1000
+   */
+  memoryStoreCapacity?: number;
+  /**
+   * Notifications per minute each app may have stored once it has used up `rateLimitBurst`.
+   * Notifications over the limit are dropped before they are processed and counted per app
+   * in getMetrics' `rateLimit`; they still appear in getActiveNotifications. Set to 0 to store
+   * every notification.
+   * @default 0
+   */
+  rateLimitPerMinute?: number;
+  /**
+   * Notifications an app may have stored in a quick burst before `rateLimitPerMinute` applies.
+   * @default 20
+   */
+  rateLimitBurst?: number;
+}
+
+/**
+ * Progress of the initial backfill that stores notifications already active
+ * when the listener service first connects.
+ */
+export interface BackfillStatus {
+  /**
+   * Number of active notifications to store.
+   */
+  total?: number;
+  /**
+   * Number of active notifications processed so far.
+   */
+  processed?: number;
+  /**
+   * Number of notifications inserted.
+   */
+  inserted?: number;
+  /**
+   * Number of notifications skipped because they were already stored.
+   */
+  skipped?: number;
+  /**
+   * Whether the backfill has finished.
+   */
+  done?: boolean;
+}
+
+/**
+ * Progress of one background data migration.
+ */
+export interface DataMigrationProgress {
+  /**
+   * Identifies the migration, e.g. `'extractions'` (extracting OTP codes, amounts, links and
+   * phone numbers from notifications stored before extraction existed).
+   */
+  id: string;
+  /**
+   * Approximate number of rows processed so far.
+   */
+  processed: number;
+  /**
+   * Approximate number of rows to process, counted when the migration started.
+   */
+  total: number;
+  /**
+   * Whether the migration has finished.
+   */
+  done: boolean;
+}
+
+/**
+ * Progress of the data migrations that run in the background after a database upgrade.
+ */
+export interface MigrationStatus {
+  /**
+   * Whether migrations are running now.
+   */
+  running: boolean;
+  /**
+   * Every data migration, finished or not.
+   */
+  migrations: DataMigrationProgress[];
+}
+
+/**
+ * Latency statistics for a single instrumented stage.
+ * Percentiles are upper bounds of power-of-two microsecond buckets.
+ */
+export interface StageMetrics {
+  /**
+   * Number of recorded samples.
+   */
+  count: number;
+  /**
+   * Mean duration in microseconds.
+   */
+  meanUs: number;
+  /**
+   * Median duration in microseconds.
+   */
+  p50Us: number;
+  /**
+   * 90th percentile duration in microseconds.
+   */
+  p90Us: number;
+  /**
+   * 99th percentile duration in microseconds.
+   */
+  p99Us: number;
+  /**
+   * Longest duration in microseconds.
+   */
+  maxUs: number;
+}
+
+/**
+ * Result returned by getMetrics.
+ */
+export interface GetMetricsResult {
+  /**
+   * Whether metrics are currently being collected.
+   */
+  enabled: boolean;
+  /**
+   * Milliseconds since the metrics were last reset (or the process started).
+   */
+  sinceResetMs: number;
+  /**
+   * Event counters, e.g. notificationsPosted, notificationsStored, notificationsRateLimited,
+   * rowsEvicted, queries.
+   */
+  counters: Record<string, number>;
+  /**
+   * Latency per stage: entityConstruction, imageEncoding, dbInsert, storageCheck,
+   * eventDispatch, query, serialization, compression, decompression and extraction.
+   */
+  stages: Record<string, StageMetrics>;
+  /**
+   * Uncompressed / compressed size of the values stored compressed, or 0 if none were.
+   * See the compressionInputBytes, compressionOutputBytes and compressionBypassed counters.
+   */
+  compressionRatio: number;
+  /**
+   * Background executor lanes (ingestion, interactive, bulk) with their queue and throughput counters.
+   */
+  lanes: Record<string, LaneMetrics>;
+  /**
+   * getNotifications result cache counters.
+   */
+  queryCache: QueryCacheMetrics;
+  /**
+   * Size of the archive of old notifications.
+   */
+  archive: ArchiveMetrics;
+  /**
+   * Time-partitioned table layout.
+   */
+  partitions: PartitionMetrics;
+  /**
+   * Delivery of the change log to `changeLogEndpoint`.
+   */
+  changeLog: ChangeLogMetrics;
+  /**
+   * Per-app rate limiting, see `rateLimitPerMinute`.
+   */
+  rateLimit: RateLimitMetrics;
+  /**
+   * How the plugin is degrading while the device is low on memory.
+   */
+  memoryPressure: MemoryPressureMetrics;
+  /**
+   * The background warm-up run when the plugin loads and the time to the first page.
+   */
+  startup: StartupMetrics;
+}
+
+/**
+ * Delivery of the change log to `changeLogEndpoint`.
+ */
+export interface ChangeLogMetrics {
+  /**
+   * The configured endpoint, or null if changes are not pushed.
+   */
+  endpoint: string | null;
+  /**
+   * Sequence number of the last change the endpoint acknowledged.
+   */
+  ackedSeq: number;
+  /**
+   * Changes pushed since the process started.
+   */
+  pushed: number;
+  /**
+   * Failed push attempts since the process started.
+   */
+  failures: number;
+}
+
+/**
+ * Per-app rate limiting, see `rateLimitPerMinute`.
+ */
+export interface RateLimitMetrics {
+  /**
+   * The configured rate, or 0 if notifications are not rate limited.
+   */
+  perMinute: number;
+  /**
+   * The configured burst.
+   */
+  burst: number;
+  /**
+   * Notifications dropped per package name since the metrics were last reset.
+   */
+  dropped: Record<string, number>;
+}
+
+/**
+ * How the plugin is degrading while the device is low on memory. In `'moderate'` mode caches
+ * are shrunk, big pictures of new notifications are not stored and pages are capped at 50
+ * items; `'critical'` drops the caches and caps pages at 10. The mode returns to `'normal'`
+ * a minute after the last memory signal.
+ */
+/**
+ * Warm-up of the plugin when it loads. It opens the database, runs the statements used on every
+ * start and prefetches the first page of the last getNotifications call without a cursor (the
+ * default page on a first run), so that page is served from memory.
+ */
+export interface StartupMetrics {
+  /**
+   * Milliseconds spent opening the database, including schema migrations, or -1 if not done yet.
+   */
+  dbOpenMs: number;
+  /**
+   * Milliseconds spent running the statements used on every start, or -1 if not done yet.
+   */
+  statementWarmupMs: number;
+  /**
+   * Milliseconds spent prefetching the first page, or -1 if it was not prefetched (yet).
+   * The first page is not prefetched while memory is low.
+   */
+  prefetchMs: number;
+  /**
+   * Milliseconds from the plugin loading to the first getNotifications call resolving,
+   * or -1 if none has yet.
+   */
+  timeToFirstPageMs: number;
+  /**
+   * Whether that first page was served from memory, usually because it was prefetched.
+   */
+  firstPageFromCache: boolean;
+}
+
+export interface MemoryPressureMetrics {
+  /**
+   * The current degradation mode.
+   */
+  mode: 'normal' | 'moderate' | 'critical';
+  /**
+   * The last `onTrimMemory` level received (80 for `onLowMemory`), or 0 if none was.
+   */
+  lastTrimLevel: number;
+  /**
+   * Milliseconds since the last memory signal, or -1 if none was received.
+   */
+  msSinceLastSignal: number;
+  /**
+   * Memory signals received since the process started.
+   */
+  signals: number;
+  /**
+   * Big pictures not stored because memory was low, since the process started.
+   */
+  bigPicturesSkipped: number;
+}
+
+/**
+ * Time-partitioned table layout.
+ */
+export interface PartitionMetrics {
+  /**
+   * Partition granularity used for new notifications.
+   */
+  granularity: 'none' | 'week' | 'month';
+  /**
+   * Number of partition tables.
+   */
+  partitions: number;
+}
+
+/**
+ * Size of the archive of old notifications.
+ */
+export interface ArchiveMetrics {
+  /**
+   * Number of archive segment files.
+   */
+  segments: number;
+  /**
+   * Number of archived notifications.
+   */
+  rows: number;
+  /**
+   * Compressed size of the archive on disk, in bytes.
+   */
+  bytes: number;
+}
+
+/**
+ * Counters of the getNotifications result cache.
+ */
+export interface QueryCacheMetrics {
+  /**
+   * Requests served from the cache.
+   */
+  hits: number;
+  /**
+   * Requests that had to query the database.
+   */
+  misses: number;
+  /**
+   * hits / (hits + misses), or 0 before the first request.
+   */
+  hitRate: number;
+  /**
+   * Number of times the cache was invalidated by a write.
+   */
+  invalidations: number;
+  /**
+   * Number of cached pages.
+   */
+  entries: number;
+  /**
+   * Total rows across cached pages.
+   */
+  cachedRows: number;
+  /**
+   * Current write generation.
+   */
+  generation: number;
+}
+
+/**
+ * Queue and throughput counters for a background executor lane.
+ */
+export interface LaneMetrics {
+  /**
+   * Maximum number of concurrent tasks.
+   */
+  threads: number;
+  /**
+   * Tasks currently running.
+   */
+  active: number;
+  /**
+   * Tasks waiting in the queue.
+   */
+  queued: number;
+  /**
+   * Tasks accepted since process start.
+   */
+  submitted: number;
+  /**
+   * Tasks finished since process start.
+   */
+  completed: number;
+  /**
+   * Tasks rejected because the queue was full.
+   */
+  rejected: number;
+  /**
+   * Tasks cancelled, e.g. superseded queries.
+   */
+  cancelled: number;
+  /**
+   * Time tasks spent waiting in the queue.
+   */
+  queueWait: StageMetrics;
+}
+
+/**
+ * Options for startTraceRecording.
+ */
+export interface StartTraceRecordingOptions {
+  /**
+   * Replace letters and digits of all recorded text with `x`, keeping its length.
+   * @default true
+   */
+  redact?: boolean;
+}
+
+/**
+ * A notification trace file written by startTraceRecording.
+ */
+export interface TraceRecordingResult {
+  /**
+   * Absolute path of the trace file in the app's files directory.
+   */
+  path: string;
+  /**
+   * Number of posted and removed notifications recorded.
+   */
+  events?: number;
+  /**
+   * Size of the trace file in bytes.
+   */
+  bytes?: number;
+}
+
+export interface NotificationReaderPlugin extends Plugin {
+  /**
+   * Gets all active notifications from the notification listener service.
+   * Pass `sinceVersion` to only receive the changes since a previous call.
+   *
+   * @param options - Optional version to compute changes from
+   * @returns Promise resolving with the list of active notifications
+   * @throws Error if notification listener service is not connected or permission is not granted
+   * @since 1.0.0
+   * @platform Android
+   */
+  getActiveNotifications(options?: GetActiveNotificationsOptions): Promise<GetActiveNotificationsResult>;
+
+  /**
+   * Opens the system settings page to allow the user to grant notification access
+   * to the app. The promise resolves when the user returns from settings with
+   * the current permission status.
+   *
+   * @returns Promise resolving with an object indicating if permission was granted
+   * @throws Error if unable to open settings
+   * @since 1.0.0
+   * @platform Android
+   */
+  openAccessSettings(): Promise<{ enabled: boolean }>;
+
+  /**
+   * Checks if the app has notification access enabled.
+   *
+   * @returns Promise resolving with an object indicating if access is enabled
+   * @since 1.0.0
+   * @platform Android
+   */
+  isAccessEnabled(): Promise<{ enabled: boolean }>;
 
   /**
    * Retrieves notifications from the persistent Room database with optional
    * filtering and cursor-based pagination. Notifications are cached when they are posted and can be
    * queried later even after dismissal from the notification drawer.
    *
+   * Recent results are kept in memory and served without a database query until the next write.
+   *
    * @param options - Cursor, limit, and filtering options
    * @returns Promise resolving with the list of notifications from the database
    * @since 1.0.0
@@ -537,6 +1547,83 @@ export interface NotificationReaderPlugin extends Plugin {
    */
   deleteAllNotifications(): Promise<void>;
 
+  /**
+   * Deletes the stored notifications matching a filter.
+   * Rows are deleted in small chunks so that incoming notifications keep being stored meanwhile.
+   * This does not affect notifications in the system notification drawer.
+   *
+   * @param options Filter selecting the notifications to delete
+   * @returns Promise resolving with the number of deleted notifications and bytes reclaimed
+   * @since 1.3.0
+   * @platform Android
+   */
+  deleteNotifications(options?: DeleteNotificationsOptions): Promise<DeleteNotificationsResult>;
+
+  /**
+   * Reads the stored history of a messaging conversation, oldest first.
+   * Each message is stored once, however many notification updates repeated it, and is kept
+   * while a stored notification of the conversation still shows it.
+   *
+   * @param options The conversation key and paging options
+   * @returns Promise resolving with a page of messages
+   * @since 1.3.0
+   * @platform Android
+   */
+  getConversation(options: GetConversationOptions): Promise<GetConversationResult>;
+
+  /**
+   * Lists the apps, channels, categories and styles present among stored notifications,
+   * with the number of notifications for each. Counts are read from indexes without loading
+   * notifications, and cached until the next write.
+   * Archived notifications are not counted.
+   *
+   * @param options Optional filter restricting the counted notifications
+   * @returns Promise resolving with the distinct values and their counts
+   * @since 1.3.0
+   * @platform Android
+   */
+  getFacets(options?: GetFacetsOptions): Promise<GetFacetsResult>;
+
+  /**
+   * Returns what changed in the stored notifications since a sequence number, so a sync
+   * consumer reads only the changes instead of the whole history. Every insert, replacement
+   * and delete is recorded with an increasing sequence number; the most recent
+   * `changeLogRetention` changes are kept. Changes can also be pushed to a local HTTP endpoint,
+   * see `changeLogEndpoint`.
+   *
+   * Changes made before upgrading to a version with the change log are not recorded.
+   *
+   * @param options The last sequence number seen and the page size
+   * @returns Promise resolving with the changes, oldest first
+   * @since 1.3.0
+   * @platform Android
+   */
+  getChanges(options?: GetChangesOptions): Promise<GetChangesResult>;
+
+  /**
+   * Registers a live query. Every notification stored from now on that matches the filter
+   * (and, with `includeRemoved`, every matching notification removed from the drawer) is
+   * delivered to the `subscriptionUpdate` listener. Filters are evaluated natively, so
+   * non-matching notifications never cross the bridge.
+   *
+   * Subscriptions are dropped when the web view is reloaded.
+   *
+   * @param options Filter, projected fields and removal option
+   * @returns Promise resolving with the subscription id
+   * @since 1.3.0
+   * @platform Android
+   */
+  subscribe(options?: SubscribeOptions): Promise<SubscribeResult>;
+
+  /**
+   * Removes a subscription registered with subscribe.
+   *
+   * @param options The subscription id
+   * @since 1.3.0
+   * @platform Android
+   */
+  unsubscribe(options: UnsubscribeOptions): Promise<void>;
+
   /**
    * Gets the total count of notifications stored in the database.
    * This count includes all notifications regardless of their status or type.
@@ -607,9 +1694,11 @@ export interface NotificationReaderPlugin extends Plugin {
   importNotifications(options: ImportNotificationsOptions): Promise<void>;
 
   /**
-   * Retrieves a list of all installed applications on the device.
+   * Retrieves a list of installed applications on the device, sorted by name.
    * Returns app name, package name, app icon, and whether it's a system app.
+   * Supports paging, filters and icon size control; results are cached between calls.
    *
+   * @param options - Optional paging, filter and icon options
    * @returns Promise resolving with the list of installed apps
    * @since 1.0.0
    * @platform Android
@@ -621,7 +1710,18 @@ export interface NotificationReaderPlugin extends Plugin {
    * console.log('User apps:', userApps.map(app => app.appName));
    * ```
    */
-  getInstalledApps(): Promise<GetInstalledAppsResult>;
+  getInstalledApps(options?: GetInstalledAppsOptions): Promise<GetInstalledAppsResult>;
+
+  /**
+   * Gets the icon of a single installed app, for loading icons lazily after
+   * calling getInstalledApps with `includeIcons: false`.
+   *
+   * @param options - Package name and optional icon size
+   * @returns Promise resolving with the base64-encoded PNG icon, if available
+   * @since 1.3.0
+   * @platform Android
+   */
+  getAppIcon(options: GetAppIconOptions): Promise<{ appIcon?: string }>;
 
   /**
    * Gets the current configuration for the notification reader plugin.
@@ -669,6 +1769,91 @@ export interface NotificationReaderPlugin extends Plugin {
    */
   setConfig(config: NotificationReaderConfig): Promise<void>;
 
+  /**
+   * Retrieves recorded removals of notifications from the notification drawer, newest first.
+   * Removals are recorded by the listener service together with the removal reason.
+   *
+   * @param options - Optional key, package and time range filters
+   * @returns Promise resolving with the removal events
+   * @since 1.3.0
+   * @platform Android
+   */
+  getLifecycleEvents(options?: GetLifecycleEventsOptions): Promise<GetLifecycleEventsResult>;
+
+  /**
+   * Computes per-package dwell time (time between posting and removal) statistics
+   * from recorded notification removals.
+   *
+   * @param options - Optional time range on the removal time
+   * @returns Promise resolving with per-package statistics
+   * @since 1.3.0
+   * @platform Android
+   */
+  getDwellTimeStats(options?: GetDwellTimeStatsOptions): Promise<GetDwellTimeStatsResult>;
+
+  /**
+   * Gets the progress of the initial backfill of already-active notifications.
+   * Resolves with an empty object if no backfill ran since the app process started.
+   *
+   * @returns Promise resolving with the backfill progress
+   * @since 1.3.0
+   * @platform Android
+   */
+  getBackfillStatus(): Promise<BackfillStatus>;
+
+  /**
+   * Gets the progress of the data migrations that run after a database upgrade. Schema changes
+   * keep the stored history; heavier data changes, such as extracting values from notifications
+   * stored by an older version, run afterwards in small chunks in the background, while
+   * notifications keep being stored and read, and resume after the app restarts.
+   *
+   * @returns Promise resolving with the progress of each migration
+   * @since 1.3.0
+   * @platform Android
+   */
+  getMigrationStatus(): Promise<MigrationStatus>;
+
+  /**
+   * Gets counters and latency histograms for the ingestion and query hot paths.
+   * Metrics are only collected while `metricsEnabled` is set through setConfig.
+   *
+   * @returns Promise resolving with the current metrics
+   * @since 1.3.0
+   * @platform Android
+   */
+  getMetrics(): Promise<GetMetricsResult>;
+
+  /**
+   * Resets all metric counters and histograms.
+   *
+   * @returns Promise resolving when the metrics have been reset
+   * @since 1.3.0
+   * @platform Android
+   */
+  resetMetrics(): Promise<void>;
+
+  /**
+   * Starts recording the notifications delivered to the listener service (posted and removed)
+   * into a compact trace file, replacing any recording in progress. The trace can be replayed
+   * off-device through the ingestion path to reproduce notification storms.
+   * Images are not recorded, only their presence and dimensions.
+   *
+   * @param options - Whether to redact recorded text
+   * @returns Promise resolving with the path of the trace file
+   * @since 1.3.0
+   * @platform Android
+   */
+  startTraceRecording(options?: StartTraceRecordingOptions): Promise<TraceRecordingResult>;
+
+  /**
+   * Stops the current trace recording after writing every notification captured so far.
+   *
+   * @returns Promise resolving with the trace file, or an empty object if nothing was recording
+   * @since 1.3.0
+   * @platform Android
+   */
+  stopTraceRecording(): Promise<Partial<TraceRecordingResult>>;
+
   /**
    * Listen for notifications that are posted while the listener service is running.
    * Fires with the freshly-captured notification payload.
@@ -677,4 +1862,25 @@ export interface NotificationReaderPlugin extends Plugin {
     eventName: 'notificationPosted',
     listenerFunc: (notification: NotificationItem) => void,
   ): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen for progress of the initial backfill, fired after every stored batch.
+   */
+  addListener(eventName: 'backfillProgress', listenerFunc: (status: BackfillStatus) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen for progress of the background data migrations, fired after every chunk.
+   */
+  addListener(
+    eventName: 'migrationProgress',
+    listenerFunc: (progress: DataMigrationProgress) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Listen for notifications matching subscriptions registered with subscribe.
+   */
+  addListener(
+    eventName: 'subscriptionUpdate',
+    listenerFunc: (event: SubscriptionUpdateEvent) => void,
+  ): Promise<PluginListenerHandle>;
 }
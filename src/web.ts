@@ -1,17 +1,40 @@
 import { WebPlugin } from '@capacitor/core';
 
 import type {
+  BackfillStatus,
+  DeleteNotificationsOptions,
+  DeleteNotificationsResult,
+  GetActiveNotificationsOptions,
   GetActiveNotificationsResult,
+  GetAppIconOptions,
+  GetChangesOptions,
+  GetChangesResult,
+  GetConversationOptions,
+  GetConversationResult,
+  GetDwellTimeStatsOptions,
+  GetDwellTimeStatsResult,
+  GetFacetsOptions,
+  GetFacetsResult,
+  GetInstalledAppsOptions,
   GetInstalledAppsResult,
+  GetLifecycleEventsOptions,
+  GetLifecycleEventsResult,
+  GetMetricsResult,
   GetNotificationsOptions,
   GetNotificationsResult,
   ImportNotificationsOptions,
+  MigrationStatus,
   NotificationReaderConfig,
   NotificationReaderPlugin,
+  StartTraceRecordingOptions,
+  SubscribeOptions,
+  SubscribeResult,
+  TraceRecordingResult,
+  UnsubscribeOptions,
 } from './definitions';
 
 export class NotificationReaderWeb extends WebPlugin implements NotificationReaderPlugin {
-  async getActiveNotifications(): Promise<GetActiveNotificationsResult> {
+  async getActiveNotifications(_options?: GetActiveNotificationsOptions): Promise<GetActiveNotificationsResult> {
     throw this.unimplemented('Not implemented on web.');
   }
   async openAccessSettings(): Promise<{ enabled: boolean }> {
@@ -26,6 +49,24 @@ export class NotificationReaderWeb extends WebPlugin implements NotificationRead
   async deleteAllNotifications(): Promise<void> {
     throw this.unimplemented('Not implemented on web.');
   }
+  async deleteNotifications(_options?: DeleteNotificationsOptions): Promise<DeleteNotificationsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async getConversation(_options: GetConversationOptions): Promise<GetConversationResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async getFacets(_options?: GetFacetsOptions): Promise<GetFacetsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async getChanges(_options?: GetChangesOptions): Promise<GetChangesResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async subscribe(_options?: SubscribeOptions): Promise<SubscribeResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async unsubscribe(_options: UnsubscribeOptions): Promise<void> {
+    throw this.unimplemented('Not implemented on web.');
+  }
   async importNotifications(_options: ImportNotificationsOptions): Promise<void> {
     throw this.unimplemented('Not implemented on web.');
   }
@@ -35,7 +76,10 @@ export class NotificationReaderWeb extends WebPlugin implements NotificationRead
   async getDatabaseSize(): Promise<{ sizeBytes: number; sizeMB: number }> {
     throw this.unimplemented('Not implemented on web.');
   }
-  async getInstalledApps(): Promise<GetInstalledAppsResult> {
+  async getInstalledApps(_options?: GetInstalledAppsOptions): Promise<GetInstalledAppsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async getAppIcon(_options: GetAppIconOptions): Promise<{ appIcon?: string }> {
     throw this.unimplemented('Not implemented on web.');
   }
   async getConfig(): Promise<NotificationReaderConfig> {
@@ -44,4 +88,29 @@ export class NotificationReaderWeb extends WebPlugin implements NotificationRead
   async setConfig(_config: NotificationReaderConfig): Promise<void> {
     throw this.unimplemented('Not implemented on web.');
   }
+  async getLifecycleEvents(_options?: GetLifecycleEventsOptions): Promise<GetLifecycleEventsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async getDwellTimeStats(_options?: GetDwellTimeStatsOptions): Promise<GetDwellTimeStatsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async getMetrics(): Promise<GetMetricsResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async resetMetrics(): Promise<void> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async startTraceRecording(_options?: StartTraceRecordingOptions): Promise<TraceRecordingResult> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async stopTraceRecording(): Promise<Partial<TraceRecordingResult>> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+  async getBackfillStatus(): Promise<BackfillStatus> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async getMigrationStatus(): Promise<MigrationStatus> {
+    throw this.unimplemented('Not implemented on web.');
+  }
 }